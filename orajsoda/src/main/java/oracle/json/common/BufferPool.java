@@ -0,0 +1,140 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+
+/*
+   DESCRIPTION
+    BufferPool is a thread-safe pool of byte arrays used as the
+    backing storage of codec output streams.
+
+   NOTES
+    Buffers are pooled by size class, in powers of two from MIN_SIZE up
+    to a maximum buffer size. A request for a larger buffer is satisfied
+    with a fresh array that's never pooled, so a single huge document
+    can't leave a huge buffer behind. Each size class also keeps at most
+    a fixed number of idle buffers; extras are left to the garbage
+    collector.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+public final class BufferPool
+{
+  /** Smallest buffer handed out (4K) */
+  public static final int MIN_SIZE = 1 << 12;
+
+  /** Default maximum pooled buffer size (1M) */
+  public static final int DEFAULT_MAX_SIZE = 1 << 20;
+
+  /** Default number of idle buffers kept per size class */
+  public static final int DEFAULT_MAX_IDLE = 16;
+
+  private static final int MIN_SHIFT = 12;
+
+  private static final BufferPool SHARED =
+    new BufferPool(DEFAULT_MAX_SIZE, DEFAULT_MAX_IDLE);
+
+  private final int maxSize;
+  private final List<ArrayBlockingQueue<byte[]>> classes;
+
+  /**
+   * Create a pool. The maximum buffer size is rounded up to a power
+   * of two. Buffers larger than that are never retained.
+   */
+  public BufferPool(int maxSize, int maxIdle)
+  {
+    if (maxSize < MIN_SIZE)
+      maxSize = MIN_SIZE;
+    if (maxIdle < 1)
+      maxIdle = 1;
+
+    int nclasses = sizeClass(maxSize) + 1;
+
+    this.maxSize = MIN_SIZE << (nclasses - 1);
+    this.classes = new ArrayList<ArrayBlockingQueue<byte[]>>(nclasses);
+
+    for (int i = 0; i < nclasses; ++i)
+      classes.add(new ArrayBlockingQueue<byte[]>(maxIdle));
+  }
+
+  /**
+   * Pool shared by all codecs that aren't given one
+   */
+  public static BufferPool getShared()
+  {
+    return SHARED;
+  }
+
+  /**
+   * Largest buffer size retained by this pool
+   */
+  public int getMaxSize()
+  {
+    return maxSize;
+  }
+
+  /**
+   * Get a buffer of at least the requested size. Buffers up to the
+   * maximum size are rounded up to a size class and may be reused.
+   */
+  public byte[] acquire(int size)
+  {
+    if (size > maxSize)
+      return new byte[size];
+
+    int sclass = sizeClass(size);
+    byte[] buf = classes.get(sclass).poll();
+
+    if (buf == null)
+      buf = new byte[MIN_SIZE << sclass];
+
+    return buf;
+  }
+
+  /**
+   * Return a buffer to the pool. Buffers that aren't of a pooled size,
+   * and buffers that don't fit in their size class, are discarded.
+   */
+  public void release(byte[] buf)
+  {
+    if (buf == null)
+      return;
+
+    int len = buf.length;
+
+    if ((len < MIN_SIZE) || (len > maxSize) || ((len & (len - 1)) != 0))
+      return;
+
+    classes.get(sizeClass(len)).offer(buf);
+  }
+
+  /**
+   * Number of idle buffers currently held by the pool
+   */
+  public int getIdleCount()
+  {
+    int count = 0;
+    for (ArrayBlockingQueue<byte[]> q : classes)
+      count += q.size();
+    return count;
+  }
+
+  /**
+   * Index of the smallest size class that holds the given size
+   */
+  private static int sizeClass(int size)
+  {
+    if (size <= MIN_SIZE)
+      return 0;
+    return (32 - Integer.numberOfLeadingZeros(size - 1)) - MIN_SHIFT;
+  }
+}
@@ -0,0 +1,111 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+
+/*
+   DESCRIPTION
+    CodecPool is a thread-safe pool of DocumentCodecs produced by a
+    DocumentCodecFactory.
+
+   NOTES
+    Pooled codecs are detached from the factory, so any number of them
+    can be used concurrently, each by a single thread. Each one has a
+    private PooledOutputStream drawing on a BufferPool, and the buffer
+    is handed back to the BufferPool when the codec is released. An idle
+    codec therefore holds no buffer memory.
+
+    Typical usage:
+
+      DocumentCodec<?> codec = pool.acquire();
+      try
+      {
+        ...
+      }
+      finally
+      {
+        pool.release(codec);
+      }
+
+    A codec must not be used after it's released, and must not be given
+    to anything that keeps it, such as a document.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+public class CodecPool
+{
+  /** Default number of idle codecs kept by a pool */
+  public static final int DEFAULT_MAX_IDLE = 16;
+
+  private final DocumentCodecFactory factory;
+  private final BufferPool buffers;
+  private final ArrayBlockingQueue<DocumentCodec<?>> idle;
+
+  public CodecPool(DocumentCodecFactory factory)
+  {
+    this(factory, BufferPool.getShared(), DEFAULT_MAX_IDLE);
+  }
+
+  public CodecPool(DocumentCodecFactory factory,
+                   BufferPool buffers,
+                   int maxIdle)
+  {
+    this.factory = factory;
+    this.buffers = (buffers != null) ? buffers : BufferPool.getShared();
+    this.idle = new ArrayBlockingQueue<DocumentCodec<?>>(Math.max(maxIdle, 1));
+  }
+
+  /**
+   * Get a codec for the exclusive use of the caller
+   */
+  public DocumentCodec<?> acquire()
+  {
+    DocumentCodec<?> codec = idle.poll();
+
+    if (codec == null)
+    {
+      // Codec creation may lazily set up the factory, which isn't
+      // thread-safe, so serialize it
+      synchronized (factory)
+      {
+        codec = factory.getCodec();
+      }
+      codec.detachFactory();
+      codec.baos = new PooledOutputStream(buffers);
+    }
+
+    return codec;
+  }
+
+  /**
+   * Return a codec to the pool. Its state, including the key path and
+   * any pending rekeying, is cleared.
+   */
+  public void release(DocumentCodec<?> codec)
+  {
+    if (codec == null)
+      return;
+
+    codec.recycle();
+
+    if (codec.baos instanceof PooledOutputStream)
+      ((PooledOutputStream)codec.baos).release();
+
+    idle.offer(codec);
+  }
+
+  /**
+   * Number of idle codecs currently held by the pool
+   */
+  public int getIdleCount()
+  {
+    return idle.size();
+  }
+}
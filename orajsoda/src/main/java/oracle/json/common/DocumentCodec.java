@@ -120,6 +120,8 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 import java.math.BigDecimal;
 
@@ -165,6 +167,10 @@ public abstract class DocumentCodec<T>
   protected String[] keySteps = null;
   protected boolean  validate = false;
 
+  // Key step in UTF-8 form for the text scanner, cached per key path
+  private String[] scanSteps = null;
+  private byte[]   scanField = null;
+
   protected String  newKey     = null;
   protected boolean removeKey  = false;
   protected boolean keyIsId    = false;
@@ -216,12 +222,26 @@ public abstract class DocumentCodec<T>
     {
       // Since this codec is getting a private BAOS, it's automatically detached
       isDetached = true;
-      baos = new ByteArrayOutputStream();
+      baos = new PooledOutputStream(BufferPool.getShared());
     }
     baos.reset();
     return baos;
   }
 
+  /**
+   * Hand the buffer of the captive stream back to its BufferPool, once
+   * the output written to it has been copied out. Every use of getBAOS()
+   * should end with this, in a finally block, so that codecs kept by
+   * documents don't each hold on to a pooled buffer (and drain the pool)
+   * for as long as the document lives. The stream takes a buffer from
+   * the pool again on its next use.
+   */
+  protected void releaseBAOS()
+  {
+    if (baos instanceof PooledOutputStream)
+      ((PooledOutputStream)baos).release();
+  }
+
   /**
    * Internal full reset of the codec. Done implicitly by all load
    * methods, ensuring that only the loaded form is present.
@@ -236,6 +256,19 @@ public abstract class DocumentCodec<T>
     rekeyingClear();
   }
 
+  /**
+   * Clear all state, including the key path and options, so that the
+   * codec can be reused for an unrelated purpose. Used by CodecPool.
+   */
+  void recycle()
+  {
+    reset();
+
+    keySteps = null;
+    validate = false;
+    eJSONId  = false;
+  }
+
   /**
    * Load a document into the codec. The document is typically in
    * a navigable form such as a Map or List.
@@ -349,6 +382,12 @@ public abstract class DocumentCodec<T>
   {
      this.eJSONId = val;
   }
+
+  protected boolean isEJSONId()
+  {
+    return eJSONId;
+  }
+
   /**
    * Request that the document key set be to the specified string.
    * To be sure of removing an existing key, combine this with removeKey()
@@ -439,6 +478,20 @@ public abstract class DocumentCodec<T>
     return jsonUnicode;
   }
 
+  /**
+   * Write the document as UTF-8 JSON text to a stream, which is left
+   * open. By default this writes the result of getUnicode(), but codecs
+   * with a binary format may render the image straight into the stream,
+   * without an intermediate byte array.
+   */
+  public void writeUnicode(OutputStream out)
+    throws JsonException, IOException
+  {
+    byte[] unicode = getUnicode();
+    if (unicode != null)
+      out.write(unicode);
+  }
+
   // ### To-do for Josh
   public Object getDocument(Class clazz)
     throws JsonException
@@ -572,6 +625,27 @@ public abstract class DocumentCodec<T>
   private String extractKey(boolean validate)
     throws JsonException
   {
+    // A top-level key in UTF-8 text can usually be found by a byte scan,
+    // falling back to the parser for anything the scan can't handle.
+    if (!validate && (jsonUnicode != null) && (keySteps.length == 1))
+    {
+      if (keySteps != scanSteps)
+      {
+        scanField = keySteps[0].getBytes(DEFAULT_CHARSET);
+        scanSteps = keySteps;
+      }
+
+      int pos = JsonTextScanner.findField(jsonUnicode, scanField);
+      if (pos == JsonTextScanner.NOT_FOUND)
+        return null;
+      if (pos >= 0)
+      {
+        String key = JsonTextScanner.getKeyString(jsonUnicode, pos);
+        if (key != null)
+          return key;
+      }
+    }
+
     return parseRoot(null, !validate);
   }
 
@@ -838,6 +912,16 @@ public abstract class DocumentCodec<T>
                   fldKey = null;
                 }
                 // Otherwise we're just removing the old key
+
+                // An old key that's being dropped may be a container,
+                // in which case none of its contents can be emitted
+                if (removeKey)
+                {
+                  if (ev == JsonParser.Event.START_OBJECT)
+                    parser.skipObject();
+                  else if (ev == JsonParser.Event.START_ARRAY)
+                    parser.skipArray();
+                }
               }
 
               --currentStep;     // Closed the last step
@@ -905,6 +989,11 @@ public abstract class DocumentCodec<T>
       case VALUE_STRING:
         generator.write(parser.getString());
         break;
+      case START_OBJECT:
+      case START_ARRAY:
+        // Only for an old key that's a container, which is kept as-is
+        generator.write(parser.getValue());
+        break;
       default:
         throw new UnsupportedOperationException(); // todo
       }
@@ -22,9 +22,20 @@
    Typically, the <Image type> is omitted if it's the same as the
    <Document type>.
 
-   ### To-do: Josh to rework this to use the Service Provider pattern
-   ### and a ServiceLoader. Not clear what would be loaded, probably
-   ### instances of this factory class?
+   Factories are service providers. A codec is plugged in by shipping
+   a subclass, with a public no-argument constructor, and listing it in
+
+     META-INF/services/oracle.json.common.DocumentCodecFactory
+
+   The subclass reports the name it's selected by from getName(), and
+   the image format its codecs read and write from getImageFormat().
+   newInstance(name) finds a factory by name among this base class and
+   the providers on the classpath, which are discovered once. Providers
+   that can't be loaded (for instance, OSON without oracle.sql.json)
+   are skipped. Codecs used for collections with binary content must
+   read and write images in the format the database stores ("OSON").
+   The test kit in oracle.json.testharness.CodecConformanceTestCase
+   checks a factory against the behavior of the built-in codecs.
 
    MODIFIED    (MM/DD/YY)
     dmcmahon    04/16/19 - Creation
@@ -43,6 +54,15 @@ import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
 import jakarta.json.stream.JsonParser;
 import jakarta.json.stream.JsonGenerator;
 import jakarta.json.stream.JsonParserFactory;
@@ -62,6 +82,19 @@ import oracle.json.common.Message;
 
 public class DocumentCodecFactory
 {
+  /** Name of this base factory, which has no image format */
+  public static final String DEFAULT_NAME = "json";
+
+  /** Image format stored by the database for binary collections */
+  public static final String OSON_FORMAT = "OSON";
+
+  // Give up on a broken provider configuration after this many errors
+  private static final int MAX_PROVIDER_ERRORS = 16;
+
+  // Factory classes by name, discovered on first use
+  private static volatile Map<String, Class<? extends DocumentCodecFactory>>
+    providers = null;
+
   protected JsonFactoryProvider factoryProvider = null;
 
   // When this ByteArrayOutputStream is first created, and
@@ -71,11 +104,19 @@ public class DocumentCodecFactory
   // By doing reset(), we can reuse the internal byte array memory on
   // subsequent allocations. From reset() Javadoc: the output stream
   // can be used again, reusing the already allocated buffer space.
-  protected ByteArrayOutputStream baos = new ByteArrayOutputStream();
+  // The stream is backed by the shared BufferPool, and its buffer is
+  // handed back to the pool after each use (see releaseBAOS()), so the
+  // memory is reused through the pool rather than kept by the stream,
+  // and a buffer grown for a huge document isn't kept at all.
+  protected ByteArrayOutputStream baos =
+    new PooledOutputStream(BufferPool.getShared());
   // ### This is a cheesy way to reuse this object because
   // ### it ends up being shared by all DocumentCodec instances.
   // ### However, since we know they'll never be used concurrently,
-  // ### for now this is OK.
+  // ### for now this is OK. Codecs that need to be used concurrently
+  // ### should come from the codec pool instead.
+
+  private CodecPool codecPool = null;
 
   public DocumentCodecFactory()
   {
@@ -91,11 +132,124 @@ public class DocumentCodecFactory
     this.factoryProvider = factoryProvider;
   }
 
-  public DocumentCodec getCodec()
+  public DocumentCodec<?> getCodec()
   {
+    // Automatically create a provider if one wasn't set
+    if (factoryProvider == null)
+      setFactoryProvider(new JsonFactoryProvider());
+
     return new DefaultDocumentCodec(factoryProvider);
   }
 
+  /**
+   * Name by which this factory is selected. Subclasses registered as
+   * service providers must override this with a unique name.
+   */
+  public String getName()
+  {
+    return DEFAULT_NAME;
+  }
+
+  /**
+   * Binary image format read and written by the codecs of this factory,
+   * or null if loadImage() and getImage() aren't supported
+   */
+  public String getImageFormat()
+  {
+    return null;
+  }
+
+  /**
+   * Create a new factory with the given name, or return null if there's
+   * no such factory. The factory provider still has to be set. A factory
+   * that can't be instantiated is reported as an exception.
+   */
+  public static DocumentCodecFactory newInstance(String name)
+    throws JsonException
+  {
+    Class<? extends DocumentCodecFactory> cls = getProviders().get(name);
+    if (cls == null)
+      return null;
+
+    try
+    {
+      return cls.getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException e)
+    {
+      Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+      throw new JsonException(Message.EX_CODEC_NOT_CREATED.get(cls.getName(),
+                                                               cause.toString()),
+                              cause);
+    }
+    catch (LinkageError e)
+    {
+      throw new JsonException(Message.EX_CODEC_NOT_CREATED.get(cls.getName(),
+                                                               e.toString()),
+                              e);
+    }
+  }
+
+  /**
+   * Names of the available factories, starting with this base factory
+   */
+  public static List<String> getAvailableNames()
+  {
+    return new ArrayList<String>(getProviders().keySet());
+  }
+
+  private static Map<String, Class<? extends DocumentCodecFactory>> getProviders()
+  {
+    Map<String, Class<? extends DocumentCodecFactory>> result = providers;
+    if (result != null)
+      return result;
+
+    result = new LinkedHashMap<String, Class<? extends DocumentCodecFactory>>();
+    result.put(DEFAULT_NAME, DocumentCodecFactory.class);
+
+    Iterator<DocumentCodecFactory> iter =
+      ServiceLoader.load(DocumentCodecFactory.class).iterator();
+
+    int errors = 0;
+    while (errors < MAX_PROVIDER_ERRORS)
+    {
+      try
+      {
+        if (!iter.hasNext())
+          break;
+        DocumentCodecFactory factory = iter.next();
+        String name = factory.getName();
+        // The first provider with a name wins
+        if ((name != null) && !result.containsKey(name))
+          result.put(name, factory.getClass());
+      }
+      catch (ServiceConfigurationError e)
+      {
+        ++errors;
+      }
+      catch (LinkageError e)
+      {
+        ++errors;
+      }
+    }
+
+    result = Collections.unmodifiableMap(result);
+    providers = result;
+    return result;
+  }
+
+  /**
+   * Get the thread-safe pool of codecs produced by this factory.
+   * Codecs from the pool are detached, and can be used by several
+   * threads at once (each codec by one thread).
+   */
+  public synchronized CodecPool getCodecPool()
+  {
+    if (codecPool == null)
+      codecPool = new CodecPool(this);
+    return codecPool;
+  }
+
   private class DefaultDocumentCodec extends DocumentCodec<JsonValue>
   {
     private DefaultDocumentCodec(JsonFactoryProvider factoryProvider)
@@ -242,18 +396,24 @@ public class DocumentCodecFactory
         if (doc != null)
         {
           ByteArrayOutputStream unicodeOut = getBAOS();
-          JsonGenerator gen = factoryProvider.getGeneratorFactory()
-                                .createGenerator(unicodeOut);
-          if (doRekeying)
+          try
           {
-            // ### It would be more efficient to rekey the document at
-            // ### this point, but for now don't bother and let the
-            // ### base streaming method do that for us.
+            JsonGenerator gen = factoryProvider.getGeneratorFactory()
+                                  .createGenerator(unicodeOut);
+            if (doRekeying)
+            {
+              // ### It would be more efficient to rekey the document at
+              // ### this point, but for now don't bother and let the
+              // ### base streaming method do that for us.
+            }
+            gen.write(doc);
+            gen.close();
+            jsonUnicode = unicodeOut.toByteArray();
+          }
+          finally
+          {
+            releaseBAOS();
           }
-          gen.write(doc);
-          gen.close();
-          jsonUnicode = unicodeOut.toByteArray();
-          unicodeOut.reset();
         }
       }
 
@@ -0,0 +1,456 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+
+/*
+   DESCRIPTION
+    JsonTextScanner locates a top-level field of a JSON object in UTF-8
+    text by scanning the bytes, without running a JSON parser.
+
+   NOTES
+    The whole text is checked against the JSON grammar, including the
+    objects and arrays nested in the field values, but strings are
+    skipped without being decoded and no values are built. This makes
+    it much cheaper than a streaming parse when the field appears late
+    in a large document.
+
+    The scanner deliberately gives up on anything out of the ordinary,
+    such as escapes in the field names or in the value, non-ASCII values,
+    text that isn't UTF-8, deeply nested containers, or any syntax error.
+    The caller is expected to fall back to a full streaming parse in that
+    case, which also takes care of reporting the syntax errors.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.common;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+final class JsonTextScanner
+{
+  /** The field isn't present in the object */
+  static final int NOT_FOUND = -1;
+
+  /** The text can't be scanned, use a parser instead */
+  static final int NOT_SCANNABLE = -2;
+
+  private static final byte[] TRUE_BYTES  = {'t', 'r', 'u', 'e'};
+  private static final byte[] FALSE_BYTES = {'f', 'a', 'l', 's', 'e'};
+  private static final byte[] NULL_BYTES  = {'n', 'u', 'l', 'l'};
+
+  // Containers nested deeper than this are left to the parser, which
+  // has its own limit on the depth
+  private static final int MAX_DEPTH = 64;
+
+  private JsonTextScanner()
+  {
+  }
+
+  /**
+   * Find the value of a top-level field of the object in the UTF-8
+   * text. The field name is given in UTF-8 form. Returns the position
+   * of the first byte of the field value, or NOT_FOUND, or NOT_SCANNABLE.
+   * The rest of the object is scanned as well, so that a duplicate of
+   * the field is reported as NOT_SCANNABLE and left to the parser.
+   */
+  static int findField(byte[] text, byte[] field)
+  {
+    int len = text.length;
+    int pos = skipSpace(text, 0);
+    int valuePos = NOT_FOUND;
+
+    if ((pos >= len) || (text[pos] != '{'))
+      return NOT_SCANNABLE;
+
+    pos = skipSpace(text, pos + 1);
+    if ((pos < len) && (text[pos] == '}'))
+      return NOT_FOUND;
+
+    while (pos < len)
+    {
+      // Field name
+      if (text[pos] != '"')
+        return NOT_SCANNABLE;
+
+      int nameStart = pos + 1;
+      int nameEnd = skipString(text, pos);
+      if (nameEnd < 0)
+        return NOT_SCANNABLE;
+
+      int match = compareName(text, nameStart, nameEnd - 1, field);
+      if (match < 0)
+        return NOT_SCANNABLE;
+
+      pos = skipSpace(text, nameEnd);
+      if ((pos >= len) || (text[pos] != ':'))
+        return NOT_SCANNABLE;
+
+      pos = skipSpace(text, pos + 1);
+      if (pos >= len)
+        return NOT_SCANNABLE;
+
+      if (match > 0)
+      {
+        if (valuePos >= 0)
+          return NOT_SCANNABLE; // Duplicate field
+        valuePos = pos;
+      }
+
+      pos = skipValue(text, pos);
+      if (pos < 0)
+        return NOT_SCANNABLE;
+
+      pos = skipSpace(text, pos);
+      if (pos >= len)
+        return NOT_SCANNABLE;
+
+      if (text[pos] == '}')
+      {
+        // Nothing but whitespace may follow the object
+        if (skipSpace(text, pos + 1) < len)
+          return NOT_SCANNABLE;
+        return valuePos;
+      }
+      if (text[pos] != ',')
+        return NOT_SCANNABLE;
+
+      pos = skipSpace(text, pos + 1);
+    }
+
+    return NOT_SCANNABLE;
+  }
+
+  /**
+   * Return the value at the position as a key string, if it's a plain
+   * ASCII string or a number. Returns null if the value needs to be
+   * handled by a parser.
+   */
+  static String getKeyString(byte[] text, int pos)
+  {
+    byte b = text[pos];
+
+    if (b == '"')
+    {
+      int end = pos + 1;
+      while (end < text.length)
+      {
+        b = text[end];
+        if (b == '"')
+          return new String(text, pos + 1, end - pos - 1,
+                            StandardCharsets.US_ASCII);
+        // Escapes, control characters, and non-ASCII are left to a parser
+        if ((b == '\\') || (b < 0x20))
+          return null;
+        ++end;
+      }
+      return null;
+    }
+
+    if ((b == '-') || ((b >= '0') && (b <= '9')))
+    {
+      int end = skipNumber(text, pos);
+      if (end < 0)
+        return null;
+      if ((end < text.length) && !isDelimiter(text[end]))
+        return null;
+      BigDecimal bval = new BigDecimal(new String(text, pos, end - pos,
+                                                 StandardCharsets.US_ASCII));
+      return DocumentCodec.bigDecimalToKey(bval);
+    }
+
+    // Literals and containers aren't viable keys, let a parser decide
+    return null;
+  }
+
+  /**
+   * Compare a field name to the bytes of a string without its quotes.
+   * Returns 1 for a match, 0 for a mismatch, or -1 if the string has an
+   * escape and so can't be compared byte-wise.
+   */
+  private static int compareName(byte[] text, int start, int end,
+                                 byte[] field)
+  {
+    boolean equal = ((end - start) == field.length);
+
+    for (int i = start; i < end; ++i)
+    {
+      if (text[i] == '\\')
+        return -1;
+      if (equal && (text[i] != field[i - start]))
+        equal = false;
+    }
+
+    return (equal ? 1 : 0);
+  }
+
+  /**
+   * Skip a string starting at the opening quote. Returns the position
+   * after the closing quote, or -1 if the string isn't terminated, or
+   * has a control character or an invalid escape.
+   */
+  private static int skipString(byte[] text, int pos)
+  {
+    int len = text.length;
+
+    for (int i = pos + 1; i < len; ++i)
+    {
+      byte b = text[i];
+      if (b == '"')
+        return i + 1;
+      if (b == '\\')
+      {
+        if (++i >= len)
+          return -1;
+        switch (text[i])
+        {
+        case '"':
+        case '\\':
+        case '/':
+        case 'b':
+        case 'f':
+        case 'n':
+        case 'r':
+        case 't':
+          break;
+        case 'u':
+          if (i + 4 >= len)
+            return -1;
+          for (int j = 1; j <= 4; ++j)
+            if (!isHexDigit(text[i + j]))
+              return -1;
+          i += 4;
+          break;
+        default:
+          return -1;
+        }
+      }
+      else if ((b >= 0) && (b < 0x20))
+        return -1;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Skip any value. Returns the position after it, or -1 on anything
+   * unexpected.
+   */
+  private static int skipValue(byte[] text, int pos)
+  {
+    byte b = text[pos];
+
+    if (b == '"')
+      return skipString(text, pos);
+
+    if ((b == '{') || (b == '['))
+      return skipContainer(text, pos);
+
+    if ((b == '-') || isDigit(b))
+      return skipNumber(text, pos);
+
+    if (b == 't')
+      return skipLiteral(text, pos, TRUE_BYTES);
+    if (b == 'f')
+      return skipLiteral(text, pos, FALSE_BYTES);
+    if (b == 'n')
+      return skipLiteral(text, pos, NULL_BYTES);
+
+    return -1;
+  }
+
+  private static int skipLiteral(byte[] text, int pos, byte[] literal)
+  {
+    if (pos + literal.length > text.length)
+      return -1;
+
+    for (int i = 0; i < literal.length; ++i)
+      if (text[pos + i] != literal[i])
+        return -1;
+
+    return pos + literal.length;
+  }
+
+  /**
+   * Skip a nested object or array, checking that it matches the JSON
+   * grammar. Strings are skipped without being decoded. Returns the
+   * position after the container, or -1 if it's malformed or nested
+   * more than MAX_DEPTH deep.
+   */
+  private static int skipContainer(byte[] text, int pos)
+  {
+    int len = text.length;
+
+    // The containers entered so far, true for an object
+    boolean[] objects = new boolean[MAX_DEPTH];
+    int depth = 0;
+    int i = pos;
+
+    while (true)
+    {
+      // At the start of a value
+      byte b = text[i];
+
+      if ((b == '{') || (b == '['))
+      {
+        if (depth == MAX_DEPTH)
+          return -1;
+
+        boolean isObject = (b == '{');
+        objects[depth++] = isObject;
+
+        i = skipSpace(text, i + 1);
+        if (i >= len)
+          return -1;
+
+        if (text[i] != (isObject ? '}' : ']'))
+        {
+          if (isObject)
+          {
+            i = skipName(text, i);
+            if (i < 0)
+              return -1;
+          }
+          continue;
+        }
+
+        // Empty container
+        --depth;
+        ++i;
+      }
+      else
+      {
+        i = skipValue(text, i);
+        if (i < 0)
+          return -1;
+      }
+
+      // After a value, close containers until another value is expected
+      while (true)
+      {
+        if (depth == 0)
+          return i;
+
+        i = skipSpace(text, i);
+        if (i >= len)
+          return -1;
+
+        b = text[i];
+        if (b == ',')
+        {
+          i = skipSpace(text, i + 1);
+          if (i >= len)
+            return -1;
+          if (objects[depth - 1])
+          {
+            i = skipName(text, i);
+            if (i < 0)
+              return -1;
+          }
+          break;
+        }
+
+        if (b != (objects[depth - 1] ? '}' : ']'))
+          return -1;
+
+        --depth;
+        ++i;
+      }
+    }
+  }
+
+  /**
+   * Skip a field name and the colon that follows it. Returns the
+   * position of the field value, or -1 if there's no name or value.
+   */
+  private static int skipName(byte[] text, int pos)
+  {
+    if (text[pos] != '"')
+      return -1;
+
+    pos = skipString(text, pos);
+    if (pos < 0)
+      return -1;
+
+    pos = skipSpace(text, pos);
+    if ((pos >= text.length) || (text[pos] != ':'))
+      return -1;
+
+    pos = skipSpace(text, pos + 1);
+    return (pos < text.length) ? pos : -1;
+  }
+
+  /**
+   * Skip a number matching the JSON grammar, returns -1 if it doesn't
+   */
+  private static int skipNumber(byte[] text, int pos)
+  {
+    int len = text.length;
+    int i = pos;
+
+    if (text[i] == '-')
+      ++i;
+
+    if ((i >= len) || !isDigit(text[i]))
+      return -1;
+    if (text[i] == '0')
+      ++i;
+    else
+      while ((i < len) && isDigit(text[i]))
+        ++i;
+
+    if ((i < len) && (text[i] == '.'))
+    {
+      ++i;
+      if ((i >= len) || !isDigit(text[i]))
+        return -1;
+      while ((i < len) && isDigit(text[i]))
+        ++i;
+    }
+
+    if ((i < len) && ((text[i] == 'e') || (text[i] == 'E')))
+    {
+      ++i;
+      if ((i < len) && ((text[i] == '+') || (text[i] == '-')))
+        ++i;
+      if ((i >= len) || !isDigit(text[i]))
+        return -1;
+      while ((i < len) && isDigit(text[i]))
+        ++i;
+    }
+
+    return i;
+  }
+
+  private static int skipSpace(byte[] text, int pos)
+  {
+    while ((pos < text.length) && isSpace(text[pos]))
+      ++pos;
+    return pos;
+  }
+
+  private static boolean isSpace(byte b)
+  {
+    return ((b == ' ') || (b == '\n') || (b == '\r') || (b == '\t'));
+  }
+
+  private static boolean isDigit(byte b)
+  {
+    return ((b >= '0') && (b <= '9'));
+  }
+
+  private static boolean isHexDigit(byte b)
+  {
+    return (isDigit(b) ||
+            ((b >= 'a') && (b <= 'f')) || ((b >= 'A') && (b <= 'F')));
+  }
+
+  private static boolean isDelimiter(byte b)
+  {
+    return (isSpace(b) || (b == ',') || (b == '}'));
+  }
+}
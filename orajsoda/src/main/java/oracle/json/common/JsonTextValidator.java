@@ -0,0 +1,844 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+
+/*
+   DESCRIPTION
+    JsonTextValidator checks that UTF-8 text is well-formed JSON in a
+    single pass over the bytes, optionally rejecting duplicate field
+    names, and extracts a key from the document along the way.
+
+   NOTES
+    The checks correspond to the IS JSON (STRICT) condition used for
+    the standard validation mode of a collection, or IS JSON (STRICT
+    WITH UNIQUE KEYS) for the strict mode. That is, the text must be a
+    single JSON value, optionally surrounded by whitespace, with no
+    extensions to the JSON grammar. The UTF-8 encoding must also be
+    well-formed: overlong forms, surrogates, and code points beyond
+    U+10FFFF are rejected.
+
+    No strings are created for valid text, except for the key. Field
+    names are compared by a hash of their UTF-16 form, computed while
+    the bytes are checked, and only decoded if the hashes match. The
+    names of an object are scanned linearly, or looked up in a hash
+    table once the object has more than a few fields.
+
+    The key is found by the same rules as the codec's streaming
+    extraction: the path is followed through objects only, the first
+    occurrence of each step is used, and string and number values are
+    viable keys. As with the codec's full extraction, a step repeated
+    in an object on the path makes the key an error, even when field
+    names needn't be unique.
+
+    Text that isn't UTF-8 (UTF-16 or UTF-32, or UTF-8 with a byte order
+    mark) isn't handled; use canValidate() to check first.
+
+    A validator is stateful and must be used by one thread at a time.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.common;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import java.util.Arrays;
+
+import jakarta.json.JsonException;
+
+public final class JsonTextValidator
+{
+  private static final int LINEAR_NAMES = 16; // Names compared by a scan
+
+  private final boolean uniqueKeys;
+
+  // Container stack, true for an object
+  private boolean[] stack = new boolean[32];
+  private int depth;
+
+  // Field names of the open objects, innermost last
+  private int[] nameHash  = new int[64];
+  private int[] nameStart = new int[64]; // Position of the opening quote
+  private int[] nameChars = new int[64]; // Length in UTF-16 characters
+  private int[] nameBase  = new int[32]; // First name of each object
+  private int   nameCount;
+
+  // Hash tables of the names of objects with more than LINEAR_NAMES
+  // fields, by depth, holding name indexes plus one. A table is only
+  // valid while its object is open.
+  private int[][] wideTables = new int[4][];
+
+  // Results of the last string scanned
+  private int     strHash;
+  private int     strChars;
+
+  // Key path
+  private String[] keySteps = null;
+  private int[]    stepHash = null;
+
+  // Objects by sequence number, for finding repeated key steps
+  private int[] objectIds = new int[32]; // Of the open objects
+  private int[] pathIds   = null;        // Reached by the steps so far
+  private int[] stepIds   = null;        // Last seen holding each step
+  private int   objects;
+
+  // Key extraction state
+  private int     matched;     // Steps matched so far
+  private boolean stepPending; // An intermediate step awaits its value
+  private boolean keyPending;  // The last step awaits its value
+  private boolean stopped;     // Key found, or can't be found
+  private boolean keyFound;
+  private boolean keyViable;
+  private boolean rootObject;
+  private String  key;
+  private String  duplicateStep;
+
+  private byte[] text;
+  private int pos;
+
+  /**
+   * Create a validator, which checks for duplicate field names if
+   * uniqueKeys is true.
+   */
+  public JsonTextValidator(boolean uniqueKeys)
+  {
+    this.uniqueKeys = uniqueKeys;
+  }
+
+  /**
+   * Returns true if the text can be handled by the validator, i.e. if
+   * it looks like UTF-8 without a byte order mark.
+   */
+  public static boolean canValidate(byte[] text)
+  {
+    int len = Math.min(text.length, 4);
+
+    if ((len > 0) && ((text[0] & 0xFF) >= 0xEF))
+      return false; // Byte order mark
+
+    for (int i = 0; i < len; ++i)
+      if (text[i] == 0)
+        return false; // UTF-16 or UTF-32
+
+    return true;
+  }
+
+  /**
+   * Set the path of the key to extract, or null for none.
+   */
+  public void setKeyPath(String[] steps)
+  {
+    if (steps == keySteps)
+      return;
+
+    keySteps = steps;
+    stepHash = null;
+    pathIds  = null;
+    stepIds  = null;
+
+    if (steps != null)
+    {
+      stepHash = new int[steps.length];
+      for (int i = 0; i < steps.length; ++i)
+        stepHash[i] = steps[i].hashCode();
+      pathIds = new int[steps.length];
+      stepIds = new int[steps.length];
+    }
+  }
+
+  /**
+   * Validate UTF-8 JSON text, throwing an exception if it's not valid.
+   */
+  public void validate(byte[] text)
+    throws JsonException
+  {
+    this.text        = text;
+    this.pos         = 0;
+    this.depth       = 0;
+    this.nameCount   = 0;
+    this.matched     = 0;
+    this.stepPending = false;
+    this.keyPending  = false;
+    this.stopped     = (keySteps == null) || (keySteps.length == 0);
+    this.keyFound    = false;
+    this.keyViable   = false;
+    this.key         = null;
+    this.duplicateStep = null;
+    this.objects     = 0;
+
+    if (pathIds != null)
+    {
+      Arrays.fill(pathIds, -1);
+      Arrays.fill(stepIds, -1);
+    }
+
+    try
+    {
+      this.rootObject = (nextToken() == '{');
+      validateValue();
+
+      // Only whitespace may follow the root value
+      while (pos < text.length)
+      {
+        byte b = text[pos];
+        if ((b != ' ') && (b != '\n') && (b != '\r') && (b != '\t'))
+          throw syntaxError(pos);
+        ++pos;
+      }
+    }
+    finally
+    {
+      this.text = null;
+    }
+  }
+
+  /**
+   * Return the key found by the last validation, or null if there was
+   * none. If needViable is true, a key that isn't a string or a number
+   * is an error, otherwise it's returned as null.
+   */
+  public String getKey(boolean needViable)
+    throws JsonException
+  {
+    if ((keySteps == null) || (keySteps.length == 0))
+      throw new JsonException(Message.EX_KEY_PATH_EMPTY.get());
+    if (!rootObject)
+      throw new JsonException(Message.EX_DOCUMENT_NOT_OBJECT.get());
+    if (duplicateStep != null)
+      throw new JsonException(Message.EX_KEY_DUPLICATE_STEP.get(duplicateStep));
+    if (keyFound && !keyViable && needViable)
+      throw new JsonException(Message.EX_KEY_MISMATCH.get());
+    return key;
+  }
+
+  private void validateValue()
+  {
+    boolean expectValue = true;
+
+    while (true)
+    {
+      if (expectValue)
+      {
+        byte b = nextToken();
+
+        if (b == '{')
+        {
+          ++pos;
+          pushObject();
+          if (nextToken() == '}')
+          {
+            ++pos;
+            popObject();
+            expectValue = false;
+          }
+          else
+          {
+            readName();
+          }
+        }
+        else if (b == '[')
+        {
+          ++pos;
+          if (stepPending)
+          {
+            stepPending = false;
+            stopped = true;
+          }
+          else if (keyPending)
+          {
+            foundKey(null);
+          }
+          push(false);
+          if (nextToken() == ']')
+          {
+            ++pos;
+            --depth;
+            expectValue = false;
+          }
+        }
+        else
+        {
+          readScalar(b);
+          expectValue = false;
+        }
+        continue;
+      }
+
+      if (depth == 0)
+        return;
+
+      byte b = nextToken();
+      boolean inObject = stack[depth - 1];
+      ++pos;
+
+      if (b == ',')
+      {
+        if (inObject)
+          readName();
+        expectValue = true;
+      }
+      else if (b == (inObject ? '}' : ']'))
+      {
+        if (inObject)
+          popObject();
+        else
+          --depth;
+      }
+      else
+      {
+        throw syntaxError(pos - 1);
+      }
+    }
+  }
+
+  private void push(boolean isObject)
+  {
+    if (depth == stack.length)
+    {
+      boolean[] larger = new boolean[depth * 2];
+      System.arraycopy(stack, 0, larger, 0, depth);
+      stack = larger;
+    }
+    stack[depth++] = isObject;
+  }
+
+  private void pushObject()
+  {
+    int id = objects++;
+
+    if (stepPending)
+    {
+      stepPending = false;
+      ++matched;
+      pathIds[matched] = id;
+    }
+    else if (keyPending)
+    {
+      foundKey(null);
+    }
+    else if ((depth == 0) && (pathIds != null))
+    {
+      pathIds[0] = id;
+    }
+
+    if (depth == nameBase.length)
+    {
+      int[] larger = new int[depth * 2];
+      System.arraycopy(nameBase, 0, larger, 0, depth);
+      nameBase = larger;
+      larger = new int[depth * 2];
+      System.arraycopy(objectIds, 0, larger, 0, depth);
+      objectIds = larger;
+    }
+    nameBase[depth] = nameCount;
+    objectIds[depth] = id;
+
+    push(true);
+  }
+
+  private void popObject()
+  {
+    --depth;
+    nameCount = nameBase[depth];
+
+    // Leaving an object on the key path ends the search
+    if (!stopped && (depth == matched))
+    {
+      stopped = true;
+      if (matched > 0)
+        --matched;
+    }
+  }
+
+  /**
+   * Skip whitespace and return the next byte without consuming it
+   */
+  private byte nextToken()
+  {
+    byte[] t = text;
+    int len = t.length;
+
+    while (pos < len)
+    {
+      byte b = t[pos];
+      if ((b != ' ') && (b != '\n') && (b != '\r') && (b != '\t'))
+        return b;
+      ++pos;
+    }
+
+    throw syntaxError(pos);
+  }
+
+  /**
+   * Read a field name and the colon after it, checking it against the
+   * other names of the object and the key path
+   */
+  private void readName()
+  {
+    if (nextToken() != '"')
+      throw syntaxError(pos);
+
+    int start = pos;
+    pos = scanString(start, true);
+
+    if (uniqueKeys)
+      addName(start);
+
+    int step = depth - 1;
+    if ((pathIds != null) && (step < pathIds.length) &&
+        (objectIds[step] == pathIds[step]) && isStep(start, step))
+    {
+      // The object is on the key path, so the step mustn't repeat
+      if (stepIds[step] == pathIds[step])
+      {
+        if (duplicateStep == null)
+          duplicateStep = keySteps[step];
+      }
+      stepIds[step] = pathIds[step];
+
+      if (!stopped && (step == matched))
+      {
+        if (matched + 1 < keySteps.length)
+          stepPending = true;
+        else
+          keyPending = true;
+      }
+    }
+
+    if (nextToken() != ':')
+      throw syntaxError(pos);
+    ++pos;
+  }
+
+  /**
+   * Returns true if the name just scanned is the given key step
+   */
+  private boolean isStep(int start, int step)
+  {
+    return ((strHash == stepHash[step]) &&
+            (strChars == keySteps[step].length()) &&
+            decodeString(start).equals(keySteps[step]));
+  }
+
+  /**
+   * Record a field name of the innermost object, failing if it's a
+   * duplicate of an earlier one
+   */
+  private void addName(int start)
+  {
+    int base = nameBase[depth - 1];
+    int count = nameCount - base;
+
+    if (count < LINEAR_NAMES)
+    {
+      for (int i = base; i < nameCount; ++i)
+        if ((nameHash[i] == strHash) && (nameChars[i] == strChars) &&
+            sameName(nameStart[i], start))
+          throw duplicateName(start);
+    }
+    else
+    {
+      // A wide object, look the name up in a hash table instead
+      if ((count == LINEAR_NAMES) || (count * 2 >= wideTables[depth - 1].length))
+        buildTable(base, count);
+
+      int[] table = wideTables[depth - 1];
+      int mask = table.length - 1;
+      int slot = (strHash ^ (strHash >>> 16)) & mask;
+
+      while (table[slot] != 0)
+      {
+        int i = table[slot] - 1;
+        if ((nameHash[i] == strHash) && (nameChars[i] == strChars) &&
+            sameName(nameStart[i], start))
+          throw duplicateName(start);
+        slot = (slot + 1) & mask;
+      }
+
+      table[slot] = nameCount + 1;
+    }
+
+    if (nameCount == nameHash.length)
+    {
+      int size = nameCount * 2;
+      int[] hashes = new int[size];
+      int[] starts = new int[size];
+      int[] chars  = new int[size];
+      System.arraycopy(nameHash, 0, hashes, 0, nameCount);
+      System.arraycopy(nameStart, 0, starts, 0, nameCount);
+      System.arraycopy(nameChars, 0, chars, 0, nameCount);
+      nameHash  = hashes;
+      nameStart = starts;
+      nameChars = chars;
+    }
+
+    nameHash[nameCount]  = strHash;
+    nameStart[nameCount] = start;
+    nameChars[nameCount] = strChars;
+    ++nameCount;
+  }
+
+  /**
+   * (Re)build the hash table of the names of the innermost object,
+   * with room for at least as many names again
+   */
+  private void buildTable(int base, int count)
+  {
+    int level = depth - 1;
+
+    if (level >= wideTables.length)
+    {
+      int[][] larger = new int[Math.max(level + 1, wideTables.length * 2)][];
+      System.arraycopy(wideTables, 0, larger, 0, wideTables.length);
+      wideTables = larger;
+    }
+
+    int size = LINEAR_NAMES * 4;
+    while (size < count * 4)
+      size *= 2;
+
+    int[] table = wideTables[level];
+    if ((table == null) || (table.length < size))
+      wideTables[level] = table = new int[size];
+    else
+      Arrays.fill(table, 0);
+
+    int mask = table.length - 1;
+    for (int i = base; i < base + count; ++i)
+    {
+      int slot = (nameHash[i] ^ (nameHash[i] >>> 16)) & mask;
+      while (table[slot] != 0)
+        slot = (slot + 1) & mask;
+      table[slot] = i + 1;
+    }
+  }
+
+  /**
+   * Compare two names that have the same hash and length
+   */
+  private boolean sameName(int start1, int start2)
+  {
+    int end1 = scanString(start1, false);
+    int end2 = scanString(start2, false);
+
+    // Equal bytes are certainly equal names
+    if (end1 - start1 == end2 - start2)
+    {
+      int i = 0;
+      while ((i < end1 - start1) && (text[start1 + i] == text[start2 + i]))
+        ++i;
+      if (i == end1 - start1)
+        return true;
+    }
+
+    return decodeString(start1).equals(decodeString(start2));
+  }
+
+  private void readScalar(byte b)
+  {
+    // A scalar value for an intermediate key step ends the search
+    if (stepPending)
+    {
+      stepPending = false;
+      stopped = true;
+    }
+
+    int start = pos;
+
+    switch (b)
+    {
+    case '"':
+      pos = scanString(start, false);
+      if (keyPending)
+        foundKey(decodeString(start));
+      break;
+    case 't':
+      matchLiteral("true");
+      break;
+    case 'f':
+      matchLiteral("false");
+      break;
+    case 'n':
+      matchLiteral("null");
+      break;
+    default:
+      pos = scanNumber(start);
+      if (keyPending)
+        foundKey(DocumentCodec.bigDecimalToKey(
+                   new BigDecimal(new String(text, start, pos - start,
+                                             StandardCharsets.US_ASCII))));
+      break;
+    }
+
+    // Literals aren't viable keys
+    if (keyPending)
+      foundKey(null);
+  }
+
+  /**
+   * Record the value of the last key step, null if it isn't viable
+   */
+  private void foundKey(String value)
+  {
+    key = value;
+    keyViable = (value != null);
+    keyFound = true;
+    keyPending = false;
+    stopped = true;
+  }
+
+  private void matchLiteral(String literal)
+  {
+    int len = literal.length();
+
+    for (int i = 0; i < len; ++i)
+      if ((pos + i >= text.length) || (text[pos + i] != literal.charAt(i)))
+        throw syntaxError(pos + i);
+
+    pos += len;
+  }
+
+  /**
+   * Check a number, returning the position after it
+   */
+  private int scanNumber(int start)
+  {
+    byte[] t = text;
+    int len = t.length;
+    int i = start;
+
+    if ((i < len) && (t[i] == '-'))
+      ++i;
+
+    if ((i >= len) || !isDigit(t[i]))
+      throw syntaxError(i);
+
+    if (t[i] == '0')
+      ++i;
+    else
+      while ((i < len) && isDigit(t[i]))
+        ++i;
+
+    if ((i < len) && (t[i] == '.'))
+    {
+      if ((++i >= len) || !isDigit(t[i]))
+        throw syntaxError(i);
+      while ((i < len) && isDigit(t[i]))
+        ++i;
+    }
+
+    if ((i < len) && ((t[i] == 'e') || (t[i] == 'E')))
+    {
+      ++i;
+      if ((i < len) && ((t[i] == '+') || (t[i] == '-')))
+        ++i;
+      if ((i >= len) || !isDigit(t[i]))
+        throw syntaxError(i);
+      while ((i < len) && isDigit(t[i]))
+        ++i;
+    }
+
+    return i;
+  }
+
+  /**
+   * Check a string starting at the opening quote, returning the position
+   * after the closing quote. If hashing, the hash and the length of the
+   * UTF-16 form are computed as well.
+   */
+  private int scanString(int start, boolean hashing)
+  {
+    byte[] t = text;
+    int len = t.length;
+    int i = start + 1;
+    int hash = 0;
+    int chars = 0;
+
+    while (i < len)
+    {
+      int c = t[i];
+
+      if (c >= 0x20)
+      {
+        if (c == '"')
+        {
+          if (hashing)
+          {
+            strHash  = hash;
+            strChars = chars;
+          }
+          return i + 1;
+        }
+
+        if (c == '\\')
+        {
+          if (++i >= len)
+            break;
+
+          switch (t[i])
+          {
+          case '"':  c = '"';  break;
+          case '\\': c = '\\'; break;
+          case '/':  c = '/';  break;
+          case 'b':  c = '\b'; break;
+          case 'f':  c = '\f'; break;
+          case 'n':  c = '\n'; break;
+          case 'r':  c = '\r'; break;
+          case 't':  c = '\t'; break;
+          case 'u':
+            c = 0;
+            for (int k = 1; k <= 4; ++k)
+            {
+              int d = ((i + k) < len) ? Character.digit((char)t[i + k], 16) : -1;
+              if ((d < 0) || (t[i + k] < 0))
+                throw syntaxError(i + k);
+              c = (c << 4) | d;
+            }
+            i += 4;
+            break;
+          default:
+            throw syntaxError(i);
+          }
+        }
+
+        hash = 31 * hash + c;
+        ++chars;
+        ++i;
+        continue;
+      }
+
+      if (c >= 0)
+        throw syntaxError(i); // Control character
+
+      // Multi-byte sequence
+      int lead = c & 0xFF;
+      int n;
+      int cp;
+
+      if ((lead >= 0xC2) && (lead <= 0xDF))
+      {
+        n = 1;
+        cp = lead & 0x1F;
+      }
+      else if ((lead >= 0xE0) && (lead <= 0xEF))
+      {
+        n = 2;
+        cp = lead & 0x0F;
+      }
+      else if ((lead >= 0xF0) && (lead <= 0xF4))
+      {
+        n = 3;
+        cp = lead & 0x07;
+      }
+      else
+      {
+        throw utf8Error(i);
+      }
+
+      if (i + n >= len)
+        throw utf8Error(i);
+
+      for (int k = 1; k <= n; ++k)
+      {
+        int b = t[i + k] & 0xFF;
+        if ((b & 0xC0) != 0x80)
+          throw utf8Error(i);
+        cp = (cp << 6) | (b & 0x3F);
+      }
+
+      // Overlong forms, surrogates, and code points beyond U+10FFFF
+      if ((n == 2) && ((cp < 0x800) || ((cp >= 0xD800) && (cp <= 0xDFFF))))
+        throw utf8Error(i);
+      if ((n == 3) && ((cp < 0x10000) || (cp > 0x10FFFF)))
+        throw utf8Error(i);
+
+      if (cp >= 0x10000)
+      {
+        hash = 31 * (31 * hash + Character.highSurrogate(cp)) +
+               Character.lowSurrogate(cp);
+        chars += 2;
+      }
+      else
+      {
+        hash = 31 * hash + cp;
+        ++chars;
+      }
+
+      i += n + 1;
+    }
+
+    throw syntaxError(len);
+  }
+
+  /**
+   * Decode a string that has already been checked, starting at the
+   * opening quote
+   */
+  private String decodeString(int start)
+  {
+    byte[] t = text;
+    int i = start + 1;
+    int segment = i;
+    StringBuilder sb = null;
+
+    while (t[i] != '"')
+    {
+      if (t[i] != '\\')
+      {
+        ++i;
+        continue;
+      }
+
+      if (sb == null)
+        sb = new StringBuilder();
+      sb.append(new String(t, segment, i - segment, StandardCharsets.UTF_8));
+
+      switch (t[++i])
+      {
+      case 'b':  sb.append('\b'); break;
+      case 'f':  sb.append('\f'); break;
+      case 'n':  sb.append('\n'); break;
+      case 'r':  sb.append('\r'); break;
+      case 't':  sb.append('\t'); break;
+      case 'u':
+        sb.append((char)Integer.parseInt(new String(t, i + 1, 4,
+                                           StandardCharsets.US_ASCII), 16));
+        i += 4;
+        break;
+      default:   sb.append((char)t[i]); break;
+      }
+
+      segment = ++i;
+    }
+
+    String tail = new String(t, segment, i - segment, StandardCharsets.UTF_8);
+    if (sb == null)
+      return tail;
+    return sb.append(tail).toString();
+  }
+
+  private static boolean isDigit(byte b)
+  {
+    return ((b >= '0') && (b <= '9'));
+  }
+
+  private JsonException syntaxError(int offset)
+  {
+    return new JsonException(Message.EX_INVALID_JSON_TEXT.get(Integer.toString(offset)));
+  }
+
+  private JsonException utf8Error(int offset)
+  {
+    return new JsonException(Message.EX_INVALID_UTF8.get(Integer.toString(offset)));
+  }
+
+  private JsonException duplicateName(int start)
+  {
+    return new JsonException(Message.EX_DUPLICATE_FIELD.get(decodeString(start),
+                                                           Integer.toString(start)));
+  }
+}
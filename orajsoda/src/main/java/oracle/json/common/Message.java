@@ -51,6 +51,15 @@ public class Message
   public static final Message EX_OPER_NOT_ALLOWED      = create(1032);
   public static final Message EX_JSON_OPERATION_FAILED = create(1033);
   public static final Message EX_UNSUPPORTED_DOC_TYPE  = create(1034);
+  public static final Message EX_INVALID_JSON_TEXT     = create(1035);
+  public static final Message EX_CANNOT_BIND_CLASS     = create(1036);
+  public static final Message EX_BINDING_MISMATCH      = create(1037);
+  public static final Message EX_BINDING_TOO_DEEP      = create(1038);
+  public static final Message EX_INVALID_UTF8          = create(1039);
+  public static final Message EX_DUPLICATE_FIELD       = create(1040);
+  public static final Message EX_JSON_TOO_DEEP         = create(1041);
+  public static final Message EX_CANNOT_BIND_VALUE     = create(1042);
+  public static final Message EX_CODEC_NOT_CREATED     = create(1043);
 
   /**
    * Load the ResourceBundle using the default Locale.
@@ -49,6 +49,7 @@ public class MetricsCollector
   private int    ioWrites             = 0; // Count of write I/Os
   private int    ioReadBytes          = 0; // Number of bytes read
   private int    ioWriteBytes         = 0; // Number of bytes written
+  private int    autoFirstRows        = 0; // Reads given an automatic FIRST_ROWS
 
   // IO-related timings (from System.nanoTime)
   private long   dbLobReadNanos       = 0L; // Time reading LOBs
@@ -176,6 +177,20 @@ public class MetricsCollector
     dbCursorReads += count;
   }
 
+  public void recordAutoFirstRows()
+  {
+    ++autoFirstRows;
+  }
+
+  /**
+   * Number of reads that were given a FIRST_ROWS hint, and a reduced
+   * fetch size, automatically from their limit (or by getOne())
+   */
+  public int getAutoFirstRows()
+  {
+    return autoFirstRows;
+  }
+
   public void recordLobReads(int count)
   {
     if (count > 0)
@@ -312,6 +327,9 @@ public class MetricsCollector
       logMsgCount(sb, "Cursor reads: ", dbCursorReads);
     }
 
+    if (chatty_logging || (autoFirstRows > 0))
+      logMsgCount(sb, "Automatic first-rows reads: ", autoFirstRows);
+
     if (chatty_logging || (dbLobReads > 0) || (dbLobWrites > 0))
     {
       logMsgCountTime(sb, "LOB reads: ",  dbLobReads,  dbLobReadNanos);
@@ -0,0 +1,107 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+
+/*
+   DESCRIPTION
+    PooledOutputStream is a ByteArrayOutputStream whose buffer is taken
+    from, and given back to, a BufferPool.
+
+   NOTES
+    The buffer grows by moving to the next size class of the pool
+    rather than by a private reallocation, and the outgrown buffer is
+    returned to the pool. A reset() after writing a document larger
+    than the maximum pooled size drops the oversized buffer, so that a
+    long-lived stream doesn't retain the memory of the largest document
+    it has ever seen. release() hands the buffer back to the pool
+    altogether, and the stream acquires a new one on the next write.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.common;
+
+import java.io.ByteArrayOutputStream;
+
+public class PooledOutputStream extends ByteArrayOutputStream
+{
+  private static final byte[] EMPTY = new byte[0];
+
+  private final BufferPool pool;
+
+  public PooledOutputStream(BufferPool pool)
+  {
+    super(0);
+    this.pool = (pool != null) ? pool : BufferPool.getShared();
+    this.buf = EMPTY;
+  }
+
+  @Override
+  public synchronized void write(int b)
+  {
+    ensureCapacity(count + 1);
+    super.write(b);
+  }
+
+  @Override
+  public synchronized void write(byte[] b, int off, int len)
+  {
+    if ((off < 0) || (len < 0) || (off > b.length - len))
+      throw new IndexOutOfBoundsException();
+    ensureCapacity(count + len);
+    super.write(b, off, len);
+  }
+
+  /**
+   * Same as write(b, 0, b.length). Declared so that it also goes
+   * through the pool on releases that have this method.
+   */
+  public void writeBytes(byte[] b)
+  {
+    write(b, 0, b.length);
+  }
+
+  /**
+   * Discard the contents. An oversized buffer is also dropped.
+   */
+  @Override
+  public synchronized void reset()
+  {
+    count = 0;
+    if (buf.length > pool.getMaxSize())
+      buf = EMPTY;
+  }
+
+  /**
+   * Discard the contents and return the buffer to the pool
+   */
+  public synchronized void release()
+  {
+    count = 0;
+    if (buf != EMPTY)
+      pool.release(buf);
+    buf = EMPTY;
+  }
+
+  private void ensureCapacity(int needed)
+  {
+    if (needed < 0)
+      throw new OutOfMemoryError();
+    if (needed <= buf.length)
+      return;
+
+    int size = Math.max(needed, buf.length << 1);
+    if (size < 0)
+      size = needed;
+
+    byte[] larger = pool.acquire(size);
+    System.arraycopy(buf, 0, larger, 0, count);
+
+    if (buf != EMPTY)
+      pool.release(buf);
+    buf = larger;
+  }
+}
@@ -116,6 +116,16 @@ class AndORNode
     return null;
   }
 
+  JsonQueryPath getDownScope()
+  {
+    return downScopePath;
+  }
+
+  List<AndORNode> getChildren()
+  {
+    return children;
+  }
+
   Predicate getPredicate()
   {
     return predicate;
@@ -2186,10 +2196,28 @@ private BigDecimal validateModOperator(AndORTree tree, JsonValue input, String i
       {
         appendPathOp(tree.getPredChar(), sb, predPath, operator);
         sb.append(" (");
+        int lastBind = -1;
+        int lastStart = 0;
         for (int i = 0 ; i < nvals; ++i)
         {
           if (i > 0) sb.append(",");
-          appendOrInlineBind(tree, sb);
+          lastStart = sb.length();
+          lastBind = appendOrInlineBind(tree, sb);
+        }
+
+        // Pad the list with copies of the last value, so that lists
+        // of similar lengths share the same SQL
+        if (tree.getCanonicalBinds())
+        {
+          String lastValue = sb.substring(lastStart);
+          for (int i = nvals; i < AndORTree.canonicalListSize(nvals); ++i)
+          {
+            sb.append(",");
+            if (lastBind < 0)
+              sb.append(lastValue);
+            else
+              appendBind(sb, tree.duplicateBind(lastBind));
+          }
         }
         sb.append(")");
       }
@@ -2368,8 +2396,13 @@ private BigDecimal validateModOperator(AndORTree tree, JsonValue input, String i
    * as a string thru JDBC, it will match both the JSON null
    * and the JSON string "null". When in-lined, on the other hand,
    * the desired correct result is produced.
+   *
+   * For canonical binds in strict type mode these values are bound
+   * as JSON, which preserves their type, except for the empty string.
+   *
+   * Returns the bind number, or -1 if the value was in-lined.
    */
-  private void appendOrInlineBind(AndORTree tree, StringBuilder sb)
+  private int appendOrInlineBind(AndORTree tree, StringBuilder sb)
     throws QueryException
   {
     boolean skipBind = false;
@@ -2379,8 +2412,24 @@ private BigDecimal validateModOperator(AndORTree tree, JsonValue input, String i
     // Peek at the bind value
     ValueTypePair bval = tree.getValueArray().get(bindnum);
 
+    boolean bindAsJson = tree.getCanonicalBinds() && tree.getStrictTypeMode();
+
+    // If the value is an empty string, in-line it
+    if (bval.isString() && "".equals(bval.getStringValue()))
+    {
+      // migsilva_bug-36689907 changes empty string to be an in-lined constant in
+      // json_exists as opposed to a bind value (as it was before this bug fix). This fix
+      // is needed, at least temporarily, to get correct behavior for queries with empty
+      // string value, both with and without the index.
+      sb.append("\"\"");
+      skipBind = true;
+    }
+    else if (bindAsJson)
+    {
+      // Bound as JSON, see AndORTree.bindTypedParameterStrict
+    }
     // If the value is a boolean, in-line it and avoid the bind
-    if (bval.isBoolean())
+    else if (bval.isBoolean())
     {
       sb.append(bval.getBooleanValue() ? " true" : " false");
       skipBind = true;
@@ -2396,16 +2445,7 @@ private BigDecimal validateModOperator(AndORTree tree, JsonValue input, String i
     {
       String sval = bval.getStringValue();
       if (sval != null)
-        // migsilva_bug-36689907 changes empty string to be an in-lined constant in
-        // json_exists as opposed to a bind value (as it was before this bug fix). This fix
-        // is needed, at least temporarily, to get correct behavior for queries with empty
-        // string value, both with and without the index.
-        if (sval.isEmpty()) 
-        {
-          sb.append("\"\"");
-          skipBind = true;
-        }
-        else if (sval.equals("true")  ||
+        if (sval.equals("true")  ||
             sval.equals("false") ||
             sval.equals("null"))
         {
@@ -2418,10 +2458,14 @@ private BigDecimal validateModOperator(AndORTree tree, JsonValue input, String i
 
     // Otherwise bind it normally
     if (!skipBind)
+    {
       appendBind(sb, bindnum);
-    else
-      // Remove the in-lined bind, so that an unnecessary
-      // "passing" clause is not generated later.
-      tree.removeBind(bindnum);
+      return bindnum;
+    }
+
+    // Remove the in-lined bind, so that an unnecessary
+    // "passing" clause is not generated later.
+    tree.removeBind(bindnum);
+    return -1;
   }
 }
@@ -59,6 +59,7 @@ public class AndORTree
   
   private AndORNode                root;
   private ArrayList<ValueTypePair> valueArray;
+  private ArrayList<ValueTypePair> filterValues;
   private ArrayList<Predicate>     orderByArray;
   private HashSet<String> keysSet;
   
@@ -81,6 +82,18 @@ public class AndORTree
   
   boolean strictTypeMatching = false;
 
+  /**
+   * When canonicalBinds is true, generation produces the same SQL for
+   * filters that differ only in their values, where it can do so
+   * without changing the results:
+   *  (1) In strictTypeMode, boolean, null, and keyword string values
+   *      are bound as JSON rather than in-lined (in lax mode they
+   *      can't be bound correctly, and "" always binds as a SQL NULL)
+   *  (2) $in lists are padded to a power-of-two length with copies of
+   *      their last value
+   */
+  private boolean canonicalBinds = false;
+
   private static final boolean WRAP_TEMPORAL = false;
 
   // Constant to match fields array under $orderby
@@ -118,6 +131,45 @@ public class AndORTree
     return strictTypeMode;
   }
 
+  /**
+   * Generate canonical SQL text (see canonicalBinds). Must be set
+   * before generateJsonExists().
+   */
+  public void setCanonicalBinds(boolean canonicalBinds)
+  {
+    this.canonicalBinds = canonicalBinds;
+  }
+
+  boolean getCanonicalBinds()
+  {
+    return canonicalBinds;
+  }
+
+  /**
+   * Length a list of n values is padded to by canonical generation
+   */
+  static int canonicalListSize(int n)
+  {
+    if (n <= 1)
+      return n;
+    return Integer.highestOneBit(n - 1) << 1;
+  }
+
+  AndORNode getRoot()
+  {
+    return root;
+  }
+
+  /**
+   * Return all the values of the filter, in the order the nodes of
+   * the tree consume them. Unlike getValueArray(), this includes the
+   * values that generateJsonExists() in-lines into the JSON_EXISTS.
+   */
+  List<ValueTypePair> getFilterValues()
+  {
+    return (filterValues != null) ? filterValues : valueArray;
+  }
+
   /**
    * Check the bind values for strings exceeding a maximum number of bytes.
    * Returns true if all values are less than or equal to the number of
@@ -354,6 +406,17 @@ public class AndORTree
     return(numBinds++);
   }
 
+  /**
+   * Consume the next bind position for a copy of an already
+   * consumed value.
+   */
+  int duplicateBind(int bindnum)
+    throws QueryException
+  {
+    valueArray.add(numBinds, valueArray.get(bindnum));
+    return getNextBind();
+  }
+
   void removeBind(int bindnum)
   {
     valueArray.remove(bindnum);
@@ -862,6 +925,9 @@ public class AndORTree
   public void generateJsonExists()
     throws QueryException
   {
+    // Generation removes the in-lined values, keep them for evaluation
+    if (filterValues == null)
+      filterValues = new ArrayList<ValueTypePair>(valueArray);
     jsonExists = root.generateJsonExists(this);
   }
 
@@ -0,0 +1,1559 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+     In-memory evaluation of a QBE AND-OR tree
+
+   NOTES
+     The tree is compiled into a tree of conditions that follow the
+     JSON_EXISTS expression generated for it, and the order-by entries
+     into sort keys that follow the JSON_VALUE (or JSON_QUERY) columns
+     of the ORDER BY clause. The semantics are those of SQL/JSON path
+     expressions in lax mode:
+       - A field step applied to an array is applied to each element.
+       - An array step applied to a non-array treats it as an array
+         of one element.
+       - A comparison is true if it's true for any item the path
+         selects, after unwrapping arrays one level.
+       - Comparisons between items of different types are false, so
+         that $ne (generated as the negation of ==) matches an item
+         of a different type, or a missing field.
+       - A downscoped clause is true if all its conditions are true
+         for the same item.
+     Spatial, full text, and $sqlJson clauses can't be evaluated,
+     since they're evaluated by SQL operators outside of JSON_EXISTS.
+ */
+
+/**
+ * This class is not part of the public API, and is
+ * subject to change.
+ *
+ * Do not rely on it in your application code.
+ */
+
+package oracle.json.parser;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Wrapper;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+
+import oracle.json.parser.Evaluator.EvaluatorCode;
+import oracle.sql.json.OracleJsonArray;
+import oracle.sql.json.OracleJsonException;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonObject;
+import oracle.sql.json.OracleJsonValue;
+import oracle.sql.json.OracleJsonValue.OracleJsonType;
+
+public class QueryEvaluator
+{
+  private static final OracleJsonFactory FACTORY = new OracleJsonFactory();
+
+  // Default maximum size of a JSON_VALUE returning varchar2
+  private static final int DEFAULT_VARCHAR_BYTES = 4000;
+
+  // Comparison operators
+  private static final int OP_EQ  = 0;
+  private static final int OP_GT  = 1;
+  private static final int OP_GTE = 2;
+  private static final int OP_LT  = 3;
+  private static final int OP_LTE = 4;
+
+  // String operators
+  private static final int TEXT_STARTS_WITH = 0;
+  private static final int TEXT_SUBSTRING   = 1;
+  private static final int TEXT_MATCH       = 2; // Whole string matches
+  private static final int TEXT_FIND        = 3; // Part of the string matches
+
+  private final Condition       condition;
+  private final HashSet<String> keys;
+  private final SortKey[]       orderBy;
+
+  private QueryEvaluator(Condition condition, HashSet<String> keys,
+                         SortKey[] orderBy)
+  {
+    this.condition = condition;
+    this.keys = keys;
+    this.orderBy = orderBy;
+  }
+
+  /**
+   * Compile the tree for evaluation. The tree may be used for SQL
+   * generation before or after this.
+   */
+  public static QueryEvaluator create(AndORTree tree)
+    throws QueryException
+  {
+    if (tree.hasSpatialClause())
+      QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+        tree.getSpatialOperators().get(0).getOperator());
+    if (tree.hasContainsClause())
+      QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                             "$contains");
+    if (tree.hasSqlJsonClause())
+      QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                             "$sqlJson");
+
+    List<ValueTypePair> values = tree.getFilterValues();
+    int[] position = new int[1];
+
+    Condition condition = compile(tree.getRoot(), values, position);
+
+    // Every value must have been consumed by exactly one condition
+    if (position[0] != values.size())
+      QueryException.throwExecutionException(QueryMessage.RR_BIND_MISMATCH,
+                                             Integer.toString(values.size()),
+                                             Integer.toString(position[0]));
+
+    List<Predicate> orderByArray = tree.getOrderByArray();
+    SortKey[] orderBy = new SortKey[orderByArray.size()];
+    for (int i = 0; i < orderBy.length; ++i)
+      orderBy[i] = new SortKey(orderByArray.get(i), tree.getStrictTypeMode());
+
+    return new QueryEvaluator(condition,
+                              tree.hasKeys() ? tree.getKeys() : null,
+                              orderBy);
+  }
+
+  /**
+   * Returns true if the document satisfies the filter. The filter
+   * must not have an $id clause.
+   */
+  public boolean matches(OracleJsonValue document)
+    throws QueryException
+  {
+    return matches(null, document);
+  }
+
+  /**
+   * Returns true if the document, with the given key, satisfies
+   * the filter. The key is only needed if the filter has an $id clause.
+   */
+  public boolean matches(String key, OracleJsonValue document)
+    throws QueryException
+  {
+    if (keys != null)
+    {
+      if (key == null)
+        QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                               "$id");
+      if (!keys.contains(key))
+        return false;
+    }
+    return condition.test(document);
+  }
+
+  public boolean hasOrderBy()
+  {
+    return (orderBy.length > 0);
+  }
+
+  /**
+   * Sort a list of items by the $orderby of the filter, using the
+   * content function to get the document of each item. The sort is
+   * stable, so items that the $orderby doesn't distinguish keep their
+   * relative order. Throws an exception if an order-by path doesn't
+   * target a scalar, and the $orderby requires it to.
+   */
+  public <T> void sort(List<T> items,
+                       Function<? super T, ? extends OracleJsonValue> content)
+    throws QueryException
+  {
+    if (orderBy.length == 0)
+      return;
+
+    List<SortEntry<T>> entries = new ArrayList<SortEntry<T>>(items.size());
+    for (T item : items)
+    {
+      OracleJsonValue document = content.apply(item);
+      OracleJsonValue[] values = new OracleJsonValue[orderBy.length];
+      for (int i = 0; i < orderBy.length; ++i)
+        values[i] = orderBy[i].extract(document);
+      entries.add(new SortEntry<T>(item, values));
+    }
+
+    Collections.sort(entries, new Comparator<SortEntry<T>>()
+    {
+      public int compare(SortEntry<T> a, SortEntry<T> b)
+      {
+        for (int i = 0; i < orderBy.length; ++i)
+        {
+          int result = orderBy[i].compare(a.values[i], b.values[i]);
+          if (result != 0)
+            return result;
+        }
+        return 0;
+      }
+    });
+
+    for (int i = 0; i < entries.size(); ++i)
+      items.set(i, entries.get(i).item);
+  }
+
+  /*
+  ** Compilation of the tree
+  */
+
+  private static ValueTypePair nextValue(List<ValueTypePair> values,
+                                         int[] position)
+    throws QueryException
+  {
+    if (position[0] >= values.size())
+      QueryException.throwExecutionException(QueryMessage.RR_BIND_MISMATCH,
+                                             Integer.toString(values.size()),
+                                             Integer.toString(position[0] + 1));
+    return values.get(position[0]++);
+  }
+
+  private static OracleJsonValue nextOracleValue(List<ValueTypePair> values,
+                                                 int[] position)
+    throws QueryException
+  {
+    return toOracleValue(nextValue(values, position).getValue());
+  }
+
+  private static Condition compile(AndORNode node,
+                                   List<ValueTypePair> values, int[] position)
+    throws QueryException
+  {
+    EvaluatorCode eval = node.getEval();
+    Predicate predicate = node.getPredicate();
+    Condition result;
+
+    if (eval == null)
+      QueryException.throwSyntaxException(QueryMessage.EX_SYNTAX_ERROR);
+
+    switch (eval)
+    {
+    case $and:
+    case $or:
+    {
+      List<AndORNode> children = node.getChildren();
+      Condition[] conditions = new Condition[children.size()];
+      for (int i = 0; i < conditions.length; ++i)
+        conditions[i] = compile(children.get(i), values, position);
+
+      result = new Junction(conditions, (eval == EvaluatorCode.$or));
+
+      if (node.getDownScope() != null)
+        result = new Exists(new Path(node.getDownScope()), result);
+      break;
+    }
+
+    case $exists:
+      // The modifier (if any) is ignored, as it is for JSON_EXISTS
+      result = new Exists(new Path(predicate.path), null);
+      if (AndORNode.isReversedExists(nextValue(values, position)))
+        result = new Not(result);
+      break;
+
+    case $in:
+    case $all:
+    {
+      OracleJsonValue[] operands = new OracleJsonValue[node.getNumVals()];
+      for (int i = 0; i < operands.length; ++i)
+        operands[i] = nextOracleValue(values, position);
+
+      Path path = new Path(predicate.path);
+      ItemMethod method = ItemMethod.create(predicate);
+
+      if (eval == EvaluatorCode.$in)
+      {
+        result = new Comparison(path, method, OP_EQ, operands);
+      }
+      else
+      {
+        // Synthesize $all with an ANDed series of ==
+        Condition[] conditions = new Condition[operands.length];
+        for (int i = 0; i < operands.length; ++i)
+          conditions[i] = new Comparison(path, method, OP_EQ,
+                                         new OracleJsonValue[] { operands[i] });
+        result = new Junction(conditions, false);
+      }
+      break;
+    }
+
+    case $ne:
+    case $eq:
+    case $gt:
+    case $gte:
+    case $ge:
+    case $lt:
+    case $lte:
+    case $le:
+    {
+      if (node.getNumVals() > 1)
+        QueryException.throwExecutionException(QueryMessage.EX_UNSUPPORTED_OP);
+
+      int op = OP_EQ;
+      if (eval == EvaluatorCode.$gt)
+        op = OP_GT;
+      else if ((eval == EvaluatorCode.$gte) || (eval == EvaluatorCode.$ge))
+        op = OP_GTE;
+      else if (eval == EvaluatorCode.$lt)
+        op = OP_LT;
+      else if ((eval == EvaluatorCode.$lte) || (eval == EvaluatorCode.$le))
+        op = OP_LTE;
+
+      OracleJsonValue operand = nextOracleValue(values, position);
+      if ((operand.getOracleJsonType() == OracleJsonType.ARRAY) ||
+          (operand.getOracleJsonType() == OracleJsonType.OBJECT))
+        QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                               "$value");
+
+      result = new Comparison(new Path(predicate.path),
+                              ItemMethod.create(predicate), op,
+                              new OracleJsonValue[] { operand });
+
+      // $ne is the negation of $eq, as in the generated JSON_EXISTS
+      if (eval == EvaluatorCode.$ne)
+        result = new Not(result);
+      break;
+    }
+
+    case $startsWith:
+    case $hasSubstring:
+    case $instr:
+    case $like:
+    case $regex:
+    case $likeRegex:
+    case $ciRegex:
+    case $ciLikeRegex:
+    case $nlRegex:
+    case $nlLikeRegex:
+    case $nlciRegex:
+    case $nlciLikeRegex:
+    {
+      OracleJsonValue operand = nextOracleValue(values, position);
+      if (operand.getOracleJsonType() != OracleJsonType.STRING)
+        QueryException.throwExecutionException(QueryMessage.EX_UNSUPPORTED_OP);
+
+      result = new TextMatch(new Path(predicate.path),
+                             ItemMethod.create(predicate), eval,
+                             operand.asJsonString().getString());
+      break;
+    }
+
+    default:
+      QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                             eval.toString());
+      return null;
+    }
+
+    if (node.getNotOperation())
+      result = new Not(result);
+
+    return result;
+  }
+
+  /**
+   * Convert a filter value, which might be backed by OSON, to an
+   * Oracle JSON value.
+   */
+  private static OracleJsonValue toOracleValue(JsonValue value)
+    throws QueryException
+  {
+    if (value instanceof Wrapper)
+    {
+      try
+      {
+        Wrapper wrapper = (Wrapper)value;
+        if (wrapper.isWrapperFor(OracleJsonValue.class))
+          return wrapper.unwrap(OracleJsonValue.class);
+      }
+      catch (SQLException e)
+      {
+        // Not OSON-backed
+      }
+    }
+
+    switch (value.getValueType())
+    {
+    case STRING:
+      return FACTORY.createString(((JsonString)value).getString());
+    case NUMBER:
+      BigDecimal number = ((JsonNumber)value).bigDecimalValue();
+      try
+      {
+        return FACTORY.createDecimal(number);
+      }
+      catch (OracleJsonException e)
+      {
+        // Beyond the range of an Oracle number
+        return FACTORY.createDouble(number.doubleValue());
+      }
+    case TRUE:
+      return OracleJsonValue.TRUE;
+    case FALSE:
+      return OracleJsonValue.FALSE;
+    case NULL:
+      return OracleJsonValue.NULL;
+    default:
+      QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                             "$value");
+      return null;
+    }
+  }
+
+  /*
+  ** Conditions
+  */
+
+  private static abstract class Condition
+  {
+    abstract boolean test(OracleJsonValue context);
+  }
+
+  private static final class Junction extends Condition
+  {
+    private final Condition[] conditions;
+    private final boolean     isOr;
+
+    Junction(Condition[] conditions, boolean isOr)
+    {
+      this.conditions = conditions;
+      this.isOr = isOr;
+    }
+
+    boolean test(OracleJsonValue context)
+    {
+      for (Condition condition : conditions)
+        if (condition.test(context) == isOr)
+          return isOr;
+      return !isOr;
+    }
+  }
+
+  private static final class Not extends Condition
+  {
+    private final Condition condition;
+
+    Not(Condition condition)
+    {
+      this.condition = condition;
+    }
+
+    boolean test(OracleJsonValue context)
+    {
+      return !condition.test(context);
+    }
+  }
+
+  /**
+   * True if the path selects any item (that satisfies the filter,
+   * if there is one). As for a filter in lax mode, arrays selected
+   * by the path are unwrapped before the filter is applied.
+   */
+  private static final class Exists extends Condition
+  {
+    private final Path      path;
+    private final Condition filter;
+
+    Exists(Path path, Condition filter)
+    {
+      this.path = path;
+      this.filter = filter;
+    }
+
+    boolean test(OracleJsonValue context)
+    {
+      List<OracleJsonValue> items = path.select(context);
+
+      if (filter == null)
+        return !items.isEmpty();
+
+      for (OracleJsonValue item : items)
+      {
+        if (item.getOracleJsonType() == OracleJsonType.ARRAY)
+        {
+          for (OracleJsonValue element : item.asJsonArray())
+            if (filter.test(element))
+              return true;
+        }
+        else if (filter.test(item))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Base for conditions that test the scalars selected by a path,
+   * after an optional item method. True if any scalar passes.
+   */
+  private static abstract class ScalarCondition extends Condition
+  {
+    private final Path       path;
+    private final ItemMethod method;
+
+    ScalarCondition(Path path, ItemMethod method)
+    {
+      this.path = path;
+      this.method = method;
+    }
+
+    abstract boolean testScalar(OracleJsonValue item);
+
+    boolean test(OracleJsonValue context)
+    {
+      List<OracleJsonValue> items = path.select(context);
+      if (method != null)
+        items = method.apply(items);
+
+      for (OracleJsonValue item : items)
+      {
+        if (item.getOracleJsonType() == OracleJsonType.ARRAY)
+        {
+          for (OracleJsonValue element : item.asJsonArray())
+            if (testScalar(element))
+              return true;
+        }
+        else if (testScalar(item))
+        {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class Comparison extends ScalarCondition
+  {
+    private final int               op;
+    private final OracleJsonValue[] operands;
+
+    Comparison(Path path, ItemMethod method, int op,
+               OracleJsonValue[] operands)
+    {
+      super(path, method);
+      this.op = op;
+      this.operands = operands;
+    }
+
+    boolean testScalar(OracleJsonValue item)
+    {
+      for (OracleJsonValue operand : operands)
+      {
+        Integer result = compareScalars(item, operand);
+        if (result == null)
+          continue;
+
+        int cmp = result.intValue();
+        switch (op)
+        {
+        case OP_EQ:
+          if (cmp == 0) return true;
+          break;
+        case OP_GT:
+          if (cmp > 0) return true;
+          break;
+        case OP_GTE:
+          if (cmp >= 0) return true;
+          break;
+        case OP_LT:
+          if (cmp < 0) return true;
+          break;
+        default:
+          if (cmp <= 0) return true;
+          break;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class TextMatch extends ScalarCondition
+  {
+    private final int     kind;
+    private final String  text;
+    private final Pattern pattern;
+
+    TextMatch(Path path, ItemMethod method, EvaluatorCode eval, String text)
+    {
+      super(path, method);
+      this.text = text;
+
+      int flags = 0;
+      switch (eval)
+      {
+      case $ciRegex:
+      case $ciLikeRegex:
+        flags = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        break;
+      case $nlRegex:
+      case $nlLikeRegex:
+        flags = Pattern.DOTALL;
+        break;
+      case $nlciRegex:
+      case $nlciLikeRegex:
+        flags = Pattern.DOTALL | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        break;
+      default:
+        break;
+      }
+
+      switch (eval)
+      {
+      case $startsWith:
+        kind = TEXT_STARTS_WITH;
+        pattern = null;
+        break;
+      case $hasSubstring:
+      case $instr:
+        kind = TEXT_SUBSTRING;
+        pattern = null;
+        break;
+      case $like:
+        kind = TEXT_MATCH;
+        pattern = Pattern.compile(likeToRegex(text), Pattern.DOTALL);
+        break;
+      case $regex:
+      case $ciRegex:
+      case $nlRegex:
+      case $nlciRegex:
+        kind = TEXT_MATCH;
+        pattern = Pattern.compile(text, flags);
+        break;
+      default:
+        kind = TEXT_FIND;
+        pattern = Pattern.compile(text, flags);
+        break;
+      }
+    }
+
+    boolean testScalar(OracleJsonValue item)
+    {
+      if (item.getOracleJsonType() != OracleJsonType.STRING)
+        return false;
+
+      String str = item.asJsonString().getString();
+      switch (kind)
+      {
+      case TEXT_STARTS_WITH:
+        return str.startsWith(text);
+      case TEXT_SUBSTRING:
+        return str.contains(text);
+      case TEXT_MATCH:
+        return pattern.matcher(str).matches();
+      default:
+        return pattern.matcher(str).find();
+      }
+    }
+
+    /**
+     * Convert a LIKE pattern, where % matches any sequence and _ any
+     * single character, to a regular expression
+     */
+    private static String likeToRegex(String like)
+    {
+      StringBuilder sb = new StringBuilder(like.length() + 16);
+      int start = 0;
+      for (int i = 0; i < like.length(); ++i)
+      {
+        char ch = like.charAt(i);
+        if ((ch == '%') || (ch == '_'))
+        {
+          if (i > start)
+            sb.append(Pattern.quote(like.substring(start, i)));
+          sb.append((ch == '%') ? ".*" : ".");
+          start = i + 1;
+        }
+      }
+      if (start < like.length())
+        sb.append(Pattern.quote(like.substring(start)));
+      return sb.toString();
+    }
+  }
+
+  /*
+  ** Paths
+  */
+
+  private static final int STEP_FIELD      = 0;
+  private static final int STEP_WILDCARD   = 1;
+  private static final int STEP_DESCENDANT = 2; // Field at any depth
+  private static final int STEP_ARRAY      = 3;
+
+  private static final class Step
+  {
+    private final int    kind;
+    private final String name;    // Null for a wildcard descendant step
+
+    // Array subscripts, as pairs of [from, to] positions. A negative
+    // position -(n + 1) is relative to the end, i.e. "last-n".
+    private final int[]  ranges;
+
+    Step(int kind, String name, int[] ranges)
+    {
+      this.kind = kind;
+      this.name = name;
+      this.ranges = ranges;
+    }
+
+    private static int resolve(int position, int size)
+    {
+      return (position >= 0) ? position : (size + position);
+    }
+  }
+
+  private static final class Path
+  {
+    private final Step[] steps;
+
+    Path(JsonQueryPath path)
+      throws QueryException
+    {
+      String[] strs = (path == null) ? null : path.getSteps();
+      List<Step> list = new ArrayList<Step>();
+
+      if (strs != null)
+      {
+        for (int i = 0; i < strs.length; ++i)
+        {
+          String str = strs[i];
+
+          if (str.length() == 0)
+          {
+            // Descendant step, must be followed by a field step
+            if ((i + 1 == strs.length) || isArrayStep(strs[i + 1]))
+              QueryException.throwExecutionException(
+                QueryMessage.EX_NOT_EVALUABLE, path.toString());
+            String next = strs[++i];
+            list.add(new Step(STEP_DESCENDANT,
+                              next.equals("*") ? null : fieldName(next),
+                              null));
+          }
+          else if (isArrayStep(str))
+          {
+            list.add(new Step(STEP_ARRAY, null, subscripts(str)));
+          }
+          else if (str.equals("*"))
+          {
+            list.add(new Step(STEP_WILDCARD, null, null));
+          }
+          else
+          {
+            list.add(new Step(STEP_FIELD, fieldName(str), null));
+          }
+        }
+      }
+
+      steps = list.toArray(new Step[list.size()]);
+    }
+
+    List<OracleJsonValue> select(OracleJsonValue context)
+    {
+      List<OracleJsonValue> out = new ArrayList<OracleJsonValue>(2);
+      select(context, 0, out);
+      return out;
+    }
+
+    private void select(OracleJsonValue item, int stepnum,
+                        List<OracleJsonValue> out)
+    {
+      if (stepnum == steps.length)
+      {
+        out.add(item);
+        return;
+      }
+
+      Step step = steps[stepnum];
+      OracleJsonType type = item.getOracleJsonType();
+
+      if (step.kind == STEP_DESCENDANT)
+      {
+        descend(item, step, stepnum, out);
+      }
+      else if (step.kind == STEP_ARRAY)
+      {
+        if (type == OracleJsonType.ARRAY)
+        {
+          OracleJsonArray arr = item.asJsonArray();
+          int size = arr.size();
+          for (int i = 0; i < step.ranges.length; i += 2)
+          {
+            int from = Math.max(Step.resolve(step.ranges[i], size), 0);
+            int to = Math.min(Step.resolve(step.ranges[i + 1], size), size - 1);
+            for (int j = from; j <= to; ++j)
+              select(arr.get(j), stepnum + 1, out);
+          }
+        }
+        else
+        {
+          // Lax mode treats a non-array as an array of one element
+          for (int i = 0; i < step.ranges.length; i += 2)
+            if ((Step.resolve(step.ranges[i], 1) <= 0) &&
+                (Step.resolve(step.ranges[i + 1], 1) >= 0))
+              select(item, stepnum + 1, out);
+        }
+      }
+      else if (type == OracleJsonType.OBJECT)
+      {
+        member(item.asJsonObject(), step, stepnum, out);
+      }
+      else if (type == OracleJsonType.ARRAY)
+      {
+        // Lax mode applies a field step to the elements of an array
+        for (OracleJsonValue element : item.asJsonArray())
+          if (element.getOracleJsonType() == OracleJsonType.OBJECT)
+            member(element.asJsonObject(), step, stepnum, out);
+      }
+    }
+
+    private void member(OracleJsonObject obj, Step step, int stepnum,
+                        List<OracleJsonValue> out)
+    {
+      if (step.kind == STEP_FIELD)
+      {
+        OracleJsonValue value = obj.get(step.name);
+        if (value != null)
+          select(value, stepnum + 1, out);
+      }
+      else
+      {
+        for (OracleJsonValue value : obj.values())
+          select(value, stepnum + 1, out);
+      }
+    }
+
+    private void descend(OracleJsonValue item, Step step, int stepnum,
+                         List<OracleJsonValue> out)
+    {
+      OracleJsonType type = item.getOracleJsonType();
+      if (type == OracleJsonType.OBJECT)
+      {
+        for (Map.Entry<String, OracleJsonValue> entry :
+             item.asJsonObject().entrySet())
+        {
+          if ((step.name == null) || step.name.equals(entry.getKey()))
+            select(entry.getValue(), stepnum + 1, out);
+          descend(entry.getValue(), step, stepnum, out);
+        }
+      }
+      else if (type == OracleJsonType.ARRAY)
+      {
+        for (OracleJsonValue element : item.asJsonArray())
+          descend(element, step, stepnum, out);
+      }
+    }
+
+    private static boolean isArrayStep(String step)
+    {
+      return (step.length() > 0) && (step.charAt(0) == '[');
+    }
+
+    /**
+     * Undo the escaping done by the PathParser for SQL
+     */
+    private static String fieldName(String step)
+    {
+      if ((step.length() < 2) || (step.charAt(0) != '"'))
+        return step;
+
+      int end = step.length() - 1;
+      StringBuilder sb = new StringBuilder(end);
+      for (int i = 1; i < end; ++i)
+      {
+        char ch = step.charAt(i);
+        if ((ch == '\\') && (i + 1 < end))
+        {
+          ch = step.charAt(++i);
+          switch (ch)
+          {
+          case 'n': sb.append('\n'); break;
+          case 'r': sb.append('\r'); break;
+          case 't': sb.append('\t'); break;
+          case 'b': sb.append('\b'); break;
+          case 'f': sb.append('\f'); break;
+          case 'u':
+            sb.append((char)Integer.parseInt(step.substring(i + 1, i + 5), 16));
+            i += 4;
+            break;
+          default:
+            sb.append(ch);
+            break;
+          }
+        }
+        else if ((ch == '\'') && (i + 1 < end) && (step.charAt(i + 1) == '\''))
+        {
+          sb.append(ch);
+          ++i;
+        }
+        else
+        {
+          sb.append(ch);
+        }
+      }
+      return sb.toString();
+    }
+
+    /**
+     * Parse an array step validated by the PathParser, such as
+     * [*], [1], [1 to 3], [last-1], or [0, 2 to last]
+     */
+    private static int[] subscripts(String step)
+    {
+      String body = step.substring(1, step.length() - 1).trim();
+      if (body.equals("*"))
+        return new int[] { 0, -1 };
+
+      String[] entries = body.split(",");
+      int[] ranges = new int[entries.length * 2];
+      for (int i = 0; i < entries.length; ++i)
+      {
+        String[] bounds = entries[i].trim().split("\\s+to\\s+");
+        ranges[i * 2] = position(bounds[0]);
+        ranges[i * 2 + 1] = position(bounds[bounds.length - 1]);
+      }
+      return ranges;
+    }
+
+    private static int position(String bound)
+    {
+      String str = bound.replaceAll("\\s", "");
+      if (!str.startsWith("last"))
+        return Integer.parseInt(str);
+      if (str.length() == 4)
+        return -1;
+      return -(Integer.parseInt(str.substring(5)) + 1);
+    }
+  }
+
+  /*
+  ** Item methods (modifiers)
+  */
+
+  private static final class ItemMethod
+  {
+    private final String     name;
+    private final BigDecimal param;
+
+    private ItemMethod(String name, BigDecimal param)
+    {
+      this.name = name;
+      this.param = param;
+    }
+
+    static ItemMethod create(Predicate predicate)
+      throws QueryException
+    {
+      String name = predicate.getValue();
+      if (name == null)
+        return null;
+
+      if (name.equals("binary"))
+        QueryException.throwExecutionException(QueryMessage.EX_NOT_EVALUABLE,
+                                               "$binary");
+
+      String param = predicate.getLiteralFuncParam();
+      return new ItemMethod(name, (param == null) ? null : new BigDecimal(param));
+    }
+
+    List<OracleJsonValue> apply(List<OracleJsonValue> items)
+    {
+      List<OracleJsonValue> out = new ArrayList<OracleJsonValue>(items.size());
+
+      for (OracleJsonValue item : items)
+      {
+        boolean isArray = (item.getOracleJsonType() == OracleJsonType.ARRAY);
+
+        // These apply to an array itself, the others to its elements
+        if (name.equals("size"))
+          out.add(FACTORY.createDecimal(isArray ? item.asJsonArray().size() : 1));
+        else if (name.equals("type"))
+          out.add(FACTORY.createString(typeName(item)));
+        else if (isArray)
+          for (OracleJsonValue element : item.asJsonArray())
+            applyScalar(element, out);
+        else
+          applyScalar(item, out);
+      }
+      return out;
+    }
+
+    /**
+     * Apply the method to a single item. Items the method doesn't
+     * apply to are dropped, as lax mode does with the error.
+     */
+    private void applyScalar(OracleJsonValue item, List<OracleJsonValue> out)
+    {
+      OracleJsonType type = item.getOracleJsonType();
+      boolean isNumber = isNumber(type);
+      boolean isString = (type == OracleJsonType.STRING);
+      OracleJsonValue result = null;
+
+      try
+      {
+        if (name.equals("numberOnly"))
+          result = isNumber ? item : null;
+        else if (name.equals("stringOnly"))
+          result = isString ? item : null;
+        else if (name.equals("booleanOnly"))
+          result = isBoolean(type) ? item : null;
+        else if (name.equals("dateTimeOnly"))
+          result = isTemporal(type) ? item : null;
+        else if (name.equals("binaryOnly"))
+          result = (type == OracleJsonType.BINARY) ? item : null;
+        else if (name.equals("idOnly"))
+          result = ((type == OracleJsonType.BINARY) &&
+                    item.asJsonBinary().isId()) ? item : null;
+        else if (name.equals("upper") || name.equals("lower"))
+        {
+          if (isString)
+          {
+            String str = item.asJsonString().getString();
+            result = FACTORY.createString(name.equals("upper")
+                                            ? str.toUpperCase(Locale.ROOT)
+                                            : str.toLowerCase(Locale.ROOT));
+          }
+        }
+        else if (name.equals("length"))
+        {
+          if (isString)
+          {
+            String str = item.asJsonString().getString();
+            result = FACTORY.createDecimal(str.codePointCount(0, str.length()));
+          }
+        }
+        else if (name.equals("number"))
+        {
+          BigDecimal number = toNumber(item);
+          if (number != null)
+            result = FACTORY.createDecimal(number);
+        }
+        else if (name.equals("double"))
+        {
+          if (isNumber)
+            result = FACTORY.createDouble(item.asJsonNumber().doubleValue());
+          else if (isString)
+            result = FACTORY.createDouble(
+              Double.parseDouble(item.asJsonString().getString().trim()));
+        }
+        else if (name.equals("string"))
+        {
+          String str = toText(item);
+          if (str != null)
+            result = FACTORY.createString(str);
+        }
+        else if (name.equals("boolean"))
+        {
+          if (isBoolean(type))
+            result = item;
+          else if (isString)
+          {
+            String str = item.asJsonString().getString();
+            if (str.equals("true"))
+              result = OracleJsonValue.TRUE;
+            else if (str.equals("false"))
+              result = OracleJsonValue.FALSE;
+          }
+        }
+        else if (name.equals("abs") || name.equals("ceiling") ||
+                 name.equals("floor") || name.equals("mod"))
+        {
+          if (isNumber)
+            result = arithmetic(item);
+        }
+        else if (name.equals("date") || name.equals("timestamp"))
+        {
+          LocalDateTime ldt = toDateTime(item);
+          if (ldt != null)
+            result = name.equals("date")
+                     ? FACTORY.createDate(ldt.toLocalDate().atStartOfDay())
+                     : FACTORY.createTimestamp(ldt);
+        }
+      }
+      catch (NumberFormatException e)
+      {
+        result = null;
+      }
+      catch (OracleJsonException e)
+      {
+        result = null;
+      }
+
+      if (result != null)
+        out.add(result);
+    }
+
+    private OracleJsonValue arithmetic(OracleJsonValue item)
+    {
+      OracleJsonType type = item.getOracleJsonType();
+      if (type != OracleJsonType.DECIMAL)
+      {
+        double dval = item.asJsonNumber().doubleValue();
+        if (name.equals("abs"))
+          dval = Math.abs(dval);
+        else if (name.equals("ceiling"))
+          dval = Math.ceil(dval);
+        else if (name.equals("floor"))
+          dval = Math.floor(dval);
+        else
+          dval = dval % param.doubleValue();
+        return FACTORY.createDouble(dval);
+      }
+
+      BigDecimal number = item.asJsonNumber().bigDecimalValue();
+      if (name.equals("abs"))
+        number = number.abs();
+      else if (name.equals("ceiling"))
+        number = number.setScale(0, RoundingMode.CEILING);
+      else if (name.equals("floor"))
+        number = number.setScale(0, RoundingMode.FLOOR);
+      else
+        // Like SQL MOD, the remainder has the sign of the dividend
+        number = number.remainder(param);
+      return FACTORY.createDecimal(number);
+    }
+
+    private static String typeName(OracleJsonValue item)
+    {
+      switch (item.getOracleJsonType())
+      {
+      case NULL:        return "null";
+      case TRUE:
+      case FALSE:       return "boolean";
+      case DECIMAL:     return "number";
+      case DOUBLE:      return "double";
+      case FLOAT:       return "float";
+      case STRING:      return "string";
+      case OBJECT:      return "object";
+      case ARRAY:       return "array";
+      case DATE:        return "date";
+      case TIMESTAMP:   return "timestamp";
+      case TIMESTAMPTZ: return "timestamp with time zone";
+      case INTERVALDS:  return "daysecondInterval";
+      case INTERVALYM:  return "yearmonthInterval";
+      case BINARY:      return "binary";
+      default:          return item.getOracleJsonType().toString().toLowerCase(Locale.ROOT);
+      }
+    }
+  }
+
+  /*
+  ** Order by
+  */
+
+  private static final class SortEntry<T>
+  {
+    final T                 item;
+    final OracleJsonValue[] values;
+
+    SortEntry(T item, OracleJsonValue[] values)
+    {
+      this.item = item;
+      this.values = values;
+    }
+  }
+
+  /**
+   * One column of the ORDER BY clause
+   */
+  private static final class SortKey
+  {
+    private final String  pathString;
+    private final Path    path;
+    private final boolean ascending;
+    private final String  returnType;
+    private final int     maxBytes;
+    private final boolean isJson;      // JSON_QUERY returning JSON
+    private final boolean minMax;      // [*].min() or [*].max()
+    private final boolean errorOnError;
+    private final boolean errorOnEmpty;
+
+    SortKey(Predicate predicate, boolean strictTypeMode)
+      throws QueryException
+    {
+      JsonQueryPath qpath = predicate.getQueryPath();
+      if (qpath.hasArraySteps())
+        throw new QueryException(QueryMessage.EX_ARRAY_STEPS_IN_PATH.get());
+
+      String type = predicate.getReturnType();
+      String error = predicate.getErrorClause();
+
+      this.pathString = qpath.toString();
+      this.path = new Path(qpath);
+      this.ascending = predicate.getValue().equals("1");
+      this.isJson = (strictTypeMode || (type != null)) &&
+                    ((type == null) || type.equals("json"));
+      this.minMax = isJson && predicate.getSortByMinMaxParam();
+      this.errorOnError = (error != null) && error.startsWith(AndORTree.ERROR_ON_ERROR);
+      this.errorOnEmpty = AndORTree.ERROR_ON_ERROR.equals(error);
+
+      if ((type == null) || type.equals("json"))
+      {
+        this.returnType = "varchar2";
+        this.maxBytes = DEFAULT_VARCHAR_BYTES;
+      }
+      else if (type.startsWith("varchar2("))
+      {
+        this.returnType = "varchar2";
+        this.maxBytes = Integer.parseInt(type.substring(9, type.length() - 1));
+      }
+      else
+      {
+        this.returnType = type;
+        this.maxBytes = DEFAULT_VARCHAR_BYTES;
+      }
+    }
+
+    private OracleJsonValue error()
+      throws QueryException
+    {
+      if (errorOnError)
+        QueryException.throwExecutionException(
+          QueryMessage.EX_ORDERBY_NOT_SCALAR, pathString);
+      return null;
+    }
+
+    /**
+     * Extract the column value for a document, null for an SQL NULL
+     */
+    OracleJsonValue extract(OracleJsonValue document)
+      throws QueryException
+    {
+      List<OracleJsonValue> items = path.select(document);
+
+      if (minMax)
+      {
+        OracleJsonValue best = null;
+        for (OracleJsonValue item : items)
+        {
+          List<OracleJsonValue> elements =
+            (item.getOracleJsonType() == OracleJsonType.ARRAY)
+              ? item.asJsonArray() : Collections.singletonList(item);
+          for (OracleJsonValue element : elements)
+          {
+            if (!isScalar(element.getOracleJsonType()) ||
+                (element.getOracleJsonType() == OracleJsonType.NULL))
+              continue;
+            if (best == null)
+              best = element;
+            else
+            {
+              int cmp = compareForOrder(element, best);
+              if (ascending ? (cmp < 0) : (cmp > 0))
+                best = element;
+            }
+          }
+        }
+        return best;
+      }
+
+      if (items.isEmpty())
+        return errorOnEmpty ? error() : null;
+      if (items.size() > 1)
+        return error();
+
+      OracleJsonValue item = items.get(0);
+      OracleJsonType type = item.getOracleJsonType();
+
+      if (isJson)
+        return item;
+      if (!isScalar(type))
+        return error();
+      if (type == OracleJsonType.NULL)
+        return null;
+
+      try
+      {
+        if (returnType.equals("number"))
+        {
+          BigDecimal number = toNumber(item);
+          return (number == null) ? error() : FACTORY.createDecimal(number);
+        }
+        else if (returnType.equals("date") || returnType.equals("timestamp"))
+        {
+          LocalDateTime ldt = toDateTime(item);
+          if (ldt == null)
+            return error();
+          return returnType.equals("date")
+                 ? FACTORY.createDate(ldt.withNano(0))
+                 : FACTORY.createTimestamp(ldt);
+        }
+      }
+      catch (NumberFormatException e)
+      {
+        return error();
+      }
+      catch (OracleJsonException e)
+      {
+        return error();
+      }
+
+      String str = toText(item);
+      if ((str == null) ||
+          (str.getBytes(StandardCharsets.UTF_8).length > maxBytes))
+        return error();
+      return FACTORY.createString(str);
+    }
+
+    /**
+     * Compare column values, with nulls last in ascending order and
+     * first in descending order, as for SQL (reversed for min/max)
+     */
+    int compare(OracleJsonValue a, OracleJsonValue b)
+    {
+      if ((a == null) || (b == null))
+      {
+        if (a == b)
+          return 0;
+        boolean nullsLast = (minMax != ascending);
+        return ((a == null) == nullsLast) ? 1 : -1;
+      }
+      int cmp = compareForOrder(a, b);
+      return ascending ? cmp : -cmp;
+    }
+  }
+
+  /*
+  ** Scalar utilities
+  */
+
+  private static boolean isNumber(OracleJsonType type)
+  {
+    return (type == OracleJsonType.DECIMAL) ||
+           (type == OracleJsonType.DOUBLE)  ||
+           (type == OracleJsonType.FLOAT);
+  }
+
+  private static boolean isBoolean(OracleJsonType type)
+  {
+    return (type == OracleJsonType.TRUE) || (type == OracleJsonType.FALSE);
+  }
+
+  private static boolean isTemporal(OracleJsonType type)
+  {
+    return (type == OracleJsonType.DATE)      ||
+           (type == OracleJsonType.TIMESTAMP) ||
+           (type == OracleJsonType.TIMESTAMPTZ);
+  }
+
+  private static boolean isScalar(OracleJsonType type)
+  {
+    return (type != OracleJsonType.ARRAY) && (type != OracleJsonType.OBJECT);
+  }
+
+  private static BigDecimal toNumber(OracleJsonValue item)
+  {
+    OracleJsonType type = item.getOracleJsonType();
+    if (type == OracleJsonType.DECIMAL)
+      return item.asJsonNumber().bigDecimalValue();
+    if (isNumber(type))
+    {
+      double dval = item.asJsonNumber().doubleValue();
+      return (Double.isNaN(dval) || Double.isInfinite(dval))
+             ? null : BigDecimal.valueOf(dval);
+    }
+    if (type == OracleJsonType.STRING)
+      return new BigDecimal(item.asJsonString().getString().trim());
+    return null;
+  }
+
+  /**
+   * The text of a scalar, as JSON_VALUE returns it as a string
+   */
+  private static String toText(OracleJsonValue item)
+  {
+    switch (item.getOracleJsonType())
+    {
+    case STRING:
+      return item.asJsonString().getString();
+    case TRUE:
+      return "true";
+    case FALSE:
+      return "false";
+    case DECIMAL:
+    case DOUBLE:
+    case FLOAT:
+      return item.toString();
+    case DATE:
+      return item.asJsonDate().getString();
+    case TIMESTAMP:
+      return item.asJsonTimestamp().getString();
+    case TIMESTAMPTZ:
+      return item.asJsonTimestampTZ().getString();
+    case BINARY:
+      return item.asJsonBinary().getString();
+    default:
+      return null;
+    }
+  }
+
+  /**
+   * The date/time of a temporal item, or of an ISO 8601 string.
+   * Time zones are normalized to UTC.
+   */
+  private static LocalDateTime toDateTime(OracleJsonValue item)
+  {
+    switch (item.getOracleJsonType())
+    {
+    case DATE:
+      return item.asJsonDate().getLocalDateTime();
+    case TIMESTAMP:
+      return item.asJsonTimestamp().getLocalDateTime();
+    case TIMESTAMPTZ:
+      return item.asJsonTimestampTZ().getOffsetDateTime()
+                 .withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    case STRING:
+      return parseDateTime(item.asJsonString().getString());
+    default:
+      return null;
+    }
+  }
+
+  private static LocalDateTime parseDateTime(String str)
+  {
+    str = str.trim();
+    try
+    {
+      if (str.length() <= 10)
+        return LocalDate.parse(str).atStartOfDay();
+      if (str.endsWith("Z") || (str.lastIndexOf('+') > 10) ||
+          (str.lastIndexOf('-') > 10))
+        return OffsetDateTime.parse(str)
+                 .withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+      return LocalDateTime.parse(str);
+    }
+    catch (DateTimeParseException e)
+    {
+      return null;
+    }
+  }
+
+  private static int compareStrings(String a, String b)
+  {
+    // Code point order, which is the order of the UTF-8 bytes
+    int alen = a.length();
+    int blen = b.length();
+    int i = 0;
+    while ((i < alen) && (i < blen))
+    {
+      int ca = a.codePointAt(i);
+      int cb = b.codePointAt(i);
+      if (ca != cb)
+        return (ca < cb) ? -1 : 1;
+      i += Character.charCount(ca);
+    }
+    return (alen == blen) ? 0 : ((i < blen) ? -1 : 1);
+  }
+
+  private static int compareBytes(byte[] a, byte[] b)
+  {
+    int len = Math.min(a.length, b.length);
+    for (int i = 0; i < len; ++i)
+    {
+      int ca = a[i] & 0xFF;
+      int cb = b[i] & 0xFF;
+      if (ca != cb)
+        return (ca < cb) ? -1 : 1;
+    }
+    return Integer.compare(a.length, b.length);
+  }
+
+  /**
+   * Compare two scalars. Returns null if they are of types that
+   * can't be compared, which makes every comparison false.
+   */
+  static Integer compareScalars(OracleJsonValue a, OracleJsonValue b)
+  {
+    OracleJsonType atype = a.getOracleJsonType();
+    OracleJsonType btype = b.getOracleJsonType();
+
+    if (isNumber(atype) && isNumber(btype))
+    {
+      // As in SQL, a binary float or double converts the other side
+      if ((atype != OracleJsonType.DECIMAL) || (btype != OracleJsonType.DECIMAL))
+      {
+        double da = a.asJsonNumber().doubleValue();
+        double db = b.asJsonNumber().doubleValue();
+        if (Double.isNaN(da) || Double.isNaN(db))
+          return Double.isNaN(da) && Double.isNaN(db) ? 0 : null;
+        return (da < db) ? -1 : ((da > db) ? 1 : 0);
+      }
+      return a.asJsonNumber().bigDecimalValue()
+              .compareTo(b.asJsonNumber().bigDecimalValue());
+    }
+    if ((atype == OracleJsonType.STRING) && (btype == OracleJsonType.STRING))
+      return compareStrings(a.asJsonString().getString(),
+                            b.asJsonString().getString());
+    if (isBoolean(atype) && isBoolean(btype))
+      return (atype == btype) ? 0 : ((atype == OracleJsonType.FALSE) ? -1 : 1);
+    if ((atype == OracleJsonType.NULL) && (btype == OracleJsonType.NULL))
+      return 0;
+    if ((isTemporal(atype) &&
+         (isTemporal(btype) || (btype == OracleJsonType.STRING))) ||
+        (isTemporal(btype) && (atype == OracleJsonType.STRING)))
+    {
+      LocalDateTime la = toDateTime(a);
+      LocalDateTime lb = toDateTime(b);
+      if ((la == null) || (lb == null))
+        return null;
+      return la.compareTo(lb);
+    }
+    if ((atype == OracleJsonType.BINARY) && (btype == OracleJsonType.BINARY))
+      return compareBytes(a.asJsonBinary().getBytes(),
+                         b.asJsonBinary().getBytes());
+    if ((atype == btype) && a.equals(b))
+      return 0;
+    return null;
+  }
+
+  private static final List<OracleJsonType> TYPE_ORDER = Arrays.asList(
+    OracleJsonType.NULL, OracleJsonType.DECIMAL, OracleJsonType.STRING,
+    OracleJsonType.DATE, OracleJsonType.FALSE, OracleJsonType.BINARY,
+    OracleJsonType.INTERVALYM, OracleJsonType.INTERVALDS,
+    OracleJsonType.ARRAY, OracleJsonType.OBJECT);
+
+  private static int typeRank(OracleJsonType type)
+  {
+    if (isNumber(type))
+      type = OracleJsonType.DECIMAL;
+    else if (isTemporal(type))
+      type = OracleJsonType.DATE;
+    else if (isBoolean(type))
+      type = OracleJsonType.FALSE;
+    int rank = TYPE_ORDER.indexOf(type);
+    return (rank < 0) ? TYPE_ORDER.size() : rank;
+  }
+
+  /**
+   * Total order for sorting, by type and then by value
+   */
+  private static int compareForOrder(OracleJsonValue a, OracleJsonValue b)
+  {
+    OracleJsonType atype = a.getOracleJsonType();
+    OracleJsonType btype = b.getOracleJsonType();
+    int arank = typeRank(atype);
+    int brank = typeRank(btype);
+    if (arank != brank)
+      return (arank < brank) ? -1 : 1;
+
+    Integer cmp = compareScalars(a, b);
+    return (cmp == null) ? 0 : cmp.intValue();
+  }
+}
@@ -123,6 +123,8 @@ public final class QueryMessage extends Message
   /************************************************************************/
   static final QueryMessage RR_BIND_MISMATCH           = create(5500);
   static final QueryMessage EX_UNSUPPORTED_OP          = create(5501);
+  static final QueryMessage EX_NOT_EVALUABLE           = create(5502);
+  static final QueryMessage EX_ORDERBY_NOT_SCALAR      = create(5503);
 
   /************************************************************************/
   /* Note: 6000 to 6499 range is reserved for SQL phase "run-time" errors */
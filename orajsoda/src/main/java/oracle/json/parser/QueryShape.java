@@ -0,0 +1,308 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    The shape of a QBE: its paths and operators, without its values.
+    Filters that differ only in their values have the same shape, e.g.
+
+      {"age" : {"$gt" : 30}, "name" : "Bob"}
+      {"name" : "Carol", "age" : {"$gt" : 45}}
+
+    both have the signature
+
+      $and(age $gt, name $eq)
+
+   NOTES
+    The children of $and and $or are sorted, so the order of the fields
+    of the filter doesn't matter. The number of values of an $in or $all
+    isn't part of the shape.
+
+    The terms are the comparisons that all matching documents satisfy,
+    i.e. those reached from the root through $and nodes only (not through
+    $or, $not, or a downscoped $and). These are the ones an index on their
+    paths could serve. The type of the (first) value of each term is kept
+    as a hint for the index datatype.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import oracle.json.parser.Evaluator.EvaluatorCode;
+
+public final class QueryShape
+{
+  /**
+   * A comparison of a path that all matching documents satisfy
+   */
+  public static final class Term
+  {
+    private final String  path;
+    private final String  indexPath;
+    private final String  operator;
+    private final String  method;
+    private final String  datatype;
+    private final boolean arrayPath;
+
+    Term(String path, String indexPath, String operator, String method,
+         String datatype, boolean arrayPath)
+    {
+      this.path = path;
+      this.indexPath = indexPath;
+      this.operator = operator;
+      this.method = method;
+      this.datatype = datatype;
+      this.arrayPath = arrayPath;
+    }
+
+    /**
+     * The path, in QBE notation
+     */
+    public String getPath()
+    {
+      return path;
+    }
+
+    /**
+     * The path without its array steps, as index specifications
+     * take it
+     */
+    public String getIndexPath()
+    {
+      return indexPath;
+    }
+
+    /**
+     * The QBE operator, e.g. "$eq"
+     */
+    public String getOperator()
+    {
+      return operator;
+    }
+
+    /**
+     * The item method applied to the path (e.g. "upper"), or null
+     */
+    public String getMethod()
+    {
+      return method;
+    }
+
+    /**
+     * "number" or "string" if the (first) value is one, otherwise null
+     */
+    public String getDatatype()
+    {
+      return datatype;
+    }
+
+    /**
+     * True if the path has array steps, or the operator compares
+     * several values of the path ($all, $size)
+     */
+    public boolean isArrayPath()
+    {
+      return arrayPath;
+    }
+  }
+
+  private final String       signature;
+  private final List<Term>   terms;
+  private final List<String> orderBy;
+
+  private QueryShape(String signature, List<Term> terms, List<String> orderBy)
+  {
+    this.signature = signature;
+    this.terms = terms;
+    this.orderBy = orderBy;
+  }
+
+  /**
+   * Get the shape of a filter. The tree must have been generated.
+   */
+  public static QueryShape create(AndORTree tree)
+  {
+    List<Term> terms = new ArrayList<Term>();
+    List<String> orderBy = new ArrayList<String>();
+    StringBuilder sb = new StringBuilder();
+
+    AndORNode root = tree.getRoot();
+    if (root != null)
+      sb.append(describe(root, tree.getFilterValues(), new int[] { 0 },
+                         true, terms));
+
+    List<Predicate> orderByArray = tree.getOrderByArray();
+    if ((orderByArray != null) && !orderByArray.isEmpty())
+    {
+      sb.append(" $orderby(");
+      for (int i = 0; i < orderByArray.size(); ++i)
+      {
+        String path = orderByArray.get(i).getPath();
+        if (i > 0) sb.append(", ");
+        sb.append(path);
+        orderBy.add(path);
+      }
+      sb.append(")");
+    }
+
+    return new QueryShape(sb.toString(),
+                          Collections.unmodifiableList(terms),
+                          Collections.unmodifiableList(orderBy));
+  }
+
+  /**
+   * The normalized text of the shape. Equal for filters that
+   * differ only in their values (or the order of their fields).
+   */
+  public String getSignature()
+  {
+    return signature;
+  }
+
+  /**
+   * The comparisons that all matching documents satisfy
+   */
+  public List<Term> getTerms()
+  {
+    return terms;
+  }
+
+  /**
+   * The $orderby paths, in order
+   */
+  public List<String> getOrderByPaths()
+  {
+    return orderBy;
+  }
+
+  @Override
+  public String toString()
+  {
+    return signature;
+  }
+
+  private static String describe(AndORNode node, List<ValueTypePair> values,
+                                 int[] position, boolean conjunctive,
+                                 List<Term> terms)
+  {
+    EvaluatorCode eval = node.getEval();
+    StringBuilder sb = new StringBuilder();
+
+    if (node.getNotOperation())
+      sb.append("$not(");
+
+    if ((eval == EvaluatorCode.$and) || (eval == EvaluatorCode.$or))
+    {
+      // Children of a negated, downscoped, or $or node don't
+      // necessarily hold for all the matching documents
+      boolean childConjunctive = conjunctive &&
+                                 (eval == EvaluatorCode.$and) &&
+                                 !node.getNotOperation() &&
+                                 (node.getDownScope() == null);
+
+      List<String> children = new ArrayList<String>();
+      List<AndORNode> childNodes = node.getChildren();
+      if (childNodes != null)
+        for (AndORNode child : childNodes)
+          children.add(describe(child, values, position, childConjunctive,
+                                terms));
+      Collections.sort(children);
+
+      if (node.getDownScope() != null)
+      {
+        sb.append(node.getDownScope().toString());
+        sb.append(":");
+      }
+      sb.append(eval.toString());
+      sb.append("(");
+      for (int i = 0; i < children.size(); ++i)
+      {
+        if (i > 0) sb.append(", ");
+        sb.append(children.get(i));
+      }
+      sb.append(")");
+    }
+    else
+    {
+      // Consume the values of the node, as the JSON_EXISTS does
+      String datatype = null;
+      int numVals = Math.max(1, node.getNumVals());
+      for (int i = 0; i < numVals; ++i, ++position[0])
+      {
+        if ((i == 0) && (values != null) && (position[0] < values.size()))
+          datatype = datatypeOf(values.get(position[0]));
+      }
+
+      Predicate predicate = node.getPredicate();
+      String path = (predicate == null) ? "" : predicate.getPath();
+      String method = (predicate == null) ? null : predicate.getValue();
+      String operator = (eval == null) ? "?" : eval.toString();
+
+      sb.append(path);
+      if (method != null)
+      {
+        sb.append(".");
+        sb.append(method);
+        sb.append("()");
+      }
+      sb.append(" ");
+      sb.append(operator);
+
+      if (conjunctive && !node.getNotOperation() && (predicate != null))
+      {
+        boolean arrayPath = predicate.getQueryPath().hasArraySteps() ||
+                            (eval == EvaluatorCode.$all) ||
+                            "size".equals(method);
+        terms.add(new Term(path, indexPath(predicate.getQueryPath()),
+                           operator, method, datatype, arrayPath));
+      }
+    }
+
+    if (node.getNotOperation())
+      sb.append(")");
+
+    return sb.toString();
+  }
+
+  private static String indexPath(JsonQueryPath jqpath)
+  {
+    if (!jqpath.hasArraySteps())
+      return jqpath.toString();
+
+    StringBuilder sb = new StringBuilder();
+    for (String step : jqpath.getSteps())
+    {
+      if (step.startsWith("["))
+        continue;
+      if (sb.length() > 0) sb.append(".");
+      sb.append(step);
+    }
+    return sb.toString();
+  }
+
+  private static String datatypeOf(ValueTypePair item)
+  {
+    if (item.getValue() == null)
+      return null;
+
+    switch (item.getValue().getValueType())
+    {
+    case NUMBER:
+      return "number";
+    case STRING:
+      return "string";
+    default:
+      return null;
+    }
+  }
+}
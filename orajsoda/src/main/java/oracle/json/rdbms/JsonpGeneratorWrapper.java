@@ -409,7 +409,7 @@ public class JsonpGeneratorWrapper implements JsonGenerator {
     return this;
   }
 
-  private void writeOraNum(BigDecimal value) {
+  void writeOraNum(BigDecimal value) {
     try {
       wrapped.write(new OracleJsonDecimalImpl(value));
     } catch (OracleJsonException e) {
@@ -0,0 +1,1249 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+/*    All rights reserved.*/
+
+/*
+   DESCRIPTION
+    ObjectBinder maps application objects (plain Java classes) to and
+    from JSON, by writing their fields straight to an OracleJsonGenerator
+    and setting them straight from the events of an OracleJsonParser.
+    No JSON tree is built on either side.
+
+   NOTES
+    A class can be bound if it's a concrete, non-inner class outside the
+    JDK and JSON packages, with a constructor taking no arguments (of any
+    visibility). Its non-static, non-transient fields, including those
+    inherited, are the JSON fields, under their Java names. Field types
+    can be:
+
+      - primitives and their wrappers, String, BigDecimal, BigInteger
+      - byte[] (JSON binary), enums (by name)
+      - LocalDateTime, OffsetDateTime, Instant, Duration
+      - Period, of years and months only (as a JSON interval has no days)
+      - arrays, Collections, and Maps with String keys, of these types
+      - other bindable classes, and Object (for any of the above)
+
+    The accessors for a class are found by reflection once, and kept as
+    MethodHandles adapted to exact types, so that primitive fields are
+    read and written without boxing. Field types are resolved when the
+    class is first bound, so an unsupported type is reported up front.
+
+    Null fields aren't written. JSON fields without a matching Java field
+    are skipped, as are JSON nulls for primitive fields, which keep the
+    value set by the constructor. Numbers read into integral fields must
+    be integers within the range of the field's type. Strings are
+    accepted for the temporal types and for byte[] (as hex), since
+    that's how JSON text renders them, and OSON identifiers are accepted
+    for String fields (as hex).
+
+    The per-class bindings are cached in ClassValues, and the binder is
+    safe for concurrent use.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.rdbms;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import jakarta.json.JsonException;
+
+import oracle.json.common.Message;
+import oracle.json.util.ByteArray;
+
+import oracle.sql.json.OracleJsonGenerator;
+import oracle.sql.json.OracleJsonParser;
+import oracle.sql.json.OracleJsonParser.Event;
+
+public final class ObjectBinder
+{
+  /** Deepest nesting of objects and arrays bound */
+  public static final int MAX_DEPTH = 1000;
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  // Scalar kinds
+  private static final int K_BOOLEAN     = 1;
+  private static final int K_BYTE        = 2;
+  private static final int K_SHORT       = 3;
+  private static final int K_INT         = 4;
+  private static final int K_LONG        = 5;
+  private static final int K_FLOAT       = 6;
+  private static final int K_DOUBLE      = 7;
+  private static final int K_CHAR        = 8;
+  private static final int K_STRING      = 9;
+  private static final int K_DECIMAL     = 10;
+  private static final int K_BIGINT      = 11;
+  private static final int K_BYTES       = 12;
+  private static final int K_TIMESTAMP   = 13;
+  private static final int K_TIMESTAMPTZ = 14;
+  private static final int K_INSTANT     = 15;
+  private static final int K_DURATION    = 16;
+  private static final int K_PERIOD      = 17;
+
+  private static final HashMap<Class<?>, Integer> SCALARS =
+    new HashMap<Class<?>, Integer>();
+
+  static
+  {
+    SCALARS.put(boolean.class,        K_BOOLEAN);
+    SCALARS.put(Boolean.class,        K_BOOLEAN);
+    SCALARS.put(byte.class,           K_BYTE);
+    SCALARS.put(Byte.class,           K_BYTE);
+    SCALARS.put(short.class,          K_SHORT);
+    SCALARS.put(Short.class,          K_SHORT);
+    SCALARS.put(int.class,            K_INT);
+    SCALARS.put(Integer.class,        K_INT);
+    SCALARS.put(long.class,           K_LONG);
+    SCALARS.put(Long.class,           K_LONG);
+    SCALARS.put(float.class,          K_FLOAT);
+    SCALARS.put(Float.class,          K_FLOAT);
+    SCALARS.put(double.class,         K_DOUBLE);
+    SCALARS.put(Double.class,         K_DOUBLE);
+    SCALARS.put(char.class,           K_CHAR);
+    SCALARS.put(Character.class,      K_CHAR);
+    SCALARS.put(String.class,         K_STRING);
+    SCALARS.put(BigDecimal.class,     K_DECIMAL);
+    SCALARS.put(BigInteger.class,     K_BIGINT);
+    SCALARS.put(byte[].class,         K_BYTES);
+    SCALARS.put(LocalDateTime.class,  K_TIMESTAMP);
+    SCALARS.put(OffsetDateTime.class, K_TIMESTAMPTZ);
+    SCALARS.put(Instant.class,        K_INSTANT);
+    SCALARS.put(Duration.class,       K_DURATION);
+    SCALARS.put(Period.class,         K_PERIOD);
+  }
+
+  // Whether each class can be bound (checked once per class)
+  private static final ClassValue<Boolean> BINDABLE =
+    new ClassValue<Boolean>()
+    {
+      @Override
+      protected Boolean computeValue(Class<?> type)
+      {
+        return Boolean.valueOf(checkBindable(type));
+      }
+    };
+
+  // Field bindings of each bound class
+  private static final ClassValue<ObjectBinding> OBJECTS =
+    new ClassValue<ObjectBinding>()
+    {
+      @Override
+      protected ObjectBinding computeValue(Class<?> type)
+      {
+        return new ObjectBinding(type);
+      }
+    };
+
+  // Bindings for the runtime classes of values held as Object
+  private static final ClassValue<ValueBinding> RUNTIME =
+    new ClassValue<ValueBinding>()
+    {
+      @Override
+      protected ValueBinding computeValue(Class<?> type)
+      {
+        return runtimeBinding(type);
+      }
+    };
+
+  private static final GenericBinding GENERIC = new GenericBinding();
+
+  private ObjectBinder()
+  {
+  }
+
+  /**
+   * Returns true if instances of the class can be bound to JSON objects
+   */
+  public static boolean isBindable(Class<?> type)
+  {
+    if (type == null)
+      return false;
+    return BINDABLE.get(type).booleanValue();
+  }
+
+  /**
+   * Write an object as a JSON object. The generator isn't closed.
+   */
+  public static void write(Object obj, OracleJsonGenerator gen)
+    throws JsonException
+  {
+    OBJECTS.get(obj.getClass()).write(gen, obj, 0);
+  }
+
+  /**
+   * Read a JSON object from the parser as an instance of the class
+   */
+  public static <T> T read(OracleJsonParser parser, Class<T> type)
+    throws JsonException
+  {
+    ObjectBinding binding = OBJECTS.get(type);
+    if (!parser.hasNext())
+      throw mismatch(null, type.getName());
+    return type.cast(binding.read(parser, parser.next(), 0));
+  }
+
+  private static boolean checkBindable(Class<?> type)
+  {
+    if (type.isPrimitive() || type.isArray() || type.isInterface() ||
+        type.isEnum() || type.isAnonymousClass() ||
+        Modifier.isAbstract(type.getModifiers()))
+      return false;
+
+    // Inner classes need an enclosing instance
+    if (type.isMemberClass() && !Modifier.isStatic(type.getModifiers()))
+      return false;
+
+    String name = type.getName();
+    if (name.startsWith("java.") || name.startsWith("javax.") ||
+        name.startsWith("jakarta.") || name.startsWith("oracle.sql.") ||
+        name.startsWith("oracle.jdbc."))
+      return false;
+
+    try
+    {
+      type.getDeclaredConstructor();
+      return true;
+    }
+    catch (NoSuchMethodException e)
+    {
+      return false;
+    }
+    catch (SecurityException e)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Get the binding for a declared type
+   */
+  private static ValueBinding bindingFor(Type type, Class<?> owner)
+  {
+    if (type instanceof Class)
+    {
+      Class<?> cls = (Class<?>)type;
+
+      Integer kind = SCALARS.get(cls);
+      if (kind != null)
+        return new ScalarBinding(kind.intValue(), cls);
+
+      if (cls == Object.class)
+        return GENERIC;
+      if (cls.isEnum())
+        return new EnumBinding(cls);
+      if (cls.isArray())
+        return new ArrayBinding(cls.getComponentType(),
+                                bindingFor(cls.getComponentType(), owner));
+      if (Map.class.isAssignableFrom(cls))
+        return new MapBinding(mapClass(cls, owner), GENERIC);
+      if (Collection.class.isAssignableFrom(cls))
+        return new CollectionBinding(collectionClass(cls, owner), GENERIC);
+      if (isBindable(cls))
+        return new ObjectRefBinding(cls);
+    }
+    else if (type instanceof ParameterizedType)
+    {
+      ParameterizedType ptype = (ParameterizedType)type;
+      Class<?> raw = (Class<?>)ptype.getRawType();
+      Type[] args = ptype.getActualTypeArguments();
+
+      if (Map.class.isAssignableFrom(raw) && (args.length == 2))
+      {
+        if ((args[0] != String.class) && (args[0] != Object.class))
+          throw cannotBind(owner, "map key type " + args[0].getTypeName());
+        return new MapBinding(mapClass(raw, owner), bindingFor(args[1], owner));
+      }
+      if (Collection.class.isAssignableFrom(raw) && (args.length == 1))
+        return new CollectionBinding(collectionClass(raw, owner),
+                                     bindingFor(args[0], owner));
+      return bindingFor(raw, owner);
+    }
+    else if (type instanceof GenericArrayType)
+    {
+      Type component = ((GenericArrayType)type).getGenericComponentType();
+      Class<?> raw = (component instanceof ParameterizedType) ?
+        (Class<?>)((ParameterizedType)component).getRawType() : Object.class;
+      return new ArrayBinding(raw, bindingFor(component, owner));
+    }
+    else
+    {
+      // Type variables and wildcards are bound as Object
+      return GENERIC;
+    }
+
+    throw cannotBind(owner, "type " + type.getTypeName());
+  }
+
+  /**
+   * Get the binding for a value held as an Object, from its class
+   */
+  private static ValueBinding runtimeBinding(Class<?> cls)
+  {
+    Integer kind = SCALARS.get(cls);
+    if (kind != null)
+      return new ScalarBinding(kind.intValue(), cls);
+    if (cls.isEnum())
+      return new EnumBinding(cls);
+    if (Map.class.isAssignableFrom(cls))
+      return new MapBinding(LinkedHashMap.class, GENERIC);
+    if (Collection.class.isAssignableFrom(cls))
+      return new CollectionBinding(ArrayList.class, GENERIC);
+    if (cls.isArray())
+      return new ArrayBinding(cls.getComponentType(), GENERIC);
+    if (isBindable(cls))
+      return new ObjectRefBinding(cls);
+    // An enum constant with a body is a subclass of the enum
+    if ((cls.getSuperclass() != null) && cls.getSuperclass().isEnum())
+      return new EnumBinding(cls.getSuperclass());
+    throw cannotBind(cls, "not a supported type");
+  }
+
+  private static Class<?> collectionClass(Class<?> cls, Class<?> owner)
+  {
+    if (cls.isInterface() || Modifier.isAbstract(cls.getModifiers()))
+    {
+      if (cls.isAssignableFrom(ArrayList.class))
+        return ArrayList.class;
+      if (cls.isAssignableFrom(LinkedHashSet.class))
+        return LinkedHashSet.class;
+      if (cls.isAssignableFrom(TreeSet.class))
+        return TreeSet.class;
+      if (cls.isAssignableFrom(ArrayDeque.class))
+        return ArrayDeque.class;
+      throw cannotBind(owner, "collection type " + cls.getName());
+    }
+    return cls;
+  }
+
+  private static Class<?> mapClass(Class<?> cls, Class<?> owner)
+  {
+    if (cls.isInterface() || Modifier.isAbstract(cls.getModifiers()))
+    {
+      if (cls.isAssignableFrom(LinkedHashMap.class))
+        return LinkedHashMap.class;
+      if (cls.isAssignableFrom(TreeMap.class))
+        return TreeMap.class;
+      throw cannotBind(owner, "map type " + cls.getName());
+    }
+    return cls;
+  }
+
+  /**
+   * Get a no-argument constructor as a handle returning Object
+   */
+  private static MethodHandle constructor(Class<?> cls, Class<?> owner)
+  {
+    try
+    {
+      Constructor<?> ctor = cls.getDeclaredConstructor();
+      ctor.setAccessible(true);
+      return LOOKUP.unreflectConstructor(ctor)
+                   .asType(MethodType.methodType(Object.class));
+    }
+    catch (Exception e)
+    {
+      throw cannotBind(owner, "no accessible constructor for " + cls.getName());
+    }
+  }
+
+  private static Object construct(MethodHandle ctor)
+  {
+    try
+    {
+      return (Object)ctor.invokeExact();
+    }
+    catch (Throwable t)
+    {
+      throw failure(t);
+    }
+  }
+
+  private static boolean isNumber(Event ev)
+  {
+    return (ev == Event.VALUE_DECIMAL) ||
+           (ev == Event.VALUE_DOUBLE)  ||
+           (ev == Event.VALUE_FLOAT);
+  }
+
+  private static void skip(OracleJsonParser parser, Event ev)
+  {
+    if (ev == Event.START_OBJECT)
+      parser.skipObject();
+    else if (ev == Event.START_ARRAY)
+      parser.skipArray();
+  }
+
+  private static JsonException cannotBind(Class<?> cls, String reason)
+  {
+    return new JsonException(Message.EX_CANNOT_BIND_CLASS.get(cls.getName(),
+                                                              reason));
+  }
+
+  private static JsonException mismatch(Event ev, String target)
+  {
+    String found = (ev == null) ? "end of input" :
+                   ev.toString().replace("VALUE_", "").toLowerCase();
+    return new JsonException(Message.EX_BINDING_MISMATCH.get(found, target));
+  }
+
+  private static JsonException tooDeep()
+  {
+    return new JsonException(Message.EX_BINDING_TOO_DEEP.get(Integer.toString(MAX_DEPTH)));
+  }
+
+  private static RuntimeException failure(Throwable t)
+  {
+    if (t instanceof RuntimeException)
+      return (RuntimeException)t;
+    if (t instanceof Error)
+      throw (Error)t;
+    return new JsonException(Message.EX_JSON_OPERATION_FAILED.get(t.toString()), t);
+  }
+
+  /**
+   * Writes and reads the values of one declared type
+   */
+  private static abstract class ValueBinding
+  {
+    /** Write a non-null value */
+    abstract void write(OracleJsonGenerator gen, Object value, int depth);
+
+    /** Read the value starting with the event, which isn't a null */
+    abstract Object read(OracleJsonParser parser, Event ev, int depth);
+
+    abstract String describe();
+  }
+
+  private static final class ScalarBinding extends ValueBinding
+  {
+    private final int      kind;
+    private final Class<?> type;
+
+    ScalarBinding(int kind, Class<?> type)
+    {
+      this.kind = kind;
+      this.type = type;
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object value, int depth)
+    {
+      switch (kind)
+      {
+      case K_BOOLEAN:
+        gen.write(((Boolean)value).booleanValue());
+        break;
+      case K_BYTE:
+      case K_SHORT:
+      case K_INT:
+        gen.write(((Number)value).intValue());
+        break;
+      case K_LONG:
+        gen.write(((Long)value).longValue());
+        break;
+      case K_FLOAT:
+        gen.write(((Float)value).floatValue());
+        break;
+      case K_DOUBLE:
+        gen.write(((Double)value).doubleValue());
+        break;
+      case K_CHAR:
+        gen.write(String.valueOf(((Character)value).charValue()));
+        break;
+      case K_STRING:
+        gen.write((String)value);
+        break;
+      case K_DECIMAL:
+        gen.write((BigDecimal)value);
+        break;
+      case K_BIGINT:
+        gen.write((BigInteger)value);
+        break;
+      case K_BYTES:
+        gen.write((byte[])value);
+        break;
+      case K_TIMESTAMP:
+        gen.write((LocalDateTime)value);
+        break;
+      case K_TIMESTAMPTZ:
+        gen.write((OffsetDateTime)value);
+        break;
+      case K_INSTANT:
+        gen.write(((Instant)value).atOffset(ZoneOffset.UTC));
+        break;
+      case K_DURATION:
+        gen.write((Duration)value);
+        break;
+      default:
+        Period period = (Period)value;
+        if (period.getDays() != 0)
+          throw new JsonException(Message.EX_CANNOT_BIND_VALUE.get(period.toString(),
+                                                                  "a JSON interval has no days"));
+        gen.write(period);
+        break;
+      }
+    }
+
+    @Override
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      switch (kind)
+      {
+      case K_BOOLEAN:
+        return Boolean.valueOf(readBoolean(parser, ev));
+      case K_BYTE:
+        return Byte.valueOf(readByte(parser, ev));
+      case K_SHORT:
+        return Short.valueOf(readShort(parser, ev));
+      case K_INT:
+        return Integer.valueOf(readInt(parser, ev));
+      case K_LONG:
+        return Long.valueOf(readLong(parser, ev));
+      case K_FLOAT:
+        return Float.valueOf(readFloat(parser, ev));
+      case K_DOUBLE:
+        return Double.valueOf(readDouble(parser, ev));
+      case K_CHAR:
+        return Character.valueOf(readChar(parser, ev));
+      default:
+        return readObject(parser, ev);
+      }
+    }
+
+    boolean readBoolean(OracleJsonParser parser, Event ev)
+    {
+      if (ev == Event.VALUE_TRUE)
+        return true;
+      if (ev == Event.VALUE_FALSE)
+        return false;
+      throw mismatch(ev, describe());
+    }
+
+    byte readByte(OracleJsonParser parser, Event ev)
+    {
+      long val = readIntegral(parser, ev, Byte.MIN_VALUE, Byte.MAX_VALUE);
+      return (byte)val;
+    }
+
+    short readShort(OracleJsonParser parser, Event ev)
+    {
+      long val = readIntegral(parser, ev, Short.MIN_VALUE, Short.MAX_VALUE);
+      return (short)val;
+    }
+
+    int readInt(OracleJsonParser parser, Event ev)
+    {
+      long val = readIntegral(parser, ev, Integer.MIN_VALUE, Integer.MAX_VALUE);
+      return (int)val;
+    }
+
+    long readLong(OracleJsonParser parser, Event ev)
+    {
+      return readIntegral(parser, ev, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Read an integer between min and max. The parser's getInt() and
+     * getLong() would truncate a fraction and wrap a value out of range,
+     * so the number is checked exactly instead.
+     */
+    private long readIntegral(OracleJsonParser parser, Event ev,
+                              long min, long max)
+    {
+      if (isNumber(ev))
+      {
+        try
+        {
+          long val = parser.getBigDecimal().longValueExact();
+          if ((val >= min) && (val <= max))
+            return val;
+        }
+        catch (ArithmeticException e)
+        {
+          // Reported as a mismatch below
+        }
+        catch (NumberFormatException e)
+        {
+          // Infinity or NaN, reported as a mismatch below
+        }
+      }
+      throw mismatch(ev, describe());
+    }
+
+    float readFloat(OracleJsonParser parser, Event ev)
+    {
+      if (!isNumber(ev))
+        throw mismatch(ev, describe());
+      return parser.getFloat();
+    }
+
+    double readDouble(OracleJsonParser parser, Event ev)
+    {
+      if (!isNumber(ev))
+        throw mismatch(ev, describe());
+      return parser.getDouble();
+    }
+
+    char readChar(OracleJsonParser parser, Event ev)
+    {
+      if (ev == Event.VALUE_STRING)
+      {
+        String str = parser.getString();
+        if (str.length() == 1)
+          return str.charAt(0);
+      }
+      throw mismatch(ev, describe());
+    }
+
+    private Object readObject(OracleJsonParser parser, Event ev)
+    {
+      try
+      {
+        switch (kind)
+        {
+        case K_STRING:
+          if (ev == Event.VALUE_STRING)
+            return parser.getString();
+          if (ev == Event.VALUE_BINARY)
+            return ByteArray.rawToHex(parser.getBytes());
+          break;
+        case K_DECIMAL:
+          if (isNumber(ev))
+            return parser.getBigDecimal();
+          break;
+        case K_BIGINT:
+          if (isNumber(ev))
+            return parser.getBigInteger();
+          break;
+        case K_BYTES:
+          if (ev == Event.VALUE_BINARY)
+            return parser.getBytes();
+          if (ev == Event.VALUE_STRING)
+          {
+            String hex = parser.getString();
+            if (ByteArray.isHex(hex))
+              return ByteArray.hexToRaw(hex);
+          }
+          break;
+        case K_TIMESTAMP:
+          if ((ev == Event.VALUE_TIMESTAMP) || (ev == Event.VALUE_DATE))
+            return parser.getLocalDateTime();
+          if (ev == Event.VALUE_TIMESTAMPTZ)
+            return parser.getOffsetDateTime().toLocalDateTime();
+          if (ev == Event.VALUE_STRING)
+            return LocalDateTime.parse(parser.getString());
+          break;
+        case K_TIMESTAMPTZ:
+        case K_INSTANT:
+          OffsetDateTime odt = null;
+          if (ev == Event.VALUE_TIMESTAMPTZ)
+            odt = parser.getOffsetDateTime();
+          else if ((ev == Event.VALUE_TIMESTAMP) || (ev == Event.VALUE_DATE))
+            odt = parser.getLocalDateTime().atOffset(ZoneOffset.UTC);
+          else if (ev == Event.VALUE_STRING)
+            odt = OffsetDateTime.parse(parser.getString());
+          if (odt != null)
+            return (kind == K_INSTANT) ? odt.toInstant() : odt;
+          break;
+        case K_DURATION:
+          if (ev == Event.VALUE_INTERVALDS)
+            return parser.getDuration();
+          if (ev == Event.VALUE_STRING)
+            return Duration.parse(parser.getString());
+          break;
+        default:
+          if (ev == Event.VALUE_INTERVALYM)
+            return parser.getPeriod();
+          if (ev == Event.VALUE_STRING)
+            return Period.parse(parser.getString());
+          break;
+        }
+      }
+      catch (DateTimeParseException e)
+      {
+        // Reported as a mismatch below
+      }
+      throw mismatch(ev, describe());
+    }
+
+    @Override
+    String describe()
+    {
+      return type.getName();
+    }
+  }
+
+  private static final class EnumBinding extends ValueBinding
+  {
+    private final Class<?> type;
+
+    EnumBinding(Class<?> type)
+    {
+      this.type = type;
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object value, int depth)
+    {
+      gen.write(((Enum<?>)value).name());
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      if (ev == Event.VALUE_STRING)
+      {
+        try
+        {
+          return Enum.valueOf((Class)type, parser.getString());
+        }
+        catch (IllegalArgumentException e)
+        {
+          // Not a constant of the enum, reported below
+        }
+      }
+      throw mismatch(ev, describe());
+    }
+
+    @Override
+    String describe()
+    {
+      return type.getName();
+    }
+  }
+
+  /**
+   * Values held as Object: written by their runtime class, and read as
+   * the natural Java type of each JSON type
+   */
+  private static final class GenericBinding extends ValueBinding
+  {
+    @Override
+    void write(OracleJsonGenerator gen, Object value, int depth)
+    {
+      RUNTIME.get(value.getClass()).write(gen, value, depth);
+    }
+
+    @Override
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      switch (ev)
+      {
+      case START_OBJECT:
+        return RUNTIME.get(LinkedHashMap.class).read(parser, ev, depth);
+      case START_ARRAY:
+        return RUNTIME.get(ArrayList.class).read(parser, ev, depth);
+      case VALUE_STRING:
+        return parser.getString();
+      case VALUE_DECIMAL:
+        return parser.getBigDecimal();
+      case VALUE_DOUBLE:
+        return Double.valueOf(parser.getDouble());
+      case VALUE_FLOAT:
+        return Float.valueOf(parser.getFloat());
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_BINARY:
+        return parser.getBytes();
+      case VALUE_TIMESTAMP:
+      case VALUE_DATE:
+        return parser.getLocalDateTime();
+      case VALUE_TIMESTAMPTZ:
+        return parser.getOffsetDateTime();
+      case VALUE_INTERVALDS:
+        return parser.getDuration();
+      case VALUE_INTERVALYM:
+        return parser.getPeriod();
+      default:
+        throw mismatch(ev, describe());
+      }
+    }
+
+    @Override
+    String describe()
+    {
+      return Object.class.getName();
+    }
+  }
+
+  private static final class CollectionBinding extends ValueBinding
+  {
+    private final Class<?>     type;
+    private final MethodHandle ctor;
+    private final ValueBinding element;
+
+    CollectionBinding(Class<?> type, ValueBinding element)
+    {
+      this.type = type;
+      this.ctor = constructor(type, type);
+      this.element = element;
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object value, int depth)
+    {
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+      gen.writeStartArray();
+      for (Object item : (Collection<?>)value)
+      {
+        if (item == null)
+          gen.writeNull();
+        else
+          element.write(gen, item, depth + 1);
+      }
+      gen.writeEnd();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      if (ev != Event.START_ARRAY)
+        throw mismatch(ev, describe());
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+
+      Collection<Object> result = (Collection<Object>)construct(ctor);
+      while ((ev = parser.next()) != Event.END_ARRAY)
+      {
+        if (ev == Event.VALUE_NULL)
+          result.add(null);
+        else
+          result.add(element.read(parser, ev, depth + 1));
+      }
+      return result;
+    }
+
+    @Override
+    String describe()
+    {
+      return type.getName();
+    }
+  }
+
+  private static final class MapBinding extends ValueBinding
+  {
+    private final Class<?>     type;
+    private final MethodHandle ctor;
+    private final ValueBinding value;
+
+    MapBinding(Class<?> type, ValueBinding value)
+    {
+      this.type = type;
+      this.ctor = constructor(type, type);
+      this.value = value;
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object map, int depth)
+    {
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+      gen.writeStartObject();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>)map).entrySet())
+      {
+        gen.writeKey(String.valueOf(entry.getKey()));
+        Object item = entry.getValue();
+        if (item == null)
+          gen.writeNull();
+        else
+          value.write(gen, item, depth + 1);
+      }
+      gen.writeEnd();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      if (ev != Event.START_OBJECT)
+        throw mismatch(ev, describe());
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+
+      Map<String, Object> result = (Map<String, Object>)construct(ctor);
+      while ((ev = parser.next()) != Event.END_OBJECT)
+      {
+        String key = parser.getString();
+        ev = parser.next();
+        result.put(key, (ev == Event.VALUE_NULL) ? null :
+                                value.read(parser, ev, depth + 1));
+      }
+      return result;
+    }
+
+    @Override
+    String describe()
+    {
+      return type.getName();
+    }
+  }
+
+  private static final class ArrayBinding extends ValueBinding
+  {
+    private final Class<?>     component;
+    private final ValueBinding element;
+
+    ArrayBinding(Class<?> component, ValueBinding element)
+    {
+      this.component = component;
+      this.element = element;
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object value, int depth)
+    {
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+      gen.writeStartArray();
+      int len = Array.getLength(value);
+      for (int i = 0; i < len; ++i)
+      {
+        Object item = Array.get(value, i);
+        if (item == null)
+          gen.writeNull();
+        else
+          element.write(gen, item, depth + 1);
+      }
+      gen.writeEnd();
+    }
+
+    @Override
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      if (ev != Event.START_ARRAY)
+        throw mismatch(ev, describe());
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+
+      ArrayList<Object> items = new ArrayList<Object>();
+      while ((ev = parser.next()) != Event.END_ARRAY)
+      {
+        if (ev == Event.VALUE_NULL)
+        {
+          if (component.isPrimitive())
+            throw mismatch(ev, component.getName());
+          items.add(null);
+        }
+        else
+          items.add(element.read(parser, ev, depth + 1));
+      }
+
+      Object result = Array.newInstance(component, items.size());
+      for (int i = 0; i < items.size(); ++i)
+        Array.set(result, i, items.get(i));
+      return result;
+    }
+
+    @Override
+    String describe()
+    {
+      return component.getName() + "[]";
+    }
+  }
+
+  /**
+   * A field whose type is a bindable class. The class is looked up on
+   * use, so that classes can refer to themselves. On writing, the
+   * runtime class of the value is used, so subclasses keep their fields.
+   */
+  private static final class ObjectRefBinding extends ValueBinding
+  {
+    private final Class<?> type;
+
+    ObjectRefBinding(Class<?> type)
+    {
+      this.type = type;
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object value, int depth)
+    {
+      OBJECTS.get(value.getClass()).write(gen, value, depth);
+    }
+
+    @Override
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      return OBJECTS.get(type).read(parser, ev, depth);
+    }
+
+    @Override
+    String describe()
+    {
+      return type.getName();
+    }
+  }
+
+  /**
+   * One field of a bound class
+   */
+  private static final class Property
+  {
+    final String       name;
+    final int          kind;     // Scalar kind if primitive, else 0
+    final ValueBinding binding;
+    final MethodHandle getter;   // (Object) returning the field type
+    final MethodHandle setter;   // (Object, field type), or null
+
+    Property(Field field, Class<?> owner)
+    {
+      Class<?> type = field.getType();
+
+      this.name = field.getName();
+      this.kind = type.isPrimitive() ? SCALARS.get(type).intValue() : 0;
+      this.binding = bindingFor(field.getGenericType(), owner);
+
+      Class<?> exact = type.isPrimitive() ? type : Object.class;
+      try
+      {
+        field.setAccessible(true);
+        getter = LOOKUP.unreflectGetter(field)
+                       .asType(MethodType.methodType(exact, Object.class));
+      }
+      catch (Exception e)
+      {
+        throw cannotBind(owner, "field " + name + " is not accessible");
+      }
+
+      MethodHandle set;
+      try
+      {
+        set = LOOKUP.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class,
+                                                  Object.class, exact));
+      }
+      catch (IllegalAccessException e)
+      {
+        // A final field that can't be set is only written
+        set = null;
+      }
+      setter = set;
+    }
+
+    void write(OracleJsonGenerator gen, Object obj, int depth)
+      throws Throwable
+    {
+      switch (kind)
+      {
+      case K_BOOLEAN:
+        gen.write(name, (boolean)getter.invokeExact(obj));
+        break;
+      case K_BYTE:
+        gen.write(name, (int)(byte)getter.invokeExact(obj));
+        break;
+      case K_SHORT:
+        gen.write(name, (int)(short)getter.invokeExact(obj));
+        break;
+      case K_INT:
+        gen.write(name, (int)getter.invokeExact(obj));
+        break;
+      case K_LONG:
+        gen.write(name, (long)getter.invokeExact(obj));
+        break;
+      case K_FLOAT:
+        gen.write(name, (float)getter.invokeExact(obj));
+        break;
+      case K_DOUBLE:
+        gen.write(name, (double)getter.invokeExact(obj));
+        break;
+      case K_CHAR:
+        gen.write(name, String.valueOf((char)getter.invokeExact(obj)));
+        break;
+      default:
+        Object value = (Object)getter.invokeExact(obj);
+        if (value != null)
+        {
+          gen.writeKey(name);
+          binding.write(gen, value, depth);
+        }
+        break;
+      }
+    }
+
+    void read(OracleJsonParser parser, Event ev, Object obj, int depth)
+      throws Throwable
+    {
+      if (setter == null)
+      {
+        skip(parser, ev);
+        return;
+      }
+
+      if (ev == Event.VALUE_NULL)
+      {
+        // Primitives keep the value they were constructed with
+        if (kind == 0)
+          setter.invokeExact(obj, (Object)null);
+        return;
+      }
+
+      ScalarBinding scalar = (kind != 0) ? (ScalarBinding)binding : null;
+
+      switch (kind)
+      {
+      case K_BOOLEAN:
+        setter.invokeExact(obj, scalar.readBoolean(parser, ev));
+        break;
+      case K_BYTE:
+        setter.invokeExact(obj, scalar.readByte(parser, ev));
+        break;
+      case K_SHORT:
+        setter.invokeExact(obj, scalar.readShort(parser, ev));
+        break;
+      case K_INT:
+        setter.invokeExact(obj, scalar.readInt(parser, ev));
+        break;
+      case K_LONG:
+        setter.invokeExact(obj, scalar.readLong(parser, ev));
+        break;
+      case K_FLOAT:
+        setter.invokeExact(obj, scalar.readFloat(parser, ev));
+        break;
+      case K_DOUBLE:
+        setter.invokeExact(obj, scalar.readDouble(parser, ev));
+        break;
+      case K_CHAR:
+        setter.invokeExact(obj, scalar.readChar(parser, ev));
+        break;
+      default:
+        setter.invokeExact(obj, binding.read(parser, ev, depth));
+        break;
+      }
+    }
+  }
+
+  /**
+   * The fields of a bound class
+   */
+  private static final class ObjectBinding extends ValueBinding
+  {
+    private final Class<?>     type;
+    private final MethodHandle ctor;
+    private final Property[]   properties;
+    private final HashMap<String, Property> byName;
+
+    ObjectBinding(Class<?> type)
+    {
+      if (!isBindable(type))
+        throw cannotBind(type, "not a concrete class with a no-argument constructor");
+
+      this.type = type;
+      this.ctor = constructor(type, type);
+
+      // Superclass fields first; a field hides any of the same name above
+      ArrayList<Class<?>> chain = new ArrayList<Class<?>>();
+      for (Class<?> cls = type; (cls != null) && (cls != Object.class);
+           cls = cls.getSuperclass())
+        chain.add(0, cls);
+
+      LinkedHashMap<String, Property> props =
+        new LinkedHashMap<String, Property>();
+      for (Class<?> cls : chain)
+        for (Field field : cls.getDeclaredFields())
+        {
+          int mods = field.getModifiers();
+          if (Modifier.isStatic(mods) || Modifier.isTransient(mods) ||
+              field.isSynthetic())
+            continue;
+          props.remove(field.getName());
+          props.put(field.getName(), new Property(field, type));
+        }
+
+      this.properties = props.values().toArray(new Property[props.size()]);
+      this.byName = new HashMap<String, Property>(props);
+    }
+
+    @Override
+    void write(OracleJsonGenerator gen, Object obj, int depth)
+    {
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+      try
+      {
+        gen.writeStartObject();
+        for (Property prop : properties)
+          prop.write(gen, obj, depth + 1);
+        gen.writeEnd();
+      }
+      catch (Throwable t)
+      {
+        throw failure(t);
+      }
+    }
+
+    @Override
+    Object read(OracleJsonParser parser, Event ev, int depth)
+    {
+      if (ev != Event.START_OBJECT)
+        throw mismatch(ev, describe());
+      if (depth >= MAX_DEPTH)
+        throw tooDeep();
+
+      Object obj = construct(ctor);
+      try
+      {
+        while ((ev = parser.next()) != Event.END_OBJECT)
+        {
+          Property prop = byName.get(parser.getString());
+          ev = parser.next();
+          if (prop == null)
+            skip(parser, ev);
+          else
+            prop.read(parser, ev, obj, depth + 1);
+        }
+      }
+      catch (Throwable t)
+      {
+        throw failure(t);
+      }
+      return obj;
+    }
+
+    @Override
+    String describe()
+    {
+      return type.getName();
+    }
+  }
+}
@@ -25,6 +25,8 @@ package oracle.json.rdbms;
 
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
 
 import java.nio.ByteBuffer;
@@ -61,6 +63,9 @@ import java.sql.SQLException;
 
 public class OsonCodecFactory extends DocumentCodecFactory
 {
+  /** Name by which this factory is selected */
+  public static final String NAME = "oson";
+
   private final OracleJsonFactory osonFactory = new OracleJsonFactory();
 
   public OsonCodecFactory()
@@ -74,7 +79,7 @@ public class OsonCodecFactory extends DocumentCodecFactory
   }
 
   @Override
-  public DocumentCodec getCodec()
+  public DocumentCodec<?> getCodec()
   {
     // Automatically create a provider if one wasn't set
     if (factoryProvider == null)
@@ -83,10 +88,46 @@ public class OsonCodecFactory extends DocumentCodecFactory
     return new OsonDocumentCodec(factoryProvider, osonFactory);
   }
 
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  @Override
+  public String getImageFormat()
+  {
+    return OSON_FORMAT;
+  }
+
+  /**
+   * Generator used to rekey JSON text while converting it to OSON.
+   * Numbers are written as Oracle NUMBERs, exactly as they are by a
+   * conversion without rekeying, instead of as decimals.
+   */
+  private static class TextToOsonGenerator extends JsonpGeneratorWrapper
+  {
+    TextToOsonGenerator(OracleJsonGenerator osonGen)
+    {
+      super(osonGen);
+    }
+
+    @Override
+    public JsonGenerator write(BigDecimal arg)
+    {
+      writeOraNum(arg);
+      return this;
+    }
+  }
+
   private class OsonDocumentCodec extends DocumentCodec<OracleJsonValue>
   {
     private final OracleJsonFactory osonFactory;
 
+    // UTF-8 form of the key steps, for navigating OSON images
+    private String[] keyStepsEncoded = null;
+    private byte[][] keyStepBytes    = null;
+
     OsonDocumentCodec(JsonFactoryProvider jsonFactory,
                       OracleJsonFactory osonFactory)
     {
@@ -94,6 +135,18 @@ public class OsonCodecFactory extends DocumentCodecFactory
       this.osonFactory = osonFactory;
     }
 
+    /**
+     * Share the pooled stream of the factory, as the default codec does,
+     * unless this codec has been detached
+     */
+    @Override
+    protected ByteArrayOutputStream getBAOS()
+    {
+      if (!isDetached)
+        this.baos = OsonCodecFactory.this.baos;
+      return super.getBAOS();
+    }
+
     /**
      * Loads an OSON image
      */
@@ -117,18 +170,13 @@ public class OsonCodecFactory extends DocumentCodecFactory
 
       this.needViable = needViable;
 
-      // We require a document to extract the key here
       if (doc == null)
       {
-        // ### Is it more efficient to run the streaming extraction?
-        // ### Otherwise we have to materialize the entire OSON.
         if (image == null)
           return super.getKey(needViable);
 
-        // ### We may be about to do that anyway, so this might be better.
-        // ### However, if rekeying is needed, we'd want to know that first.
-        doc = getDocument();
-        if (doc == null) return null;
+        // Navigate the image to the key, without creating a DOM
+        return navigateKey();
       }
 
       return extractKey(doc);
@@ -167,55 +215,72 @@ public class OsonCodecFactory extends DocumentCodecFactory
       if (image == null)
       {
         ByteArrayOutputStream osonOut = getBAOS();
-        OracleJsonGenerator osonGen = osonFactory.createJsonBinaryGenerator(osonOut);
+        try
+        {
+          OracleJsonGenerator osonGen = osonFactory.createJsonBinaryGenerator(osonOut);
 
-        osonOut.reset();
+          osonOut.reset();
 
-        // If there's a document, write it out
-        if (doc != null)
-        {
-          osonGen.write(doc);
-        } 
-        else if (jsonText != null)
-        {
-          // Convert String to OSON
-          JsonParser parser = factoryProvider.getParserFactory()
-                                .createParser(new StringReader(jsonText));
-          if (doRekeying)
+          // If there's a document, write it out
+          if (doc != null)
           {
-            // ### Unfortunately no code to rekey this on the fly
+            osonGen.write(doc);
+          } 
+          else if ((jsonText != null) || (jsonUnicode != null))
+          {
+            // Convert String or Unicode text to OSON
+            JsonParser parser = (jsonText != null)
+              ? factoryProvider.getParserFactory()
+                  .createParser(new StringReader(jsonText))
+              : factoryProvider.getParserFactory()
+                  .createParser(new ByteArrayInputStream(jsonUnicode));
+
+            if (doRekeying)
+            {
+              // Rekey on the fly, so that the image is generated only once
+              TextToOsonGenerator generator = new TextToOsonGenerator(osonGen);
+              Pair<String, Boolean> result = parseStream(parser, generator, false);
+              parser.close();
+              generator.close();
+
+              image = osonOut.toByteArray();
+
+              // The text no longer matches the image if the key changed
+              if (result.getSecond().booleanValue())
+              {
+                jsonText = null;
+                jsonUnicode = null;
+              }
+
+              rekeyingClear();
+              return image;
+            }
+
+            if (jsonText != null)
+              osonGen.writeParser(parser);
+            else
+              new JsonpGeneratorWrapper(osonGen).writeJsonParser(parser);
           }
-          osonGen.writeParser(parser);
-        }
-        else if (jsonUnicode != null)
-        {
-          // Convert Unicode text to OSON
-          JsonParser parser = factoryProvider.getParserFactory()
-                                .createParser(new ByteArrayInputStream(jsonUnicode));
-          if (doRekeying)
+          else if (doRekeying)
           {
-            // ### Unfortunately no code to rekey this on the fly
+            // Create an empty object document to support the rekeying
+            JsonParser parser = factoryProvider.getParserFactory()
+                                  .createParser(new StringReader(EMPTY_OBJECT_STRING));
+            osonGen.writeParser(parser);
           }
-          JsonpGeneratorWrapper jsonpGeneratorWrapper = new JsonpGeneratorWrapper(osonGen);
-          jsonpGeneratorWrapper.writeJsonParser(parser);
-        }
-        else if (doRekeying)
-        {
-          // Create an empty object document to support the rekeying
-          JsonParser parser = factoryProvider.getParserFactory()
-                                .createParser(new StringReader(EMPTY_OBJECT_STRING));
-          osonGen.writeParser(parser);
+          else
+          {
+            rekeyingClear();
+            return null;
+          }
+
+          osonGen.close();
+          image = osonOut.toByteArray();
         }
-        else
+        finally
         {
-          rekeyingClear();
-          return null;
+          releaseBAOS();
         }
-
-        osonGen.close();
-        image = osonOut.toByteArray();
-
-        osonOut.reset();
       }
 
       if (doRekeying)
@@ -247,14 +312,46 @@ public class OsonCodecFactory extends DocumentCodecFactory
           return null;
 
         ByteArrayOutputStream unicodeOut = getBAOS();
-        OracleJsonGenerator gen = osonFactory.createJsonTextGenerator(unicodeOut);
-        gen.write(doc);
-        gen.close();
-        jsonUnicode = unicodeOut.toByteArray();
+        try
+        {
+          OracleJsonGenerator gen = osonFactory.createJsonTextGenerator(unicodeOut);
+          gen.write(doc);
+          gen.close();
+          jsonUnicode = unicodeOut.toByteArray();
+        }
+        finally
+        {
+          releaseBAOS();
+        }
       }
       return super.getUnicode();
     }
 
+    /**
+     * An image that isn't being rekeyed is rendered straight into the
+     * stream by a parser, without a DOM or an intermediate byte array.
+     * The generator is flushed rather than closed, to leave the stream
+     * open.
+     */
+    @Override
+    public void writeUnicode(OutputStream out)
+      throws JsonException, IOException
+    {
+      if ((image != null) && (doc == null) &&
+          (jsonText == null) && (jsonUnicode == null) && !rekeyingCheck())
+      {
+        OracleJsonParser parser =
+          osonFactory.createJsonBinaryParser(ByteBuffer.wrap(image));
+        OracleJsonGenerator gen = osonFactory.createJsonTextGenerator(out);
+        gen.writeParser(parser);
+        gen.flush();
+        parser.close();
+        return;
+      }
+
+      super.writeUnicode(out);
+    }
+
     @Override
     public Object getDocument(Class clazz)
       throws JsonException
@@ -277,7 +374,8 @@ public class OsonCodecFactory extends DocumentCodecFactory
 
       if (rekeyingCheck())
       {
-        if (insertKey())
+        // Patch the key value in place if possible, else re-encode
+        if (patchKey() || insertKey())
         {
           // Invalidate all other forms
           doc = null;
@@ -347,24 +445,29 @@ public class OsonCodecFactory extends DocumentCodecFactory
         throw makeException(Message.EX_NO_INPUT_DOCUMENT);
 
       ByteArrayOutputStream osonOut = getBAOS();
-      OracleJsonParser    osonParser =
-        osonFactory.createJsonBinaryParser(ByteBuffer.wrap(image));
-      OracleJsonGenerator osonGenerator =
-        osonFactory.createJsonBinaryGenerator(osonOut);
-
-      JsonParser jsonParser = new JsonpParserWrapper(osonParser);
-      JsonGenerator jsonGenerator = new JsonpGeneratorWrapper(osonGenerator);
-
       boolean wasChanged = false;
 
-      Pair<String, Boolean> result = parseStream(jsonParser, jsonGenerator, false);
-      wasChanged = result.getSecond().booleanValue();
-      jsonGenerator.close();
-      jsonParser.close();
+      try
+      {
+        OracleJsonParser    osonParser =
+          osonFactory.createJsonBinaryParser(ByteBuffer.wrap(image));
+        OracleJsonGenerator osonGenerator =
+          osonFactory.createJsonBinaryGenerator(osonOut);
+
+        JsonParser jsonParser = new JsonpParserWrapper(osonParser);
+        JsonGenerator jsonGenerator = new JsonpGeneratorWrapper(osonGenerator);
 
-      image = osonOut.toByteArray();
+        Pair<String, Boolean> result = parseStream(jsonParser, jsonGenerator, false);
+        wasChanged = result.getSecond().booleanValue();
+        jsonGenerator.close();
+        jsonParser.close();
 
-      osonOut.reset();
+        image = osonOut.toByteArray();
+      }
+      finally
+      {
+        releaseBAOS();
+      }
 
       rekeyingClear();
 
@@ -393,8 +496,197 @@ public class OsonCodecFactory extends DocumentCodecFactory
         obj = v.asJsonObject();
       }
 
-      OracleJsonValue val = obj.get(keySteps[keySteps.length - 1]);
+      return valueToKey(obj.get(keySteps[keySteps.length - 1]));
+    }
+
+    /**
+     * Extract the key directly from the OSON image. The image is first
+     * navigated through its field-name dictionary and child offsets,
+     * which decodes nothing but a string or identifier key. Other types
+     * of key, and images that can't be navigated that way, are handled
+     * by a binary parser that skips over all fields off the key path.
+     * Either way, no DOM is created.
+     */
+    private String navigateKey()
+      throws JsonException
+    {
+      if ((keySteps == null) || (keySteps.length <= 0))
+        throw makeException(Message.EX_KEY_PATH_EMPTY);
+
+      OsonNavigator navigator = new OsonNavigator(image);
+      int pos = navigator.locate(getKeyStepBytes());
+
+      if (pos == OsonNavigator.NOT_FOUND)
+        return null;
+
+      if (pos >= 0)
+      {
+        String key = navigator.getKeyString(pos);
+        if (key != null)
+          return key;
+      }
+
+      return parseKey();
+    }
+
+    /**
+     * UTF-8 form of the key steps, cached for as long as the path is set
+     */
+    private byte[][] getKeyStepBytes()
+    {
+      if (keySteps != keyStepsEncoded)
+      {
+        keyStepBytes = new byte[keySteps.length][];
+        for (int i = 0; i < keySteps.length; ++i)
+          keyStepBytes[i] = keySteps[i].getBytes(StandardCharsets.UTF_8);
+        keyStepsEncoded = keySteps;
+      }
+      return keyStepBytes;
+    }
+
+    /**
+     * Replace the key by overwriting the old key value in the image, if
+     * the new value encodes to exactly the same length. Nothing else in
+     * the image moves, so only the value bytes are rewritten (in a copy,
+     * since the image may belong to the caller). Returns false, leaving
+     * the image untouched, whenever the key has to be reinserted by
+     * re-encoding the whole image instead: if the old key isn't present,
+     * isn't a string or identifier of the same encoded length, or has to
+     * be matched in a way that only the streaming rekeying implements.
+     * Unlike the re-encoding, this leaves the key where it was in the
+     * sequence of fields, which doesn't matter for OSON.
+     */
+    private boolean patchKey()
+      throws JsonException
+    {
+      if (!removeKey || (newKey == null) || isEJSONId())
+        return false;
+      if ((doc != null) || (jsonText != null) || (jsonUnicode != null))
+        return false;
+      if ((keySteps == null) || (keySteps.length <= 0) || (image == null))
+        return false;
+
+      OsonNavigator navigator = new OsonNavigator(image);
+      int pos = navigator.locate(getKeyStepBytes());
+      if (pos < 0)
+        return false;
+
+      int oldLength = navigator.getKeyLength(pos);
+      if (oldLength < 0)
+        return false;
+
+      if (mustMatch)
+      {
+        // Only an equal string key is known to match. Anything else
+        // is left to the streaming rekeying to accept or reject.
+        if ((image[pos] & 0xFF) == 0x7E)
+          return false;
+        if (!newKey.equals(navigator.getKeyString(pos)))
+          return false;
+      }
+
+      // Same choice of string or identifier as addKey()
+      byte[] id = null;
+      int slen = newKey.length();
+      if (keyIsId && ((slen & 1) == 0) && (slen > 0) && (slen < 256))
+        if (ByteArray.isHex(newKey))
+          id = ByteArray.hexToRaw(newKey);
+
+      byte[] enc = OsonNavigator.encodeKey(newKey, id);
+      if ((enc == null) || (enc.length != oldLength))
+        return false;
+
+      boolean same = true;
+      for (int i = 0; i < enc.length; ++i)
+        if (image[pos + i] != enc[i])
+        {
+          same = false;
+          break;
+        }
+
+      if (!same)
+      {
+        image = image.clone();
+        System.arraycopy(enc, 0, image, pos, enc.length);
+      }
+
+      rekeyingClear();
+      return true;
+    }
+
+    /**
+     * Extract the key from the OSON image with a binary parser. Only the
+     * field names of the objects along the key path are visited; the
+     * values of all other fields (including entire sub-objects and arrays)
+     * are skipped over, so only the key value itself is decoded.
+     */
+    private String parseKey()
+      throws JsonException
+    {
+      OracleJsonParser parser =
+        osonFactory.createJsonBinaryParser(ByteBuffer.wrap(image));
+
+      try
+      {
+        if (!parser.hasNext() ||
+            (parser.next() != OracleJsonParser.Event.START_OBJECT))
+          throw makeException(Message.EX_DOCUMENT_NOT_OBJECT);
+
+        int step = 0;
+
+        while (parser.hasNext())
+        {
+          OracleJsonParser.Event ev = parser.next();
+
+          // End of the object at the current step, the key isn't present
+          if (ev != OracleJsonParser.Event.KEY_NAME)
+            return null;
+
+          boolean onPath = keySteps[step].equals(parser.getString());
+
+          ev = parser.next();
+
+          if (!onPath)
+          {
+            if (ev == OracleJsonParser.Event.START_OBJECT)
+              parser.skipObject();
+            else if (ev == OracleJsonParser.Event.START_ARRAY)
+              parser.skipArray();
+            continue;
+          }
+
+          // Last step, this is the key
+          if (++step == keySteps.length)
+          {
+            // Containers aren't viable keys
+            if ((ev == OracleJsonParser.Event.START_OBJECT) ||
+                (ev == OracleJsonParser.Event.START_ARRAY))
+              return unviableKey();
+
+            return valueToKey(parser.getValue());
+          }
+
+          // A scalar at an intermediate step, the path can't be matched
+          if (ev != OracleJsonParser.Event.START_OBJECT)
+            return null;
+
+          // Otherwise descend into the object for the next step
+        }
 
+        return null;
+      }
+      finally
+      {
+        parser.close();
+      }
+    }
+
+    /**
+     * Convert the value found at the key path to a SODA key string.
+     */
+    private String valueToKey(OracleJsonValue val)
+      throws JsonException
+    {
       if (val == null) return null;
 
       switch (val.getOracleJsonType())
@@ -442,6 +734,15 @@ public class OsonCodecFactory extends DocumentCodecFactory
         break;
       }
 
+      return unviableKey();
+    }
+
+    /**
+     * Report a key that was found but isn't viable
+     */
+    private String unviableKey()
+      throws JsonException
+    {
       if (needViable)
         throw makeException(Message.EX_KEY_MUST_BE_STRING);
 
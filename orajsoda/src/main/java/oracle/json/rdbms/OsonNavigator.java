@@ -0,0 +1,567 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+/*    All rights reserved.*/
+
+/*
+   DESCRIPTION
+    OsonNavigator locates a value in an OSON image by following a path of
+    field names, without decoding the image.
+
+   NOTES
+    The field names along the path are looked up in the field-name
+    dictionary of the image by their hash, and each object on the path
+    is entered by jumping to the child offset of the matching field id.
+    No other field names or values are decoded, so the cost is roughly
+    independent of the size of the document.
+
+    Only the image layouts produced by the OSON generators are handled.
+    Images that have been partially updated in place (which have an
+    update header and forwarding addresses), scalar images, and any
+    opcode that isn't understood are reported as not navigable, and
+    the caller must then fall back to a full parser.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.rdbms;
+
+import java.nio.charset.StandardCharsets;
+
+class OsonNavigator
+{
+  /** The path doesn't exist in the document */
+  static final int NOT_FOUND     = -1;
+
+  /** The image can't be navigated, use a parser instead */
+  static final int NOT_NAVIGABLE = -2;
+
+  private static final int MAGIC_1 = 0xFF;
+  private static final int MAGIC_2 = 0x4A;
+  private static final int MAGIC_3 = 0x5A;
+
+  private static final int VERSION_1 = 1;  // Field names up to 255 bytes
+  private static final int VERSION_3 = 3;  // Field names up to 65535 bytes
+
+  private static final int FLAG_REL_OFFSET     = 0x0001;
+  private static final int FLAG_INLINE_LEAF    = 0x0002;
+  private static final int FLAG_SLEN_IN_PCODE  = 0x0004;
+  private static final int FLAG_FID_UB4        = 0x0008;
+  private static final int FLAG_SCALAR         = 0x0010;
+  private static final int FLAG_FID_UB2        = 0x0400;
+  private static final int FLAG_FNAME_HEAP_UB4 = 0x0800;
+  private static final int FLAG_TREE_UB4       = 0x1000;
+
+  private static final int FLAG2_FNAME_HEAP_UB2 = 0x0100;
+
+  private static final int OP_CONTAINER_MASK   = 0xC0;
+  private static final int OP_OBJECT           = 0x80;
+  private static final int OP_OFFSET_UB4       = 0x20;
+  private static final int OP_CHILD_SIZE_MASK  = 0x18;
+  private static final int OP_CHILD_UB2        = 0x08;
+  private static final int OP_CHILD_UB4        = 0x10;
+  private static final int OP_CHILD_SHARED     = 0x18;
+  private static final int OP_OVERFLOW_MASK    = 0x83;
+
+  private static final int OP_STRING_UB1       = 0x33;
+  private static final int OP_STRING_UB2       = 0x37;
+  private static final int OP_STRING_UB4       = 0x38;
+  private static final int OP_ID               = 0x7E;
+
+  // Longest identifier the OSON generator writes
+  private static final int MAX_ID_LENGTH       = 16;
+  private static final int OP_MAX_SHORT_STRING = 0x1F;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final byte[] image;
+
+  private boolean navigable = false;
+  private boolean relativeOffsets;
+  private int     fidBytes;
+
+  // Dictionary of short (up to 255 byte) names
+  private int fieldCount;
+  private int hashPos;
+  private int namesOffsetPos;
+  private int namesOffsetBytes;
+  private int namesPos;
+
+  // Dictionary of long names (version 3 only)
+  private int fieldCount2       = 0;
+  private int hashPos2;
+  private int namesOffsetPos2;
+  private int namesOffsetBytes2;
+  private int namesPos2;
+
+  private int treePos;
+
+  OsonNavigator(byte[] image)
+  {
+    this.image = image;
+
+    try
+    {
+      readHeader();
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      // Truncated, leave it to the parser to report
+      navigable = false;
+    }
+  }
+
+  /**
+   * Returns false if the image can't be navigated by this class
+   */
+  boolean isNavigable()
+  {
+    return navigable;
+  }
+
+  private void readHeader()
+  {
+    if (image.length < 8)
+      return;
+
+    if ((ub1(0) != MAGIC_1) || (ub1(1) != MAGIC_2) || (ub1(2) != MAGIC_3))
+      return;
+
+    int version = ub1(3);
+    if ((version != VERSION_1) && (version != VERSION_3))
+      return;
+
+    int flags = ub2(4);
+    int pos = 6;
+
+    if ((flags & FLAG_SCALAR) != 0)
+      return;
+    if (((flags & FLAG_INLINE_LEAF) == 0) || ((flags & FLAG_SLEN_IN_PCODE) == 0))
+      return;
+
+    relativeOffsets = ((flags & FLAG_REL_OFFSET) != 0);
+
+    if ((flags & FLAG_FID_UB4) != 0)
+    {
+      fidBytes = 4;
+      fieldCount = ub4(pos);
+      pos += 4;
+    }
+    else if ((flags & FLAG_FID_UB2) != 0)
+    {
+      fidBytes = 2;
+      fieldCount = ub2(pos);
+      pos += 2;
+    }
+    else
+    {
+      fidBytes = 1;
+      fieldCount = ub1(pos);
+      pos += 1;
+    }
+
+    int heapSize;
+    if ((flags & FLAG_FNAME_HEAP_UB4) != 0)
+    {
+      namesOffsetBytes = 4;
+      heapSize = ub4(pos);
+      pos += 4;
+    }
+    else
+    {
+      namesOffsetBytes = 2;
+      heapSize = ub2(pos);
+      pos += 2;
+    }
+
+    int heapSize2 = 0;
+    if (version == VERSION_3)
+    {
+      int flags2 = ub2(pos);
+      namesOffsetBytes2 = ((flags2 & FLAG2_FNAME_HEAP_UB2) != 0) ? 2 : 4;
+      fieldCount2 = ub4(pos + 2);
+      heapSize2 = ub4(pos + 6);
+      pos += 10;
+    }
+
+    int treeSize;
+    if ((flags & FLAG_TREE_UB4) != 0)
+    {
+      treeSize = ub4(pos);
+      pos += 4;
+    }
+    else
+    {
+      treeSize = ub2(pos);
+      pos += 2;
+    }
+
+    pos += 2; // Tiny node count
+
+    if (fieldCount > 0)
+    {
+      hashPos = pos;
+      namesOffsetPos = hashPos + fieldCount;
+      namesPos = namesOffsetPos + (fieldCount * namesOffsetBytes);
+      pos = namesPos + heapSize;
+    }
+
+    if (fieldCount2 > 0)
+    {
+      hashPos2 = pos;
+      namesOffsetPos2 = hashPos2 + (fieldCount2 * 2);
+      namesPos2 = namesOffsetPos2 + (fieldCount2 * namesOffsetBytes2);
+      pos = namesPos2 + heapSize2;
+    }
+
+    treePos = pos;
+
+    // Anything after the tree segment is an update header
+    if ((fieldCount < 0) || (fieldCount2 < 0) || (treeSize < 0) ||
+        ((treePos + treeSize) != image.length))
+      return;
+
+    navigable = true;
+  }
+
+  /**
+   * Locate the value at the end of a path of field names, given as
+   * UTF-8 bytes. Returns the position of the value in the image, or
+   * NOT_FOUND if the path isn't present, or NOT_NAVIGABLE if the
+   * navigation can't be completed.
+   */
+  int locate(byte[][] steps)
+  {
+    if (!navigable)
+      return NOT_NAVIGABLE;
+
+    try
+    {
+      int pos = treePos;
+
+      for (int i = 0; i < steps.length; ++i)
+      {
+        int op = ub1(pos);
+
+        if ((op & OP_CONTAINER_MASK) != OP_OBJECT)
+          // A scalar or array at the root is for the parser to report
+          return (i == 0) ? NOT_NAVIGABLE : NOT_FOUND;
+
+        if ((op & OP_OVERFLOW_MASK) == OP_OVERFLOW_MASK)
+          return NOT_NAVIGABLE;
+
+        int fid = getFieldId(steps[i]);
+        if (fid == NOT_FOUND)
+          return NOT_FOUND;
+
+        pos = getChild(pos, op, fid);
+        if (pos < 0)
+          return pos;
+      }
+
+      return pos;
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      return NOT_NAVIGABLE;
+    }
+  }
+
+  /**
+   * Return the value at the position as a key string, if it's a string
+   * or an identifier (as lowercase hexadecimal). Returns null for
+   * any other type of value.
+   */
+  String getKeyString(int pos)
+  {
+    try
+    {
+      int op = ub1(pos);
+
+      if (op <= OP_MAX_SHORT_STRING)
+        return utf8(pos + 1, op);
+
+      switch (op)
+      {
+      case OP_STRING_UB1:
+        return utf8(pos + 2, ub1(pos + 1));
+      case OP_STRING_UB2:
+        return utf8(pos + 3, ub2(pos + 1));
+      case OP_STRING_UB4:
+        return utf8(pos + 5, ub4(pos + 1));
+      case OP_ID:
+        return hex(pos + 2, ub1(pos + 1));
+      default:
+        return null;
+      }
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Return the length of the encoding of the value at the position, if
+   * it's a string with a length of up to 255 bytes or an identifier.
+   * Returns -1 for any other type of value.
+   */
+  int getKeyLength(int pos)
+  {
+    try
+    {
+      int op = ub1(pos);
+
+      if (op <= OP_MAX_SHORT_STRING)
+        return 1 + op;
+      if (op == OP_STRING_UB1)
+        return 2 + ub1(pos + 1);
+      if (op == OP_ID)
+        return 2 + ub1(pos + 1);
+      return -1;
+    }
+    catch (IndexOutOfBoundsException e)
+    {
+      return -1;
+    }
+  }
+
+  /**
+   * Encode a key as an OSON leaf value, as the generator does: a string
+   * (with the length in the opcode if it's short enough), or an
+   * identifier for the raw bytes. Returns null for a string longer than
+   * 255 bytes, or for an identifier longer than the 16 bytes the
+   * generator accepts.
+   */
+  static byte[] encodeKey(String key, byte[] id)
+  {
+    byte[] enc;
+
+    if (id != null)
+    {
+      if (id.length > MAX_ID_LENGTH)
+        return null;
+      enc = new byte[2 + id.length];
+      enc[0] = (byte)OP_ID;
+      enc[1] = (byte)id.length;
+      System.arraycopy(id, 0, enc, 2, id.length);
+      return enc;
+    }
+
+    byte[] str = key.getBytes(StandardCharsets.UTF_8);
+
+    if (str.length <= OP_MAX_SHORT_STRING)
+    {
+      enc = new byte[1 + str.length];
+      enc[0] = (byte)str.length;
+      System.arraycopy(str, 0, enc, 1, str.length);
+    }
+    else if (str.length <= 255)
+    {
+      enc = new byte[2 + str.length];
+      enc[0] = (byte)OP_STRING_UB1;
+      enc[1] = (byte)str.length;
+      System.arraycopy(str, 0, enc, 2, str.length);
+    }
+    else
+    {
+      enc = null;
+    }
+
+    return enc;
+  }
+
+  /**
+   * Find the field id of a name in the dictionary (1-based),
+   * or NOT_FOUND if no field in the document has this name.
+   */
+  private int getFieldId(byte[] name)
+  {
+    int hash = hash(name);
+
+    if (name.length <= 255)
+    {
+      int hid = hash & 0xFF;
+
+      for (int i = 0; i < fieldCount; ++i)
+      {
+        if (ub1(hashPos + i) != hid)
+          continue;
+
+        int npos = namesPos + offset(namesOffsetPos, namesOffsetBytes, i);
+        if (nameEquals(name, npos + 1, ub1(npos)))
+          return i + 1;
+      }
+    }
+    else
+    {
+      int hid = ((hash & 0xFF) << 8) | ((hash & 0xFF00) >> 8);
+
+      for (int i = 0; i < fieldCount2; ++i)
+      {
+        if (ub2(hashPos2 + (i * 2)) != hid)
+          continue;
+
+        int npos = namesPos2 + offset(namesOffsetPos2, namesOffsetBytes2, i);
+        if (nameEquals(name, npos + 2, ub2(npos)))
+          return fieldCount + i + 1;
+      }
+    }
+
+    return NOT_FOUND;
+  }
+
+  /**
+   * Get the position of the child of the object at pos with a field id
+   */
+  private int getChild(int pos, int op, int fid)
+  {
+    int offsetBytes = ((op & OP_OFFSET_UB4) != 0) ? 4 : 2;
+    int fidPos;
+    int childPos;
+    int size;
+
+    int sizeBits = op & OP_CHILD_SIZE_MASK;
+    if (sizeBits == OP_CHILD_SHARED)
+    {
+      // The field ids are shared with another object of the same shape
+      int shared = treePos + ((offsetBytes == 4) ? ub4(pos + 1) : ub2(pos + 1));
+      childPos = pos + 1 + offsetBytes;
+
+      int sop = ub1(shared);
+      sizeBits = sop & OP_CHILD_SIZE_MASK;
+      if (sizeBits == OP_CHILD_SHARED)
+        return NOT_NAVIGABLE;
+
+      size = childCount(shared, sizeBits);
+      fidPos = shared + 1 + childCountBytes(sizeBits);
+    }
+    else
+    {
+      size = childCount(pos, sizeBits);
+      fidPos = pos + 1 + childCountBytes(sizeBits);
+      childPos = fidPos + (size * fidBytes);
+    }
+
+    if (size < 0)
+      return NOT_NAVIGABLE;
+
+    int idx = -1;
+    for (int i = 0; i < size; ++i)
+    {
+      if (offset(fidPos, fidBytes, i) == fid)
+      {
+        idx = i;
+        break;
+      }
+    }
+
+    if (idx < 0)
+      return NOT_FOUND;
+
+    int child;
+    if (offsetBytes == 2)
+    {
+      child = ub2(childPos + (idx * 2));
+      if (relativeOffsets)
+        child = (child + (pos - treePos)) & 0xFFFF;
+    }
+    else
+    {
+      child = ub4(childPos + (idx * 4));
+      if (relativeOffsets)
+        child += (pos - treePos);
+    }
+
+    return treePos + child;
+  }
+
+  private int childCount(int pos, int sizeBits)
+  {
+    if (sizeBits == OP_CHILD_UB2)
+      return ub2(pos + 1);
+    if (sizeBits == OP_CHILD_UB4)
+      return ub4(pos + 1);
+    return ub1(pos + 1);
+  }
+
+  private static int childCountBytes(int sizeBits)
+  {
+    if (sizeBits == OP_CHILD_UB2)
+      return 2;
+    if (sizeBits == OP_CHILD_UB4)
+      return 4;
+    return 1;
+  }
+
+  /**
+   * Same hash as the OSON encoder: FNV-1a over the UTF-8 bytes
+   */
+  private static int hash(byte[] name)
+  {
+    int h = 0x811C9DC5;
+    for (byte b : name)
+      h = (h ^ (b & 0xFF)) * 16777619;
+    return h;
+  }
+
+  private boolean nameEquals(byte[] name, int pos, int len)
+  {
+    if (len != name.length)
+      return false;
+    for (int i = 0; i < len; ++i)
+      if (image[pos + i] != name[i])
+        return false;
+    return true;
+  }
+
+  private int offset(int arrayPos, int width, int i)
+  {
+    if (width == 1)
+      return ub1(arrayPos + i);
+    if (width == 2)
+      return ub2(arrayPos + (i * 2));
+    return ub4(arrayPos + (i * 4));
+  }
+
+  private String utf8(int pos, int len)
+  {
+    if ((len < 0) || ((pos + len) > image.length))
+      return null;
+    return new String(image, pos, len, StandardCharsets.UTF_8);
+  }
+
+  private String hex(int pos, int len)
+  {
+    if ((pos + len) > image.length)
+      return null;
+    char[] chars = new char[len * 2];
+    for (int i = 0; i < len; ++i)
+    {
+      int b = image[pos + i] & 0xFF;
+      chars[i * 2] = HEX[b >> 4];
+      chars[(i * 2) + 1] = HEX[b & 0xF];
+    }
+    return new String(chars);
+  }
+
+  private int ub1(int pos)
+  {
+    return image[pos] & 0xFF;
+  }
+
+  private int ub2(int pos)
+  {
+    return ((image[pos] & 0xFF) << 8) | (image[pos + 1] & 0xFF);
+  }
+
+  // Values that don't fit in a positive int come back negative
+  private int ub4(int pos)
+  {
+    return ((image[pos] & 0xFF) << 24) | ((image[pos + 1] & 0xFF) << 16) |
+           ((image[pos + 2] & 0xFF) << 8) | (image[pos + 3] & 0xFF);
+  }
+}
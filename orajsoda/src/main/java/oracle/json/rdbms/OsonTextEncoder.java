@@ -0,0 +1,593 @@
+/* Copyright (c) 2019, 2024, Oracle and/or its affiliates. */
+/*    All rights reserved.*/
+
+/*
+   DESCRIPTION
+    OsonTextEncoder converts UTF-8 JSON text directly to OSON, by
+    parsing the bytes and driving an OracleJsonGenerator, without a
+    JSON-P parser or generator wrapper in between.
+
+   NOTES
+    No event objects are created. Strings are decoded straight from the
+    input bytes. Integers of up to 18 digits are converted to Oracle
+    NUMBERs without a BigDecimal, and only other numbers are parsed as
+    BigDecimals. All numbers are written as Oracle NUMBERs, exactly as
+    the JSON-P route writes them, so the images are identical.
+
+    Field names are interned in a table owned by the encoder, so that
+    the names repeated across the documents of a batch are decoded once
+    and shared. The table is bounded, and is simply cleared when full.
+
+    As with the JSON-P route, anything after the root value is ignored,
+    and text nested MAX_DEPTH or more levels deep is rejected.
+    Text that isn't UTF-8 (UTF-16 or UTF-32, or UTF-8 with a byte order
+    mark) isn't handled; use canEncode() to check, and use a JSON-P
+    parser otherwise.
+
+    An encoder is stateful and must be used by one thread at a time.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.json.rdbms;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.json.JsonException;
+
+import oracle.json.common.Message;
+
+import oracle.sql.json.OracleJsonDecimal;
+import oracle.sql.json.OracleJsonGenerator;
+
+import oracle.jdbc.driver.json.tree.OracleJsonDecimalImpl;
+
+public final class OsonTextEncoder
+{
+  private static final int MAX_NAMES       = 1024; // Interned names kept
+  private static final int MAX_NAME_LENGTH = 128;  // Longest name interned
+  private static final int MAX_LONG_DIGITS = 18;   // Digits that fit a long
+  private static final int SMALL_INTS      = 1024; // Integers cached
+
+  // Nesting depth at which the text is rejected. Same limit, and same
+  // system property, as the JSON-P parser used for the other route.
+  private static final int MAX_DEPTH =
+    Integer.getInteger("org.eclipse.parsson.maxDepth", 1000).intValue();
+
+  // Interned field names, open addressing (twice MAX_NAMES slots)
+  private final byte[][] nameBytes = new byte[MAX_NAMES * 2][];
+  private final String[] nameStrings = new String[MAX_NAMES * 2];
+  private int nameCount = 0;
+
+  // Decimals for small non-negative integers, created on first use
+  private final OracleJsonDecimalImpl[] smallInts =
+    new OracleJsonDecimalImpl[SMALL_INTS];
+
+  // Container stack, true for an object
+  private boolean[] stack = new boolean[32];
+  private int depth;
+
+  private char[] numChars = new char[64];
+
+  private byte[] text;
+  private int pos;
+
+  /**
+   * Returns true if the text can be handled by the encoder, i.e. if
+   * it looks like UTF-8 without a byte order mark.
+   */
+  public static boolean canEncode(byte[] text)
+  {
+    int len = Math.min(text.length, 4);
+
+    if ((len > 0) && ((text[0] & 0xFF) >= 0xEF))
+      return false; // Byte order mark
+
+    for (int i = 0; i < len; ++i)
+      if (text[i] == 0)
+        return false; // UTF-16 or UTF-32
+
+    return true;
+  }
+
+  /**
+   * Encode UTF-8 JSON text, writing it to the generator.
+   * The generator is closed.
+   */
+  public void encode(byte[] text, OracleJsonGenerator gen)
+    throws JsonException
+  {
+    this.text  = text;
+    this.pos   = 0;
+    this.depth = 0;
+
+    try
+    {
+      encodeValue(gen);
+      gen.close();
+    }
+    finally
+    {
+      this.text = null;
+    }
+  }
+
+  /**
+   * Encode JSON text read from a Reader, writing it to the generator.
+   * The text is transcoded to UTF-8 first.
+   */
+  public void encode(Reader reader, OracleJsonGenerator gen)
+    throws IOException, JsonException
+  {
+    StringBuilder sb = new StringBuilder();
+    char[] buf = new char[8192];
+    int n;
+
+    while ((n = reader.read(buf)) != -1)
+      sb.append(buf, 0, n);
+
+    encode(sb.toString().getBytes(StandardCharsets.UTF_8), gen);
+  }
+
+  private void encodeValue(OracleJsonGenerator gen)
+  {
+    boolean expectValue = true;
+
+    while (true)
+    {
+      if (expectValue)
+      {
+        byte b = nextToken();
+
+        if (((b == '{') || (b == '[')) && (depth + 1 >= MAX_DEPTH))
+          throw nestingError(pos);
+
+        if (b == '{')
+        {
+          gen.writeStartObject();
+          ++pos;
+          if (nextToken() == '}')
+          {
+            ++pos;
+            gen.writeEnd();
+            expectValue = false;
+          }
+          else
+          {
+            push(true);
+            readKey(gen);
+          }
+        }
+        else if (b == '[')
+        {
+          gen.writeStartArray();
+          ++pos;
+          if (nextToken() == ']')
+          {
+            ++pos;
+            gen.writeEnd();
+            expectValue = false;
+          }
+          else
+          {
+            push(false);
+          }
+        }
+        else
+        {
+          writeScalar(gen, b);
+          expectValue = false;
+        }
+        continue;
+      }
+
+      // Anything after the root value is ignored
+      if (depth == 0)
+        return;
+
+      byte b = nextToken();
+      boolean inObject = stack[depth - 1];
+      ++pos;
+
+      if (b == ',')
+      {
+        if (inObject)
+          readKey(gen);
+        expectValue = true;
+      }
+      else if (b == (inObject ? '}' : ']'))
+      {
+        gen.writeEnd();
+        --depth;
+      }
+      else
+      {
+        throw syntaxError(pos - 1);
+      }
+    }
+  }
+
+  private void push(boolean isObject)
+  {
+    if (depth == stack.length)
+    {
+      boolean[] larger = new boolean[depth * 2];
+      System.arraycopy(stack, 0, larger, 0, depth);
+      stack = larger;
+    }
+    stack[depth++] = isObject;
+  }
+
+  /**
+   * Skip whitespace and return the next byte without consuming it
+   */
+  private byte nextToken()
+  {
+    byte[] t = text;
+    int len = t.length;
+
+    while (pos < len)
+    {
+      byte b = t[pos];
+      if ((b != ' ') && (b != '\n') && (b != '\r') && (b != '\t'))
+        return b;
+      ++pos;
+    }
+
+    throw syntaxError(pos);
+  }
+
+  private void readKey(OracleJsonGenerator gen)
+  {
+    if (nextToken() != '"')
+      throw syntaxError(pos);
+
+    String name = readName();
+
+    if (nextToken() != ':')
+      throw syntaxError(pos);
+    ++pos;
+
+    gen.writeKey(name);
+  }
+
+  private void writeScalar(OracleJsonGenerator gen, byte b)
+  {
+    switch (b)
+    {
+    case '"':
+      gen.write(readString());
+      break;
+    case 't':
+      matchLiteral("true");
+      gen.write(true);
+      break;
+    case 'f':
+      matchLiteral("false");
+      gen.write(false);
+      break;
+    case 'n':
+      matchLiteral("null");
+      gen.writeNull();
+      break;
+    default:
+      gen.write(readNumber());
+      break;
+    }
+  }
+
+  private void matchLiteral(String literal)
+  {
+    int len = literal.length();
+
+    if (pos + len > text.length)
+      throw syntaxError(pos);
+
+    for (int i = 0; i < len; ++i)
+      if (text[pos + i] != literal.charAt(i))
+        throw syntaxError(pos + i);
+
+    pos += len;
+  }
+
+  /**
+   * Read a field name, interning it if it's short and has no escapes
+   */
+  private String readName()
+  {
+    byte[] t = text;
+    int start = pos + 1;
+    int end = start;
+    int hash = 0;
+
+    while ((end < t.length) && (end - start <= MAX_NAME_LENGTH))
+    {
+      byte b = t[end];
+      if (b == '"')
+        return intern(start, end, hash);
+      if ((b == '\\') || ((b >= 0) && (b < 0x20)))
+        break;
+      hash = 31 * hash + b;
+      ++end;
+    }
+
+    return readString();
+  }
+
+  private String intern(int start, int end, int hash)
+  {
+    int len = end - start;
+    int mask = nameBytes.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+
+    while (true)
+    {
+      byte[] candidate = nameBytes[slot];
+
+      if (candidate == null)
+        break;
+
+      if (candidate.length == len)
+      {
+        int i = 0;
+        while ((i < len) && (candidate[i] == text[start + i]))
+          ++i;
+        if (i == len)
+        {
+          pos = end + 1;
+          return nameStrings[slot];
+        }
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    String name = decode(start, end);
+
+    if (nameCount == MAX_NAMES)
+    {
+      // Full, start over rather than evicting selectively
+      for (int i = 0; i < nameBytes.length; ++i)
+      {
+        nameBytes[i] = null;
+        nameStrings[i] = null;
+      }
+      nameCount = 0;
+      slot = (hash ^ (hash >>> 16)) & mask;
+    }
+
+    byte[] copy = new byte[len];
+    System.arraycopy(text, start, copy, 0, len);
+    nameBytes[slot] = copy;
+    nameStrings[slot] = name;
+    ++nameCount;
+
+    pos = end + 1;
+    return name;
+  }
+
+  /**
+   * Read a string starting at the opening quote
+   */
+  private String readString()
+  {
+    byte[] t = text;
+    int start = pos + 1;
+    int i = start;
+
+    // Fast path, no escapes
+    while (i < t.length)
+    {
+      byte b = t[i];
+      if (b == '"')
+      {
+        pos = i + 1;
+        return decode(start, i);
+      }
+      if (b == '\\')
+        break;
+      if ((b >= 0) && (b < 0x20))
+        throw syntaxError(i);
+      ++i;
+    }
+
+    StringBuilder sb = new StringBuilder((i - start) + 16);
+    int segment = start;
+
+    while (i < t.length)
+    {
+      byte b = t[i];
+
+      if (b == '"')
+      {
+        sb.append(decode(segment, i));
+        pos = i + 1;
+        return sb.toString();
+      }
+
+      if ((b >= 0) && (b < 0x20))
+        throw syntaxError(i);
+
+      if (b != '\\')
+      {
+        ++i;
+        continue;
+      }
+
+      sb.append(decode(segment, i));
+
+      if (++i >= t.length)
+        break;
+
+      switch (t[i])
+      {
+      case '"':  sb.append('"');  break;
+      case '\\': sb.append('\\'); break;
+      case '/':  sb.append('/');  break;
+      case 'b':  sb.append('\b'); break;
+      case 'f':  sb.append('\f'); break;
+      case 'n':  sb.append('\n'); break;
+      case 'r':  sb.append('\r'); break;
+      case 't':  sb.append('\t'); break;
+      case 'u':
+        if (i + 4 >= t.length)
+          throw syntaxError(i);
+        int c = 0;
+        for (int k = 1; k <= 4; ++k)
+        {
+          int d = Character.digit((char)t[i + k], 16);
+          if ((d < 0) || (t[i + k] < 0))
+            throw syntaxError(i + k);
+          c = (c << 4) | d;
+        }
+        sb.append((char)c);
+        i += 4;
+        break;
+      default:
+        throw syntaxError(i);
+      }
+
+      segment = ++i;
+    }
+
+    throw syntaxError(t.length);
+  }
+
+  /**
+   * Decode a run of UTF-8 bytes, with a fast path for ASCII
+   */
+  private String decode(int start, int end)
+  {
+    byte[] t = text;
+
+    for (int i = start; i < end; ++i)
+      if (t[i] < 0)
+        return new String(t, start, end - start, StandardCharsets.UTF_8);
+
+    return new String(t, start, end - start, StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Read a number. Integers that fit in a long are converted directly,
+   * anything else goes through a BigDecimal.
+   */
+  private OracleJsonDecimalImpl readNumber()
+  {
+    byte[] t = text;
+    int len = t.length;
+    int start = pos;
+    int i = pos;
+    boolean negative = false;
+    boolean integral = true;
+    long value = 0L;
+
+    if (t[i] == '-')
+    {
+      negative = true;
+      ++i;
+    }
+
+    int digitStart = i;
+
+    if ((i >= len) || !isDigit(t[i]))
+      throw syntaxError(i);
+
+    if (t[i] == '0')
+    {
+      ++i;
+    }
+    else
+    {
+      while ((i < len) && isDigit(t[i]))
+      {
+        value = value * 10 + (t[i] - '0');
+        ++i;
+      }
+    }
+
+    int digits = i - digitStart;
+
+    if ((i < len) && (t[i] == '.'))
+    {
+      integral = false;
+      if ((++i >= len) || !isDigit(t[i]))
+        throw syntaxError(i);
+      while ((i < len) && isDigit(t[i]))
+        ++i;
+    }
+
+    if ((i < len) && ((t[i] == 'e') || (t[i] == 'E')))
+    {
+      integral = false;
+      ++i;
+      if ((i < len) && ((t[i] == '+') || (t[i] == '-')))
+        ++i;
+      if ((i >= len) || !isDigit(t[i]))
+        throw syntaxError(i);
+      while ((i < len) && isDigit(t[i]))
+        ++i;
+    }
+
+    pos = i;
+
+    if (integral && (digits <= MAX_LONG_DIGITS))
+    {
+      if (negative)
+        return longDecimal(-value);
+
+      if (value < SMALL_INTS)
+      {
+        OracleJsonDecimalImpl d = smallInts[(int)value];
+        if (d == null)
+          smallInts[(int)value] = d = longDecimal(value);
+        return d;
+      }
+
+      return longDecimal(value);
+    }
+
+    int n = i - start;
+    if (n > numChars.length)
+      numChars = new char[Math.max(n, numChars.length * 2)];
+    for (int k = 0; k < n; ++k)
+      numChars[k] = (char)t[start + k];
+
+    return new OracleJsonDecimalImpl(new BigDecimal(numChars, 0, n));
+  }
+
+  /**
+   * A decimal for a long. The raw NUMBER is computed from the long,
+   * with no target type, as it is for a decimal made from a BigDecimal.
+   */
+  private static OracleJsonDecimalImpl longDecimal(long value)
+  {
+    byte[] raw = new OracleJsonDecimalImpl(value,
+                   OracleJsonDecimal.TargetType.LONG).raw();
+    return new OracleJsonDecimalImpl(raw, null);
+  }
+
+  private static boolean isDigit(byte b)
+  {
+    return ((b >= '0') && (b <= '9'));
+  }
+
+  private JsonException syntaxError(int offset)
+  {
+    return new JsonException(Message.EX_INVALID_JSON_TEXT.get(Integer.toString(offset)));
+  }
+
+  private JsonException nestingError(int offset)
+  {
+    return new JsonException(Message.EX_JSON_TOO_DEEP.get(Integer.toString(MAX_DEPTH),
+                                                          Integer.toString(offset)));
+  }
+}
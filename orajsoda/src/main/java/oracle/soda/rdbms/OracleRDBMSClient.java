@@ -10,6 +10,8 @@ import oracle.soda.rdbms.impl.CollectionDescriptor;
 import oracle.soda.rdbms.impl.OracleDatabaseImpl;
 import oracle.soda.rdbms.impl.SODAMessage;
 import oracle.soda.rdbms.impl.SODAUtils;
+import oracle.soda.rdbms.impl.QueryStatistics;
+import oracle.soda.rdbms.impl.SqlShapeCounter;
 
 import oracle.json.common.MetricsCollector;
 import oracle.json.common.JsonFactoryProvider;
@@ -26,6 +28,8 @@ import java.sql.ResultSet;
 
 import oracle.jdbc.OracleConnection;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -57,6 +61,26 @@ public class OracleRDBMSClient implements OracleClient
 
     private JsonFactoryProvider jProvider;
 
+    private long fetchMemoryBudget = 0L;
+
+    private boolean canonicalBinds = false;
+
+    private SqlShapeCounter sqlShapes = null;
+
+    private QueryStatistics queryStats = null;
+
+    private static final String AUTO_FIRST_ROWS_PROPERTY = "oracle.soda.autoFirstRows";
+
+    private boolean autoFirstRows = true;
+
+    private Map<String, Boolean> collectionAutoFirstRows;
+
+    private static final String CODEC_PROPERTY = "oracle.soda.codec";
+
+    private String codecName;
+
+    private Map<String, String> collectionCodecNames;
+
     private static final Logger log =
       Logger.getLogger(OracleRDBMSClient.class.getName());
 
@@ -74,6 +98,51 @@ public class OracleRDBMSClient implements OracleClient
      * <code>oracle.soda.localMetadataCache</code> -  if set to <code>true</code>,
      *                                                the local cache of collection
      *                                                metadata will be turned on.
+     * <code>oracle.soda.fetchMemoryBudget</code> -   memory budget, in bytes, for the
+     *                                                rows fetched by a cursor in one
+     *                                                round trip. If set, cursors adapt
+     *                                                their fetch size to the observed
+     *                                                document size to stay within the
+     *                                                budget.
+     * <code>oracle.soda.canonicalBinds</code> -     if set to <code>true</code>,
+     *                                                filters that differ only in
+     *                                                their values generate the same
+     *                                                SQL: literals are bound where
+     *                                                possible, and <code>$in</code>
+     *                                                lists are padded to power-of-two
+     *                                                lengths. This reduces hard parses.
+     * <code>oracle.soda.sqlShapeCounter</code> -   if set to <code>true</code>,
+     *                                                the distinct SQL texts of the
+     *                                                filter-based operations are
+     *                                                counted, with or without
+     *                                                canonical binds, so that the
+     *                                                two can be compared.
+     * <code>oracle.soda.queryStatistics</code> -   if set to <code>true</code>,
+     *                                                statistics of the filter-based
+     *                                                reads are recorded by query
+     *                                                shape (the filter without its
+     *                                                values), for use by the index
+     *                                                advisor.
+     * <code>oracle.soda.autoFirstRows</code> -     if set to <code>false</code>,
+     *                                                reads with a limit, and
+     *                                                <code>getOne()</code>, are no
+     *                                                longer given a FIRST_ROWS hint
+     *                                                and a fetch size for the rows
+     *                                                they return; the hint is then
+     *                                                just the limit, as before. On
+     *                                                by default.
+     * <code>oracle.soda.autoFirstRows.</code><i>name</i> - overrides
+     *                                                <code>oracle.soda.autoFirstRows</code>
+     *                                                for the collection <i>name</i>.
+     * <code>oracle.soda.codec</code> -               name of the document codec to
+     *                                                use, as reported by a
+     *                                                <code>DocumentCodecFactory</code>
+     *                                                service provider. By default, the
+     *                                                built-in OSON codec is used.
+     * <code>oracle.soda.codec.</code><i>name</i> -   name of the document codec to
+     *                                                use for the collection
+     *                                                <i>name</i>, overriding
+     *                                                <code>oracle.soda.codec</code>.
      * <p>
      * @param props                                   <code>Properties</code> object,
      *                                                populated with 0 or more of the
@@ -97,6 +166,71 @@ public class OracleRDBMSClient implements OracleClient
                 localMetadataCache = true;
             }
 
+            String fetchMemoryBudgetProp = props.getProperty("oracle.soda.fetchMemoryBudget");
+
+            if (fetchMemoryBudgetProp != null) {
+                try {
+                    fetchMemoryBudget = Long.parseLong(fetchMemoryBudgetProp.trim());
+                }
+                catch (NumberFormatException e) {
+                    if (OracleLog.isLoggingEnabled())
+                        log.warning("Invalid oracle.soda.fetchMemoryBudget value " + fetchMemoryBudgetProp);
+                }
+
+                if (fetchMemoryBudget < 0L) {
+                    if (OracleLog.isLoggingEnabled())
+                        log.warning("Invalid oracle.soda.fetchMemoryBudget value " + fetchMemoryBudgetProp);
+                    fetchMemoryBudget = 0L;
+                }
+            }
+
+            String canonicalBindsProp = props.getProperty("oracle.soda.canonicalBinds");
+
+            if (canonicalBindsProp != null && canonicalBindsProp.equalsIgnoreCase("true")) {
+                canonicalBinds = true;
+            }
+
+            String sqlShapeCounterProp = props.getProperty("oracle.soda.sqlShapeCounter");
+
+            if (sqlShapeCounterProp != null && sqlShapeCounterProp.equalsIgnoreCase("true")) {
+                sqlShapes = new SqlShapeCounter();
+            }
+
+            String queryStatisticsProp = props.getProperty("oracle.soda.queryStatistics");
+
+            if (queryStatisticsProp != null && queryStatisticsProp.equalsIgnoreCase("true")) {
+                queryStats = new QueryStatistics();
+            }
+
+            String autoFirstRowsProp = props.getProperty(AUTO_FIRST_ROWS_PROPERTY);
+
+            if (autoFirstRowsProp != null && autoFirstRowsProp.equalsIgnoreCase("false")) {
+                autoFirstRows = false;
+            }
+
+            String autoFirstRowsPrefix = AUTO_FIRST_ROWS_PROPERTY + ".";
+            for (String name : props.stringPropertyNames()) {
+                if (name.startsWith(autoFirstRowsPrefix) &&
+                    name.length() > autoFirstRowsPrefix.length()) {
+                    if (collectionAutoFirstRows == null)
+                        collectionAutoFirstRows = new HashMap<String, Boolean>();
+                    collectionAutoFirstRows.put(name.substring(autoFirstRowsPrefix.length()),
+                                                !props.getProperty(name).trim().equalsIgnoreCase("false"));
+                }
+            }
+
+            codecName = props.getProperty(CODEC_PROPERTY);
+
+            String prefix = CODEC_PROPERTY + ".";
+            for (String name : props.stringPropertyNames()) {
+                if (name.startsWith(prefix) && name.length() > prefix.length()) {
+                    if (collectionCodecNames == null)
+                        collectionCodecNames = new HashMap<String, String>();
+                    collectionCodecNames.put(name.substring(prefix.length()),
+                                             props.getProperty(name));
+                }
+            }
+
         }
     }
 
@@ -197,12 +331,69 @@ public class OracleRDBMSClient implements OracleClient
 
         // ### Might be better to have metrics collector use be
         //     optional, since collecting metrics carries a cost
-        return new OracleDatabaseImpl(oconn,
-                                      cache,
-                                      mcollector,
-                                      localMetadataCache,
-                                      avoidTxnManagement,
-                                      jProvider);
+        OracleDatabaseImpl db = new OracleDatabaseImpl(oconn,
+                                                       cache,
+                                                       mcollector,
+                                                       localMetadataCache,
+                                                       avoidTxnManagement,
+                                                       jProvider);
+        db.setFetchMemoryBudget(fetchMemoryBudget);
+        db.setCanonicalBinds(canonicalBinds);
+        db.setSqlShapeCounter(sqlShapes);
+        db.setQueryStatistics(queryStats);
+        db.setAutoFirstRows(autoFirstRows);
+        if (collectionAutoFirstRows != null)
+            for (Map.Entry<String, Boolean> entry : collectionAutoFirstRows.entrySet())
+                db.setAutoFirstRows(entry.getKey(), entry.getValue());
+
+        // Unknown codec names are reported here, since the
+        // constructor can't throw
+        if (codecName != null)
+            db.setCodec(codecName);
+        if (collectionCodecNames != null)
+            for (Map.Entry<String, String> entry : collectionCodecNames.entrySet())
+                db.setCollectionCodec(entry.getKey(), entry.getValue());
+
+        return db;
+    }
+
+    /**
+     * Returns the fetch memory budget, in bytes, of the databases of
+     * this client, as set by the <code>oracle.soda.fetchMemoryBudget</code>
+     * property (0 if it's not set, or invalid).
+     * <p>
+     * Not part of a public API.
+     *
+     * @return                 the fetch memory budget
+     */
+    public long getFetchMemoryBudget() {
+        return fetchMemoryBudget;
+    }
+
+    /**
+     * Returns the counter of distinct SQL texts generated for the
+     * filter-based operations of the databases of this client, if the
+     * <code>oracle.soda.sqlShapeCounter</code> property is set.
+     * <p>
+     * Not part of a public API.
+     *
+     * @return                 the SQL shape counter, or <code>null</code>
+     */
+    public SqlShapeCounter getSqlShapeCounter() {
+        return sqlShapes;
+    }
+
+    /**
+     * Returns the statistics of the filter-based reads of the databases
+     * of this client, by query shape, if the
+     * <code>oracle.soda.queryStatistics</code> property is set.
+     * <p>
+     * Not part of a public API.
+     *
+     * @return                 the query statistics, or <code>null</code>
+     */
+    public QueryStatistics getQueryStatistics() {
+        return queryStats;
     }
 
     /**
@@ -0,0 +1,109 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Result of OracleOperationBuilderImpl.countApprox(): an estimate of
+    the number of matching documents, with a 95% confidence interval.
+
+   NOTES
+    For a count over a sample of fraction f that found k rows, the
+    estimate is k/f, and the interval is the normal approximation
+    +/- 1.96 * sqrt(k * (1 - f)) / f, assuming rows are sampled
+    independently. Block samples take whole blocks, so for data that
+    is clustered by the filtered values the true error is larger.
+    The lower bound is never less than the k rows actually seen.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+public final class ApproximateCount
+{
+  private static final double Z_95 = 1.96;
+
+  private final long   count;
+  private final long   lowerBound;
+  private final long   upperBound;
+  private final double samplePercent;
+
+  private ApproximateCount(long count, long lowerBound, long upperBound,
+                           double samplePercent)
+  {
+    this.count = count;
+    this.lowerBound = lowerBound;
+    this.upperBound = upperBound;
+    this.samplePercent = samplePercent;
+  }
+
+  static ApproximateCount exact(long count)
+  {
+    return new ApproximateCount(count, count, count, 100.0);
+  }
+
+  static ApproximateCount fromSample(long sampled, double samplePercent)
+  {
+    double f = samplePercent / 100.0;
+    double estimate = sampled / f;
+    double margin = Z_95 * Math.sqrt(sampled * (1.0 - f)) / f;
+
+    return new ApproximateCount(Math.round(estimate),
+                                Math.max(sampled, (long)Math.floor(estimate - margin)),
+                                (long)Math.ceil(estimate + margin),
+                                samplePercent);
+  }
+
+  /**
+   * The estimated count
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Lower bound of the 95% confidence interval
+   */
+  public long getLowerBound()
+  {
+    return lowerBound;
+  }
+
+  /**
+   * Upper bound of the 95% confidence interval
+   */
+  public long getUpperBound()
+  {
+    return upperBound;
+  }
+
+  /**
+   * Percentage of the collection's blocks that was counted
+   */
+  public double getSamplePercent()
+  {
+    return samplePercent;
+  }
+
+  /**
+   * True if the count wasn't sampled
+   */
+  public boolean isExact()
+  {
+    return (samplePercent >= 100.0);
+  }
+
+  @Override
+  public String toString()
+  {
+    if (isExact())
+      return Long.toString(count);
+    return count + " [" + lowerBound + ", " + upperBound + "]";
+  }
+}
@@ -26,6 +26,7 @@ import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -47,6 +48,12 @@ public class CollectionAggregationImpl extends TableCollectionImpl
 {
   protected static final Logger log =
     Logger.getLogger(CollectionAggregationImpl.class.getName());
+
+  // String form of a distinct value, except for numbers and date/times,
+  // which are identified by their NUM# or TS# column instead
+  private static final String DISTINCT_STRING_KEY =
+    "case when JT.NUM# is null and JT.TS# is null then JT.STR# end";
+
   public CollectionAggregationImpl(OracleCollectionImpl src) {
     super(src.db, src.collectionName, src.options);
   }
@@ -130,6 +137,7 @@ public class CollectionAggregationImpl extends TableCollectionImpl
         jsonObj = filterSpec.getContentAs(JsonObject.class);
         tree = AndORTree.createTree(jsonObj, getStrictMode(), options.isDualityView());
         tree.checkStringValues(OracleDatabaseImpl.MAX_STRING_BIND_LENGTH);
+        tree.setCanonicalBinds(getDatabase().getCanonicalBinds());
         tree.generateJsonExists();
       }
       catch (QueryException e)
@@ -160,6 +168,8 @@ public class CollectionAggregationImpl extends TableCollectionImpl
     ArrayList<OracleJsonValue> results = new ArrayList<OracleJsonValue>();
 
     try {
+      if (tree != null)
+        getDatabase().recordSqlShape(sqltext);
       stmt = conn.prepareStatement(sqltext);
 
       int parameterIndex = 0;
@@ -252,6 +262,86 @@ public class CollectionAggregationImpl extends TableCollectionImpl
 
   public List<DistinctValue> distinct(String path, OracleDocument filterSpec)
     throws OracleException
+  {
+    ArrayList<DistinctValue> results = new ArrayList<DistinctValue>();
+
+    DistinctValues values = distinctValues(path, filterSpec, 0);
+
+    try
+    {
+      DistinctValue value;
+      while ((value = values.fetch()) != null)
+        results.add(value);
+    }
+    catch (SQLException e)
+    {
+      throw SODAUtils.makeExceptionWithSQLText(e, values.sqltext);
+    }
+    finally
+    {
+      values.close();
+    }
+
+    return results;
+  }
+
+  /**
+   * Same as distinct(), but returns the values as they're fetched
+   * rather than collecting them into a list, so memory use doesn't
+   * depend on the number of distinct values. The iterator must be closed.
+   * This method is is not part of the public API.
+   */
+  public CloseableIterator<DistinctValue> distinctIterator(String path,
+                                                           OracleDocument filterSpec)
+    throws OracleException
+  {
+    return distinctValues(path, filterSpec, 0);
+  }
+
+  /**
+   * Return the k most frequent distinct values for a path, most
+   * frequent first. The counting, ordering, and limit are done in
+   * the database, so only k values are fetched.
+   * This method is is not part of the public API.
+   */
+  public List<DistinctValue> topDistinct(String path, int k,
+                                         OracleDocument filterSpec)
+    throws OracleException
+  {
+    if (k <= 0)
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_MUST_BE_POSITIVE, "k");
+
+    ArrayList<DistinctValue> results = new ArrayList<DistinctValue>(k);
+
+    DistinctValues values = distinctValues(path, filterSpec, k);
+
+    try
+    {
+      DistinctValue value;
+      while ((value = values.fetch()) != null)
+        results.add(value);
+    }
+    catch (SQLException e)
+    {
+      throw SODAUtils.makeExceptionWithSQLText(e, values.sqltext);
+    }
+    finally
+    {
+      values.close();
+    }
+
+    return results;
+  }
+
+  /**
+   * Run the query for distinct values of a path, returning an iterator
+   * over the values. If k is positive, only the k most frequent values
+   * are returned, most frequent first; otherwise all the values are
+   * returned in the order of distinct().
+   */
+  private DistinctValues distinctValues(String path, OracleDocument filterSpec,
+                                        int k)
+    throws OracleException
   {
     PreparedStatement stmt     = null;
     ResultSet         rows     = null;
@@ -270,7 +360,16 @@ public class CollectionAggregationImpl extends TableCollectionImpl
       throw SODAUtils.makeException(SODAMessage.EX_PATH_CONTAINS_ARRAY_STEP);
 
     sb.setLength(0);
-    sb.append("select JT.STR#, JT.NUM#, JT.BOOL#,");
+    if (k > 0)
+    {
+      sb.append("select ");
+      sb.append(DISTINCT_STRING_KEY);
+      sb.append(", JT.NUM#, JT.BOOL#,");
+    }
+    else
+    {
+      sb.append("select JT.STR#, JT.NUM#, JT.BOOL#,");
+    }
     sb.append(" to_char(JT.TS#,'YYYY-MM-DD\"T\"HH24:MI:SS.FF\"Z\"'),");
     sb.append(" count(1)\nfrom \"");
     sb.append(options.dbSchema);
@@ -295,6 +394,7 @@ public class CollectionAggregationImpl extends TableCollectionImpl
                                     ((OracleDocumentImpl) filterSpec).getContentAsStream(),
 				    options.isDualityView());
         tree.checkStringValues(OracleDatabaseImpl.MAX_STRING_BIND_LENGTH);
+        tree.setCanonicalBinds(getDatabase().getCanonicalBinds());
         tree.generateJsonExists();
       }
       catch (QueryException e)
@@ -318,219 +418,339 @@ public class CollectionAggregationImpl extends TableCollectionImpl
       tree.appendJsonExists(sb, isTreatAsAvailable());
       sb.append(")\n");
     }
-    sb.append(" group by JT.NUM#, JT.BOOL#, JT.TS#, JT.STR#\n");
-    sb.append(" order by JT.NUM#, JT.BOOL#, JT.TS#, JT.STR#");
-
-    String sqltext = sb.toString();
 
-    ArrayList<DistinctValue> results = new ArrayList<DistinctValue>();
+    if (k > 0)
+    {
+      // Group numbers by their number and date/times by their timestamp,
+      // ignoring their string forms, so that each group is one distinct
+      // value and the counts can be ordered in the database.
+      sb.append(" group by JT.NUM#, JT.BOOL#, JT.TS#, ");
+      sb.append(DISTINCT_STRING_KEY);
+      sb.append("\n order by count(1) desc, JT.NUM#, JT.BOOL#, JT.TS#, ");
+      sb.append(DISTINCT_STRING_KEY);
+      sb.append("\n fetch first ");
+      sb.append(k);
+      sb.append(" rows only");
+    }
+    else
+    {
+      sb.append(" group by JT.NUM#, JT.BOOL#, JT.TS#, JT.STR#\n");
+      sb.append(" order by JT.NUM#, JT.BOOL#, JT.TS#, JT.STR#");
+    }
 
-    // The underlying SQL cannot produce a truly distinct set of values
-    // because of two factors:
-    //   (1) strings are mirrored to numbers, and don't have a canonical form
-    //   (2) booleans are also expressed as numbers (0 and 1)
-    // To get around this, the code relies on the SQL to produce an ordered
-    // list so it can look back at the prior result and if necessary merge
-    // results with it.
-    BigDecimal bufferedNumber = null;
-    int        bufferedCount  = 0;
-    String     bufferedTstamp = null;
+    String sqltext = sb.toString();
 
     try
     {
+      if (tree != null)
+        getDatabase().recordSqlShape(sqltext);
       stmt = conn.prepareStatement(sqltext);
 
       if (tree != null)
-      {
-        // ### Most of this logic copied from OperationBuilderImpl:
-        int parameterIndex = 0;
-        for (ValueTypePair item : tree.getValueArray())
-        {
-          ++parameterIndex;
-
-          switch (item.getValue().getValueType())
-          {
-          case NUMBER:
-            stmt.setBigDecimal(parameterIndex, item.getNumberValue());
-            break;
+        bindValues(stmt, tree);
 
-          case STRING:
-            stmt.setString(parameterIndex, item.getStringValue());
-            break;
+      rows = stmt.executeQuery();
 
-          case TRUE:
-          case FALSE:
-            stmt.setString(parameterIndex,
-                           String.valueOf(item.getBooleanValue()));
-            break;
+      DistinctValues result = new DistinctValues(stmt, rows, sqltext);
 
-          case NULL:
-            stmt.setString(parameterIndex, "null");
-            break;
+      // Now owned by the iterator
+      rows = null;
+      stmt = null;
 
-          default:
-            throw new IllegalStateException();
-          }
-        }
+      return result;
+    }
+    catch (SQLException e)
+    {
+      throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+    }
+    finally
+    {
+      for (String message : SODAUtils.closeCursor(stmt, rows))
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(message);
       }
+    }
+  }
 
-      rows = stmt.executeQuery();
+  private static void bindValues(PreparedStatement stmt, AndORTree tree)
+    throws SQLException
+  {
+    // ### Most of this logic copied from OperationBuilderImpl:
+    int parameterIndex = 0;
+    for (ValueTypePair item : tree.getValueArray())
+    {
+      ++parameterIndex;
 
-      while (rows.next())
+      switch (item.getValue().getValueType())
       {
-        int count = rows.getInt(5);
+      case NUMBER:
+        stmt.setBigDecimal(parameterIndex, item.getNumberValue());
+        break;
+
+      case STRING:
+        stmt.setString(parameterIndex, item.getStringValue());
+        break;
+
+      case TRUE:
+      case FALSE:
+        stmt.setString(parameterIndex,
+                       String.valueOf(item.getBooleanValue()));
+        break;
+
+      case NULL:
+        stmt.setString(parameterIndex, "null");
+        break;
+
+      default:
+        throw new IllegalStateException();
+      }
+    }
+  }
+
+  /**
+   * Iterator over the rows of a distinct values query, as
+   * DistinctValues.
+   *
+   * The underlying SQL cannot produce a truly distinct set of values
+   * because of two factors:
+   *   (1) strings are mirrored to numbers, and don't have a canonical form
+   *   (2) booleans are also expressed as numbers (0 and 1)
+   * To get around this, the code relies on the SQL to produce an ordered
+   * list so it can look back at the prior result and if necessary merge
+   * results with it. A row can therefore produce up to two values (a
+   * buffered one and its own), which are queued until they're consumed.
+   */
+  private static final class DistinctValues
+    implements CloseableIterator<DistinctValue>
+  {
+    private final String sqltext;
+
+    private PreparedStatement stmt;
+    private ResultSet         rows;
+
+    private final ArrayDeque<DistinctValue> pending =
+      new ArrayDeque<DistinctValue>(2);
+
+    private DistinctValue nextValue = null;
 
-        // Check the timestamp column, if it has a value, this is a date/time
-        String sval = rows.getString(4);
-        if (sval != null)
+    private BigDecimal bufferedNumber = null;
+    private int        bufferedCount  = 0;
+    private String     bufferedTstamp = null;
+
+    DistinctValues(PreparedStatement stmt, ResultSet rows, String sqltext)
+    {
+      this.stmt = stmt;
+      this.rows = rows;
+      this.sqltext = sqltext;
+    }
+
+    /**
+     * Return the next value, or null at the end. The statement
+     * is released when the rows are exhausted.
+     */
+    DistinctValue fetch() throws SQLException
+    {
+      while (pending.isEmpty() && (rows != null))
+      {
+        if (rows.next())
         {
-          // If there's a previous numeric value, emit it now
-          if (bufferedNumber != null)
-          {
-            results.add(DistinctValue.createNumber(bufferedNumber,
-                                                   bufferedCount));
-            bufferedNumber = null;
-          }
+          readRow();
+        }
+        else
+        {
+          // Push out any trailing buffered number or date
+          flush();
+          release();
+        }
+      }
 
-          // If there's a previous timestamp value not yet emitted
-          if (bufferedTstamp != null)
-          {
-            // If it matches this one, merge the count and continue
-            if (bufferedTstamp.equals(sval))
-            {
-              bufferedCount += count;
-              continue;
-            }
-            // Otherwise we can emit the prior value now
-            results.add(DistinctValue.createDateTime(bufferedTstamp,
-                                                     bufferedCount));
-          }
+      return pending.poll();
+    }
 
-          // Buffer this timestamp value in case there are more matches to it
-          bufferedTstamp = sval;
-          bufferedCount  = count;
+    private void readRow() throws SQLException
+    {
+      int count = rows.getInt(5);
 
-          continue;
+      // Check the timestamp column, if it has a value, this is a date/time
+      String sval = rows.getString(4);
+      if (sval != null)
+      {
+        // If there's a previous numeric value, emit it now
+        if (bufferedNumber != null)
+        {
+          pending.add(DistinctValue.createNumber(bufferedNumber,
+                                                 bufferedCount));
+          bufferedNumber = null;
         }
 
-        // Check the boolean column
-        sval = rows.getString(3);
-        // If the string is true or false, then this has to have been
-        // a JSON literal mapped as both a string and a 0 or 1.
-        if (sval != null)
+        // If there's a previous timestamp value not yet emitted
+        if (bufferedTstamp != null)
         {
-          if (sval.equals("true"))
+          // If it matches this one, merge the count and continue
+          if (bufferedTstamp.equals(sval))
           {
-            results.add(DistinctValue.createBoolean(true, count));
-            continue;
-          }
-          else if (sval.equals("false"))
-          {
-            results.add(DistinctValue.createBoolean(false, count));
-            continue;
+            bufferedCount += count;
+            return;
           }
+          // Otherwise we can emit the prior value now
+          pending.add(DistinctValue.createDateTime(bufferedTstamp,
+                                                   bufferedCount));
         }
 
-        // Check the number column
-        BigDecimal nval = rows.getBigDecimal(2);
-        if (nval != null)
+        // Buffer this timestamp value in case there are more matches to it
+        bufferedTstamp = sval;
+        bufferedCount  = count;
+
+        return;
+      }
+
+      // Check the boolean column
+      sval = rows.getString(3);
+      // If the string is true or false, then this has to have been
+      // a JSON literal mapped as both a string and a 0 or 1.
+      if (sval != null)
+      {
+        if (sval.equals("true"))
+        {
+          flush();
+          pending.add(DistinctValue.createBoolean(true, count));
+          return;
+        }
+        else if (sval.equals("false"))
         {
-          // It must be a number, because we used numberOnly()
-          // on the numeric column, excluding strings that would otherwise
-          // automatically be mapped as numbers.
+          flush();
+          pending.add(DistinctValue.createBoolean(false, count));
+          return;
+        }
+      }
 
-          // Classification as int/long/double/decimal is left to the caller
+      // Check the number column
+      BigDecimal nval = rows.getBigDecimal(2);
+      if (nval != null)
+      {
+        // It must be a number, because we used numberOnly()
+        // on the numeric column, excluding strings that would otherwise
+        // automatically be mapped as numbers.
 
-          // If there's a previous timestamp value, emit it now
-          if (bufferedTstamp != null)
-          {
-            results.add(DistinctValue.createDateTime(bufferedTstamp,
-                                                     bufferedCount));
-            bufferedTstamp = null;
-          }
+        // Classification as int/long/double/decimal is left to the caller
 
-          // If there's a previous numeric value not yet emitted
-          if (bufferedNumber != null)
-          {
-            // If it matches this one, merge the count and continue
-            if (bufferedNumber.equals(nval))
-            {
-              bufferedCount += count;
-              continue;
-            }
-            // Otherwise we can emit the prior value now
-            results.add(DistinctValue.createNumber(bufferedNumber,
+        // If there's a previous timestamp value, emit it now
+        if (bufferedTstamp != null)
+        {
+          pending.add(DistinctValue.createDateTime(bufferedTstamp,
                                                    bufferedCount));
-          }
-
-          // Buffer this numeric value in case there are more matches to it
-          bufferedNumber = nval;
-          bufferedCount  = count;
-          continue;
+          bufferedTstamp = null;
         }
 
-        //
-        // Otherwise it's not a number or date so emit a buffered one
-        //
+        // If there's a previous numeric value not yet emitted
         if (bufferedNumber != null)
         {
-          results.add(DistinctValue.createNumber(bufferedNumber,
+          // If it matches this one, merge the count and continue
+          if (bufferedNumber.equals(nval))
+          {
+            bufferedCount += count;
+            return;
+          }
+          // Otherwise we can emit the prior value now
+          pending.add(DistinctValue.createNumber(bufferedNumber,
                                                  bufferedCount));
-          bufferedNumber = null;
         }
-        else if (bufferedTstamp != null)
-        {
-          results.add(DistinctValue.createDateTime(bufferedTstamp,
-                                                   bufferedCount));
-          bufferedTstamp = null;
-        }
-
-        // Check the string column
-        sval = rows.getString(1);
 
-        // If it's null, it's a JSON null
-        // ### Or it might be an empty string and we can't tell
-        // ### Unfortunately it might also have been an object or array
-        if (sval == null)
-          results.add(DistinctValue.createNull(count));
-        // Otherwise it's a string
-        else
-          results.add(DistinctValue.createString(sval, count));
+        // Buffer this numeric value in case there are more matches to it
+        bufferedNumber = nval;
+        bufferedCount  = count;
+        return;
       }
 
-      // Push out any trailing buffered number or date
+      //
+      // Otherwise it's not a number or date so emit a buffered one
+      //
+      flush();
+
+      // Check the string column
+      sval = rows.getString(1);
+
+      // If it's null, it's a JSON null
+      // ### Or it might be an empty string and we can't tell
+      // ### Unfortunately it might also have been an object or array
+      if (sval == null)
+        pending.add(DistinctValue.createNull(count));
+      // Otherwise it's a string
+      else
+        pending.add(DistinctValue.createString(sval, count));
+    }
+
+    private void flush()
+    {
       if (bufferedNumber != null)
       {
-        results.add(DistinctValue.createNumber(bufferedNumber,
+        pending.add(DistinctValue.createNumber(bufferedNumber,
                                                bufferedCount));
         bufferedNumber = null;
       }
       else if (bufferedTstamp != null)
       {
-        results.add(DistinctValue.createDateTime(bufferedTstamp,
+        pending.add(DistinctValue.createDateTime(bufferedTstamp,
                                                  bufferedCount));
         bufferedTstamp = null;
       }
+    }
 
-      rows.close();
-      rows = null;
-      stmt.close();
-      stmt = null;
+    @Override
+    public boolean hasNext()
+    {
+      if (nextValue == null)
+      {
+        try
+        {
+          nextValue = fetch();
+        }
+        catch (SQLException e)
+        {
+          if (OracleLog.isLoggingEnabled())
+            log.severe(e.toString() + "\n" + sqltext);
+
+          close();
+
+          throw new RuntimeException(
+            SODAUtils.makeExceptionWithSQLText(e, sqltext));
+        }
+      }
+
+      return (nextValue != null);
     }
-    catch (SQLException e)
+
+    @Override
+    public DistinctValue next()
     {
-      throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      DistinctValue value = nextValue;
+      nextValue = null;
+      return value;
     }
-    finally
+
+    private void release()
     {
       for (String message : SODAUtils.closeCursor(stmt, rows))
       {
         if (OracleLog.isLoggingEnabled())
           log.severe(message);
       }
+
+      rows = null;
+      stmt = null;
     }
 
-    return results;
+    @Override
+    public void close()
+    {
+      release();
+      pending.clear();
+      nextValue = null;
+    }
   }
 
   /**
@@ -575,6 +795,7 @@ public class CollectionAggregationImpl extends TableCollectionImpl
                                     ((OracleDocumentImpl) filterSpec).getContentAsStream(),
 				    options.isDualityView());
         tree.checkStringValues(OracleDatabaseImpl.MAX_STRING_BIND_LENGTH);
+        tree.setCanonicalBinds(getDatabase().getCanonicalBinds());
         tree.generateJsonExists();
       }
       catch (QueryException e)
@@ -603,6 +824,8 @@ public class CollectionAggregationImpl extends TableCollectionImpl
 
     try
     {
+      if (tree != null)
+        getDatabase().recordSqlShape(sqltext);
       stmt = conn.prepareStatement(sqltext);
 
       if (tree != null)
@@ -670,4 +893,295 @@ public class CollectionAggregationImpl extends TableCollectionImpl
     return result;
   }
 
+  /**
+   * Start a grouped aggregation over the collection.
+   * This method is is not part of the public API.
+   */
+  public GroupedAggregation aggregate()
+  {
+    return new GroupedAggregation(this);
+  }
+
+  /**
+   * Run a grouped aggregation, streaming back the grouped rows.
+   * This method is is not part of the public API.
+   */
+  CloseableIterator<Object[]> group(GroupedAggregation spec)
+    throws OracleException
+  {
+    PreparedStatement stmt     = null;
+    ResultSet         rows     = null;
+
+    List<JsonQueryPath> groupPaths = spec.getGroupPaths();
+    List<GroupedAggregation.Aggregate> aggregates = spec.getAggregates();
+
+    sb.setLength(0);
+    sb.append("select ");
+    for (int i = 0; i < groupPaths.size(); ++i)
+    {
+      if (i > 0) sb.append(", ");
+      sb.append("JT.G");
+      sb.append(i + 1);
+      sb.append("#");
+    }
+    for (int i = 0; i < aggregates.size(); ++i)
+    {
+      GroupedAggregation.Aggregate agg = aggregates.get(i);
+      if ((i > 0) || (groupPaths.size() > 0)) sb.append(", ");
+      sb.append(agg.function.sqlName());
+      if (agg.path == null)
+      {
+        sb.append("(1)");
+      }
+      else
+      {
+        sb.append("(JT.A");
+        sb.append(i + 1);
+        sb.append("#)");
+      }
+    }
+    sb.append("\nfrom \"");
+    sb.append(options.dbSchema);
+    sb.append("\".\"");
+    sb.append(options.dbObjectName);
+    sb.append("\" T1, JSON_TABLE(T1.\"");
+    sb.append(options.contentColumnName);
+    sb.append("\", '$' columns (");
+
+    // A column per group-by path, and per aggregate with a path.
+    // With a row path of '$' there's one row per document.
+    boolean first = true;
+    for (int i = 0; i < groupPaths.size(); ++i)
+    {
+      if (!first) sb.append(", ");
+      first = false;
+      sb.append("G");
+      sb.append(i + 1);
+      sb.append("# varchar2(4000) path '");
+      groupPaths.get(i).toLaxString(sb);
+      sb.append("'");
+    }
+    for (int i = 0; i < aggregates.size(); ++i)
+    {
+      GroupedAggregation.Aggregate agg = aggregates.get(i);
+      if (agg.path == null)
+        continue;
+      if (!first) sb.append(", ");
+      first = false;
+      sb.append("A");
+      sb.append(i + 1);
+      if (agg.function == GroupedAggregation.Function.COUNT)
+      {
+        sb.append("# varchar2(4000) path '");
+        agg.path.toLaxString(sb);
+        sb.append("'");
+      }
+      else
+      {
+        sb.append("# number path '");
+        agg.path.toLaxString(sb);
+        sb.append(".numberOnly()'");
+      }
+    }
+    // Only count(*) needs no columns
+    if (first)
+      sb.append("ID# for ordinality");
+    sb.append(")) JT\n");
+
+    AndORTree tree = null;
+    OracleDocument filterSpec = spec.getFilterSpec();
+
+    if (filterSpec != null)
+    {
+      try
+      {
+        JsonObject jsonObj = filterSpec.getContentAs(JsonObject.class);
+        tree = AndORTree.createTree(jsonObj, getStrictMode(), options.isDualityView());
+        tree.checkStringValues(OracleDatabaseImpl.MAX_STRING_BIND_LENGTH);
+        tree.setCanonicalBinds(getDatabase().getCanonicalBinds());
+        tree.generateJsonExists();
+      }
+      catch (QueryException e)
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.warning(e.toString());
+        throw SODAUtils.makeException(SODAMessage.EX_INVALID_FILTER, e);
+      }
+      // ### We can't support spatial, fulltext, or SQL/JSON clauses
+      if (tree.hasSpatialClause()  ||
+          tree.hasContainsClause() ||
+          tree.hasSqlJsonClause())
+        throw SODAUtils.makeException(SODAMessage.EX_UNSUPPORTED_CLAUSE);
+      // ### We also can't support naked lists of keys
+      if (tree.getKeys().size() > 0)
+        throw SODAUtils.makeException(SODAMessage.EX_ID_CLAUSE_NOT_SUPPORTED);
+
+      sb.append(" where JSON_EXISTS(T1.\"");
+      sb.append(options.contentColumnName);
+      sb.append("\", ");
+      tree.appendJsonExists(sb, isTreatAsAvailable());
+      sb.append(")\n");
+    }
+
+    if (groupPaths.size() > 0)
+    {
+      StringBuilder keys = new StringBuilder();
+      for (int i = 0; i < groupPaths.size(); ++i)
+      {
+        if (i > 0) keys.append(", ");
+        keys.append("JT.G");
+        keys.append(i + 1);
+        keys.append("#");
+      }
+      sb.append(" group by ");
+      sb.append(keys);
+      sb.append("\n order by ");
+      sb.append(keys);
+    }
+
+    String sqltext = sb.toString();
+
+    if (OracleLog.isLoggingEnabled())
+      log.fine("Grouped aggregation:\n" + sqltext);
+
+    try
+    {
+      if (tree != null)
+        getDatabase().recordSqlShape(sqltext);
+      stmt = conn.prepareStatement(sqltext);
+
+      if (tree != null)
+        tree.bind(stmt, 0, null);
+
+      rows = stmt.executeQuery();
+
+      CloseableIterator<Object[]> result =
+        new GroupedRows(stmt, rows, sqltext, groupPaths.size(), aggregates);
+
+      // Now owned by the iterator
+      rows = null;
+      stmt = null;
+
+      return result;
+    }
+    catch (SQLException e)
+    {
+      throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+    }
+    finally
+    {
+      for (String message : SODAUtils.closeCursor(stmt, rows))
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(message);
+      }
+    }
+  }
+
+  /**
+   * Iterator over the rows of a grouped aggregation. The statement
+   * is closed when the rows are exhausted, or the iterator is closed.
+   */
+  private static final class GroupedRows implements CloseableIterator<Object[]>
+  {
+    private final String sqltext;
+    private final int    numGroups;
+    private final List<GroupedAggregation.Aggregate> aggregates;
+
+    private PreparedStatement stmt;
+    private ResultSet         rows;
+
+    private CloseableIteratorState state = CloseableIteratorState.BEFORE;
+
+    GroupedRows(PreparedStatement stmt, ResultSet rows, String sqltext,
+                int numGroups, List<GroupedAggregation.Aggregate> aggregates)
+    {
+      this.stmt = stmt;
+      this.rows = rows;
+      this.sqltext = sqltext;
+      this.numGroups = numGroups;
+      this.aggregates = aggregates;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      if (state == CloseableIteratorState.BEFORE)
+      {
+        try
+        {
+          if (rows.next())
+          {
+            state = CloseableIteratorState.ON;
+          }
+          else
+          {
+            close();
+          }
+        }
+        catch (SQLException e)
+        {
+          if (OracleLog.isLoggingEnabled())
+            log.severe(e.toString() + "\n" + sqltext);
+
+          close();
+
+          throw new RuntimeException(
+            SODAUtils.makeExceptionWithSQLText(e, sqltext));
+        }
+      }
+
+      return (state == CloseableIteratorState.ON);
+    }
+
+    @Override
+    public Object[] next()
+    {
+      if (!hasNext())
+        throw new NoSuchElementException();
+
+      Object[] row = new Object[numGroups + aggregates.size()];
+
+      try
+      {
+        int pos = 0;
+        for (int i = 0; i < numGroups; ++i, ++pos)
+          row[pos] = rows.getString(pos + 1);
+
+        for (GroupedAggregation.Aggregate agg : aggregates)
+        {
+          if (agg.function == GroupedAggregation.Function.COUNT)
+            row[pos] = Long.valueOf(rows.getLong(pos + 1));
+          else
+            row[pos] = rows.getBigDecimal(pos + 1);
+          ++pos;
+        }
+      }
+      catch (SQLException e)
+      {
+        close();
+        throw new RuntimeException(
+          SODAUtils.makeExceptionWithSQLText(e, sqltext));
+      }
+
+      state = CloseableIteratorState.BEFORE;
+      return row;
+    }
+
+    @Override
+    public void close()
+    {
+      state = CloseableIteratorState.DONE;
+
+      for (String message : SODAUtils.closeCursor(stmt, rows))
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(message);
+      }
+
+      rows = null;
+      stmt = null;
+    }
+  }
+
 }
@@ -0,0 +1,317 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Publisher of the documents returned by a read operation, honoring
+    subscriber demand (backpressure). subscribe() and the Subscriber and
+    Subscription interfaces mirror java.util.concurrent.Flow (which is
+    not available with the Java 8 source level of this code), so that
+    adapting them to Flow or to Reactive Streams is a trivial wrapper.
+
+   NOTES
+    Rows are read on an executor, never on the thread calling
+    request(). Each subscription executes the query anew, on the
+    connection of the collection. As with the rest of SODA, that
+    connection must not be used concurrently by other operations
+    while a subscription is active.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.io.IOException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import oracle.json.logging.OracleLog;
+import oracle.soda.OracleDocument;
+
+public class DocumentPublisher
+{
+  private static final Logger log =
+    Logger.getLogger(DocumentPublisher.class.getName());
+
+  /**
+   * Same contract as java.util.concurrent.Flow.Subscriber
+   */
+  public interface Subscriber<T>
+  {
+    void onSubscribe(Subscription subscription);
+    void onNext(T item);
+    void onError(Throwable throwable);
+    void onComplete();
+  }
+
+  /**
+   * Same contract as java.util.concurrent.Flow.Subscription
+   */
+  public interface Subscription
+  {
+    void request(long n);
+    void cancel();
+  }
+
+  // Default executor, shared by all publishers that aren't given one.
+  // Bounded to one thread per processor; the threads are daemons so
+  // that an abandoned subscription doesn't keep the JVM alive.
+  private static class DefaultExecutor
+  {
+    static final ExecutorService INSTANCE =
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                                   new ThreadFactory()
+      {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+          Thread t = new Thread(r, "soda-publisher-" + count.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        }
+      });
+  }
+
+  private final OracleOperationBuilderImpl builder;
+  private final OracleDatabaseImpl db;
+  private final Executor executor;
+
+  DocumentPublisher(OracleOperationBuilderImpl builder,
+                    OracleDatabaseImpl db,
+                    Executor executor)
+  {
+    this.builder  = builder;
+    this.db       = db;
+    this.executor = (executor != null) ? executor : DefaultExecutor.INSTANCE;
+  }
+
+  public void subscribe(Subscriber<? super OracleDocument> subscriber)
+  {
+    if (subscriber == null)
+      throw new NullPointerException();
+
+    DocumentSubscription subscription = new DocumentSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private final class DocumentSubscription implements Subscription, Runnable
+  {
+    private final Subscriber<? super OracleDocument> subscriber;
+
+    private final AtomicLong    demand = new AtomicLong(0L);
+
+    // Work-in-progress counter; the drain loop runs only while it's
+    // non-zero, and at most one drain loop runs at a time.
+    private final AtomicInteger wip = new AtomicInteger(0);
+
+    private volatile boolean cancelled = false;
+    private volatile boolean fetching  = false;
+
+    // Only accessed by the drain loop
+    private OracleCursorImpl cursor = null;
+    private boolean done = false;
+    private Throwable badRequest = null;
+
+    DocumentSubscription(Subscriber<? super OracleDocument> subscriber)
+    {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n)
+    {
+      if (n <= 0L)
+      {
+        // Rule 3.9 of the Reactive Streams specification
+        badRequest = new IllegalArgumentException("request() count must be positive: " + n);
+      }
+      else
+      {
+        long current, next;
+        do
+        {
+          current = demand.get();
+          next = current + n;
+          if (next < 0L) next = Long.MAX_VALUE; // Unbounded
+        }
+        while (!demand.compareAndSet(current, next));
+      }
+
+      schedule();
+    }
+
+    @Override
+    public void cancel()
+    {
+      cancelled = true;
+
+      // Abort a round trip that's in progress, so that the
+      // executor thread is released as soon as possible
+      if (fetching)
+        db.cancelOperation();
+
+      schedule();
+    }
+
+    private void schedule()
+    {
+      if (wip.getAndIncrement() == 0)
+        executor.execute(this);
+    }
+
+    @Override
+    public void run()
+    {
+      int missed = 1;
+
+      do
+      {
+        drain();
+        missed = wip.addAndGet(-missed);
+      }
+      while (missed != 0);
+    }
+
+    private void drain()
+    {
+      if (done)
+        return;
+
+      if (cancelled)
+      {
+        finish();
+        return;
+      }
+
+      if (badRequest != null)
+      {
+        finish();
+        signalError(badRequest);
+        return;
+      }
+
+      try
+      {
+        if (cursor == null)
+        {
+          fetching = true;
+          cursor = (OracleCursorImpl)builder.getCursor();
+          fetching = false;
+        }
+
+        long n = demand.get();
+
+        // Fetch in batches sized after the demand
+        if (n > 0L)
+          cursor.setFetchSize((int)Math.min(n, (long)SODAConstants.BATCH_FETCH_SIZE));
+
+        while ((n > 0L) && !cancelled)
+        {
+          fetching = true;
+          boolean hasNext = cursor.hasNext();
+          fetching = false;
+
+          if (!hasNext)
+          {
+            finish();
+            signalComplete();
+            return;
+          }
+
+          OracleDocument doc = cursor.next();
+          n = demand.decrementAndGet();
+
+          try
+          {
+            subscriber.onNext(doc);
+          }
+          catch (RuntimeException e)
+          {
+            // Rule 2.13: a failing subscriber is treated as cancelled
+            if (OracleLog.isLoggingEnabled())
+              log.severe(e.toString());
+            cancelled = true;
+          }
+        }
+
+        if (cancelled)
+          finish();
+      }
+      catch (Throwable t)
+      {
+        // Any failure of the cursor (not just an OracleException)
+        // terminates the subscription. It mustn't escape, otherwise
+        // run() would exit without releasing the work-in-progress
+        // count, and the subscription would never be drained again.
+        fetching = false;
+        boolean wasCancelled = cancelled;
+        cancelled = true;
+        finish();
+
+        // Errors caused by the cancellation itself aren't reported
+        if (!wasCancelled)
+          signalError(t);
+      }
+    }
+
+    private void signalComplete()
+    {
+      try
+      {
+        subscriber.onComplete();
+      }
+      catch (RuntimeException e)
+      {
+        // Rule 2.13: the subscription is already terminated
+        if (OracleLog.isLoggingEnabled())
+          log.severe(e.toString());
+      }
+    }
+
+    private void signalError(Throwable t)
+    {
+      try
+      {
+        subscriber.onError(t);
+      }
+      catch (RuntimeException e)
+      {
+        // Rule 2.13: the subscription is already terminated
+        if (OracleLog.isLoggingEnabled())
+          log.severe(e.toString());
+      }
+    }
+
+    private void finish()
+    {
+      done = true;
+
+      if (cursor != null)
+      {
+        try
+        {
+          cursor.close();
+        }
+        catch (IOException e)
+        {
+          if (OracleLog.isLoggingEnabled())
+            log.severe(e.toString());
+        }
+        cursor = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Iterator over the scalar fields returned by a fields-only operation
+    (see OracleOperationBuilderImpl.getFields()). The fields are read
+    from JSON_TABLE columns, one tuple (Object[]) per document, without
+    building or transferring the documents.
+
+   NOTES
+    Each field has three columns: the number (if the value is one), the
+    boolean (if the value is one), and the string form of the value. The
+    field is returned as a BigDecimal, a Boolean, or a String, in that
+    order of preference. Missing fields, JSON nulls, and fields that
+    aren't scalars are returned as null.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import oracle.json.common.MetricsCollector;
+import oracle.json.logging.OracleLog;
+
+final class FieldCursor
+  implements CollectionAggregationImpl.CloseableIterator<Object[]>
+{
+  private static final Logger log =
+    Logger.getLogger(FieldCursor.class.getName());
+
+  // Columns selected per field
+  static final int COLUMNS_PER_FIELD = 3;
+
+  private final Operation operation;
+  private final MetricsCollector metrics;
+  private final int numFields;
+  private final int fetchSize;
+
+  private ResultSet resultSet;
+  private Object[] nextRow = null;
+  private boolean closed = false;
+
+  private int  rowCount = 0;
+  private long cumTime  = 0L;
+
+  FieldCursor(Operation operation,
+              ResultSet resultSet,
+              MetricsCollector metrics,
+              int numFields,
+              int fetchSize)
+  {
+    this.operation = operation;
+    this.resultSet = resultSet;
+    this.metrics   = metrics;
+    this.numFields = numFields;
+    this.fetchSize = (fetchSize > 0) ? fetchSize : 1;
+  }
+
+  void setElapsedTime(long elapsed)
+  {
+    this.cumTime += elapsed;
+  }
+
+  @Override
+  public boolean hasNext()
+  {
+    if (nextRow != null)
+      return true;
+    if (closed)
+      return false;
+
+    long startTime = metrics.getTime();
+
+    try
+    {
+      if (resultSet.next())
+      {
+        Object[] row = new Object[numFields];
+
+        int col = 1;
+        for (int i = 0; i < numFields; ++i, col += COLUMNS_PER_FIELD)
+        {
+          BigDecimal num = resultSet.getBigDecimal(col);
+          if (num != null)
+          {
+            row[i] = num;
+            continue;
+          }
+
+          String bool = resultSet.getString(col + 1);
+          if (bool != null)
+          {
+            row[i] = Boolean.valueOf(bool);
+            continue;
+          }
+
+          row[i] = resultSet.getString(col + 2);
+        }
+
+        ++rowCount;
+        nextRow = row;
+      }
+
+      cumTime += metrics.getTimeDiff(startTime);
+
+      if (nextRow == null)
+        close();
+    }
+    catch (SQLException e)
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(e.toString() + "\n" + operation.getSqlText());
+
+      close();
+
+      throw new RuntimeException(
+        SODAUtils.makeExceptionWithSQLText(e, operation.getSqlText()));
+    }
+
+    return (nextRow != null);
+  }
+
+  @Override
+  public Object[] next()
+  {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    Object[] row = nextRow;
+    nextRow = null;
+    return row;
+  }
+
+  @Override
+  public void close()
+  {
+    if (closed)
+      return;
+
+    closed = true;
+
+    for (String message : SODAUtils.closeCursor(operation.getStatement(),
+                                                resultSet))
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(message);
+    }
+
+    resultSet = null;
+
+    if (OracleLog.isLoggingEnabled())
+      log.fine("Field cursor read "+rowCount+" rows in "+
+               metrics.nanosToString(cumTime));
+
+    metrics.recordCursorReads(rowCount, fetchSize, cumTime);
+  }
+}
@@ -0,0 +1,257 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Builder for a grouped aggregation over a collection, e.g.
+
+      agg.groupBy("region").count().sum("amount").avg("amount")
+         .filter(filterSpec).execute()
+
+    The aggregation runs in the database as a single JSON_TABLE query,
+    with one row per document, grouped by the group-by paths:
+
+      select JT.G1#, count(1), sum(JT.A2#), avg(JT.A3#)
+      from "SCHEMA"."TABLE" T1, JSON_TABLE(T1."DATA", '$'
+        columns (G1# varchar2(4000) path '$.region',
+                 A2# number path '$.amount.numberOnly()', ...)) JT
+       where JSON_EXISTS(...)
+       group by JT.G1#
+       order by JT.G1#
+
+    and the grouped rows are returned by an iterator as they're fetched.
+
+   NOTES
+    Each row is an Object[] with the group-by values first (as strings),
+    followed by the aggregates, in the order they were added. Counts are
+    Longs, the other aggregates BigDecimals. The names of the columns
+    are returned by getColumnNames().
+
+    Group-by values that are missing, or that are not scalars, are
+    grouped under null. The sum/avg/min/max aggregates only consider
+    numbers; count(path) counts the documents with a scalar at the path.
+    Paths can't have array steps. Without group-by paths the result is
+    a single row of aggregates over all the matching documents.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import oracle.json.parser.JsonQueryPath;
+import oracle.json.parser.QueryException;
+import oracle.soda.OracleDocument;
+import oracle.soda.OracleException;
+
+public class GroupedAggregation
+{
+  enum Function
+  {
+    COUNT("count"),
+    SUM("sum"),
+    AVG("avg"),
+    MIN("min"),
+    MAX("max");
+
+    private final String sqlName;
+
+    Function(String sqlName)
+    {
+      this.sqlName = sqlName;
+    }
+
+    String sqlName()
+    {
+      return sqlName;
+    }
+  }
+
+  /**
+   * An aggregate column. The path is null for count(*).
+   */
+  static final class Aggregate
+  {
+    final Function      function;
+    final JsonQueryPath path;
+    final String        name;
+
+    Aggregate(Function function, JsonQueryPath path, String name)
+    {
+      this.function = function;
+      this.path = path;
+      this.name = name;
+    }
+  }
+
+  private final CollectionAggregationImpl collection;
+
+  private final List<JsonQueryPath> groupPaths = new ArrayList<JsonQueryPath>();
+  private final List<String>        groupNames = new ArrayList<String>();
+  private final List<Aggregate>     aggregates = new ArrayList<Aggregate>();
+
+  private OracleDocument filterSpec = null;
+
+  GroupedAggregation(CollectionAggregationImpl collection)
+  {
+    this.collection = collection;
+  }
+
+  /**
+   * Group the documents by the value at a path
+   */
+  public GroupedAggregation groupBy(String path)
+    throws OracleException
+  {
+    groupPaths.add(parsePath(path));
+    groupNames.add(path);
+    return this;
+  }
+
+  /**
+   * Count the documents of each group
+   */
+  public GroupedAggregation count()
+  {
+    aggregates.add(new Aggregate(Function.COUNT, null, "count(*)"));
+    return this;
+  }
+
+  /**
+   * Count the documents of each group with a scalar value at a path
+   */
+  public GroupedAggregation count(String path)
+    throws OracleException
+  {
+    return add(Function.COUNT, path);
+  }
+
+  /**
+   * Sum the numbers at a path for each group
+   */
+  public GroupedAggregation sum(String path)
+    throws OracleException
+  {
+    return add(Function.SUM, path);
+  }
+
+  /**
+   * Average the numbers at a path for each group
+   */
+  public GroupedAggregation avg(String path)
+    throws OracleException
+  {
+    return add(Function.AVG, path);
+  }
+
+  /**
+   * Smallest number at a path for each group
+   */
+  public GroupedAggregation min(String path)
+    throws OracleException
+  {
+    return add(Function.MIN, path);
+  }
+
+  /**
+   * Largest number at a path for each group
+   */
+  public GroupedAggregation max(String path)
+    throws OracleException
+  {
+    return add(Function.MAX, path);
+  }
+
+  /**
+   * Only aggregate the documents matching a QBE filter
+   */
+  public GroupedAggregation filter(OracleDocument filterSpec)
+  {
+    this.filterSpec = filterSpec;
+    return this;
+  }
+
+  /**
+   * Names of the result columns: the group-by paths, followed by
+   * the aggregates as "function(path)".
+   */
+  public String[] getColumnNames()
+  {
+    String[] names = new String[groupNames.size() + aggregates.size()];
+    int pos = 0;
+    for (String name : groupNames)
+      names[pos++] = name;
+    for (Aggregate agg : aggregates)
+      names[pos++] = agg.name;
+    return names;
+  }
+
+  /**
+   * Run the aggregation, returning an iterator over the grouped rows,
+   * ordered by the group-by values. The iterator must be closed.
+   */
+  public CollectionAggregationImpl.CloseableIterator<Object[]> execute()
+    throws OracleException
+  {
+    if (groupPaths.isEmpty() && aggregates.isEmpty())
+      throw SODAUtils.makeException(SODAMessage.EX_INVALID_AGGREGATION,
+                                    "no group-by paths or aggregates");
+
+    return collection.group(this);
+  }
+
+  List<JsonQueryPath> getGroupPaths()
+  {
+    return groupPaths;
+  }
+
+  List<Aggregate> getAggregates()
+  {
+    return aggregates;
+  }
+
+  OracleDocument getFilterSpec()
+  {
+    return filterSpec;
+  }
+
+  private GroupedAggregation add(Function function, String path)
+    throws OracleException
+  {
+    JsonQueryPath jqpath = parsePath(path);
+    aggregates.add(new Aggregate(function, jqpath,
+                                 function.sqlName() + "(" + path + ")"));
+    return this;
+  }
+
+  private static JsonQueryPath parsePath(String path)
+    throws OracleException
+  {
+    if (path == null)
+      throw SODAUtils.makeException(SODAMessage.EX_NULL_PATH);
+
+    JsonQueryPath jqpath;
+
+    try
+    {
+      jqpath = new JsonQueryPath(path);
+    }
+    catch (QueryException e)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_NULL_PATH, e);
+    }
+
+    if (jqpath.hasArraySteps())
+      throw SODAUtils.makeException(SODAMessage.EX_INVALID_AGGREGATION,
+                                    "path " + path + " contains array steps");
+
+    return jqpath;
+  }
+}
@@ -0,0 +1,342 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Recommends indexes for the frequent query shapes recorded by the
+    QueryStatistics of a database. For each shape of a collection run
+    at least a given number of times, the plan of its sample filter is
+    explained, and if it's a full scan of the collection's table, an
+    index is recommended for the shape's terms. The recommendations
+    are index specifications, as taken by createIndex():
+
+      {"name" : "ORDERS_ADV_1A2B3C4D",
+       "fields" : [{"path" : "status", "datatype" : "string"},
+                   {"path" : "total", "datatype" : "number"}]}
+
+   NOTES
+    The fields are the paths compared for equality ($eq, $in), in path
+    order, followed by one path compared by range ($gt, $lt, ..., or
+    $startsWith). If a compared path has array steps, or is compared
+    with $all, a multivalue index on that path is recommended instead,
+    since a functional index can't serve it.
+
+    Terms under $or or $not, and terms on item methods other than the
+    type conversions, are ignored. Datatypes are taken from the values
+    of the sample filter, so a shape compared with both numbers and
+    strings gets the type of the sample.
+
+    Shapes whose plans can't be explained (e.g. for lack of a plan
+    table) are skipped.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import oracle.json.logging.OracleLog;
+import oracle.json.parser.QueryShape;
+import oracle.json.util.JsonByteArray;
+import oracle.soda.OracleCollection;
+import oracle.soda.OracleException;
+
+public class IndexAdvisor
+{
+  private static final Logger log =
+    Logger.getLogger(IndexAdvisor.class.getName());
+
+  private static final Set<String> EQUALITY_OPERATORS =
+    new HashSet<String>(Arrays.asList("$eq", "$in"));
+
+  private static final Set<String> RANGE_OPERATORS =
+    new HashSet<String>(Arrays.asList("$gt", "$gte", "$ge", "$lt", "$lte",
+                                      "$le", "$startsWith"));
+
+  // Item methods that are type conversions an index can match,
+  // with the datatype of the index field
+  private static final String[][] TYPE_METHODS = {
+    { "number",    "number"    },
+    { "double",    "number"    },
+    { "string",    "string"    },
+    { "date",      "date"      },
+    { "timestamp", "timestamp" }
+  };
+
+  /**
+   * An index recommended for a query shape
+   */
+  public static final class Recommendation
+  {
+    private final String                specification;
+    private final QueryStatistics.Entry entry;
+
+    Recommendation(String specification, QueryStatistics.Entry entry)
+    {
+      this.specification = specification;
+      this.entry = entry;
+    }
+
+    /**
+     * The index specification, as JSON text
+     */
+    public String getIndexSpecification()
+    {
+      return specification;
+    }
+
+    /**
+     * The statistics of the shape the index is recommended for
+     */
+    public QueryStatistics.Entry getStatistics()
+    {
+      return entry;
+    }
+
+    @Override
+    public String toString()
+    {
+      return specification;
+    }
+  }
+
+  private final OracleDatabaseImpl db;
+
+  IndexAdvisor(OracleDatabaseImpl db)
+  {
+    this.db = db;
+  }
+
+  /**
+   * Recommend indexes for the shapes of a collection run at least
+   * minExecutions times, most executed shape first. Returns an empty
+   * list if query statistics aren't recorded.
+   */
+  public List<Recommendation> recommend(String collectionName,
+                                        long minExecutions)
+    throws OracleException
+  {
+    List<Recommendation> result = new ArrayList<Recommendation>();
+
+    QueryStatistics stats = db.getQueryStatistics();
+    if (stats == null)
+      return result;
+
+    OracleCollection collection = db.openCollection(collectionName);
+    if (collection == null)
+      return result;
+
+    Set<String> recommended = new HashSet<String>();
+
+    for (QueryStatistics.Entry entry : stats.getEntries(collectionName))
+    {
+      if (entry.getExecutionCount() < minExecutions)
+        continue;
+
+      String filter = entry.getSampleFilter();
+      if (filter == null)
+        continue;
+
+      String spec = createSpecification(collectionName, entry.getShape());
+      if ((spec == null) || recommended.contains(spec))
+        continue;
+
+      String plan;
+      try
+      {
+        OracleOperationBuilderImpl builder = (OracleOperationBuilderImpl)
+          collection.find().filter(db.createDocumentFromString(filter));
+        plan = builder.explainPlan("BASIC");
+      }
+      catch (OracleException e)
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.warning("Plan of " + entry.getShape() + " not explained: " +
+                      e.toString());
+        continue;
+      }
+
+      if (!isFullScan(plan))
+        continue;
+
+      recommended.add(spec);
+      result.add(new Recommendation(spec, entry));
+    }
+
+    return result;
+  }
+
+  /**
+   * True if an explained plan has a full table scan
+   */
+  public static boolean isFullScan(String plan)
+  {
+    if (plan == null)
+      return false;
+
+    for (String line : plan.split("\n"))
+    {
+      // TABLE ACCESS FULL, TABLE ACCESS STORAGE FULL, etc.
+      if (line.contains("TABLE ACCESS") && line.contains(" FULL"))
+        return true;
+    }
+
+    return false;
+  }
+
+  /**
+   * Create an index specification for the terms of a shape,
+   * or return null if none of the terms can use an index.
+   */
+  public static String createSpecification(String collectionName,
+                                           QueryShape shape)
+  {
+    // Equality paths in path order, then the first range path
+    TreeMap<String, String> equalities = new TreeMap<String, String>();
+    TreeMap<String, String> ranges     = new TreeMap<String, String>();
+    QueryShape.Term multivalue = null;
+
+    for (QueryShape.Term term : shape.getTerms())
+    {
+      String operator = term.getOperator();
+      boolean isEquality = EQUALITY_OPERATORS.contains(operator);
+
+      if (term.isArrayPath())
+      {
+        if ((multivalue == null) &&
+            (isEquality || operator.equals("$all")) &&
+            (term.getMethod() == null))
+          multivalue = term;
+        continue;
+      }
+
+      if (!isEquality && !RANGE_OPERATORS.contains(operator))
+        continue;
+
+      String datatype = term.getDatatype();
+      if (term.getMethod() != null)
+      {
+        datatype = typeOfMethod(term.getMethod());
+        if (datatype == null)
+          continue;
+      }
+      if (datatype == null)
+        datatype = "";
+
+      if (isEquality)
+        equalities.put(term.getIndexPath(), datatype);
+      else if (!ranges.containsKey(term.getIndexPath()))
+        ranges.put(term.getIndexPath(), datatype);
+    }
+
+    JsonByteArray fields = new JsonByteArray();
+    fields.appendOpenArray();
+
+    if (multivalue != null)
+    {
+      // Multivalue indexes take a single path, without a datatype
+      appendField(fields, multivalue.getIndexPath(), "");
+    }
+    else
+    {
+      int count = 0;
+      for (String path : equalities.keySet())
+      {
+        if (count++ > 0) fields.appendComma();
+        appendField(fields, path, equalities.get(path));
+      }
+      for (String path : ranges.keySet())
+      {
+        if (equalities.containsKey(path))
+          continue;
+        if (count++ > 0) fields.appendComma();
+        appendField(fields, path, ranges.get(path));
+        break;
+      }
+      if (count == 0)
+        return null;
+    }
+
+    fields.appendCloseArray();
+
+    String fieldsText = fields.getString();
+
+    JsonByteArray spec = new JsonByteArray();
+    spec.appendOpenBrace();
+    spec.appendValue("name");
+    spec.appendColon();
+    spec.appendValue(indexName(collectionName, fieldsText, multivalue != null));
+    if (multivalue != null)
+    {
+      spec.appendComma();
+      spec.appendValue("multivalue");
+      spec.appendColon();
+      spec.append("true");
+    }
+    spec.appendComma();
+    spec.appendValue("fields");
+    spec.appendColon();
+    spec.append(fieldsText);
+    spec.appendCloseBrace();
+
+    return spec.getString();
+  }
+
+  private static void appendField(JsonByteArray fields, String path,
+                                  String datatype)
+  {
+    fields.appendOpenBrace();
+    fields.appendValue("path");
+    fields.appendColon();
+    fields.appendValue(path);
+    if (datatype.length() > 0)
+    {
+      fields.appendComma();
+      fields.appendValue("datatype");
+      fields.appendColon();
+      fields.appendValue(datatype);
+    }
+    fields.appendCloseBrace();
+  }
+
+  private static String typeOfMethod(String method)
+  {
+    for (String[] pair : TYPE_METHODS)
+      if (pair[0].equals(method))
+        return pair[1];
+    return null;
+  }
+
+  /**
+   * Name the index after the collection, with a hash of its fields
+   * so that the same recommendation always gets the same name.
+   */
+  private static String indexName(String collectionName, String fields,
+                                   boolean multivalue)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; (i < collectionName.length()) && (sb.length() < 30); ++i)
+    {
+      char ch = Character.toUpperCase(collectionName.charAt(i));
+      if (((ch >= 'A') && (ch <= 'Z')) || ((ch >= '0') && (ch <= '9')))
+        sb.append(ch);
+      else
+        sb.append('_');
+    }
+    sb.append(multivalue ? "_MVI_" : "_ADV_");
+    sb.append(String.format("%08X", fields.hashCode()));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,153 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Iterator over the keys returned by a keys-only operation. The keys
+    are returned in batches (arrays), read directly from the key column
+    without building documents.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
+
+import oracle.json.common.MetricsCollector;
+import oracle.json.logging.OracleLog;
+
+abstract class KeyBatchCursor<T>
+  implements CollectionAggregationImpl.CloseableIterator<T>
+{
+  private static final Logger log =
+    Logger.getLogger(KeyBatchCursor.class.getName());
+
+  private final Operation operation;
+  private final MetricsCollector metrics;
+  private final int batchSize;
+
+  private ResultSet resultSet;
+  private T nextBatch = null;
+  private boolean closed = false;
+
+  private int  rowCount = 0;
+  private long cumTime  = 0L;
+
+  KeyBatchCursor(Operation operation,
+                 ResultSet resultSet,
+                 MetricsCollector metrics,
+                 int batchSize)
+  {
+    this.operation = operation;
+    this.resultSet = resultSet;
+    this.metrics   = metrics;
+    this.batchSize = batchSize;
+  }
+
+  void setElapsedTime(long elapsed)
+  {
+    this.cumTime += elapsed;
+  }
+
+  /**
+   * Allocate an empty batch of the given size
+   */
+  abstract T newBatch(int size);
+
+  /**
+   * Read the key in the current row into position pos of the batch
+   */
+  abstract void readKey(ResultSet rows, T batch, int pos) throws SQLException;
+
+  /**
+   * Shrink a batch down to the given size (for the last batch)
+   */
+  abstract T trim(T batch, int size);
+
+  @Override
+  public boolean hasNext()
+  {
+    if (nextBatch != null)
+      return true;
+    if (closed)
+      return false;
+
+    long startTime = metrics.getTime();
+
+    try
+    {
+      T batch = newBatch(batchSize);
+      int count = 0;
+
+      while ((count < batchSize) && resultSet.next())
+        readKey(resultSet, batch, count++);
+
+      rowCount += count;
+      cumTime += metrics.getTimeDiff(startTime);
+
+      if (count < batchSize)
+      {
+        close();
+        batch = (count == 0) ? null : trim(batch, count);
+      }
+
+      nextBatch = batch;
+    }
+    catch (SQLException e)
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(e.toString() + "\n" + operation.getSqlText());
+
+      close();
+
+      throw new RuntimeException(
+        SODAUtils.makeExceptionWithSQLText(e, operation.getSqlText()));
+    }
+
+    return (nextBatch != null);
+  }
+
+  @Override
+  public T next()
+  {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    T batch = nextBatch;
+    nextBatch = null;
+    return batch;
+  }
+
+  @Override
+  public void close()
+  {
+    if (closed)
+      return;
+
+    closed = true;
+
+    for (String message : SODAUtils.closeCursor(operation.getStatement(),
+                                                resultSet))
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(message);
+    }
+
+    resultSet = null;
+
+    if (OracleLog.isLoggingEnabled())
+      log.fine("Key cursor read "+rowCount+" keys in "+
+               metrics.nanosToString(cumTime));
+
+    metrics.recordCursorReads(rowCount, batchSize, cumTime);
+  }
+}
@@ -50,6 +50,8 @@ import java.util.List;
 
 import oracle.json.common.MetricsCollector;
 import oracle.json.common.DocumentCodec;
+import oracle.json.common.DocumentCodecFactory;
+import oracle.json.common.JsonTextValidator;
 
 import oracle.json.util.ByteArray;
 import oracle.json.util.JsonByteArray;
@@ -540,10 +542,19 @@ public abstract class OracleCollectionImpl implements OracleCollection
   DocumentCodec getCodec()
   {
     if (osonCodec == null)
-      osonCodec = db.getCodecFactory().getCodec();
+      osonCodec = getCodecFactory().getCodec();
     return osonCodec;
   }
 
+  /**
+   * Codec factory for this collection, which may have been configured
+   * to use a different codec than the rest of the database.
+   */
+  DocumentCodecFactory getCodecFactory()
+  {
+    return db.getCodecFactory(collectionName);
+  }
+
   protected byte[] convertToBinary(byte[] data) throws OracleException
   {
     byte[] binary = null;
@@ -567,6 +578,74 @@ public abstract class OracleCollectionImpl implements OracleCollection
     return binary;
   }
 
+  private JsonTextValidator textValidator = null;
+
+  /**
+   * Stands in for the content with an injected key, in the result of
+   * getDocumentKey(), when the key was found by validating the text.
+   * The text then isn't validated a second time when it's sent.
+   */
+  static final Object VALIDATED_TEXT = new Object();
+
+  /**
+   * Returns true if the document is JSON text that should be validated
+   * on the client before it's sent, for the standard and strict
+   * validation modes. The server validates it as well, but this avoids
+   * a round trip for an invalid document.
+   */
+  boolean validatesText(OracleDocument document, boolean eJSON)
+  {
+    return ((options.validationMode >= CollectionDescriptor.VALIDATION_STANDARD) &&
+            !eJSON &&
+            !OracleDocumentImpl.isBinary(document) &&
+            ((OracleDocumentImpl)document).isJSON());
+  }
+
+  /**
+   * Validate JSON text, also finding the key along the given path if
+   * the steps aren't null. Returns the validator, from which the key
+   * can be read, or null if the text isn't UTF-8 and so was left to the
+   * server to validate.
+   */
+  JsonTextValidator validateText(byte[] data, String[] keySteps)
+    throws OracleException
+  {
+    if ((data == null) || (data.length == 0) ||
+        !JsonTextValidator.canValidate(data))
+      return null;
+
+    if (textValidator == null)
+      textValidator = new JsonTextValidator(options.validationMode ==
+                                            CollectionDescriptor.VALIDATION_STRICT);
+    textValidator.setKeyPath(keySteps);
+
+    try
+    {
+      textValidator.validate(data);
+    }
+    catch (JsonException e)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_DOCUMENT_NOT_VALID, e,
+                                    options.getValidationMode(),
+                                    e.getMessage());
+    }
+
+    return textValidator;
+  }
+
+  /**
+   * Validate JSON text that's about to be sent, unless the content
+   * from getDocumentKey() shows it was validated when its key was found.
+   */
+  void validateContent(OracleDocument document, byte[] data, boolean eJSON,
+                       Object contentWithInjectedKey)
+    throws OracleException
+  {
+    if ((contentWithInjectedKey != VALIDATED_TEXT) &&
+        validatesText(document, eJSON))
+      validateText(data, null);
+  }
+
   private String[] dockeySteps = null;
 
   private BigDecimal readJsonStringAsNumber(String decString) throws OracleException
@@ -929,6 +1008,21 @@ public abstract class OracleCollectionImpl implements OracleCollection
                                                                  String key,
                                                                  boolean skipCanonicalKeyCheck) 
   throws OracleException {
+    return extractKeyForEmbeddedIdCollections(keyProcessor, document, eJSON, key,
+                                              skipCanonicalKeyCheck, null);
+  }
+
+  /**
+   * As above, but if the document's text has already been validated,
+   * the key is taken from the validator rather than parsed again.
+   */
+  String extractKeyForEmbeddedIdCollections(DocumentCodec<?> keyProcessor,
+                                            OracleDocument document,
+                                            boolean eJSON,
+                                            String key,
+                                            boolean skipCanonicalKeyCheck,
+                                            JsonTextValidator validator)
+  throws OracleException {
     
     String dockey = key;
     
@@ -965,9 +1059,16 @@ public abstract class OracleCollectionImpl implements OracleCollection
 
           try
           {
-            keyProcessor.loadUnicode(data);
-            keyProcessor.setValidation(false);
-            dockey = keyProcessor.getKey(true);
+            if (validator != null)
+            {
+              dockey = validator.getKey(true);
+            }
+            else
+            {
+              keyProcessor.loadUnicode(data);
+              keyProcessor.setValidation(false);
+              dockey = keyProcessor.getKey(true);
+            }
           }
           catch (JsonException e)
           {
@@ -1071,10 +1172,19 @@ public abstract class OracleCollectionImpl implements OracleCollection
       dockeySteps = initializeDocumentKeySteps();
     keyProcessor.setKeyPath(dockeySteps);
     
-    String extractedKey = extractKeyForEmbeddedIdCollections(keyProcessor, document, eJSON, dockey, options.hasMaterializedEmbeddedID());
+    // With validation, a single pass over the text both checks it and
+    // finds the key, and the result says it needn't be checked again
+    JsonTextValidator validator = null;
+    if ((dockey == null) &&
+        (options.keyAssignmentMethod == CollectionDescriptor.KEY_ASSIGN_EMBEDDED_OID) &&
+        validatesText(document, eJSON))
+      validator = validateText(document.getContentAsByteArray(), dockeySteps);
+    Object validated = (validator != null) ? VALIDATED_TEXT : null;
+
+    String extractedKey = extractKeyForEmbeddedIdCollections(keyProcessor, document, eJSON, dockey, options.hasMaterializedEmbeddedID(), validator);
     
     if (extractedKey != null)
-      return new Pair<String, Object>(extractedKey, null);
+      return new Pair<String, Object>(extractedKey, validated);
     
 
     // See if the key needs to be generated for auto-insertion
@@ -1164,6 +1274,11 @@ public abstract class OracleCollectionImpl implements OracleCollection
       }
     }
 
+    // The original text is sent if no key was inserted
+    if ((validated != null) && (docKeyAndOsonPayload.getSecond() == null))
+      docKeyAndOsonPayload = new Pair<String, Object>(docKeyAndOsonPayload.getFirst(),
+                                                      validated);
+
     return docKeyAndOsonPayload;
   }
   
@@ -82,6 +82,35 @@ public class OracleCursorImpl implements OracleCursor
 
   private boolean eJSON = false;
 
+  // Adaptive fetching state (inactive unless fetchBudget is positive)
+  private long fetchBudget   = 0L; // Memory budget for one fetch, in bytes
+  private int  fetchSize     = SODAConstants.BATCH_FETCH_SIZE;
+  private long batchBytes    = 0L; // Bytes seen in the current batch
+  private int  batchRows     = 0;  // Rows seen in the current batch
+
+  // Flyweight mode: a single document object is reused for every row.
+  // Only the document (and its codec and JSON factory bindings) is
+  // recycled; the key, version, timestamp and content of each row are
+  // still allocated by the JDBC getters. The document returned by next()
+  // is only valid until the following call to next(). A row read ahead
+  // by hasNext() goes into a spare document, so as not to overwrite the
+  // one handed out.
+  private boolean useFlyweight = false;
+  private OracleDocumentImpl flyweight = null;
+  private OracleDocumentImpl spareFlyweight = null;
+  private boolean readingAhead = false;
+
+  // Batch that owns the statement of a batched query, released
+  // (instead of closing the statement) when the cursor is closed
+  private QueryBatch batch = null;
+
+  // Query shape statistics to record the reads in when closed
+  private QueryStatistics.Entry queryStats = null;
+
+  // Rough per-row allowance for the housekeeping columns
+  // (key, timestamps, version, media type) and driver accessors
+  private static final int ROW_OVERHEAD_BYTES = 128;
+
   OracleCursorImpl(CollectionDescriptor desc,
                    MetricsCollector metrics,
                    Operation operation,
@@ -127,6 +156,119 @@ public class OracleCursorImpl implements OracleCursor
     this.cumTime += elapsed;
   }
 
+  /**
+   * Enable adaptive fetching. The fetch size in effect for the
+   * result set must be passed in, so that the first adjustment
+   * happens once the first batch has been consumed.
+   */
+  void setFetchMemoryBudget(long budget, int initialFetchSize)
+  {
+    if (budget <= 0L)
+      return;
+
+    fetchBudget = budget;
+    fetchSize = initialFetchSize;
+  }
+
+  /**
+   * Set the number of rows fetched by the following round trips.
+   * Not part of the public interface
+   */
+  void setFetchSize(int rows) throws OracleException
+  {
+    if (closed || (rows <= 0) || (rows == fetchSize))
+      return;
+
+    try
+    {
+      resultSet.setFetchSize(rows);
+      fetchSize = rows;
+    }
+    catch (SQLException e)
+    {
+      throw new OracleException(e);
+    }
+  }
+
+  /**
+   * Returns the number of rows fetched by the following round trips.
+   * Not part of the public interface
+   */
+  public int getFetchSize() throws OracleException
+  {
+    try
+    {
+      return resultSet.getFetchSize();
+    }
+    catch (SQLException e)
+    {
+      throw new OracleException(e);
+    }
+  }
+
+  /**
+   * The number of rows of the given average size that fit within
+   * the budget, between ADAPTIVE_MIN_FETCH_SIZE and
+   * ADAPTIVE_MAX_FETCH_SIZE.
+   *
+   * Not part of a public API.
+   */
+  public static int adaptiveFetchSize(long budget, long avgRowBytes)
+  {
+    long newSize = budget / Math.max(avgRowBytes, 1L);
+
+    if (newSize < SODAConstants.ADAPTIVE_MIN_FETCH_SIZE)
+      newSize = SODAConstants.ADAPTIVE_MIN_FETCH_SIZE;
+    else if (newSize > SODAConstants.ADAPTIVE_MAX_FETCH_SIZE)
+      newSize = SODAConstants.ADAPTIVE_MAX_FETCH_SIZE;
+
+    return (int)newSize;
+  }
+
+  /**
+   * Account for the size of a row just read. Once a full batch has
+   * been consumed (i.e. the driver is about to make a round trip),
+   * size the next fetch so that it fits within the budget, based on
+   * the average row size seen in that batch.
+   */
+  private void adaptFetchSize(long rowBytes) throws SQLException
+  {
+    batchBytes += rowBytes + ROW_OVERHEAD_BYTES;
+
+    if (++batchRows < fetchSize)
+      return;
+
+    long avgRowBytes = batchBytes / batchRows;
+    int newSize = adaptiveFetchSize(fetchBudget, avgRowBytes);
+
+    if (newSize != fetchSize)
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.fine("Average row size "+avgRowBytes+", fetch size "+
+                 fetchSize+" -> "+newSize);
+
+      fetchSize = newSize;
+      resultSet.setFetchSize(fetchSize);
+    }
+
+    batchBytes = 0L;
+    batchRows  = 0;
+  }
+
+  /**
+   * Switch on the flyweight mode. Instead of allocating a new
+   * document object per row, the cursor reinitializes and returns
+   * the same document each time. The per-row values it's
+   * reinitialized with (key, version, timestamp, content) are
+   * not reused. A document stays valid until the following next();
+   * hasNext() reads ahead into a second document.
+   * Not part of the public interface
+   */
+  public void setFlyweight(boolean useFlyweight)
+  {
+    this.useFlyweight = useFlyweight;
+  }
+
   /**
    * Skip a number of rows internally
    * Not part of the public interface
@@ -159,7 +301,15 @@ public class OracleCursorImpl implements OracleCursor
     if (nextDocument != null)
       return true;
     
-    nextDocument = next();
+    readingAhead = true;
+    try
+    {
+      nextDocument = next();
+    }
+    finally
+    {
+      readingAhead = false;
+    }
     
     return (nextDocument != null);
   }
@@ -286,6 +436,13 @@ public class OracleCursorImpl implements OracleCursor
     {
       result = (OracleDocumentImpl)nextDocument;
       nextDocument = null;
+
+      // The document read ahead is now the one handed out
+      if (useFlyweight && (result == spareFlyweight))
+      {
+        spareFlyweight = flyweight;
+        flyweight = result;
+      }
       return result;
     }
 
@@ -483,8 +640,19 @@ public class OracleCursorImpl implements OracleCursor
             version = resultSet.getString(++num);
         }
 
+        boolean reused = false;
+
+        // In flyweight mode, overwrite the document handed out last
+        // time, or the spare one when reading ahead for hasNext()
+        OracleDocumentImpl reusable = readingAhead ? spareFlyweight : flyweight;
+        if (useFlyweight && (reusable != null))
+        {
+          reusable.reuse(key, version, mtime, payload, payloadStream, null);
+          result = reusable;
+          reused = true;
+        }
         // If a LOB stream is available, return it
-        if (payloadStream != null)
+        else if (payloadStream != null)
         {
           result = new OracleDocumentImpl(key, version, mtime,
                                           payloadStream, ctype);
@@ -499,13 +667,22 @@ public class OracleCursorImpl implements OracleCursor
         TableCollectionImpl tcoll = (TableCollectionImpl)coll;
         tcoll.setContentType(ctype, result);
 
-        // ### Allow setting through constructor instead?
-        result.setCodec(tcoll.getCodec());
-        if (OracleDatabaseImpl.isOracleJsonAvailable())
-          result.setJsonFactory(tcoll.getDatabase().getJsonFactory());
+        // The remaining settings are retained by a reused document
+        if (!reused)
+        {
+          // ### Allow setting through constructor instead?
+          result.setCodec(tcoll.getCodec());
+          if (OracleDatabaseImpl.isOracleJsonAvailable())
+            result.setJsonFactory(tcoll.getDatabase().getJsonFactory());
+
+          if (useFlyweight && readingAhead)
+            spareFlyweight = result;
+          else if (useFlyweight)
+            flyweight = result;
+        }
                                 
         // ### Allow setting thru constructor instead?
-        if ((desc.hasBinaryFormat() || desc.hasJsonType()) && !eJSON)
+        if (!reused && (desc.hasBinaryFormat() || desc.hasJsonType()) && !eJSON)
         {
           // If isOracleJsonAvailable returns false, that means the setJsonFactory
           // was not invoked on result. For processing binary documents, the json
@@ -524,6 +701,14 @@ public class OracleCursorImpl implements OracleCursor
           result.setBinary();
         }
 
+        if (fetchBudget > 0L)
+        {
+          // A streamed LOB is only prefetched up to the LOB prefetch size
+          long rowBytes = (payload != null) ? payload.length :
+                          ((payloadStream != null) ? SODAConstants.LOB_PREFETCH_SIZE : 0);
+          adaptFetchSize(rowBytes);
+        }
+
         ++rowCount;
         cumTime += metrics.getTimeDiff(startTime);
       }
@@ -610,6 +795,16 @@ public class OracleCursorImpl implements OracleCursor
     this.sql_query = sql_query;
   }
 
+  void setBatch(QueryBatch batch)
+  {
+    this.batch = batch;
+  }
+
+  void setQueryStatistics(QueryStatistics.Entry queryStats)
+  {
+    this.queryStats = queryStats;
+  }
+
   public void remove() { throw new UnsupportedOperationException(); }
 
   private void closeInternal() throws SQLException
@@ -633,6 +828,13 @@ public class OracleCursorImpl implements OracleCursor
 
       if (stmt != null) stmt.close();
       stmt = null;
+
+      if (batch != null)
+      {
+        QueryBatch owner = batch;
+        batch = null;
+        owner.release();
+      }
     }
     finally
     {
@@ -667,7 +869,13 @@ public class OracleCursorImpl implements OracleCursor
 
     // Record the aggregated metrics
     metrics.recordCursorReads(rowCount,
-                              SODAConstants.BATCH_FETCH_SIZE,
+                              fetchSize,
                               cumTime);
+
+    if (queryStats != null)
+    {
+      queryStats.record(cumTime, rowCount);
+      queryStats = null;
+    }
   }
 }
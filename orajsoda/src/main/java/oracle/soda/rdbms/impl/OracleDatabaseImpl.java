@@ -59,6 +59,8 @@ import oracle.json.common.DocumentCodecFactory;
 import oracle.json.common.JsonFactoryProvider;
 import oracle.json.common.MetricsCollector;
 import oracle.json.rdbms.JsonpGeneratorWrapper;
+import oracle.json.rdbms.ObjectBinder;
+import oracle.json.rdbms.OsonTextEncoder;
 import oracle.json.logging.OracleLog;
 import oracle.json.util.ByteArray;
 import oracle.json.util.ComponentTime;
@@ -185,6 +187,28 @@ public class OracleDatabaseImpl implements OracleDatabase
   private boolean omitIdProcessing = false;
   
   private boolean isREST = false;
+
+  // Per-cursor fetch memory budget in bytes. If positive, cursors
+  // adapt their fetch size to the observed row size (0 = disabled).
+  private long fetchMemoryBudget = 0L;
+
+  // Encoder for text to OSON conversions (see getTextEncoder())
+  private OsonTextEncoder textEncoder = null;
+
+  // Bind filter values canonically (see AndORTree.setCanonicalBinds)
+  private boolean canonicalBinds = false;
+
+  // Counts the distinct SQL texts of filter-based operations
+  // (null = disabled)
+  private SqlShapeCounter sqlShapes = null;
+
+  // Statistics of QBE reads by query shape (null = disabled)
+  private QueryStatistics queryStats = null;
+
+  // Automatic FIRST_ROWS hints for limited reads, and the
+  // collections that override it (null = none)
+  private boolean autoFirstRows = true;
+  private HashMap<String, Boolean> collectionAutoFirstRows = null;
   
   /* Not part of the public API */
   public OracleDatabaseImpl(OracleConnection conn,
@@ -481,6 +505,21 @@ public class OracleDatabaseImpl implements OracleDatabase
 
     ByteArrayOutputStream osonOut = new ByteArrayOutputStream();
     oracle.sql.json.OracleJsonGenerator binaryGen = (oracle.sql.json.OracleJsonGenerator) createBinaryGenerator(osonOut);
+
+    // UTF-8 text is encoded directly, other encodings go through JSON-P
+    if (OsonTextEncoder.canEncode(data))
+    {
+      try
+      {
+        getTextEncoder().encode(data, binaryGen);
+      }
+      catch (Exception e)
+      {
+        throw SODAUtils.makeException(SODAMessage.EX_TO_BINARY_CONVERSION_ERROR, e);
+      }
+      return osonOut.toByteArray();
+    }
+
     JsonParserFactory parserFactory = jProvider.getParserFactory();
     JsonParser parser = parserFactory.createParser(new ByteArrayInputStream(data));
     writeParserToGenerator(parser, binaryGen);
@@ -494,12 +533,29 @@ public class OracleDatabaseImpl implements OracleDatabase
 
     ByteArrayOutputStream osonOut = new ByteArrayOutputStream();
     oracle.sql.json.OracleJsonGenerator binaryGen = (oracle.sql.json.OracleJsonGenerator) createBinaryGenerator(osonOut);
-    JsonParserFactory parserFactory = jProvider.getParserFactory();
-    JsonParser parser = parserFactory.createParser(data);
-    writeParserToGenerator(parser, binaryGen);
+    try
+    {
+      getTextEncoder().encode(data, binaryGen);
+    }
+    catch (Exception e)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_TO_BINARY_CONVERSION_ERROR, e);
+    }
     return osonOut.toByteArray();
   }
 
+  /**
+   * Encoder for text to OSON conversions. It's kept for the life of
+   * the database object, so that field names are interned across the
+   * documents converted by a session.
+   */
+  private OsonTextEncoder getTextEncoder()
+  {
+    if (textEncoder == null)
+      textEncoder = new OsonTextEncoder();
+    return textEncoder;
+  }
+
   // Avoid oracle.sql.json in the signature to prevent loading of it
   // when it's not present in the classpath
   private byte[] oracleJsonParserToBinary(Object parser) throws OracleException
@@ -553,6 +609,27 @@ public class OracleDatabaseImpl implements OracleDatabase
     return baos.toByteArray();
   }
 
+  /**
+   * Write an application object to OSON field by field, without
+   * building a JSON value tree first
+   */
+  private byte[] objectToBinary(Object obj) throws OracleException
+  {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    oracle.sql.json.OracleJsonGenerator binaryGen = (oracle.sql.json.OracleJsonGenerator) createBinaryGenerator(baos);
+    try
+    {
+      ObjectBinder.write(obj, binaryGen);
+      binaryGen.close();
+    }
+    catch (RuntimeException e)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_OBJECT_BINDING_ERROR, e,
+                                    obj.getClass().getName());
+    }
+    return baos.toByteArray();
+  }
+
   // Avoid oracle.sql.json in the signature to prevent loading of it
   // when it's not present in the classpath
   private byte[] oracleJsonValueToBinary(Object value) throws OracleException
@@ -861,6 +938,7 @@ public class OracleDatabaseImpl implements OracleDatabase
     if (descOptions != null) {
       putDescriptorIntoCaches(descOptions);
 
+      checkCodec(collectionName, descOptions);
       coll = new TableCollectionImpl(this, collectionName, descOptions);
 
       if (localCollectionCache != null) {
@@ -980,6 +1058,7 @@ public class OracleDatabaseImpl implements OracleDatabase
           }
           else // TableCollectionImpl is used for views and tables
           {
+            checkCodec(collectionName, desc);
             coll = new TableCollectionImpl(this, collectionName, desc);
           }
 
@@ -1068,6 +1147,7 @@ public class OracleDatabaseImpl implements OracleDatabase
       }
       else // TableCollectionImpl is used for views and tables
       {
+        checkCodec(collectionName, desc);
         coll = new TableCollectionImpl(this, collectionName, desc);
       }
 
@@ -1211,6 +1291,260 @@ public class OracleDatabaseImpl implements OracleDatabase
     this.maxCacheTimeout = maxCacheTimeout;
   }
 
+  /**
+   * Set the memory budget (in bytes) for the rows fetched by
+   * a cursor in one round trip. If positive, cursors measure
+   * the average row size and size their fetches to fit within
+   * the budget. A value of zero disables the adaptive fetching.
+   *
+   * Not part of a public API.
+   */
+  public void setFetchMemoryBudget(long fetchMemoryBudget)
+  {
+    this.fetchMemoryBudget = (fetchMemoryBudget > 0L) ? fetchMemoryBudget : 0L;
+  }
+
+  long getFetchMemoryBudget()
+  {
+    return fetchMemoryBudget;
+  }
+
+  /**
+   * Generate the same SQL for filters that differ only in their
+   * values, by binding literals that would otherwise be in-lined
+   * and padding $in lists to power-of-two lengths. This reduces
+   * the number of distinct cursors, and so hard parses.
+   *
+   * Not part of a public API.
+   */
+  public void setCanonicalBinds(boolean canonicalBinds)
+  {
+    this.canonicalBinds = canonicalBinds;
+  }
+
+  boolean getCanonicalBinds()
+  {
+    return canonicalBinds;
+  }
+
+  /**
+   * Create a batch of queries, run in one round trip.
+   * Each query is added as an operation builder (from a
+   * collection of this database), and returns its own
+   * cursor.
+   *
+   * Not part of a public API.
+   */
+  public QueryBatch createQueryBatch()
+  {
+    return new QueryBatch(this);
+  }
+
+  /**
+   * Count the distinct SQL texts of filter-based operations, e.g.
+   * with a counter shared between the databases of a client. They're
+   * counted whether canonical binds are on or off, so that the two
+   * can be compared. Null disables the counting.
+   *
+   * Not part of a public API.
+   */
+  public void setSqlShapeCounter(SqlShapeCounter sqlShapes)
+  {
+    this.sqlShapes = sqlShapes;
+  }
+
+  /**
+   * Returns the counter of distinct SQL texts prepared for
+   * filter-based operations, or null if they aren't counted.
+   *
+   * Not part of a public API.
+   */
+  public SqlShapeCounter getSqlShapeCounter()
+  {
+    return sqlShapes;
+  }
+
+  /**
+   * Count the SQL text of a filter-based operation, if a counter
+   * was installed, so that operations don't otherwise pay for the
+   * lookup.
+   */
+  void recordSqlShape(String sqltext)
+  {
+    if (sqlShapes != null)
+      sqlShapes.record(sqltext);
+  }
+
+  /**
+   * Record statistics of the QBE reads by query shape, e.g. shared
+   * between the databases of a client. Null disables them.
+   *
+   * Not part of a public API.
+   */
+  public void setQueryStatistics(QueryStatistics queryStats)
+  {
+    this.queryStats = queryStats;
+  }
+
+  /**
+   * Returns the statistics of QBE reads by query shape,
+   * or null if they aren't recorded.
+   *
+   * Not part of a public API.
+   */
+  public QueryStatistics getQueryStatistics()
+  {
+    return queryStats;
+  }
+
+  /**
+   * Give the reads with a limit (and getOne()) a FIRST_ROWS hint
+   * for the number of rows they read (the skip plus the limit), and
+   * a fetch size for those they return: the limit, plus one so that
+   * the end is seen in the same round trip, whatever the skip. On by
+   * default; an explicit firstRowsHint() overrides it. When it's off,
+   * limit() sets the hint to the limit, as it did before.
+   *
+   * Not part of a public API.
+   */
+  public void setAutoFirstRows(boolean autoFirstRows)
+  {
+    this.autoFirstRows = autoFirstRows;
+  }
+
+  /**
+   * Turn the automatic FIRST_ROWS hints on or off for one collection,
+   * overriding the setting of the database.
+   *
+   * Not part of a public API.
+   */
+  public void setAutoFirstRows(String collectionName, boolean autoFirstRows)
+  {
+    if (collectionAutoFirstRows == null)
+      collectionAutoFirstRows = new HashMap<String, Boolean>();
+    collectionAutoFirstRows.put(collectionName, autoFirstRows);
+  }
+
+  boolean isAutoFirstRows(String collectionName)
+  {
+    if (collectionAutoFirstRows != null)
+    {
+      Boolean value = collectionAutoFirstRows.get(collectionName);
+      if (value != null)
+        return value.booleanValue();
+    }
+    return autoFirstRows;
+  }
+
+  /**
+   * Create an advisor recommending indexes for the frequent
+   * query shapes recorded by the query statistics.
+   *
+   * Not part of a public API.
+   */
+  public IndexAdvisor createIndexAdvisor()
+  {
+    return new IndexAdvisor(this);
+  }
+
+  /**
+   * Use the named codec, discovered as a DocumentCodecFactory service
+   * provider, for the documents of this database.
+   *
+   * Not part of a public API.
+   */
+  public void setCodec(String codecName)
+    throws OracleException
+  {
+    DocumentCodecFactory factory = findCodecFactory(codecName);
+
+    // Collections already opened switch to the new codec too
+    if (localCollectionCache != null)
+      for (OracleCollectionImpl coll : localCollectionCache.values())
+        if ((collectionCodecs == null) ||
+            !collectionCodecs.containsKey(coll.collectionName))
+          checkCodec(coll.collectionName, coll.options, factory);
+
+    codecFactory = factory;
+  }
+
+  /**
+   * Use the named codec for the documents of one collection, overriding
+   * the codec used for the rest of the database.
+   *
+   * Not part of a public API.
+   */
+  public void setCollectionCodec(String collectionName, String codecName)
+    throws OracleException
+  {
+    DocumentCodecFactory factory = findCodecFactory(codecName);
+
+    OracleCollectionImpl coll = (localCollectionCache == null) ? null :
+                                localCollectionCache.get(collectionName);
+    if (coll != null)
+      checkCodec(collectionName, coll.options, factory);
+
+    if (collectionCodecs == null)
+      collectionCodecs = new HashMap<String, DocumentCodecFactory>();
+    collectionCodecs.put(collectionName, factory);
+  }
+
+  private DocumentCodecFactory findCodecFactory(String codecName)
+    throws OracleException
+  {
+    DocumentCodecFactory factory;
+    try
+    {
+      factory = DocumentCodecFactory.newInstance(codecName);
+    }
+    catch (JsonException e)
+    {
+      throw new OracleException(e);
+    }
+
+    if (factory == null)
+      throw SODAUtils.makeException(SODAMessage.EX_CODEC_NOT_FOUND,
+                                    codecName,
+                                    DocumentCodecFactory.getAvailableNames());
+
+    // Codecs with an image format must read and write the one stored
+    // by the database. Those without can only be used for collections
+    // with text content, which is checked as collections are opened.
+    String format = factory.getImageFormat();
+    if ((format != null) && !format.equals(DocumentCodecFactory.OSON_FORMAT))
+      throw SODAUtils.makeException(SODAMessage.EX_CODEC_FORMAT_MISMATCH,
+                                    codecName,
+                                    format,
+                                    DocumentCodecFactory.OSON_FORMAT);
+
+    factory.setFactoryProvider(jProvider);
+    return factory;
+  }
+
+  /**
+   * Check that the codec configured for a collection can read and write
+   * its content, which for binary collections is stored as OSON.
+   */
+  private void checkCodec(String collectionName, CollectionDescriptor desc)
+    throws OracleException
+  {
+    checkCodec(collectionName, desc, getCodecFactory(collectionName));
+  }
+
+  private void checkCodec(String collectionName, CollectionDescriptor desc,
+                          DocumentCodecFactory factory)
+    throws OracleException
+  {
+    if (!desc.hasBinaryFormat() && !desc.hasJsonType())
+      return;
+
+    if (!DocumentCodecFactory.OSON_FORMAT.equals(factory.getImageFormat()))
+      throw SODAUtils.makeException(SODAMessage.EX_CODEC_NOT_BINARY,
+                                    factory.getName(),
+                                    collectionName,
+                                    DocumentCodecFactory.OSON_FORMAT);
+  }
+
   /**
    * Get a list of the names of all collections in the database.
    */
@@ -1381,7 +1715,8 @@ public class OracleDatabaseImpl implements OracleDatabase
     return(new OracleDocumentImpl(key, null, null, content, contentType));
   }
 
-  MetricsCollector getMetrics()
+  /* Not part of a public API */
+  public MetricsCollector getMetrics()
   {
     return(metrics);
   }
@@ -2857,6 +3192,9 @@ public class OracleDatabaseImpl implements OracleDatabase
   */
   private DocumentCodecFactory codecFactory = null;
 
+  // Codec factories configured for particular collections
+  private HashMap<String, DocumentCodecFactory> collectionCodecs = null;
+
   /** ### TODO remove this reflection */
   private Object jsonFactory = null;
 
@@ -2924,6 +3262,24 @@ public class OracleDatabaseImpl implements OracleDatabase
     return codecFactory;
   }
 
+  /**
+   * Get the codec factory for a collection, which is the factory of the
+   * database unless the collection was configured to use another codec.
+   */
+  DocumentCodecFactory getCodecFactory(String collectionName)
+  {
+    if (collectionCodecs != null)
+    {
+      DocumentCodecFactory factory = collectionCodecs.get(collectionName);
+      if (factory != null)
+      {
+        factory.setFactoryProvider(jProvider);
+        return factory;
+      }
+    }
+    return getCodecFactory();
+  }
+
   /**
    * OracleDatabaseAdministrationImpl
    *
@@ -3351,6 +3707,8 @@ public class OracleDatabaseImpl implements OracleDatabase
       return jsonParserToBinary(obj);
     else if (obj instanceof JsonParser)
       return jsonParserToBinary(obj);
+    else if ((obj != null) && ObjectBinder.isBindable(obj.getClass()))
+      return objectToBinary(obj);
     else
       throw SODAUtils.makeException(SODAMessage.EX_INVALID_TYPE_MAPPING,
                                     obj == null ? null : obj.getClass());
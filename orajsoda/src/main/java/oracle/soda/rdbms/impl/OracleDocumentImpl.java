@@ -30,6 +30,7 @@ package oracle.soda.rdbms.impl;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.lang.ref.SoftReference;
@@ -43,6 +44,7 @@ import jakarta.json.JsonValue;
 import jakarta.json.stream.JsonParser;
 import oracle.json.common.DocumentCodec;
 import oracle.json.logging.OracleLog;
+import oracle.json.rdbms.ObjectBinder;
 import oracle.json.util.ByteArray;
 import oracle.json.util.JsonByteArray;
 import oracle.json.util.LimitedInputStream;
@@ -57,17 +59,25 @@ public class OracleDocumentImpl implements OracleDocument
   private static final Logger log =
     Logger.getLogger(OracleDocumentImpl.class.getName());
   
-  private final String docid;
-  private final String tstamp;
-  private final String version;
+  // Not final, so that a flyweight cursor can reuse the document (see reuse())
+  private String docid;
+  private String tstamp;
+  private String version;
  
   private byte[] payload;
 
-  // When payload stores OSON binary, this points to
+  // Renderings of OSON content up to this size are memoized strongly
+  private static final int MAX_MEMOIZED_TEXT = 1024 * 1024;
+
+  // When payload stores OSON binary, these point to
   // its converted textual JSON UTF8 byte array representation.
+  // It's rendered lazily, on the first access to the content. A rendering
+  // up to MAX_MEMOIZED_TEXT is kept for the life of the document; a larger
+  // one is only softly referenced, so that it can be reclaimed.
   //
   // ### Should we use weak reference instead for more aggressive
   // garbage collection?
+  private byte[] payloadText = null;
   private SoftReference<byte[]> payloadRef = null;
 
   private InputStream payloadStream;
@@ -191,6 +201,37 @@ public class OracleDocumentImpl implements OracleDocument
     this(null, null, null, payload, null);
   }
 
+  /**
+   * Reinitialize this document in place with the values of a new row.
+   * Used by the flyweight cursor mode, to avoid allocating a document
+   * for every row fetched. Settings that don't vary from row to row
+   * (the codec, the JSON factory and the binary flag) are retained.
+   */
+  void reuse(String docid,
+             String version,
+             String tstamp,
+             byte[] payload,
+             InputStream payloadStream,
+             String contentType)
+  {
+    this.docid = docid;
+    this.version = version;
+    this.tstamp = tstamp;
+    this.payload = payload;
+    this.payloadStream = payloadStream;
+    this.payloadText = null;
+    this.payloadRef = null;
+    this.creationTime = null;
+    this.ctype = (contentType != null) ? contentType : APPLICATION_JSON;
+
+    if (payload != null)
+      this.len = (long)payload.length;
+    else if (payloadStream instanceof LimitedInputStream)
+      this.len = ((LimitedInputStream)payloadStream).availableLong();
+    else
+      this.len = UNKNOWN_LENGTH;
+  }
+
   public String getKey()
   {
     return(docid);
@@ -242,14 +283,10 @@ public class OracleDocumentImpl implements OracleDocument
   {
     // First check if previously converted JSON byte[] is available already.
     // If so, return it.
-    if (payloadRef != null) {
-      byte[] json = payloadRef.get();
-      if (json != null) {
-        return json;
-      }
-    }
+    byte[] json = getMemoizedText();
+    if (json != null)
+      return json;
 
-    byte[] json = null;
     try
     {
       osonCodec.loadImage(payload);
@@ -260,12 +297,71 @@ public class OracleDocumentImpl implements OracleDocument
       throw SODAUtils.makeException(SODAMessage.EX_FROM_BINARY_CONVERSION_ERROR, e);
     }
 
-    // Cache the converted JSON byte[] for future use by
-    // using a soft refence.
-    payloadRef = new SoftReference<byte[]>(json);
+    // Cache the converted JSON byte[] for future use, by
+    // using a soft reference if it's large.
+    if ((json != null) && (json.length <= MAX_MEMOIZED_TEXT))
+      payloadText = json;
+    else
+      payloadRef = new SoftReference<byte[]>(json);
     return json;
   }
 
+  private byte[] getMemoizedText()
+  {
+    if (payloadText != null)
+      return payloadText;
+    if (payloadRef != null)
+      return payloadRef.get();
+    return null;
+  }
+
+  /**
+   * Write the content to the stream, which is left open. Binary content
+   * that hasn't already been converted is rendered as JSON text straight
+   * into the stream, without an intermediate byte array (and without
+   * being memoized).
+   *
+   * Not part of a public API.
+   */
+  public void writeContentTo(OutputStream out) throws OracleException
+  {
+    try
+    {
+      if (binary && (payload != null) && (payloadStream == null))
+      {
+        byte[] json = getMemoizedText();
+
+        if (json != null)
+        {
+          out.write(json);
+          return;
+        }
+
+        try
+        {
+          osonCodec.loadImage(payload);
+          osonCodec.writeUnicode(out);
+        }
+        catch (RuntimeException e)
+        {
+          throw SODAUtils.makeException(SODAMessage.EX_FROM_BINARY_CONVERSION_ERROR, e);
+        }
+        return;
+      }
+
+      byte[] content = getContentAsByteArray();
+      if (content != null)
+        out.write(content);
+    }
+    catch (IOException e)
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(e.toString());
+      // ### Revisit classification of this exception
+      throw new OracleException(e);
+    }
+  }
+
   // ### Not part of a public API.
   public InputStream getContentAsStream() throws OracleException
   {
@@ -334,11 +430,13 @@ public class OracleDocumentImpl implements OracleDocument
   void setContent(byte[] content)
   {
      payload = content;
+     payloadText = null;
+     payloadRef = null;
   }
 
   void setContent(String content)
   {
-     payload = content.getBytes(ByteArray.DEFAULT_CHARSET);
+     setContent(content.getBytes(ByteArray.DEFAULT_CHARSET));
   }
 
   private boolean isJSON(String ctype)
@@ -463,10 +561,42 @@ public class OracleDocumentImpl implements OracleDocument
     else if ((OracleDatabaseImpl.JAVAX_JSON_PARSE_CLASS != null) &&
               OracleDatabaseImpl.JAVAX_JSON_PARSE_CLASS.isAssignableFrom(type))
       return type.cast(getJavaxJsonParser());
+    // application classes, bound field by field
+    else if (OracleDatabaseImpl.isOracleJsonAvailable() &&
+             ObjectBinder.isBindable(type))
+      return getBoundObject(type);
 
     throw SODAUtils.makeException(SODAMessage.EX_INVALID_TYPE_MAPPING, type);
   }
 
+  private <T> T getBoundObject(Class<T> type) throws OracleException
+  {
+    // Documents created from text may not have a factory
+    Object factory = (jsonFactory != null) ?
+      jsonFactory : new oracle.sql.json.OracleJsonFactory();
+    byte[] content = isBinary() ? getBinaryContentAsByteArray() :
+                                  getContentAsByteArray();
+    if (content == null)
+      return null;
+
+    oracle.sql.json.OracleJsonParser parser = (oracle.sql.json.OracleJsonParser)
+      (isBinary() ? OracleDatabaseImpl.createBinaryParser(content, factory) :
+                    OracleDatabaseImpl.createTextParser(content, factory));
+    try
+    {
+      return ObjectBinder.read(parser, type);
+    }
+    catch (RuntimeException e)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_OBJECT_BINDING_ERROR, e,
+                                    type.getName());
+    }
+    finally
+    {
+      parser.close();
+    }
+  }
+
   private JsonValue getJakartaJsonValue() throws OracleException {
     if (isBinary()) {
       return OracleDatabaseImpl.binaryToJsonValue(getBinaryContentAsByteArray(), jsonFactory);
@@ -26,6 +26,7 @@ import jakarta.json.JsonObject;
 import jakarta.json.JsonValue;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.CallableStatement;
 import java.sql.Clob;
 import java.sql.Connection;
@@ -35,21 +36,26 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.logging.Logger;
 import oracle.json.util.ByteArray;
 
 import oracle.json.common.JsonFactoryProvider;
 import oracle.json.common.MetricsCollector;
+import oracle.json.common.CodecPool;
 import oracle.json.common.DocumentCodec;
 import oracle.json.logging.OracleLog;
 import oracle.json.parser.AndORTree;
+import oracle.json.parser.JsonQueryPath;
 import oracle.json.parser.ProjectionSpec;
 import oracle.json.parser.QueryException;
+import oracle.json.parser.QueryShape;
 import oracle.json.parser.ValueTypePair;
 import oracle.json.util.ComponentTime;
 import oracle.json.util.JsonByteArray;
@@ -114,6 +120,13 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
 
   private int firstRows;
 
+  // Bound of countUpTo(), and sample size of countApprox()
+  private long countLimit;
+  private double samplePercent;
+
+  // Paths of getFields()
+  private List<JsonQueryPath> fieldPaths = null;
+
   private ProjectionSpec proj = null;
   private String projString = null;
   private boolean skipProjErrors = true;
@@ -142,9 +155,20 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     PATCH_ONE,
     PATCH_ONE_AND_GET,
     PATCH,
-    EXPLAIN_PLAN
+    EXPLAIN_PLAN,
+    GET_KEYS,
+    COUNT_UP_TO,
+    COUNT_SAMPLE,
+    GET_FIELDS
   };
 
+  // Sample size of countApprox(), as a percentage of the blocks
+  private static final double DEFAULT_SAMPLE_PERCENT = 1.0;
+
+  // A sampled count below this is retried with a 10 times larger
+  // sample, since its confidence interval would be too wide
+  private static final long MIN_SAMPLED_ROWS = 100L;
+
   // Stores the value of the new version (unless it's sequential,
   // or none) computed in bindUpdate for a replace operation.
   // Sequential or none come from the database, and thus
@@ -172,6 +196,14 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
   private String   newKey = null;
   private String[] dockeySteps = null;
 
+  // If true, the cursor reuses a single document for all rows
+  private boolean flyweight = false;
+
+  // Inclusive ROWID bounds restricting the operation to one chunk
+  // of the underlying table (used by the parallel collection scan).
+  private String rowidLow = null;
+  private String rowidHigh = null;
+
   OracleOperationBuilderImpl(OracleCollectionImpl collection,
                              Connection connection)
   {
@@ -569,6 +601,7 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     try
     {
       tree = AndORTree.createTree(jsonObj, collection.getStrictMode(), options.isDualityView());
+      tree.setCanonicalBinds(collection.db.getCanonicalBinds());
       tree.generateJsonExists();
     }
     catch (QueryException e)
@@ -782,6 +815,19 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
 
     long prepAndExecTime = metrics.endTiming();
 
+    OracleCursorImpl cursor = createCursor(operation, resultSet);
+
+    cursor.setElapsedTime(prepAndExecTime);
+
+    return (cursor);
+  }
+
+  // Creates the cursor over the result set of the getCursor() read,
+  // whether it was run on its own or as part of a QueryBatch
+  private OracleCursorImpl createCursor(Operation operation,
+                                        ResultSet resultSet)
+    throws OracleException
+  {
     boolean isModify = (selectPatchedDoc || selectMergedDoc);
 
     OracleCursorImpl cursor =
@@ -794,7 +840,17 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
                            isModify,
                            eJSON);
 
-    cursor.setElapsedTime(prepAndExecTime);
+    cursor.setQueryStatistics(getQueryStatistics());
+
+    if (flyweight)
+      cursor.setFlyweight(true);
+
+    // Adapt the fetch size, unless it was set explicitly, reduced
+    // to the limit, or this is a single row fetch
+    if ((prefetch == 0) && !operation.isSingleKeyBased() &&
+        (autoFirstRows(Terminal.GET_CURSOR) < 0))
+      cursor.setFetchMemoryBudget(collection.db.getFetchMemoryBudget(),
+                                  SODAConstants.ADAPTIVE_INITIAL_FETCH_SIZE);
 
     // This seems to be the only place where a return query makes sense
     if (return_query)
@@ -806,6 +862,284 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     return (cursor);
   }
 
+  /* Not part of a public API */
+  // Generates the SQL of the getCursor() operation, to be
+  // run as one of the queries of a QueryBatch.
+  String generateBatchQuery() throws OracleException
+  {
+    collection.checkJDBCVersion();
+    String sqltext = generateSQL(Terminal.GET_CURSOR);
+
+    if (return_query)
+      beginQueryRecord(sqltext);
+
+    if (tree != null)
+      collection.db.recordSqlShape(sqltext);
+
+    return sqltext;
+  }
+
+  /* Not part of a public API */
+  // Binds the parameters of the batched query after parameterIndex,
+  // returning the last index bound.
+  int bindBatchQuery(PreparedStatement stmt, int parameterIndex)
+    throws SQLException, OracleException
+  {
+    return bindParameters(stmt, parameterIndex, Terminal.GET_CURSOR, null);
+  }
+
+  /* Not part of a public API */
+  // Creates the cursor over the result set of a batched query,
+  // set up as getCursor() would. The statement is owned by the
+  // batch, so the cursor only closes the result set.
+  OracleCursorImpl createBatchCursor(String sqltext, ResultSet resultSet)
+    throws SQLException, OracleException
+  {
+    boolean isSingleKey = ((key != null) && !isStartKey);
+
+    if (autoFirstRows(Terminal.GET_CURSOR) > 0)
+      metrics.recordAutoFirstRows();
+
+    if (!isSingleKey)
+      resultSet.setFetchSize(readFetchSize(Terminal.GET_CURSOR));
+
+    Operation operation = new Operation(null,
+                                        sqltext,
+                                        headerOnly,
+                                        (filterSpec != null),
+                                        isSingleKey,
+                                        -1,
+                                        collection);
+
+    return createCursor(operation, resultSet);
+  }
+
+  OracleCollectionImpl getCollection()
+  {
+    return collection;
+  }
+
+  /* Not part of a public API */
+  // Returns a publisher of the documents matching this operation,
+  // reading them on a shared, bounded executor as subscribers
+  // signal demand.
+  public DocumentPublisher publisher()
+  {
+    return publisher(null);
+  }
+
+  /* Not part of a public API */
+  // Same as publisher(), reading the documents on the given executor.
+  public DocumentPublisher publisher(Executor executor)
+  {
+    return new DocumentPublisher(this, collection.db, executor);
+  }
+
+  /* Not part of a public API */
+  // Keys-only terminal. Returns the keys of the matching documents
+  // in batches of (at most) batchSize, without building documents.
+  // Keys of RAW key columns are returned as uppercase hex strings,
+  // NUMBER keys as their canonical string form.
+  public CollectionAggregationImpl.CloseableIterator<String[]> getKeys(int batchSize)
+    throws OracleException
+  {
+    final boolean rawKey = (options.keyDataType == CollectionDescriptor.RAW_KEY);
+
+    return getKeys(batchSize, new KeyBatchFactory<String[]>() {
+      public KeyBatchCursor<String[]> create(Operation operation,
+                                            ResultSet resultSet,
+                                            int size)
+      {
+        return new KeyBatchCursor<String[]>(operation, resultSet, metrics, size)
+        {
+          String[] newBatch(int n) { return new String[n]; }
+
+          void readKey(ResultSet rows, String[] batch, int pos)
+            throws SQLException
+          {
+            if (rawKey)
+            {
+              byte[] raw = rows.getBytes(1);
+              batch[pos] = (raw == null) ? null : ByteArray.rawToHex(raw);
+            }
+            else
+            {
+              batch[pos] = rows.getString(1);
+            }
+          }
+
+          String[] trim(String[] batch, int n) { return Arrays.copyOf(batch, n); }
+        };
+      }
+    });
+  }
+
+  /* Not part of a public API */
+  // Keys-only terminal for collections with RAW keys, returning
+  // the key bytes as fetched (no hex conversion).
+  public CollectionAggregationImpl.CloseableIterator<byte[][]> getRawKeys(int batchSize)
+    throws OracleException
+  {
+    if (options.keyDataType != CollectionDescriptor.RAW_KEY)
+      throw SODAUtils.makeException(SODAMessage.EX_KEY_TYPE_NOT_RAW,
+                                    collection.collectionName);
+
+    return getKeys(batchSize, new KeyBatchFactory<byte[][]>() {
+      public KeyBatchCursor<byte[][]> create(Operation operation,
+                                            ResultSet resultSet,
+                                            int size)
+      {
+        return new KeyBatchCursor<byte[][]>(operation, resultSet, metrics, size)
+        {
+          byte[][] newBatch(int n) { return new byte[n][]; }
+
+          void readKey(ResultSet rows, byte[][] batch, int pos)
+            throws SQLException
+          {
+            batch[pos] = rows.getBytes(1);
+          }
+
+          byte[][] trim(byte[][] batch, int n) { return Arrays.copyOf(batch, n); }
+        };
+      }
+    });
+  }
+
+  /* Not part of a public API */
+  // Fields-only terminal. Returns a tuple (Object[]) per matching
+  // document, with the scalar values at the given paths, in order.
+  // The paths are compiled into the columns of a JSON_TABLE, so the
+  // documents are neither built nor transferred. Numbers are returned
+  // as BigDecimals, booleans as Booleans, and other scalars as
+  // Strings; missing, null, and non-scalar values as null.
+  public CollectionAggregationImpl.CloseableIterator<Object[]> getFields(String... paths)
+    throws OracleException
+  {
+    if ((paths == null) || (paths.length == 0))
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_CANNOT_BE_NULL,
+                                    "paths");
+    }
+    else if (lockRows)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_INCOMPATIBLE_METHODS, "lock()", "getFields()");
+    }
+    else if (asOfScn != null)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_INCOMPATIBLE_METHODS, "asOfScn()", "getFields()");
+    }
+    else if (asOfTimestamp != null)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_INCOMPATIBLE_METHODS, "asOfTimestamp()", "getFields()");
+    }
+
+    List<JsonQueryPath> jqpaths = new ArrayList<JsonQueryPath>(paths.length);
+
+    for (String path : paths)
+    {
+      if (path == null)
+        throw SODAUtils.makeException(SODAMessage.EX_NULL_PATH);
+
+      JsonQueryPath jqpath;
+
+      try
+      {
+        jqpath = new JsonQueryPath(path);
+      }
+      catch (QueryException e)
+      {
+        throw SODAUtils.makeException(SODAMessage.EX_NULL_PATH, e);
+      }
+
+      if (jqpath.hasArraySteps())
+        throw SODAUtils.makeException(SODAMessage.EX_FIELD_PATH_CONTAINS_ARRAY_STEP,
+                                      path);
+
+      jqpaths.add(jqpath);
+    }
+
+    fieldPaths = jqpaths;
+
+    Operation operation = generateOperation(Terminal.GET_FIELDS);
+
+    int fetchSize;
+
+    try
+    {
+      // Tuples are small, so don't start with the adaptive fetch size
+      if ((prefetch == 0) && (autoFirstRows(Terminal.GET_FIELDS) < 0))
+        operation.getPreparedStatement().setFetchSize(
+          SODAConstants.BATCH_FETCH_SIZE);
+      fetchSize = operation.getPreparedStatement().getFetchSize();
+    }
+    catch (SQLException e)
+    {
+      for (String message : SODAUtils.closeCursor(operation.getStatement(), null))
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(message);
+      }
+      throw SODAUtils.makeExceptionWithSQLText(e, operation.getSqlText());
+    }
+
+    ResultSet resultSet = getResultSet(operation);
+
+    long prepAndExecTime = metrics.endTiming();
+
+    FieldCursor cursor = new FieldCursor(operation, resultSet, metrics,
+                                         jqpaths.size(), fetchSize);
+    cursor.setElapsedTime(prepAndExecTime);
+
+    return cursor;
+  }
+
+  private interface KeyBatchFactory<T>
+  {
+    KeyBatchCursor<T> create(Operation operation, ResultSet resultSet, int size);
+  }
+
+  private <T> KeyBatchCursor<T> getKeys(int batchSize, KeyBatchFactory<T> factory)
+    throws OracleException
+  {
+    if (batchSize < 1)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_MUST_BE_POSITIVE,
+                                    "batchSize");
+    }
+    else if (lockRows)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_INCOMPATIBLE_METHODS, "lock()", "getKeys()");
+    }
+
+    Operation operation = generateOperation(Terminal.GET_KEYS);
+
+    try
+    {
+      // Keys are small, so fetch at least a full batch per round trip
+      operation.getPreparedStatement().setFetchSize(
+        Math.min(Math.max(batchSize, SODAConstants.BATCH_FETCH_SIZE),
+                 SODAConstants.ADAPTIVE_MAX_FETCH_SIZE));
+    }
+    catch (SQLException e)
+    {
+      for (String message : SODAUtils.closeCursor(operation.getStatement(), null))
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(message);
+      }
+      throw SODAUtils.makeExceptionWithSQLText(e, operation.getSqlText());
+    }
+
+    ResultSet resultSet = getResultSet(operation);
+
+    long prepAndExecTime = metrics.endTiming();
+
+    KeyBatchCursor<T> cursor = factory.create(operation, resultSet, batchSize);
+    cursor.setElapsedTime(prepAndExecTime);
+
+    return cursor;
+  }
+
   // Common checks performed by various patch methods
   private void specChecks(OracleDocument spec, String specType)
     throws OracleException
@@ -847,18 +1181,26 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
   private void extractKeyWithErrorOnMissing(OracleDocument document) throws OracleException
   {
     if (options.hasVarcharEmbeddedID()) {
-      DocumentCodec keyProcessor = collection.getDatabase().getCodecFactory().getCodec();
-      
-      if (dockeySteps == null)
-        dockeySteps = collection.initializeDocumentKeySteps();
-      keyProcessor.setKeyPath(dockeySteps);
+      CodecPool codecs = collection.getCodecFactory().getCodecPool();
+      DocumentCodec<?> keyProcessor = codecs.acquire();
       
       String extractedKey = null;
+
+      try
+      {
+        if (dockeySteps == null)
+          dockeySteps = collection.initializeDocumentKeySteps();
+        keyProcessor.setKeyPath(dockeySteps);
       
-      if (eJSON)
-        extractedKey = collection.extractKeyForEmbeddedIdEJSONCollections(document, null, eJSON);
-      else 
-        extractedKey = collection.extractKeyForEmbeddedIdCollections(keyProcessor, document, eJSON, null, false);
+        if (eJSON)
+          extractedKey = collection.extractKeyForEmbeddedIdEJSONCollections(document, null, eJSON);
+        else 
+          extractedKey = collection.extractKeyForEmbeddedIdCollections(keyProcessor, document, eJSON, null, false);
+      }
+      finally
+      {
+        codecs.release(keyProcessor);
+      }
       
       if (extractedKey == null)
         throw SODAUtils.makeException(SODAMessage.EX_ID_MISSING_IN_REPLACE_OP);
@@ -1632,62 +1974,155 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
                                       OracleDocument document)
     throws OracleException
   {
-    StringBuilder sb = new StringBuilder();
+    String sqltext = generateSQL(terminal);
 
-    // Make this a callable statement for non-Oracle drivers
-    if (returningClause(terminal) && collection.useCallableReturns)
-      sb.append("begin\n");
+    PreparedStatement stmt  = null;
+    CallableStatement cstmt = null;
 
-    if (terminal == Terminal.REMOVE)
-    {
-      return_query = false;
-      generateRemove(sb);
-    }
-    else if (isReplaceOrMergeOrPatch(terminal))
-    {
-      return_query = false;
-      generateUpdate(sb, terminal);
-    }
-    else
+    try
     {
-      if (terminal != Terminal.GET_CURSOR || selectStageOfPatch())
-      {
-        // ### It would also be good to support non-cursor based
-        //     operations, such as getOne(). However, we would
-        //     need to provide the ability to fetch the SQL
-        //     from OracleOperationBuilder (i.e. getLastSQLStatement(...)),
-        //     instead of OracleCursor.
-        return_query = false;
-      }
+      if (return_query)
+        beginQueryRecord(sqltext);
 
-      if (paginationWorkaround(terminal))
-      {
-        generatePaginationWorkaround(sb, terminal);
-      }
+      if (tree != null)
+        collection.db.recordSqlShape(sqltext);
+
+      if (OracleLog.isLoggingEnabled())
+        log.fine("Query:\n" + sqltext);
+
+      metrics.startTiming();
+
+      if (returningClause(terminal) && collection.useCallableReturns)
+        stmt = cstmt = connection.prepareCall(sqltext);
       else
+        stmt = connection.prepareStatement(sqltext);
+
+      int parameterIndex = bindParameters(stmt, 0, terminal, document);
+      int returnParameterIndex = -1;
+      if (returningClause(terminal))
       {
-        generateSelect(sb, terminal);
+        if (collection.useCallableReturns)
+        {
+          returnParameterIndex = parameterIndex;
+          parameterIndex = bindReturning(cstmt, parameterIndex);
+        }
+        else
+        {
+          parameterIndex = bindReturning(stmt, parameterIndex);
+        }
       }
-    }
 
-    if (flashback(terminal))
-      generateFlashback(sb);
+      boolean isSingleKey = ((key != null) && !isStartKey);
 
-    int numOfFilterSpecKeys = 0;
+      if ((autoFirstRows(terminal) > 0) && (terminal != Terminal.EXPLAIN_PLAN))
+        metrics.recordAutoFirstRows();
 
-    if (filterSpec != null)
-    {
-      if (tree == null)
+      // If it's not a count() or a write operation,
+      // reduce round trips associated with fetching.
+      if (!countOrWrite(terminal))
       {
-        throw new IllegalStateException();
-      }
+        // If it's not a single row operation, set array fetch size
+        if (!isSingleKey)
+        {
+          long budget = collection.db.getFetchMemoryBudget();
 
-      numOfFilterSpecKeys = getNumberOfFilterSpecKeys();
-    }
+          stmt.setFetchSize(readFetchSize(terminal));
 
-    generateWhere(sb, write(terminal));
+          if (rowDataLimit > 0)
+            ((oracle.jdbc.internal.OracleStatement)stmt).setRowDataLimit(rowDataLimit);
+          else if (budget > 0L)
+            ((oracle.jdbc.internal.OracleStatement)stmt).setRowDataLimit(budget);
+        }
+        // Prefetch LOB data with the row(s)
+        collection.db.setLobPrefetchSize(stmt);
+      }
 
-    if (!countOrWrite(terminal) && !selectStageOfPatch())
+      Operation operation = null;
+      boolean isFilterSpec = (filterSpec != null);
+
+      operation = new Operation(stmt,
+                                sqltext,
+                                headerOnly,
+                                isFilterSpec,
+                                isSingleKey,
+                                returnParameterIndex,
+                                collection);
+
+      stmt = null;
+
+      return operation;
+    }
+    catch (SQLException e)
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(e.toString() + "\n" + sqltext);
+      throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+    }
+    finally
+    {
+      for (String message : SODAUtils.closeCursor(stmt, null))
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(message);
+      }
+    }
+  }
+
+  /**
+   * Generates the SQL for a SODA operation
+   */
+  private String generateSQL(Terminal terminal)
+    throws OracleException
+  {
+    StringBuilder sb = new StringBuilder();
+
+    // Make this a callable statement for non-Oracle drivers
+    if (returningClause(terminal) && collection.useCallableReturns)
+      sb.append("begin\n");
+
+    if (terminal == Terminal.REMOVE)
+    {
+      return_query = false;
+      generateRemove(sb);
+    }
+    else if (isReplaceOrMergeOrPatch(terminal))
+    {
+      return_query = false;
+      generateUpdate(sb, terminal);
+    }
+    else
+    {
+      if (terminal != Terminal.GET_CURSOR || selectStageOfPatch())
+      {
+        // ### It would also be good to support non-cursor based
+        //     operations, such as getOne(). However, we would
+        //     need to provide the ability to fetch the SQL
+        //     from OracleOperationBuilder (i.e. getLastSQLStatement(...)),
+        //     instead of OracleCursor.
+        return_query = false;
+      }
+
+      if (paginationWorkaround(terminal))
+      {
+        generatePaginationWorkaround(sb, terminal);
+      }
+      else
+      {
+        generateSelect(sb, terminal);
+      }
+    }
+
+    if (flashback(terminal))
+      generateFlashback(sb);
+
+    if ((filterSpec != null) && (tree == null))
+    {
+      throw new IllegalStateException();
+    }
+
+    generateWhere(sb, write(terminal));
+
+    if (!countOrWrite(terminal) && !selectStageOfPatch())
     {
       boolean filterSpecOrderByPresent = false;
 
@@ -1715,6 +2150,13 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
       if (lockRows) sb.append(" for update");
     }
 
+    if (terminal == Terminal.COUNT_UP_TO)
+    {
+      sb.append(" fetch first ");
+      sb.append(countLimit);
+      sb.append(" rows only)");
+    }
+
     if (returningClause(terminal))
     {
       generateReturning(sb);
@@ -1724,182 +2166,111 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     if (returningClause(terminal) && collection.useCallableReturns)
       sb.append(";\nend;\n");
 
-    PreparedStatement stmt  = null;
-    CallableStatement cstmt = null;
-
-    String sqltext = sb.toString();
+    return sb.toString();
+  }
 
-    try
+  /**
+   * Binds the parameters of the SQL generated for a SODA operation,
+   * starting after parameterIndex. Returns the last parameter index
+   * bound.
+   */
+  private int bindParameters(PreparedStatement stmt, int parameterIndex,
+                             Terminal terminal, OracleDocument document)
+    throws SQLException, OracleException
+  {
+    // Binds new values for a replace statement
+    // (e.g. new content, version, etc).
+    if (isReplaceOrMergeOrPatch(terminal))
     {
-      if (return_query)
-        beginQueryRecord(sqltext);
-
-      if (OracleLog.isLoggingEnabled())
-        log.fine("Query:\n" + sqltext);
-
-      metrics.startTiming();
-
-      if (returningClause(terminal) && collection.useCallableReturns)
-        stmt = cstmt = connection.prepareCall(sqltext);
-      else
-        stmt = connection.prepareStatement(sqltext);
-
-      int parameterIndex = 0;
-
-      // Binds new values for a replace statement
-      // (e.g. new content, version, etc).
-      if (isReplaceOrMergeOrPatch(terminal))
-      {
-        parameterIndex = bindUpdate(stmt, document, terminal);
-      }
+      parameterIndex = bindUpdate(stmt, document, terminal);
+    }
+    if (selectPatchedDoc) 
+    {
+      stmt.setString(++parameterIndex, patchSpec.getContentAsString());
+    }
+    else if (selectMergedDoc)
+    {
+      parameterIndex = bindMergePatch(stmt, parameterIndex);
+    }
+    // If this is a projection based on REDACT, bind the redaction spec
+    else if (projection(terminal))
+    {
+      stmt.setString(++parameterIndex, projString);
+    }
+    if (flashback(terminal))
+    {
+      parameterIndex = bindFlashback(stmt, parameterIndex);
+    }
 
-      if (selectPatchedDoc) 
-      {
-        stmt.setString(++parameterIndex, patchSpec.getContentAsString());
-      }
-      else if (selectMergedDoc)
-      {
-        parameterIndex = bindMergePatch(stmt, parameterIndex);
-      }
-      // If this is a projection based on REDACT, bind the redaction spec
-      else if (projection(terminal))
-      {
-        stmt.setString(++parameterIndex, projString);
-      }
+    Iterator<String> keysIter = null;
 
-      if (flashback(terminal))
-      {
-        parameterIndex = bindFlashback(stmt, parameterIndex);
-      }
-
-      Iterator<String> keysIter = null;
+    if (key != null && !(isStartKey && write(terminal)))
+    {
+      String canonicalKey = collection.canonicalKey(key);
 
-      if (key != null && !(isStartKey && write(terminal)))
-      {
-        String canonicalKey = collection.canonicalKey(key);
+      ((TableCollectionImpl)collection)
+          .bindKeyColumn(stmt, ++parameterIndex, canonicalKey);
+      if (return_query)
+        recordNamedBind("key", canonicalKey);
+    }
+    else if (likePattern != null)
+    {
+      ((TableCollectionImpl)collection)
+          .bindKeyColumn(stmt, ++parameterIndex, likePattern);
 
-        ((TableCollectionImpl)collection)
-            .bindKeyColumn(stmt, ++parameterIndex, canonicalKey);
-        if (return_query)
-          recordNamedBind("key", canonicalKey);
-      }
-      else if (likePattern != null)
+      if (likeEscape != null)
       {
         ((TableCollectionImpl)collection)
-            .bindKeyColumn(stmt, ++parameterIndex, likePattern);
-
-        if (likeEscape != null)
-        {
-          ((TableCollectionImpl)collection)
-              .bindKeyColumn(stmt, ++parameterIndex, likeEscape);
-        }
-      }
-      else if (keys != null)
-      {
-        keysIter = keys.iterator();
-        bindKeys(keysIter, stmt, keys.size(), parameterIndex);
-
-        parameterIndex += keys.size();
-      }
-
-      // Bind $id part of the filterSpec
-      if ((numOfFilterSpecKeys > 0) && !skipFilterKeys)
-      {
-        HashSet<String> keysFromFilterSpec = tree.getKeys();
-        int numKeys = keysFromFilterSpec.size();
-        HashSet<String> canonicalKeysFromFilterSpec = new HashSet<String>(numKeys);
-
-        for (String k : keysFromFilterSpec)
-          canonicalKeysFromFilterSpec.add(collection.canonicalKey(k));
-
-        bindKeys(canonicalKeysFromFilterSpec.iterator(),
-                 stmt,
-                 numKeys,
-                 parameterIndex);
-        parameterIndex += numKeys;
-      }
-
-      parameterIndex = setStartAndEndTime(stmt, parameterIndex);
-      parameterIndex = setVersionAndLastModified(stmt, parameterIndex);
-      BiFunction<String, ValueTypePair, Void> callback = null;
-      if (return_query) 
-      {
-        callback = new BiFunction<String, ValueTypePair, Void>() {
-          @Override
-          public Void apply(String name, ValueTypePair value) {
-            recordJsonValueBind(name, value);
-            return null;
-          }
-        };
-      }
-      if (tree != null) 
-      {
-        parameterIndex = tree.bind(stmt, parameterIndex, callback);
+            .bindKeyColumn(stmt, ++parameterIndex, likeEscape);
       }
-      int returnParameterIndex = -1;
-      if (returningClause(terminal))
-      {
-        if (collection.useCallableReturns)
-        {
-          returnParameterIndex = parameterIndex;
-          parameterIndex = bindReturning(cstmt, parameterIndex);
-        }
-        else
-        {
-          parameterIndex = bindReturning(stmt, parameterIndex);
-        }
-      }
-
-      boolean isSingleKey = ((key != null) && !isStartKey);
-
-      // If it's not a count() or a write operation,
-      // reduce round trips associated with fetching.
-      if (!countOrWrite(terminal))
-      {
-        // If it's not a single row operation, set array fetch size
-        if (!isSingleKey)
-        {
-          if (prefetch > 0)
-            stmt.setFetchSize(Math.min(prefetch, SODAConstants.BATCH_FETCH_SIZE));
-          else
-            stmt.setFetchSize(SODAConstants.BATCH_FETCH_SIZE);
-
-          if (rowDataLimit > 0)
-            ((oracle.jdbc.internal.OracleStatement)stmt).setRowDataLimit(rowDataLimit);
-        }
-        // Prefetch LOB data with the row(s)
-        collection.db.setLobPrefetchSize(stmt);
-      }
-
-      Operation operation = null;
-      boolean isFilterSpec = (filterSpec != null);
+    }
+    else if (keys != null)
+    {
+      keysIter = keys.iterator();
+      bindKeys(keysIter, stmt, keys.size(), parameterIndex);
+      parameterIndex += keys.size();
+    }
 
-      operation = new Operation(stmt,
-                                sqltext,
-                                headerOnly,
-                                isFilterSpec,
-                                isSingleKey,
-                                returnParameterIndex,
-                                collection);
+    // Bind $id part of the filterSpec
+    int numOfFilterSpecKeys = getNumberOfFilterSpecKeys();
+    if ((numOfFilterSpecKeys > 0) && !skipFilterKeys)
+    {
+      HashSet<String> keysFromFilterSpec = tree.getKeys();
+      int numKeys = keysFromFilterSpec.size();
+      HashSet<String> canonicalKeysFromFilterSpec = new HashSet<String>(numKeys);
 
-      stmt = null;
+      for (String k : keysFromFilterSpec)
+        canonicalKeysFromFilterSpec.add(collection.canonicalKey(k));
+      bindKeys(canonicalKeysFromFilterSpec.iterator(),
+               stmt,
+               numKeys,
+               parameterIndex);
+      parameterIndex += numKeys;
+    }
 
-      return operation;
+    parameterIndex = setStartAndEndTime(stmt, parameterIndex);
+    parameterIndex = setVersionAndLastModified(stmt, parameterIndex);
+    if (rowidLow != null)
+    {
+      stmt.setString(++parameterIndex, rowidLow);
+      stmt.setString(++parameterIndex, rowidHigh);
     }
-    catch (SQLException e)
+    BiFunction<String, ValueTypePair, Void> callback = null;
+    if (return_query) 
     {
-      if (OracleLog.isLoggingEnabled())
-        log.severe(e.toString() + "\n" + sqltext);
-      throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+      callback = new BiFunction<String, ValueTypePair, Void>() {
+        @Override
+        public Void apply(String name, ValueTypePair value) {
+          recordJsonValueBind(name, value);
+          return null;
+        }
+      };
     }
-    finally
+    if (tree != null) 
     {
-      for (String message : SODAUtils.closeCursor(stmt, null))
-      {
-        if (OracleLog.isLoggingEnabled())
-          log.severe(message);
-      }
+      parameterIndex = tree.bind(stmt, parameterIndex, callback);
     }
+    return parameterIndex;
   }
 
   private int bindMergePatch(PreparedStatement stmt, int parameterIndex) throws SQLException, OracleException {
@@ -1909,7 +2280,6 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
   }
 
 
-
   private int setVersionAndLastModified(PreparedStatement stmt,
                                         int parameterIndex)
     throws SQLException
@@ -2422,9 +2792,11 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     /* 
      * Typical soda usecase is for operational cases where a single access
      * does not return much data to the application.  Therefore, optimize for
-     * response time.  
+     * response time.  Unless the collection opted out, the hint is added
+     * by autoFirstRows() instead, for the reads it applies to.
      */
-    firstRowsHint(limit);
+    if (!collection.db.isAutoFirstRows(collection.collectionName))
+      firstRowsHint(limit);
     if (limit < 1)
     {
       throw SODAUtils.makeException(SODAMessage.EX_ARG_MUST_BE_POSITIVE,
@@ -2496,7 +2868,7 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
   /* Not part of a public API */
   public OracleOperationBuilder rowDataLimit(long rowDataLimit) throws OracleException
   {
-    if (prefetch < 0L)
+    if (rowDataLimit < 0L)
     {
       throw SODAUtils.makeException(SODAMessage.EX_ARG_MUST_BE_NON_NEGATIVE,
                                     "rowDataLimit");
@@ -2505,6 +2877,37 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     return this;
   }
 
+  /* Not part of a public API */
+  // Return a cursor that reuses one document object for all
+  // rows, rather than allocating one per row. Only the document
+  // object is saved: the key, version, timestamp and content of
+  // each row are still allocated. Each document returned by the
+  // cursor is overwritten by the following call to next(), so it
+  // must be consumed (or copied) before then. hasNext() doesn't
+  // overwrite it.
+  public OracleOperationBuilder flyweight()
+  {
+    this.flyweight = true;
+    return this;
+  }
+
+  /* Not part of a public API */
+  // Restrict the operation to rows whose ROWIDs fall within
+  // the given (inclusive) range. The bounds are the external
+  // (character) representation of the ROWIDs.
+  public OracleOperationBuilder rowidRange(String low, String high)
+    throws OracleException
+  {
+    if (low == null)
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_CANNOT_BE_NULL, "low");
+    if (high == null)
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_CANNOT_BE_NULL, "high");
+
+    this.rowidLow = low;
+    this.rowidHigh = high;
+    return this;
+  }
+
   /* Not part of a public API */
   // ### It would be better to provide the plan via logging instead.
   //     Remove this method once that's done.
@@ -2566,6 +2969,72 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
   }
 
   public long count() throws OracleException
+  {
+    countChecks("count()");
+    return executeCount(Terminal.COUNT);
+  }
+
+  /* Not part of a public API */
+  // Counts the matching documents, but stops counting at maxCount.
+  // A result of maxCount means "at least maxCount".
+  public long countUpTo(long maxCount) throws OracleException
+  {
+    if (maxCount < 1L)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_MUST_BE_POSITIVE,
+                                    "maxCount");
+    }
+    countChecks("countUpTo()");
+
+    countLimit = maxCount;
+    return executeCount(Terminal.COUNT_UP_TO);
+  }
+
+  /* Not part of a public API */
+  // Estimates the number of matching documents by counting them in
+  // a 1% sample of the collection's blocks.
+  public ApproximateCount countApprox() throws OracleException
+  {
+    return countApprox(DEFAULT_SAMPLE_PERCENT);
+  }
+
+  /* Not part of a public API */
+  // Estimates the number of matching documents by counting them in a
+  // sample of the given percentage of the collection's blocks. Samples
+  // that find too few rows for a useful estimate are retried with a
+  // 10 times larger sample, ending with an exact count. Views, and
+  // flashback queries, are always counted exactly.
+  public ApproximateCount countApprox(double samplePercent) throws OracleException
+  {
+    if (!(samplePercent > 0.0) || samplePercent > 100.0)
+    {
+      throw SODAUtils.makeException(SODAMessage.EX_INVALID_ARG_VALUE,
+                                    Double.toString(samplePercent));
+    }
+    countChecks("countApprox()");
+
+    if (options.dbObjectType == CollectionDescriptor.DBOBJECT_TABLE &&
+        asOfScn == null && asOfTimestamp == null)
+    {
+      // SAMPLE takes a percentage in [0.000001, 100)
+      double percent = Math.max(samplePercent, 0.000001);
+
+      while (percent < 100.0)
+      {
+        this.samplePercent = percent;
+        long sampled = executeCount(Terminal.COUNT_SAMPLE);
+
+        if (sampled >= MIN_SAMPLED_ROWS)
+          return ApproximateCount.fromSample(sampled, percent);
+
+        percent *= 10.0;
+      }
+    }
+
+    return ApproximateCount.exact(executeCount(Terminal.COUNT));
+  }
+
+  private void countChecks(String method) throws OracleException
   {
     if (skip > 0L || limit > 0)
     {
@@ -2573,10 +3042,33 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     }
     else if (lockRows)
     {
-      throw SODAUtils.makeException(SODAMessage.EX_INCOMPATIBLE_METHODS, "lock()", "count()");
+      throw SODAUtils.makeException(SODAMessage.EX_INCOMPATIBLE_METHODS, "lock()", method);
     }
+  }
 
-    Operation operation = generateOperation(Terminal.COUNT);
+  /**
+   * Returns the statistics entry of the shape of the filter, if
+   * query statistics are being recorded, null otherwise.
+   */
+  private QueryStatistics.Entry getQueryStatistics()
+    throws OracleException
+  {
+    QueryStatistics stats = collection.db.getQueryStatistics();
+    if ((stats == null) || (tree == null))
+      return null;
+
+    QueryStatistics.Entry entry =
+      stats.getEntry(collection.collectionName, QueryShape.create(tree));
+
+    if ((entry != null) && !entry.hasSampleFilter())
+      entry.setSampleFilter(filterSpec.getContentAsString());
+
+    return entry;
+  }
+
+  private long executeCount(Terminal terminal) throws OracleException
+  {
+    Operation operation = generateOperation(terminal);
 
     long result = 0L;
 
@@ -2595,6 +3087,10 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
       stmt.close();
       stmt = null;
 
+      QueryStatistics.Entry queryStats = getQueryStatistics();
+      if (queryStats != null)
+        queryStats.record(metrics.endTiming(), 1L);
+
       metrics.recordReads(1, 1);
     }
     catch (SQLException e)
@@ -2635,6 +3131,7 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
                            eJSON);
 
     cursor.setElapsedTime(prepAndExecTime);
+    cursor.setQueryStatistics(getQueryStatistics());
 
     OracleDocument doc = null;
 
@@ -2926,6 +3423,14 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
       append = true;
     }
 
+    if (rowidLow != null)
+    {
+      appendAnd(sb, append);
+
+      sb.append(" ( ROWID between chartorowid(?) and chartorowid(?) ) ");
+      append = true;
+    }
+
     if (filterSpec != null)
     {
       try
@@ -2955,6 +3460,7 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
         (likePattern != null)      ||
         (since != null)   || (until != null)        ||
         (version != null) || (lastModified != null) ||
+        (rowidLow != null) ||
         ((filterSpec != null) &&
          (tree.hasJsonExists()     ||
           tree.hasSpatialClause()  ||
@@ -2980,6 +3486,8 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     // ### TODO: projection can be supported with GET_ONE
     if (proj != null &&
         !countOrWrite(terminal) &&
+        (terminal != Terminal.GET_KEYS) &&
+        (terminal != Terminal.GET_FIELDS) &&
         !selectStageOfPatch())
     {
       return true;
@@ -2988,9 +3496,80 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     return false;
   }
 
+  /**
+   * Returns the number of rows a read is expected to return, for its
+   * automatic FIRST_ROWS hint and fetch size, or -1 if there's none.
+   * That's the skip plus the limit of a getCursor() (or its plan), and
+   * one row for getOne(), unless the hint was set explicitly, the read
+   * is by a single key or part of a modification, or the collection
+   * opted out.
+   */
+  private int autoFirstRows(Terminal terminal)
+  {
+    if ((firstRows >= 0) || ((key != null) && !isStartKey) ||
+        selectPatchedDoc || selectMergedDoc)
+      return -1;
+
+    int rows;
+    if (terminal == Terminal.GET_ONE)
+      rows = 1;
+    else if ((terminal == Terminal.GET_CURSOR ||
+              terminal == Terminal.GET_FIELDS ||
+              terminal == Terminal.EXPLAIN_PLAN) && (limit > 0))
+      rows = (int) Math.min(skip + limit, (long) Integer.MAX_VALUE);
+    else
+      return -1;
+
+    if (!collection.db.isAutoFirstRows(collection.collectionName))
+      return -1;
+
+    return rows;
+  }
+
+  /**
+   * Returns the fetch size of a read that isn't by a single key: the
+   * one set by prefetch(), else that of the rows an automatic
+   * FIRST_ROWS read returns, else the initial size of an adaptive
+   * fetch if there's a memory budget, else BATCH_FETCH_SIZE.
+   */
+  private int readFetchSize(Terminal terminal)
+  {
+    if (prefetch > 0)
+      return Math.min(prefetch, SODAConstants.BATCH_FETCH_SIZE);
+
+    int rowsFetched = autoFetchRows(terminal);
+    if (rowsFetched > 0)
+      // One more than the rows expected, so that the end of the
+      // fetch is seen in the same round trip
+      return Math.min(rowsFetched + 1, SODAConstants.BATCH_FETCH_SIZE);
+
+    if (collection.db.getFetchMemoryBudget() > 0L)
+      // Start small; the cursor adapts it once row sizes are known
+      return SODAConstants.ADAPTIVE_INITIAL_FETCH_SIZE;
+
+    return SODAConstants.BATCH_FETCH_SIZE;
+  }
+
+  /**
+   * Returns the number of rows a read with an automatic FIRST_ROWS
+   * hint fetches, for its fetch size, or -1 if there's no hint. The
+   * rows skipped are discarded by the OFFSET clause on the server, so
+   * that's the limit, not the skip plus the limit that's hinted.
+   */
+  private int autoFetchRows(Terminal terminal)
+  {
+    if (autoFirstRows(terminal) < 0)
+      return -1;
+
+    return (terminal == Terminal.GET_ONE) ? 1 : limit;
+  }
+
   private boolean countOrWrite(Terminal terminal)
   {
-    if ((terminal == Terminal.COUNT) || write(terminal))
+    if ((terminal == Terminal.COUNT)        ||
+        (terminal == Terminal.COUNT_UP_TO)  ||
+        (terminal == Terminal.COUNT_SAMPLE) ||
+        write(terminal))
     {
       return true;
     }
@@ -3070,8 +3649,11 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
    if (!selectStageOfPatch() &&
        !paginationWorkaround(terminal) &&
        (terminal == Terminal.COUNT ||
+        terminal == Terminal.COUNT_UP_TO ||
+        terminal == Terminal.COUNT_SAMPLE ||
         terminal == Terminal.GET_ONE ||
-        terminal == Terminal.GET_CURSOR))
+        terminal == Terminal.GET_CURSOR ||
+        terminal == Terminal.GET_KEYS))
     {
       return true;
     }
@@ -3295,15 +3877,25 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
       sb.append("explain plan for ");
     }
 
+    // Count the rows of a subquery that stops after countLimit rows
+    if (terminal == Terminal.COUNT_UP_TO)
+      sb.append("select count(*) from (");
+
     sb.append("select ");
 
-    if (firstRows >= 0 || hints != null)
+    long rowsHint = firstRows;
+    if (terminal == Terminal.COUNT_UP_TO && rowsHint < 0)
+      rowsHint = countLimit;
+    else if (rowsHint < 0)
+      rowsHint = autoFirstRows(terminal);
+
+    if (rowsHint >= 0 || hints != null)
     {
       sb.append("/*+");
-      if (firstRows >= 0)
+      if (rowsHint >= 0)
       {
         sb.append(" FIRST_ROWS(");
-        sb.append(firstRows);
+        sb.append(rowsHint);
         sb.append(')');
       }
       if (hints != null)
@@ -3313,13 +3905,22 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
 
     boolean addProjection = projection(terminal);
 
-    if (terminal == Terminal.COUNT)
+    if (terminal == Terminal.COUNT || terminal == Terminal.COUNT_SAMPLE)
     {
       // Count over the key column is a full index scan (not a table scan)
       sb.append(" count(\"");
       sb.append(options.keyColumnName);
       sb.append("\")");
     }
+    else if (terminal == Terminal.GET_KEYS || terminal == Terminal.COUNT_UP_TO)
+    {
+      // Keys are fetched in their native form and converted on the client
+      appendColumn(sb, options.keyColumnName);
+    }
+    else if (terminal == Terminal.GET_FIELDS)
+    {
+      appendFieldColumns(sb);
+    }
     else
     {
       appendTableColumns(sb, null, addProjection, terminal);
@@ -3328,6 +3929,82 @@ public class OracleOperationBuilderImpl implements OracleOperationBuilder {
     sb.append(" from ");
 
     appendTable(sb);
+
+    if (terminal == Terminal.GET_FIELDS)
+      appendFieldTable(sb);
+
+    // The sample clause precedes any flashback clause
+    if (terminal == Terminal.COUNT_SAMPLE)
+    {
+      sb.append(" sample block (");
+      sb.append(BigDecimal.valueOf(samplePercent).toPlainString());
+      sb.append(")");
+    }
+  }
+
+  /**
+   * Appends the JSON_TABLE columns of the getFields() paths: for each,
+   * its number, its boolean, and its string form (see FieldCursor)
+   */
+  private void appendFieldColumns(StringBuilder sb)
+  {
+    for (int i = 1; i <= fieldPaths.size(); ++i)
+    {
+      if (i > 1) sb.append(", ");
+      sb.append("JT.F");
+      sb.append(i);
+      sb.append("N#, JT.F");
+      sb.append(i);
+      sb.append("B#, JT.F");
+      sb.append(i);
+      sb.append("S#");
+    }
+  }
+
+  /**
+   * Appends the JSON_TABLE of the getFields() paths, with one row
+   * per document, i.e.
+   *
+   *   , JSON_TABLE("SCHEMA"."TABLE"."DATA", '$' columns (
+   *       F1N# number path '$.a.numberOnly()',
+   *       F1B# varchar2(10) path '$.a.booleanOnly()',
+   *       F1S# varchar2(4000) path '$.a', ...)) JT
+   */
+  private void appendFieldTable(StringBuilder sb)
+  {
+    sb.append(", JSON_TABLE(");
+    appendTable(sb);
+    sb.append(".");
+    appendColumn(sb, options.contentColumnName);
+
+    String format = collection.getInputFormatClause();
+    if (format != null)
+    {
+      sb.append(" ");
+      sb.append(format);
+    }
+
+    sb.append(", '$' columns (");
+    for (int i = 1; i <= fieldPaths.size(); ++i)
+    {
+      JsonQueryPath jqpath = fieldPaths.get(i - 1);
+
+      if (i > 1) sb.append(", ");
+      sb.append("F");
+      sb.append(i);
+      sb.append("N# number path '");
+      jqpath.toLaxString(sb);
+      sb.append(".numberOnly()', F");
+      sb.append(i);
+      sb.append("B# varchar2(10) path '");
+      jqpath.toLaxString(sb);
+      sb.append(".booleanOnly()', F");
+      sb.append(i);
+      sb.append("S# varchar2(4000) path '");
+      jqpath.toLaxString(sb);
+      sb.append("'");
+    }
+    sb.append(")) JT");
   }
 
   private void appendTableColumns(StringBuilder sb,
@@ -0,0 +1,388 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    This is a help class for OracleCollectionImpl. It scans a whole
+    table-based collection in parallel. The table is split into ROWID
+    ranges (derived from the extents of its segments, in the style of
+    DBMS_PARALLEL_EXECUTE rowid chunks), and the chunks are read
+    concurrently, each over a separate database connection.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.io.IOException;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import oracle.json.common.MetricsCollector;
+import oracle.json.logging.OracleLog;
+import oracle.json.util.Pair;
+import oracle.soda.OracleCursor;
+import oracle.soda.OracleDatabase;
+import oracle.soda.OracleDocument;
+import oracle.soda.OracleException;
+
+public class ParallelScanImpl
+{
+  protected static final Logger log =
+    Logger.getLogger(ParallelScanImpl.class.getName());
+
+  /**
+   * Receives the documents read by a parallel scan. The consumer
+   * is called concurrently from all the scanning threads, so it
+   * must be thread-safe.
+   */
+  public interface DocumentConsumer
+  {
+    void accept(OracleDocument document) throws OracleException;
+  }
+
+  private final OracleCollectionImpl collection;
+
+  public ParallelScanImpl(OracleCollectionImpl collection)
+  {
+    this.collection = collection;
+  }
+
+  /**
+   * Split the collection table into at most numChunks ROWID ranges.
+   * Each range is returned as a pair of (inclusive) low and high ROWIDs,
+   * in their character representation. Adjacent extents of the same
+   * data object are coalesced until a chunk holds roughly an equal
+   * share of the blocks.
+   * <p>
+   * Extents are read from USER_EXTENTS, so the chunking is only possible
+   * for tables owned by the current user. Otherwise (or for views, or for
+   * a table that has no segment yet) a single unbounded chunk, represented
+   * by a pair of nulls, is returned.
+   */
+  public List<Pair<String, String>> computeChunks(int numChunks)
+    throws OracleException
+  {
+    if (numChunks < 1)
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_MUST_BE_POSITIVE,
+                                    "numChunks");
+
+    CollectionDescriptor options = collection.options;
+    List<Pair<String, String>> chunks = new ArrayList<Pair<String, String>>();
+
+    if (options.dbObjectType == CollectionDescriptor.DBOBJECT_TABLE)
+    {
+      ArrayList<String> lows  = new ArrayList<String>();
+      ArrayList<String> highs = new ArrayList<String>();
+      ArrayList<Long>   objs  = new ArrayList<Long>();
+      ArrayList<Long>   sizes = new ArrayList<Long>();
+      long totalBlocks = 0L;
+
+      PreparedStatement stmt = null;
+      ResultSet         rows = null;
+
+      MetricsCollector metrics = collection.getMetrics();
+      StringBuilder    sb = new StringBuilder(SODAConstants.SQL_STATEMENT_SIZE);
+
+      sb.append("select O.DATA_OBJECT_ID, E.BLOCKS,\n");
+      sb.append("dbms_rowid.rowid_create(1, O.DATA_OBJECT_ID, ");
+      sb.append("E.RELATIVE_FNO, E.BLOCK_ID, 0),\n");
+      sb.append("dbms_rowid.rowid_create(1, O.DATA_OBJECT_ID, ");
+      sb.append("E.RELATIVE_FNO, E.BLOCK_ID + E.BLOCKS - 1, 32767)\n");
+      sb.append("from USER_EXTENTS E, USER_OBJECTS O\n");
+      sb.append("where E.SEGMENT_NAME = ? and USER = ?\n");
+      sb.append("and E.SEGMENT_TYPE like 'TABLE%'\n");
+      sb.append("and O.OBJECT_NAME = E.SEGMENT_NAME\n");
+      sb.append("and O.OBJECT_TYPE like 'TABLE%'\n");
+      sb.append("and O.DATA_OBJECT_ID is not null\n");
+      sb.append("and nvl(O.SUBOBJECT_NAME, ' ') = nvl(E.PARTITION_NAME, ' ')\n");
+      sb.append("order by O.DATA_OBJECT_ID, E.RELATIVE_FNO, E.BLOCK_ID");
+
+      String sqltext = sb.toString();
+
+      try
+      {
+        metrics.startTiming();
+
+        stmt = collection.db.getConnection().prepareStatement(sqltext);
+        stmt.setString(1, options.dbObjectName);
+        stmt.setString(2, options.dbSchema);
+        stmt.setFetchSize(SODAConstants.BATCH_FETCH_SIZE);
+
+        rows = stmt.executeQuery();
+
+        while (rows.next())
+        {
+          objs.add(rows.getLong(1));
+          sizes.add(rows.getLong(2));
+          totalBlocks += rows.getLong(2);
+          lows.add(rows.getString(3));
+          highs.add(rows.getString(4));
+        }
+
+        rows.close();
+        rows = null;
+
+        stmt.close();
+        stmt = null;
+
+        metrics.recordReads(1, 1);
+      }
+      catch (SQLException e)
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(e.toString() + "\n" + sqltext);
+        throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+      }
+      finally
+      {
+        for (String message : SODAUtils.closeCursor(stmt, rows))
+        {
+          if (OracleLog.isLoggingEnabled())
+            log.severe(message);
+        }
+      }
+
+      long target = (totalBlocks + numChunks - 1) / numChunks;
+      long accumulated = 0L;
+      int  start = 0;
+
+      for (int i = 0; i < lows.size(); ++i)
+      {
+        accumulated += sizes.get(i);
+
+        // ROWID ranges cannot span data objects (i.e. partitions)
+        boolean last = ((i + 1) == lows.size()) ||
+                       !objs.get(i + 1).equals(objs.get(i));
+
+        if (last || (accumulated >= target))
+        {
+          chunks.add(new Pair<String, String>(lows.get(start), highs.get(i)));
+          start = i + 1;
+          accumulated = 0L;
+        }
+      }
+    }
+
+    if (chunks.isEmpty())
+      chunks.add(new Pair<String, String>(null, null));
+
+    if (OracleLog.isLoggingEnabled())
+      log.fine("Split collection "+collection.collectionName+" into "+chunks.size()+
+               " chunks");
+
+    return chunks;
+  }
+
+  /**
+   * Scan the whole collection in parallel, using one thread per database
+   * (i.e. per connection) supplied. The chunks are handed out to the
+   * threads on a first-come basis, so that a slow chunk doesn't hold
+   * up the others. Every document read (optionally restricted by the
+   * filter specification) is passed to the consumer.
+   * <p>
+   * If any thread fails, the remaining threads stop after their current
+   * document and the first error is thrown. In all cases the threads
+   * have finished, and the consumer is no longer called, by the time
+   * this method returns or throws.
+   *
+   * @return the number of documents passed to the consumer
+   */
+  public long scan(List<OracleDatabase> databases,
+                   int numChunks,
+                   final OracleDocument filterSpec,
+                   final DocumentConsumer consumer)
+    throws OracleException
+  {
+    if (databases == null || databases.isEmpty())
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_CANNOT_BE_NULL,
+                                    "databases");
+    if (consumer == null)
+      throw SODAUtils.makeException(SODAMessage.EX_ARG_CANNOT_BE_NULL,
+                                    "consumer");
+
+    final List<Pair<String, String>> chunks = computeChunks(numChunks);
+    final AtomicInteger nextChunk = new AtomicInteger(0);
+
+    // Set when any of the scanning threads fails, so that the
+    // others stop reading as soon as possible.
+    final AtomicBoolean aborted = new AtomicBoolean(false);
+
+    int numThreads = Math.min(databases.size(), chunks.size());
+
+    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    List<Future<Long>> results = new ArrayList<Future<Long>>(numThreads);
+
+    try
+    {
+      for (int i = 0; i < numThreads; ++i)
+      {
+        // Each thread gets its own collection object, because codecs,
+        // statement buffers and metrics aren't shareable across threads.
+        final OracleCollectionImpl coll =
+          new TableCollectionImpl((OracleDatabaseImpl)databases.get(i),
+                                  collection.collectionName,
+                                  collection.options);
+
+        results.add(executor.submit(new Callable<Long>()
+        {
+          @Override
+          public Long call() throws OracleException
+          {
+            long    count = 0L;
+            boolean completed = false;
+            int     chunk;
+
+            try
+            {
+              while (!aborted.get() &&
+                     ((chunk = nextChunk.getAndIncrement()) < chunks.size()))
+              {
+                count += scanChunk(coll, chunks.get(chunk), filterSpec,
+                                   consumer, aborted);
+              }
+              completed = true;
+            }
+            finally
+            {
+              // Whatever the failure, stop the other threads
+              if (!completed)
+                aborted.set(true);
+            }
+
+            return count;
+          }
+        }));
+      }
+
+      long total = 0L;
+      Throwable error = null;
+
+      for (Future<Long> result : results)
+      {
+        try
+        {
+          total += result.get();
+        }
+        catch (ExecutionException e)
+        {
+          if (error == null)
+            error = e.getCause();
+        }
+      }
+
+      if (error instanceof OracleException)
+        throw (OracleException)error;
+      else if (error instanceof RuntimeException)
+        throw (RuntimeException)error;
+      else if (error instanceof Error)
+        throw (Error)error;
+      else if (error != null)
+        throw new OracleException(error);
+
+      return total;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw SODAUtils.makeException(SODAMessage.EX_PARALLEL_SCAN_INTERRUPTED, e,
+                                    collection.collectionName);
+    }
+    finally
+    {
+      // On success the threads are already done. Otherwise this makes
+      // them stop after their current document.
+      aborted.set(true);
+      awaitTermination(executor);
+    }
+  }
+
+  /**
+   * Shut down the executor and wait for its threads to finish. A pending
+   * interrupt doesn't cut the wait short (the threads might otherwise still
+   * be calling the consumer), but is restored once the wait is over.
+   */
+  private static void awaitTermination(ExecutorService executor)
+  {
+    boolean interrupted = false;
+
+    executor.shutdown();
+
+    while (!executor.isTerminated())
+    {
+      try
+      {
+        executor.awaitTermination(1L, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e)
+      {
+        interrupted = true;
+      }
+    }
+
+    if (interrupted)
+      Thread.currentThread().interrupt();
+  }
+
+  private long scanChunk(OracleCollectionImpl coll,
+                         Pair<String, String> chunk,
+                         OracleDocument filterSpec,
+                         DocumentConsumer consumer,
+                         AtomicBoolean aborted)
+    throws OracleException
+  {
+    OracleOperationBuilderImpl builder =
+      (OracleOperationBuilderImpl)coll.find();
+
+    if (chunk.getFirst() != null)
+      builder.rowidRange(chunk.getFirst(), chunk.getSecond());
+
+    if (filterSpec != null)
+      builder.filter(filterSpec);
+
+    long count = 0L;
+    OracleCursor cursor = builder.getCursor();
+
+    try
+    {
+      while (!aborted.get() && cursor.hasNext())
+      {
+        consumer.accept(cursor.next());
+        ++count;
+      }
+    }
+    finally
+    {
+      try
+      {
+        cursor.close();
+      }
+      catch (IOException e)
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(e.toString());
+      }
+    }
+
+    return count;
+  }
+}
@@ -0,0 +1,225 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Runs the queries of several operation builders in one round trip.
+    The queries are opened as ref cursors by an anonymous PL/SQL block,
+
+      begin
+        open ? for <query 1>;
+        open ? for <query 2>;
+        ...
+      end;
+
+    and a cursor is returned for each of them, in the order they were
+    added. Each query's parameters follow its ref cursor parameter.
+
+   NOTES
+    The block's statement is shared by the cursors. It's closed when
+    the last of them is closed (or exhausted), so that closing one
+    cursor doesn't invalidate the others.
+
+    The operations can be on different collections, as long as they're
+    of the same database. The batch can be executed once.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import oracle.jdbc.OracleCallableStatement;
+import oracle.jdbc.OracleTypes;
+
+import oracle.json.common.MetricsCollector;
+import oracle.json.logging.OracleLog;
+
+import oracle.soda.OracleCursor;
+import oracle.soda.OracleException;
+import oracle.soda.OracleOperationBuilder;
+
+public class QueryBatch
+{
+  private static final Logger log =
+    Logger.getLogger(QueryBatch.class.getName());
+
+  private final OracleDatabaseImpl db;
+
+  private final List<OracleOperationBuilderImpl> builders =
+    new ArrayList<OracleOperationBuilderImpl>();
+
+  private CallableStatement stmt = null;
+
+  // Number of cursors not yet closed
+  private int openCursors = 0;
+
+  private boolean executed = false;
+
+  QueryBatch(OracleDatabaseImpl db)
+  {
+    this.db = db;
+  }
+
+  /**
+   * Add the query of an operation builder, as it would be
+   * run by its <code>getCursor()</code>.
+   */
+  public QueryBatch add(OracleOperationBuilder builder)
+    throws OracleException
+  {
+    if (executed)
+      throw SODAUtils.makeException(SODAMessage.EX_INVALID_BATCH_OPERATION,
+                                    "the batch was already executed");
+
+    if (!(builder instanceof OracleOperationBuilderImpl) ||
+        ((OracleOperationBuilderImpl)builder).getCollection().getDatabase() != db)
+      throw SODAUtils.makeException(SODAMessage.EX_INVALID_BATCH_OPERATION,
+                                    "the collection is of another database");
+
+    builders.add((OracleOperationBuilderImpl)builder);
+    return this;
+  }
+
+  public int size()
+  {
+    return builders.size();
+  }
+
+  /**
+   * Run all the queries in one round trip, returning a cursor for
+   * each query, in the order they were added.
+   */
+  public List<OracleCursor> execute()
+    throws OracleException
+  {
+    if (executed)
+      throw SODAUtils.makeException(SODAMessage.EX_INVALID_BATCH_OPERATION,
+                                    "the batch was already executed");
+    executed = true;
+
+    List<OracleCursor> cursors = new ArrayList<OracleCursor>(builders.size());
+    if (builders.isEmpty())
+      return cursors;
+
+    int numQueries = builders.size();
+    String[] queries = new String[numQueries];
+
+    StringBuilder sb = new StringBuilder("begin\n");
+    for (int i = 0; i < numQueries; ++i)
+    {
+      queries[i] = builders.get(i).generateBatchQuery();
+      sb.append("  open ? for ");
+      sb.append(queries[i]);
+      sb.append(";\n");
+    }
+    sb.append("end;\n");
+
+    String sqltext = sb.toString();
+    MetricsCollector metrics = db.getMetrics();
+    int[] cursorIndexes = new int[numQueries];
+
+    try
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.fine("Query batch:\n" + sqltext);
+
+      metrics.startTiming();
+
+      stmt = db.getConnection().prepareCall(sqltext);
+
+      int parameterIndex = 0;
+      for (int i = 0; i < numQueries; ++i)
+      {
+        cursorIndexes[i] = ++parameterIndex;
+        stmt.registerOutParameter(parameterIndex, OracleTypes.CURSOR);
+        parameterIndex = builders.get(i).bindBatchQuery(stmt, parameterIndex);
+      }
+
+      stmt.execute();
+
+      metrics.recordCall();
+
+      OracleCallableStatement ostmt = stmt.unwrap(OracleCallableStatement.class);
+      for (int i = 0; i < numQueries; ++i)
+      {
+        ResultSet resultSet = ostmt.getCursor(cursorIndexes[i]);
+        OracleCursorImpl cursor =
+          builders.get(i).createBatchCursor(queries[i], resultSet);
+        cursor.setBatch(this);
+        ++openCursors;
+        cursors.add(cursor);
+      }
+    }
+    catch (SQLException e)
+    {
+      closeCursors(cursors);
+      if (OracleLog.isLoggingEnabled())
+        log.severe(e.toString() + "\n" + sqltext);
+      throw SODAUtils.makeExceptionWithSQLText(e, sqltext);
+    }
+    catch (OracleException e)
+    {
+      closeCursors(cursors);
+      throw e;
+    }
+
+    return cursors;
+  }
+
+  private void closeCursors(List<OracleCursor> cursors)
+  {
+    for (OracleCursor cursor : cursors)
+    {
+      try
+      {
+        cursor.close();
+      }
+      catch (Exception e)
+      {
+        if (OracleLog.isLoggingEnabled())
+          log.severe(e.toString());
+      }
+    }
+
+    // If no cursor was created the statement is still open
+    if (openCursors == 0)
+      closeStatement();
+  }
+
+  /**
+   * Called as each cursor is closed. The last one closes
+   * the statement.
+   */
+  void release() throws SQLException
+  {
+    if (--openCursors > 0)
+      return;
+
+    CallableStatement owned = stmt;
+    stmt = null;
+    if (owned != null)
+      owned.close();
+  }
+
+  private void closeStatement()
+  {
+    for (String message : SODAUtils.closeCursor(stmt, null))
+    {
+      if (OracleLog.isLoggingEnabled())
+        log.severe(message);
+    }
+    stmt = null;
+  }
+}
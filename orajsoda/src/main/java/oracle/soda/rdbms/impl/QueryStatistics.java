@@ -0,0 +1,257 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Statistics of the QBE reads (getCursor(), getOne(), and the counts)
+    by query shape. A shape is a filter with its values removed (see
+    QueryShape), per collection. For each shape it keeps the number of
+    executions, the rows returned, and a histogram of the latencies,
+    which is the time to prepare and execute the statement and read
+    all the rows that were read.
+
+    The IndexAdvisor uses these to recommend indexes for the frequent
+    shapes.
+
+   NOTES
+    Shared by all the databases of a client, so it's thread-safe. At most
+    MAX_SHAPES shapes are kept; once that many have been seen, new shapes
+    are no longer recorded and isSaturated() returns true.
+
+    One filter of each shape (the first one seen) is kept, with its
+    values, so that the advisor can explain its plan.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import oracle.json.parser.QueryShape;
+
+public final class QueryStatistics
+{
+  static final int MAX_SHAPES = 1024;
+
+  /**
+   * Upper bounds (exclusive) of the latency histogram buckets, in
+   * microseconds. The last bucket has no upper bound.
+   */
+  private static final long[] LATENCY_BOUNDS_MICROS =
+    { 100L, 1000L, 10000L, 100000L, 1000000L };
+
+  /**
+   * Statistics of one shape of one collection
+   */
+  public static final class Entry
+  {
+    private final String     collectionName;
+    private final QueryShape shape;
+
+    private String sampleFilter = null;
+
+    private long executions = 0L;
+    private long rows       = 0L;
+    private long totalNanos = 0L;
+    private long maxNanos   = 0L;
+
+    private final long[] histogram = new long[LATENCY_BOUNDS_MICROS.length + 1];
+
+    Entry(String collectionName, QueryShape shape)
+    {
+      this.collectionName = collectionName;
+      this.shape = shape;
+    }
+
+    synchronized void record(long nanos, long rowCount)
+    {
+      ++executions;
+      rows += rowCount;
+      totalNanos += nanos;
+      if (nanos > maxNanos)
+        maxNanos = nanos;
+
+      long micros = nanos / 1000L;
+      int bucket = 0;
+      while ((bucket < LATENCY_BOUNDS_MICROS.length) &&
+             (micros >= LATENCY_BOUNDS_MICROS[bucket]))
+        ++bucket;
+      ++histogram[bucket];
+    }
+
+    synchronized boolean hasSampleFilter()
+    {
+      return (sampleFilter != null);
+    }
+
+    synchronized void setSampleFilter(String filter)
+    {
+      if (sampleFilter == null)
+        sampleFilter = filter;
+    }
+
+    public String getCollectionName()
+    {
+      return collectionName;
+    }
+
+    public QueryShape getShape()
+    {
+      return shape;
+    }
+
+    /**
+     * A filter of this shape, with its values
+     */
+    public synchronized String getSampleFilter()
+    {
+      return sampleFilter;
+    }
+
+    public synchronized long getExecutionCount()
+    {
+      return executions;
+    }
+
+    public synchronized long getRowCount()
+    {
+      return rows;
+    }
+
+    public synchronized long getTotalNanos()
+    {
+      return totalNanos;
+    }
+
+    public synchronized long getMaxNanos()
+    {
+      return maxNanos;
+    }
+
+    public synchronized long getMeanNanos()
+    {
+      return (executions == 0L) ? 0L : (totalNanos / executions);
+    }
+
+    /**
+     * Number of executions per latency bucket
+     * (see getLatencyBounds())
+     */
+    public synchronized long[] getLatencyHistogram()
+    {
+      return histogram.clone();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+      return collectionName + " " + shape + ": " + executions +
+             " executions, " + rows + " rows, mean " +
+             (getMeanNanos() / 1000L) + "us";
+    }
+  }
+
+  private final ConcurrentHashMap<String, Entry> entries =
+    new ConcurrentHashMap<String, Entry>();
+
+  private volatile boolean saturated = false;
+
+  /**
+   * Upper bounds (exclusive) of the latency histogram buckets, in
+   * microseconds. The histograms have one more bucket, for the
+   * latencies beyond the last bound.
+   */
+  public static long[] getLatencyBounds()
+  {
+    return LATENCY_BOUNDS_MICROS.clone();
+  }
+
+  /**
+   * Return the entry of a shape, creating it if necessary.
+   * Returns null if the shape is new and there are already
+   * MAX_SHAPES entries.
+   */
+  Entry getEntry(String collectionName, QueryShape shape)
+  {
+    String key = collectionName + "\u0000" + shape.getSignature();
+
+    Entry entry = entries.get(key);
+    if ((entry != null) || saturated)
+      return entry;
+
+    if (entries.size() >= MAX_SHAPES)
+    {
+      saturated = true;
+      return null;
+    }
+
+    entry = new Entry(collectionName, shape);
+    Entry existing = entries.putIfAbsent(key, entry);
+    return (existing != null) ? existing : entry;
+  }
+
+  /**
+   * The entries of all the collections, most executed first
+   */
+  public List<Entry> getEntries()
+  {
+    return getEntries(null);
+  }
+
+  /**
+   * The entries of a collection, most executed first
+   */
+  public List<Entry> getEntries(String collectionName)
+  {
+    List<Entry> result = new ArrayList<Entry>();
+
+    // Sort on a snapshot of the counts, as they may be changing
+    final Map<Entry, Long> counts = new IdentityHashMap<Entry, Long>();
+
+    for (Entry entry : entries.values())
+    {
+      if ((collectionName == null) ||
+          collectionName.equals(entry.getCollectionName()))
+      {
+        result.add(entry);
+        counts.put(entry, entry.getExecutionCount());
+      }
+    }
+
+    Collections.sort(result, new Comparator<Entry>() {
+      public int compare(Entry a, Entry b)
+      {
+        return Long.compare(counts.get(b), counts.get(a));
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * True if more than MAX_SHAPES shapes were seen,
+   * in which case some weren't recorded.
+   */
+  public boolean isSaturated()
+  {
+    return saturated;
+  }
+
+  public void reset()
+  {
+    entries.clear();
+    saturated = false;
+  }
+}
@@ -24,6 +24,11 @@ final class SODAConstants
   static final int LOB_PREFETCH_SIZE      = 65000;
   static final int SQL_STATEMENT_SIZE     = 1000;
 
+  // Bounds for adaptive fetching (see OracleDatabaseImpl.setFetchMemoryBudget)
+  static final int ADAPTIVE_INITIAL_FETCH_SIZE = 100;
+  static final int ADAPTIVE_MIN_FETCH_SIZE     = 1;
+  static final int ADAPTIVE_MAX_FETCH_SIZE     = 10000;
+
   // Private, so that this class can't be instantiated
   private SODAConstants() {};
 }
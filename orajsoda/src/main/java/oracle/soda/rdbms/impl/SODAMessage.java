@@ -145,6 +145,16 @@ public final class SODAMessage extends Message
   static final SODAMessage EX_MODIFYING_ID_NOT_SUPPORTED_FOR_OP    = create(2104);
   static final SODAMessage EX_ID_MISSING_IN_REPLACE_OP             = create(2105);
   static final SODAMessage EX_ID_CANT_BE_REMOVED                   = create(2106);
+  static final SODAMessage EX_PARALLEL_SCAN_INTERRUPTED            = create(2107);
+  static final SODAMessage EX_KEY_TYPE_NOT_RAW                     = create(2108);
+  static final SODAMessage EX_OBJECT_BINDING_ERROR                 = create(2109);
+  static final SODAMessage EX_CODEC_NOT_FOUND                      = create(2110);
+  static final SODAMessage EX_DOCUMENT_NOT_VALID                   = create(2111);
+  static final SODAMessage EX_INVALID_BATCH_OPERATION              = create(2112);
+  static final SODAMessage EX_INVALID_AGGREGATION                  = create(2113);
+  static final SODAMessage EX_FIELD_PATH_CONTAINS_ARRAY_STEP       = create(2114);
+  static final SODAMessage EX_CODEC_FORMAT_MISMATCH                = create(2115);
+  static final SODAMessage EX_CODEC_NOT_BINARY                     = create(2116);
 
   /****************************************************************************/
   /* Note: 2500 to 2999 range is reserved for SODA internal errors. These     */
@@ -0,0 +1,88 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+    Counts the distinct SQL texts ("shapes") prepared for filter-based
+    operations. Each distinct text is a separate cursor in the shared pool,
+    and a hard parse the first time it's seen, so a low ratio of shapes to
+    statements is what canonical binding aims for.
+
+   NOTES
+    Shared by all the databases of a client, so it's thread-safe. At most
+    MAX_SHAPES texts are remembered; once that many have been seen, new
+    texts are no longer counted and isSaturated() returns true. Statements
+    are only counted by the databases the counter is installed in (see
+    OracleDatabaseImpl.setSqlShapeCounter()), with canonical binds on or
+    off.
+ */
+
+/**
+ *  This class is not part of the public API, and is
+ *  subject to change.
+ *
+ *  Do not rely on it in your application code.
+ */
+
+package oracle.soda.rdbms.impl;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class SqlShapeCounter
+{
+  static final int MAX_SHAPES = 4096;
+
+  private final Set<String> shapes =
+    ConcurrentHashMap.<String>newKeySet();
+
+  private final AtomicLong statements = new AtomicLong();
+
+  private volatile boolean saturated = false;
+
+  void record(String sqltext)
+  {
+    statements.incrementAndGet();
+
+    if (saturated || shapes.contains(sqltext))
+      return;
+
+    if (shapes.size() >= MAX_SHAPES)
+      saturated = true;
+    else
+      shapes.add(sqltext);
+  }
+
+  /**
+   * Number of statements prepared.
+   */
+  public long getStatementCount()
+  {
+    return statements.get();
+  }
+
+  /**
+   * Number of distinct SQL texts among the prepared statements.
+   */
+  public int getShapeCount()
+  {
+    return shapes.size();
+  }
+
+  /**
+   * True if more than MAX_SHAPES distinct texts were seen,
+   * in which case the shape count is a lower bound.
+   */
+  public boolean isSaturated()
+  {
+    return saturated;
+  }
+
+  public void reset()
+  {
+    shapes.clear();
+    statements.set(0L);
+    saturated = false;
+  }
+}
@@ -40,6 +40,7 @@ import java.util.Map;
 
 import java.time.Instant;
 
+import oracle.json.common.CodecPool;
 import oracle.json.common.DocumentCodec;
 import oracle.json.common.LobInputStream;
 import oracle.json.logging.OracleLog;
@@ -1093,7 +1094,8 @@ public class TableCollectionImpl extends OracleCollectionImpl
       throw SODAUtils.makeException(SODAMessage.EX_EJSON_CANNOT_BE_USED);
 
     // See if the document has a key, extracting if necessary
-    String dockey = getDocumentKey(document, false, false).getFirst();
+    Pair<String, Object> docKeyAndContentPayload = getDocumentKey(document, false, false);
+    String dockey = docKeyAndContentPayload.getFirst();
     
     // If this collection doesn't use client-assigned keys, avoid upsert
     // ### This means we'll do the upsert for EXTRACT and OID - OK?
@@ -1102,7 +1104,7 @@ public class TableCollectionImpl extends OracleCollectionImpl
 
     // If we have a key already, perform the upsert
     if (dockey != null)
-      return(upsert(dockey, document, hintStr));
+      return(upsert(dockey, document, hintStr, docKeyAndContentPayload.getSecond()));
 
     return insertAndGet(document);
   }
@@ -1875,7 +1877,8 @@ public class TableCollectionImpl extends OracleCollectionImpl
     return oe;
   }
 
-  private OracleDocument upsert(String key, OracleDocument document, String hint)
+  private OracleDocument upsert(String key, OracleDocument document, String hint,
+                                Object contentWithInjectedKey)
     throws OracleException
   {
     PreparedStatement stmt = null;
@@ -1934,7 +1937,7 @@ public class TableCollectionImpl extends OracleCollectionImpl
       // client assigned keys will never store binary JSON (only
       // default collection can store binary JSON). So this "if"
       // code will never run.
-      data = getContentForTransfer(document, false, null);     
+      data = getContentForTransfer(document, false, contentWithInjectedKey);
 
       String sdata = null;
 
@@ -2839,9 +2842,10 @@ public class TableCollectionImpl extends OracleCollectionImpl
       else if (contentWithInjectedKey != null && contentWithInjectedKey instanceof byte[]) 
       { 
         byte[] json = null; 
+        CodecPool codecs = getCodecFactory().getCodecPool();
+        DocumentCodec<?> osonCodec = codecs.acquire();
         try 
         { 
-          DocumentCodec osonCodec = this.db.getCodecFactory().getCodec();
           osonCodec.loadImage((byte[])contentWithInjectedKey); 
           json = osonCodec.getUnicode(); 
         } 
@@ -2849,11 +2853,17 @@ public class TableCollectionImpl extends OracleCollectionImpl
         { 
           throw SODAUtils.makeException(SODAMessage.EX_FROM_BINARY_CONVERSION_ERROR, e); 
         } 
+        finally
+        {
+          codecs.release(osonCodec);
+        }
         return json; 
       }
       else
       {
-        return document.getContentAsByteArray();
+        byte[] data = document.getContentAsByteArray();
+        validateContent(document, data, avoidConversionToOSON, contentWithInjectedKey);
+        return data;
       }
     }
   }
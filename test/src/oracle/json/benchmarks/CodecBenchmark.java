@@ -0,0 +1,112 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Runs the same workload against each DocumentCodecFactory found
+ *      as a service provider (or those named on the command line), so
+ *      that third-party codecs can be compared with the built-in ones
+ *      on equal terms. The operations are those SODA performs on every
+ *      document: extracting the key from text, rekeying text, and, for
+ *      codecs with an image format, converting text to an image and an
+ *      image back to text. Doesn't need a database.
+ *
+ *        java oracle.json.benchmarks.CodecBenchmark [codec name ...]
+ */
+
+package oracle.json.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.common.DocumentCodecFactory;
+import oracle.json.testharness.Benchmark;
+
+public class CodecBenchmark {
+
+  private static final String[] KEY_PATH = new String[] { "_id" };
+
+  // A document of order records, with the key last so that finding it
+  // means reading the whole document
+  private static byte[] makeText(int records) {
+    StringBuilder sb = new StringBuilder("{\"orders\" : [");
+    for (int i = 0; i < records; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append("{\"orderId\" : ").append(100000 + i);
+      sb.append(", \"customer\" : \"customer ").append(i % 97).append("\"");
+      sb.append(", \"total\" : ").append(i % 1000).append('.').append(i % 100);
+      sb.append(", \"shipped\" : ").append(i % 2 == 0).append("}");
+    }
+    sb.append("], \"_id\" : \"5f4bd8a1c2e3\"}");
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void run(final DocumentCodecFactory factory) throws Exception {
+    final DocumentCodec<?> codec = factory.getCodec();
+    final boolean images = (factory.getImageFormat() != null);
+    String name = factory.getName();
+
+    for (int records : new int[] { 8, 256, 8192 }) {
+      final byte[] text = makeText(records);
+      int iterations = Math.max(20, 2000000 / text.length);
+      String suffix = " (" + text.length + " bytes)";
+
+      Benchmark.run(name + " getKey" + suffix, iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception {
+          codec.setKeyPath(KEY_PATH);
+          codec.loadUnicode(text);
+          return codec.getKey(false).length();
+        }
+      });
+      Benchmark.run(name + " rekey" + suffix, iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception {
+          codec.loadUnicode(text);
+          codec.setKeyPath(KEY_PATH);
+          codec.setNewKey("6a0b1c2d3e4f");
+          codec.setRemoveKey(true);
+          return codec.getUnicode().length;
+        }
+      });
+
+      if (!images)
+        continue;
+
+      codec.loadUnicode(text);
+      final byte[] image = codec.getImage();
+
+      Benchmark.run(name + " text to image" + suffix, iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception {
+          codec.loadUnicode(text);
+          return codec.getImage().length;
+        }
+      });
+      Benchmark.run(name + " image to text" + suffix, iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception {
+          codec.loadImage(image);
+          return codec.getUnicode().length;
+        }
+      });
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> names = (args.length > 0) ?
+      Arrays.asList(args) : DocumentCodecFactory.getAvailableNames();
+
+    for (String name : names) {
+      DocumentCodecFactory factory = DocumentCodecFactory.newInstance(name);
+      if (factory == null) {
+        System.out.println("No codec named " + name + ", available: " +
+                           DocumentCodecFactory.getAvailableNames());
+        continue;
+      }
+      run(factory);
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Compares the time and allocation per row of a regular cursor
+ *      and a flyweight cursor, when the content is streamed to a sink.
+ *      The flyweight cursor only saves the document object: the key,
+ *      version and content of each row are allocated in both cases.
+ *
+ *      Run with the same system properties as the tests
+ *      (see oracle.json.testharness.ConnectionFactory), e.g.
+ *        java -DUserName=.. -DPassword=.. -DServer=.. -DPort=.. -DDBName=..
+ *             oracle.json.benchmarks.FlyweightCursorBenchmark [rows]
+ */
+
+package oracle.json.benchmarks;
+
+import java.sql.Connection;
+
+import oracle.json.testharness.Benchmark;
+import oracle.json.testharness.ConnectionFactory;
+import oracle.soda.OracleCollection;
+import oracle.soda.OracleCursor;
+import oracle.soda.OracleDatabase;
+import oracle.soda.OracleDocument;
+import oracle.soda.rdbms.OracleRDBMSClient;
+import oracle.soda.rdbms.impl.OracleOperationBuilderImpl;
+
+public class FlyweightCursorBenchmark {
+
+  private static long scan(OracleCollection col, boolean flyweight) throws Exception {
+    OracleOperationBuilderImpl builder = (OracleOperationBuilderImpl) col.find();
+    if (flyweight)
+      builder.flyweight();
+
+    long bytes = 0;
+    OracleCursor c = builder.getCursor();
+    while (c.hasNext()) {
+      OracleDocument doc = c.next();
+      byte[] content = doc.getContentAsByteArray();
+      bytes += content.length + doc.getKey().length();
+    }
+    c.close();
+    return bytes;
+  }
+
+  public static void main(String[] args) throws Exception {
+    final int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+
+    Connection conn = ConnectionFactory.createConnection();
+    try {
+      OracleDatabase db = new OracleRDBMSClient().getDatabase(conn);
+      final OracleCollection col = db.admin().createCollection("FlyweightCursorBenchmark");
+
+      for (int i = 0; i < rows; i++)
+        col.insert(db.createDocumentFromString("{\"num\" : " + i +
+                                               ", \"name\" : \"name" + i + "\"}"));
+      conn.commit();
+
+      Benchmark.run("regular cursor", 3, 10, rows, "row", new Benchmark.Operation() {
+        public long run() throws Exception { return scan(col, false); }
+      });
+      Benchmark.run("flyweight cursor", 3, 10, rows, "row", new Benchmark.Operation() {
+        public long run() throws Exception { return scan(col, true); }
+      });
+
+      col.admin().drop();
+    } finally {
+      conn.close();
+    }
+  }
+}
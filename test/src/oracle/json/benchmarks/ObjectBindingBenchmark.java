@@ -0,0 +1,152 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Compares ObjectBinder, which writes and reads the fields of an
+ *      application object straight to and from OSON, with the tree
+ *      route an application otherwise takes: copying the object into a
+ *      JSON-P JsonObject and writing that (as createDocumentFrom does),
+ *      and reading an OracleJsonObject and copying it back to the
+ *      object. Doesn't need a database.
+ *
+ *        java oracle.json.benchmarks.ObjectBindingBenchmark
+ */
+
+package oracle.json.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.spi.JsonProvider;
+import jakarta.json.stream.JsonGenerator;
+
+import oracle.json.rdbms.ObjectBinder;
+import oracle.json.testharness.Benchmark;
+
+import oracle.sql.json.OracleJsonArray;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+import oracle.sql.json.OracleJsonObject;
+
+public class ObjectBindingBenchmark {
+
+  private static final OracleJsonFactory FACTORY = new OracleJsonFactory();
+
+  // Looked up once, so the tree route doesn't pay for the ServiceLoader
+  private static final JsonProvider PROVIDER = JsonProvider.provider();
+
+  static class LineItem {
+    String sku;
+    int qty;
+    double price;
+  }
+
+  static class Order {
+    long orderId;
+    String customer;
+    boolean shipped;
+    List<LineItem> items = new ArrayList<LineItem>();
+  }
+
+  private static Order makeOrder(int items) {
+    Order order = new Order();
+    order.orderId = 1234567;
+    order.customer = "customer 42";
+    order.shipped = true;
+    for (int i = 0; i < items; i++) {
+      LineItem item = new LineItem();
+      item.sku = "SKU-" + i;
+      item.qty = i % 5 + 1;
+      item.price = 9.5 + i;
+      order.items.add(item);
+    }
+    return order;
+  }
+
+  private static byte[] writeBound(Order order) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = FACTORY.createJsonBinaryGenerator(out);
+    ObjectBinder.write(order, gen);
+    gen.close();
+    return out.toByteArray();
+  }
+
+  private static byte[] writeTree(Order order) {
+    JsonArrayBuilder items = PROVIDER.createArrayBuilder();
+    for (LineItem item : order.items)
+      items.add(PROVIDER.createObjectBuilder()
+                    .add("sku", item.sku)
+                    .add("qty", item.qty)
+                    .add("price", item.price));
+    JsonObjectBuilder builder = PROVIDER.createObjectBuilder()
+      .add("orderId", order.orderId)
+      .add("customer", order.customer)
+      .add("shipped", order.shipped)
+      .add("items", items);
+    JsonObject tree = builder.build();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JsonGenerator gen = FACTORY.createJsonBinaryGenerator(out).wrap(JsonGenerator.class);
+    gen.write(tree);
+    gen.close();
+    return out.toByteArray();
+  }
+
+  private static Order readBound(byte[] oson) {
+    return ObjectBinder.read(FACTORY.createJsonBinaryParser(ByteBuffer.wrap(oson)),
+                             Order.class);
+  }
+
+  private static Order readTree(byte[] oson) {
+    OracleJsonObject obj = FACTORY.createJsonBinaryValue(ByteBuffer.wrap(oson)).asJsonObject();
+    Order order = new Order();
+    order.orderId = obj.getLong("orderId");
+    order.customer = obj.getString("customer");
+    order.shipped = obj.getBoolean("shipped");
+    OracleJsonArray items = obj.get("items").asJsonArray();
+    for (int i = 0; i < items.size(); i++) {
+      OracleJsonObject elem = items.getObject(i);
+      LineItem item = new LineItem();
+      item.sku = elem.getString("sku");
+      item.qty = elem.getInt("qty");
+      item.price = elem.getDouble("price");
+      order.items.add(item);
+    }
+    return order;
+  }
+
+  public static void main(String[] args) throws Exception {
+    for (int items : new int[] { 4, 64, 1024 }) {
+      final Order order = makeOrder(items);
+      final byte[] oson = writeBound(order);
+      int iterations = Math.max(200, 4000000 / oson.length);
+
+      Benchmark.run("write tree  (" + items + " items)",
+                    iterations, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return writeTree(order).length; }
+      });
+      Benchmark.run("write bound (" + items + " items)",
+                    iterations, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return writeBound(order).length; }
+      });
+      Benchmark.run("read tree   (" + items + " items)",
+                    iterations, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return readTree(oson).items.size(); }
+      });
+      Benchmark.run("read bound  (" + items + " items)",
+                    iterations, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return readBound(oson).items.size(); }
+      });
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Compares extracting the key from an OSON image by navigating
+ *      the image with extracting it from a DOM materialized from the
+ *      image, for documents of increasing size. Doesn't need a database.
+ *
+ *        java oracle.json.benchmarks.OsonKeyExtractionBenchmark
+ */
+
+package oracle.json.benchmarks;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.Benchmark;
+
+public class OsonKeyExtractionBenchmark {
+
+  private static final String[] KEY_PATH = new String[] { "_id" };
+
+  // A document with the key as the last of the top-level fields,
+  // each of which holds a small nested object.
+  private static byte[] makeImage(int fields) throws Exception {
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < fields; i++) {
+      sb.append("\"field").append(i).append("\" : {\"num\" : ").append(i);
+      sb.append(", \"str\" : \"value").append(i).append("\", \"arr\" : [1, 2, 3]}, ");
+    }
+    sb.append("\"_id\" : \"5f4bd8a1c2e3\"}");
+
+    DocumentCodec<?> codec = new OsonCodecFactory().getCodec();
+    codec.loadString(sb.toString());
+    return codec.getImage();
+  }
+
+  private static long extract(DocumentCodec<?> codec, byte[] image, boolean dom)
+    throws Exception {
+    codec.loadImage(image);
+    codec.setKeyPath(KEY_PATH);
+    if (dom)
+      codec.getDocument(); // The key is then read from the DOM
+    return codec.getKey(true).length();
+  }
+
+  public static void main(String[] args) throws Exception {
+    final DocumentCodec<?> codec = new OsonCodecFactory().getCodec();
+
+    for (int fields : new int[] { 1, 10, 100, 1000 }) {
+      final byte[] image = makeImage(fields);
+
+      Benchmark.run("DOM (" + image.length + " bytes)", 10000, 100000,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return extract(codec, image, true); }
+      });
+      Benchmark.run("navigational (" + image.length + " bytes)", 10000, 100000,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return extract(codec, image, false); }
+      });
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Measures replacing the key of an OSON image, as an insert or
+ *      save with a generated key does. A new key of the same encoded
+ *      length as the old one is patched into the image in place; a key
+ *      of a different length makes the codec re-encode the image. Runs
+ *      for documents from about 1K to about 1M. Doesn't need a database.
+ *
+ *        java oracle.json.benchmarks.OsonRekeyBenchmark
+ */
+
+package oracle.json.benchmarks;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.Benchmark;
+
+public class OsonRekeyBenchmark {
+
+  private static final String[] KEY_PATH = new String[] { "_id" };
+
+  // A document of order records, with the key first as a 12-byte
+  // identifier, as the database generates
+  private static String makeText(int records) {
+    StringBuilder sb = new StringBuilder("{\"_id\" : \"5f4bd8a1c2e3d4f5a6b7c8d9\", \"orders\" : [");
+    for (int i = 0; i < records; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append("{\"orderId\" : ").append(100000 + i);
+      sb.append(", \"customer\" : \"customer ").append(i % 97).append("\"");
+      sb.append(", \"total\" : ").append(i % 1000).append('.').append(i % 100);
+      sb.append(", \"shipped\" : ").append(i % 2 == 0).append("}");
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  private static long rekey(DocumentCodec<?> codec, byte[] image, String key) {
+    codec.loadImage(image);
+    codec.setKeyPath(KEY_PATH);
+    codec.setNewKey(key, true);
+    codec.setRemoveKey(true);
+    return codec.getImage().length;
+  }
+
+  public static void main(String[] args) throws Exception {
+    final DocumentCodec<?> codec = new OsonCodecFactory().getCodec();
+
+    for (int records : new int[] { 8, 256, 8192 }) {
+      codec.loadString(makeText(records));
+      codec.setKeyPath(KEY_PATH);
+      codec.setNewKey("5f4bd8a1c2e3d4f5a6b7c8d9", true);
+      codec.setRemoveKey(true);
+      final byte[] image = codec.getImage();
+      int iterations = Math.max(20, 2000000 / image.length);
+
+      // Same length: patched in place
+      Benchmark.run("same length (" + image.length + " bytes)",
+                    iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception {
+          return rekey(codec, image, "6a0b1c2d3e4f5a6b7c8d9e0f");
+        }
+      });
+      // One byte longer: re-encoded
+      Benchmark.run("re-encoded  (" + image.length + " bytes)",
+                    iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception {
+          return rekey(codec, image, "6a0b1c2d3e4f5a6b7c8d9e0f11");
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,86 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Compares converting UTF-8 JSON text to OSON through a JSON-P
+ *      parser and generator wrapper (the former textToBinary route)
+ *      with the direct OsonTextEncoder, for documents from about 1K
+ *      to about 1M. Doesn't need a database.
+ *
+ *        java oracle.json.benchmarks.TextToOsonBenchmark
+ */
+
+package oracle.json.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.json.stream.JsonParserFactory;
+
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.rdbms.JsonpGeneratorWrapper;
+import oracle.json.rdbms.OsonTextEncoder;
+import oracle.json.testharness.Benchmark;
+
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+
+public class TextToOsonBenchmark {
+
+  private static final OracleJsonFactory FACTORY = new OracleJsonFactory();
+
+  // A document of order records, each with a mix of strings, integers,
+  // decimals, booleans, and a nested array of line items.
+  private static byte[] makeText(int records) {
+    StringBuilder sb = new StringBuilder("{\"_id\" : \"5f4bd8a1c2e3\", \"orders\" : [");
+    for (int i = 0; i < records; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append("{\"orderId\" : ").append(100000 + i);
+      sb.append(", \"customer\" : \"customer ").append(i % 97).append("\"");
+      sb.append(", \"total\" : ").append(i % 1000).append('.').append(i % 100);
+      sb.append(", \"shipped\" : ").append(i % 2 == 0);
+      sb.append(", \"items\" : [{\"sku\" : \"SKU-").append(i % 31);
+      sb.append("\", \"qty\" : ").append(i % 5 + 1).append("}]}");
+    }
+    sb.append("]}");
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static long viaJsonp(JsonParserFactory parsers, byte[] text) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = FACTORY.createJsonBinaryGenerator(out);
+    JsonpGeneratorWrapper wrapper = new JsonpGeneratorWrapper(gen);
+    wrapper.writeJsonParser(parsers.createParser(new ByteArrayInputStream(text)));
+    wrapper.close();
+    return out.size();
+  }
+
+  private static long direct(OsonTextEncoder encoder, byte[] text) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encode(text, FACTORY.createJsonBinaryGenerator(out));
+    return out.size();
+  }
+
+  public static void main(String[] args) throws Exception {
+    final JsonParserFactory parsers = new JsonFactoryProvider().getParserFactory();
+    final OsonTextEncoder encoder = new OsonTextEncoder();
+
+    for (int records : new int[] { 8, 256, 8192 }) {
+      final byte[] text = makeText(records);
+      int iterations = Math.max(20, 2000000 / text.length);
+
+      Benchmark.run("JSON-P (" + text.length + " bytes)",
+                    iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return viaJsonp(parsers, text); }
+      });
+      Benchmark.run("direct (" + text.length + " bytes)",
+                    iterations / 2, iterations,
+                    new Benchmark.Operation() {
+        public long run() throws Exception { return direct(encoder, text); }
+      });
+    }
+  }
+}
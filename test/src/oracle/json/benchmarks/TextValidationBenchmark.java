@@ -0,0 +1,193 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Measures the client-side validation of JSON text for collections
+ *      with standard or strict validation, over a corpus of generated
+ *      documents of a few shapes and sizes. Compares a JSON-P parse with
+ *      a check for duplicate fields, the codec's key extraction alone
+ *      (which doesn't validate), and the single-pass JsonTextValidator,
+ *      which validates and extracts the key. Each operation processes
+ *      the whole corpus, so the throughput is the corpus size divided
+ *      by the time per operation. Doesn't need a database.
+ *
+ *        java oracle.json.benchmarks.TextValidationBenchmark
+ */
+
+package oracle.json.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParserFactory;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.common.JsonTextValidator;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.Benchmark;
+
+public class TextValidationBenchmark {
+
+  private static final String[] KEY_PATH = new String[] { "_id" };
+
+  private static final String[] WORDS = new String[] {
+    "pear", "apple", "caf\u00e9", "\u20ac 12", "na\u00efve", "orange",
+    "line\\nbreak", "\\\"quoted\\\"", "\u65e5\u672c", "plum"
+  };
+
+  private static final Random RANDOM = new Random(1);
+
+  private static String word() {
+    return WORDS[RANDOM.nextInt(WORDS.length)];
+  }
+
+  // A flat record, as for a typical document of a few hundred bytes
+  private static String flat(int id) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"_id\" : \"").append(Integer.toHexString(0x100000 + id));
+    sb.append("\", \"name\" : \"").append(word());
+    sb.append("\", \"count\" : ").append(RANDOM.nextInt(1000));
+    sb.append(", \"price\" : ").append(RANDOM.nextInt(100)).append(".99");
+    sb.append(", \"active\" : ").append(RANDOM.nextBoolean());
+    sb.append(", \"note\" : null, \"tags\" : [\"").append(word());
+    sb.append("\", \"").append(word()).append("\"]}");
+    return sb.toString();
+  }
+
+  // An order with nested line items, with the key last
+  private static String nested(int id, int items) {
+    StringBuilder sb = new StringBuilder("{\"customer\" : {\"name\" : \"");
+    sb.append(word()).append("\", \"address\" : {\"city\" : \"");
+    sb.append(word()).append("\", \"zip\" : \"").append(10000 + id);
+    sb.append("\"}}, \"items\" : [");
+    for (int i = 0; i < items; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append("{\"sku\" : \"SKU-").append(i).append("\", \"qty\" : ");
+      sb.append(RANDOM.nextInt(9) + 1).append(", \"price\" : ");
+      sb.append(RANDOM.nextInt(500)).append('.').append(RANDOM.nextInt(100));
+      sb.append(", \"desc\" : \"").append(word()).append("\"}");
+    }
+    sb.append("], \"_id\" : ").append(id).append('}');
+    return sb.toString();
+  }
+
+  // A wide object, with many fields at the top level
+  private static String wide(int id, int fields) {
+    StringBuilder sb = new StringBuilder("{\"_id\" : \"w").append(id).append('"');
+    for (int i = 0; i < fields; i++)
+      sb.append(", \"field").append(i).append("\" : ").append(i);
+    return sb.append('}').toString();
+  }
+
+  private static long jsonp(JsonParserFactory parsers, List<byte[]> corpus) {
+    long n = 0;
+    for (byte[] text : corpus) {
+      JsonParser parser = parsers.createParser(new ByteArrayInputStream(text));
+      Deque<Set<String>> names = new ArrayDeque<Set<String>>();
+      while (parser.hasNext()) {
+        switch (parser.next()) {
+          case START_OBJECT:
+            names.push(new HashSet<String>());
+            break;
+          case END_OBJECT:
+            names.pop();
+            break;
+          case KEY_NAME:
+            if (!names.peek().add(parser.getString()))
+              throw new IllegalStateException("duplicate");
+            break;
+          default:
+            break;
+        }
+        ++n;
+      }
+      parser.close();
+    }
+    return n;
+  }
+
+  private static long codec(DocumentCodec<?> codec, List<byte[]> corpus) {
+    long n = 0;
+    for (byte[] text : corpus) {
+      codec.loadUnicode(text);
+      codec.setValidation(false);
+      n += codec.getKey(true).length();
+    }
+    return n;
+  }
+
+  private static long validator(JsonTextValidator validator,
+                                List<byte[]> corpus) {
+    long n = 0;
+    for (byte[] text : corpus) {
+      validator.validate(text);
+      n += validator.getKey(true).length();
+    }
+    return n;
+  }
+
+  private static void run(String shape, final List<byte[]> corpus)
+    throws Exception {
+    final JsonParserFactory parsers = new JsonFactoryProvider().getParserFactory();
+    final DocumentCodec<?> codec = new OsonCodecFactory().getCodec();
+    codec.setKeyPath(KEY_PATH);
+    final JsonTextValidator validator = new JsonTextValidator(true);
+    validator.setKeyPath(KEY_PATH);
+
+    long bytes = 0;
+    for (byte[] text : corpus)
+      bytes += text.length;
+    int iterations = (int) Math.max(20, 20000000 / bytes);
+
+    System.out.println(shape + ": " + corpus.size() + " documents, " +
+                       bytes + " bytes");
+
+    Benchmark.run("  JSON-P parse, unique check", iterations / 2, iterations,
+                  new Benchmark.Operation() {
+      public long run() throws Exception { return jsonp(parsers, corpus); }
+    });
+    Benchmark.run("  codec key only (no validation)", iterations / 2, iterations,
+                  new Benchmark.Operation() {
+      public long run() throws Exception { return codec(codec, corpus); }
+    });
+    Benchmark.run("  validator, unique check and key", iterations / 2, iterations,
+                  new Benchmark.Operation() {
+      public long run() throws Exception { return validator(validator, corpus); }
+    });
+  }
+
+  private static List<byte[]> corpus(String[] docs) {
+    List<byte[]> corpus = new ArrayList<byte[]>();
+    for (String doc : docs)
+      corpus.add(doc.getBytes(StandardCharsets.UTF_8));
+    return corpus;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String[] flat = new String[1000];
+    for (int i = 0; i < flat.length; i++)
+      flat[i] = flat(i);
+
+    String[] nested = new String[100];
+    for (int i = 0; i < nested.length; i++)
+      nested[i] = nested(i, 40);
+
+    String[] wide = new String[10];
+    for (int i = 0; i < wide.length; i++)
+      wide[i] = wide(i, 1000);
+
+    run("flat", corpus(flat));
+    run("nested", corpus(nested));
+    run("wide", corpus(wide));
+  }
+}
@@ -0,0 +1,72 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Minimal micro-benchmark runner, reporting the elapsed time and
+ *      the bytes allocated (by the current thread) per operation.
+ *      Used by the programs in oracle.json.benchmarks, which are not
+ *      part of the junit suite and are run by hand.
+ */
+
+package oracle.json.testharness;
+
+import java.lang.management.ManagementFactory;
+
+public final class Benchmark {
+
+  /**
+   * A benchmarked operation. Each call should perform one
+   * operation, and return a value derived from its result so
+   * that the work can't be optimized away.
+   */
+  public interface Operation {
+    long run() throws Exception;
+  }
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private static volatile long sink;
+
+  private Benchmark() {
+  }
+
+  /**
+   * Run the operation for the given number of warmup and measured
+   * iterations, then print the time and allocation per operation.
+   */
+  public static void run(String name, int warmups, int iterations,
+                         Operation op) throws Exception {
+    run(name, warmups, iterations, 1, "op", op);
+  }
+
+  /**
+   * Same as above, for an operation that processes several units
+   * (e.g. the rows of a scan): the time and allocation are printed
+   * per unit rather than per operation.
+   */
+  public static void run(String name, int warmups, int iterations,
+                         long unitsPerOp, String unit,
+                         Operation op) throws Exception {
+    for (int i = 0; i < warmups; i++)
+      sink += op.run();
+
+    long tid = Thread.currentThread().getId();
+    long bytes = THREADS.getThreadAllocatedBytes(tid);
+    long start = System.nanoTime();
+
+    for (int i = 0; i < iterations; i++)
+      sink += op.run();
+
+    long nanos = System.nanoTime() - start;
+    bytes = THREADS.getThreadAllocatedBytes(tid) - bytes;
+
+    double units = (double) iterations * unitsPerOp;
+
+    System.out.println(String.format("%-40s %12.1f ns/%s %12.1f bytes/%s",
+                                     name,
+                                     nanos / units, unit,
+                                     bytes / units, unit));
+  }
+}
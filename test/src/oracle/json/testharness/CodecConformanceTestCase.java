@@ -0,0 +1,284 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Conformance kit for DocumentCodecFactory implementations. A
+ *      codec is checked by extending this class and returning a new
+ *      factory from createFactory(). The checks cover what SODA relies
+ *      on: text and document round trips, key extraction, rekeying,
+ *      binary images (if the factory has an image format), and use of
+ *      the codec pool by several threads. Doesn't need a database.
+ */
+
+package oracle.json.testharness;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
+import jakarta.json.JsonNumber;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonValue;
+
+import oracle.json.common.CodecPool;
+import oracle.json.common.DocumentCodec;
+import oracle.json.common.DocumentCodecFactory;
+import oracle.json.common.JsonFactoryProvider;
+
+public abstract class CodecConformanceTestCase extends JsonTestCase {
+
+  private static final String[] KEY_PATH = new String[] { "_id" };
+
+  private static final String[] DOCUMENTS = new String[] {
+    "{}",
+    "{\"_id\" : \"abc\", \"name\" : \"pear\", \"count\" : 47}",
+    "{\"a\" : [1, 2.5, -3e10, true, false, null], \"b\" : {\"c\" : {\"d\" : []}}}",
+    "{\"text\" : \"caf\u00e9 \u20ac \ud83d\ude00 \\\"quoted\\\" \\\\ \\n\"}",
+    "{\"big\" : 123456789012345678901234567890, \"small\" : 0.000000000001}",
+    "{\"list\" : [{\"x\" : 1}, {\"x\" : 2}, [[]], \"\"]}"
+  };
+
+  protected final JsonFactoryProvider provider = new JsonFactoryProvider();
+
+  protected DocumentCodecFactory factory;
+
+  /**
+   * Create the factory under test
+   */
+  protected abstract DocumentCodecFactory createFactory();
+
+  /**
+   * Whether the factory is expected to be discovered as a service
+   * provider under its name
+   */
+  protected boolean isRegistered() {
+    return true;
+  }
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    factory = createFactory();
+    factory.setFactoryProvider(provider);
+  }
+
+  private JsonValue parse(String json) {
+    return provider.getReaderFactory().createReader(new StringReader(json)).readValue();
+  }
+
+  private JsonValue parse(byte[] json) {
+    return provider.getReaderFactory()
+                   .createReader(new ByteArrayInputStream(json)).readValue();
+  }
+
+  /**
+   * Compare JSON values, allowing a codec to change the scale of numbers
+   * and the order of fields
+   */
+  protected static void assertSameJson(String message,
+                                       JsonValue expected,
+                                       JsonValue actual) {
+    assertEquals(message, expected.getValueType(), actual.getValueType());
+    switch (expected.getValueType()) {
+      case NUMBER:
+        assertEquals(message + ": " + expected + " vs " + actual, 0,
+                     ((JsonNumber) expected).bigDecimalValue()
+                       .compareTo(((JsonNumber) actual).bigDecimalValue()));
+        break;
+      case ARRAY:
+        JsonArray expArray = expected.asJsonArray();
+        JsonArray actArray = actual.asJsonArray();
+        assertEquals(message, expArray.size(), actArray.size());
+        for (int i = 0; i < expArray.size(); i++)
+          assertSameJson(message, expArray.get(i), actArray.get(i));
+        break;
+      case OBJECT:
+        JsonObject expObject = expected.asJsonObject();
+        JsonObject actObject = actual.asJsonObject();
+        assertEquals(message, expObject.keySet(), actObject.keySet());
+        for (String name : expObject.keySet())
+          assertSameJson(message, expObject.get(name), actObject.get(name));
+        break;
+      default:
+        assertEquals(message, expected, actual);
+        break;
+    }
+  }
+
+  public void testName() {
+    String name = factory.getName();
+    assertNotNull(name);
+    if (isRegistered()) {
+      assertTrue(DocumentCodecFactory.getAvailableNames().contains(name));
+      DocumentCodecFactory found = DocumentCodecFactory.newInstance(name);
+      assertNotNull(found);
+      assertEquals(factory.getClass(), found.getClass());
+      assertNotSame(factory, found);
+    }
+  }
+
+  public void testImageFormat() {
+    // The database stores binary collections as OSON, so that's the
+    // only image format a codec can have
+    String format = factory.getImageFormat();
+    if (format != null)
+      assertEquals(DocumentCodecFactory.OSON_FORMAT, format);
+  }
+
+  public void testStringRoundTrip() {
+    DocumentCodec<?> codec = factory.getCodec();
+    for (String json : DOCUMENTS) {
+      codec.loadString(json);
+      assertSameJson(json, parse(json), parse(codec.getString()));
+    }
+  }
+
+  public void testUnicodeRoundTrip() {
+    DocumentCodec<?> codec = factory.getCodec();
+    for (String json : DOCUMENTS) {
+      codec.loadUnicode(json.getBytes(StandardCharsets.UTF_8));
+      assertSameJson(json, parse(json), parse(codec.getUnicode()));
+    }
+  }
+
+  // Loads the document read from the text back into the codec, after
+  // another document, and returns it as text
+  private static <T> String reload(DocumentCodec<T> codec, String json) {
+    codec.loadString(json);
+    T doc = codec.getDocument();
+    assertNotNull(json, doc);
+
+    codec.loadString("{\"other\" : true}");
+    assertNotNull(codec.getDocument());
+
+    codec.loadDocument(doc);
+    return codec.getString();
+  }
+
+  public void testDocumentRoundTrip() {
+    DocumentCodec<?> codec = factory.getCodec();
+    for (String json : DOCUMENTS)
+      assertSameJson(json, parse(json), parse(reload(codec, json)));
+  }
+
+  public void testGetKey() {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.setKeyPath(KEY_PATH);
+
+    codec.loadString("{\"name\" : \"pear\", \"_id\" : \"abc\"}");
+    assertEquals("abc", codec.getKey(false));
+
+    codec.loadString("{\"_id\" : 123, \"name\" : \"pear\"}");
+    assertEquals("123", codec.getKey(false));
+
+    codec.loadUnicode("{\"_id\" : \"def\"}".getBytes(StandardCharsets.UTF_8));
+    assertEquals("def", codec.getKey(false));
+
+    codec.loadString("{\"name\" : \"pear\", \"nested\" : {\"_id\" : \"no\"}}");
+    assertNull(codec.getKey(false));
+
+    codec.setKeyPath(new String[] { "a", "b" });
+    codec.loadString("{\"a\" : {\"b\" : \"ghi\"}}");
+    assertEquals("ghi", codec.getKey(false));
+  }
+
+  public void testDuplicateKey() {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.setKeyPath(KEY_PATH);
+    codec.loadString("{\"_id\" : \"abc\", \"_id\" : \"def\"}");
+    try {
+      codec.getKey(false);
+      fail("No exception for a duplicate key");
+    } catch (JsonException e) {
+      // Expected
+    }
+  }
+
+  public void testRekey() {
+    DocumentCodec<?> codec = factory.getCodec();
+    for (String json : new String[] { "{\"_id\" : \"abc\", \"name\" : \"pear\"}",
+                                      "{\"name\" : \"pear\"}" }) {
+      codec.loadString(json);
+      codec.setKeyPath(KEY_PATH);
+      codec.setNewKey("xyz");
+      codec.setRemoveKey(true);
+
+      JsonObject obj = parse(codec.getString()).asJsonObject();
+      assertEquals(json, "xyz", obj.getString("_id"));
+      assertEquals(json, "pear", obj.getString("name"));
+      assertEquals(json, 2, obj.size());
+    }
+  }
+
+  public void testImageRoundTrip() {
+    DocumentCodec<?> codec = factory.getCodec();
+    if (factory.getImageFormat() == null) {
+      codec.loadString(DOCUMENTS[1]);
+      try {
+        codec.getImage();
+        fail("No exception for an image without an image format");
+      } catch (JsonException e) {
+        // Expected
+      }
+      return;
+    }
+
+    for (String json : DOCUMENTS) {
+      codec.loadString(json);
+      byte[] image = codec.getImage();
+      assertNotNull(json, image);
+
+      DocumentCodec<?> other = factory.getCodec();
+      other.loadImage(image);
+      assertSameJson(json, parse(json), parse(other.getString()));
+    }
+
+    codec.loadString(DOCUMENTS[1]);
+    byte[] image = codec.getImage();
+    codec.loadImage(image);
+    codec.setKeyPath(KEY_PATH);
+    assertEquals("abc", codec.getKey(false));
+  }
+
+  public void testCodecPool() throws Exception {
+    final CodecPool pool = factory.getCodecPool();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            for (int i = 0; i < 200; i++) {
+              String json = "{\"_id\" : \"k" + i + "\", \"n\" : " + i + "}";
+              DocumentCodec<?> codec = pool.acquire();
+              try {
+                codec.setKeyPath(KEY_PATH);
+                codec.loadString(json);
+                assertEquals("k" + i, codec.getKey(false));
+                assertSameJson(json, parse(json), parse(codec.getUnicode()));
+              } finally {
+                pool.release(codec);
+              }
+            }
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+
+    if (failure.get() != null)
+      throw new AssertionError(failure.get());
+  }
+}
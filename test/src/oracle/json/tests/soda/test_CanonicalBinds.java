@@ -0,0 +1,104 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests canonical generation of filter SQL, which binds literals
+ *      where possible and pads $in lists, so that filters differing only
+ *      in their values share the same SQL text. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+
+import jakarta.json.JsonObject;
+
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.parser.AndORTree;
+import oracle.json.parser.ValueTypePair;
+import oracle.json.testharness.JsonTestCase;
+
+public class test_CanonicalBinds extends JsonTestCase {
+
+  private final JsonFactoryProvider provider = new JsonFactoryProvider();
+
+  private AndORTree generate(String filter, boolean strict, boolean canonical)
+    throws Exception {
+    JsonObject obj = provider.getReaderFactory()
+      .createReader(new StringReader(filter)).readObject();
+    AndORTree tree = AndORTree.createTree(obj, strict, false);
+    tree.setCanonicalBinds(canonical);
+    tree.generateJsonExists();
+    return tree;
+  }
+
+  private String sql(AndORTree tree) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    tree.appendFilterSpec(sb, false, "DATA", null, false);
+    return sb.toString();
+  }
+
+  private static String inList(int n) {
+    StringBuilder sb = new StringBuilder("{\"age\" : {\"$in\" : [");
+    for (int i = 0; i < n; i++) {
+      if (i > 0) sb.append(", ");
+      sb.append(i * 10);
+    }
+    return sb.append("]}}").toString();
+  }
+
+  public void testPaddedInLists() throws Exception {
+    Set<String> shapes = new HashSet<String>();
+    for (int n = 2; n <= 16; n++) {
+      AndORTree tree = generate(inList(n), false, true);
+      shapes.add(sql(tree));
+
+      // Padded with copies of the last value
+      int size = Integer.highestOneBit(n - 1) << 1;
+      assertEquals(size, tree.getValueArray().size());
+      ValueTypePair last = tree.getValueArray().get(size - 1);
+      assertEquals((n - 1) * 10, last.getNumberValue().intValue());
+    }
+    // Lists of 2, 3-4, 5-8, and 9-16 values
+    assertEquals(4, shapes.size());
+
+    shapes.clear();
+    for (int n = 2; n <= 16; n++)
+      shapes.add(sql(generate(inList(n), false, false)));
+    assertEquals(15, shapes.size());
+  }
+
+  public void testPaddedInlinedValue() throws Exception {
+    String filter = "{\"flag\" : {\"$in\" : [\"x\", \"y\", true]}}";
+    AndORTree tree = generate(filter, false, true);
+    String text = sql(tree);
+    assertEquals(2, tree.getValueArray().size());
+    assertTrue(text, text.contains("$B1, true, true)"));
+  }
+
+  public void testBoundLiterals() throws Exception {
+    String[] filters = new String[] {
+      "{\"a\" : true, \"b\" : null, \"c\" : \"false\"}",
+      "{\"a\" : false, \"b\" : 12, \"c\" : \"abc\"}"
+    };
+
+    // Lax mode in-lines the constants, so the two filters differ
+    assertFalse(sql(generate(filters[0], false, true))
+                .equals(sql(generate(filters[1], false, true))));
+
+    // Strict mode can bind them as JSON
+    AndORTree tree = generate(filters[0], true, true);
+    assertEquals(3, tree.getValueArray().size());
+    assertEquals(sql(tree), sql(generate(filters[1], true, true)));
+
+    // Not without canonical binds
+    assertEquals(0, generate(filters[0], true, false).getValueArray().size());
+
+    // The empty string is always in-lined
+    tree = generate("{\"a\" : \"\"}", true, true);
+    assertEquals(0, tree.getValueArray().size());
+  }
+}
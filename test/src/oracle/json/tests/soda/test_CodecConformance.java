@@ -0,0 +1,20 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+package oracle.json.tests.soda;
+
+import oracle.json.common.DocumentCodecFactory;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.CodecConformanceTestCase;
+
+/**
+ * Runs the codec conformance kit against the built-in OSON codec.
+ * Doesn't need a database.
+ */
+public class test_CodecConformance extends CodecConformanceTestCase {
+
+  @Override
+  protected DocumentCodecFactory createFactory() {
+    return new OsonCodecFactory();
+  }
+}
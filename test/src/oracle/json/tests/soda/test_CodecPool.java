@@ -0,0 +1,167 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests the buffer and codec pools under concurrent borrowing and
+ *      returning, and checks that codecs kept by documents don't hold
+ *      on to pooled buffers. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import oracle.json.common.BufferPool;
+import oracle.json.common.CodecPool;
+import oracle.json.common.DocumentCodec;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.JsonTestCase;
+
+public class test_CodecPool extends JsonTestCase {
+
+  private static final String[] KEY_PATH = new String[] { "_id" };
+
+  private static final int THREADS = 8;
+
+  private interface Task {
+    void run(int thread) throws Exception;
+  }
+
+  private static void runThreads(final Task task) throws Exception {
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            task.run(thread);
+          } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+
+    if (failure.get() != null)
+      throw new AssertionError(failure.get());
+  }
+
+  private static String document(int i, int padding) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"_id\" : \"k").append(i).append("\", \"n\" : ").append(i);
+    sb.append(", \"pad\" : \"");
+    for (int j = 0; j < padding; j++)
+      sb.append((char) ('a' + (j % 26)));
+    return sb.append("\"}").toString();
+  }
+
+  public void testBufferBorrowReturn() throws Exception {
+    final BufferPool pool = new BufferPool(64 * 1024, 4);
+    final Set<byte[]> inUse =
+      Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<byte[], Boolean>()));
+
+    runThreads(new Task() {
+      public void run(int thread) {
+        Random random = new Random(thread);
+        for (int i = 0; i < 5000; i++) {
+          int size = 1 + random.nextInt(100 * 1024);
+          byte[] buf = pool.acquire(size);
+          assertTrue(buf.length >= size);
+
+          // No buffer is handed to two borrowers at once
+          assertTrue(inUse.add(buf));
+          Arrays.fill(buf, 0, size, (byte) thread);
+          for (int j = 0; j < size; j += 512)
+            assertEquals((byte) thread, buf[j]);
+          assertTrue(inUse.remove(buf));
+
+          pool.release(buf);
+        }
+      }
+    });
+
+    // 4K to 64K is five size classes, each keeping at most 4 buffers
+    assertTrue(pool.getIdleCount() > 0);
+    assertTrue(pool.getIdleCount() <= 5 * 4);
+
+    // Buffers above the maximum size are never pooled
+    int idle = pool.getIdleCount();
+    pool.release(new byte[128 * 1024]);
+    assertEquals(idle, pool.getIdleCount());
+  }
+
+  public void testCodecBorrowReturn() throws Exception {
+    final OsonCodecFactory factory = new OsonCodecFactory();
+    final BufferPool buffers = new BufferPool(256 * 1024, 4);
+    final CodecPool pool = new CodecPool(factory, buffers, 4);
+
+    // Reference images, from a single thread
+    final List<byte[]> images = new ArrayList<byte[]>();
+    DocumentCodec<?> reference = factory.getCodec();
+    for (int i = 0; i < 50; i++) {
+      reference.loadString(document(i, (i == 7) ? 400000 : i * 100));
+      images.add(reference.getImage());
+    }
+
+    runThreads(new Task() {
+      public void run(int thread) {
+        for (int round = 0; round < 10; round++) {
+          for (int i = 0; i < images.size(); i++) {
+            DocumentCodec<?> codec = pool.acquire();
+            try {
+              codec.loadString(document(i, (i == 7) ? 400000 : i * 100));
+              assertTrue(Arrays.equals(images.get(i), codec.getImage()));
+
+              codec.setKeyPath(KEY_PATH);
+              assertEquals("k" + i, codec.getKey(false));
+            } finally {
+              pool.release(codec);
+            }
+          }
+        }
+      }
+    });
+
+    assertTrue(pool.getIdleCount() > 0);
+    assertTrue(pool.getIdleCount() <= 4);
+
+    // Released codecs give their buffers back
+    assertTrue(buffers.getIdleCount() > 0);
+  }
+
+  public void testDocumentCodecsReturnBuffers() {
+    BufferPool shared = BufferPool.getShared();
+    OsonCodecFactory factory = new OsonCodecFactory();
+
+    // Codecs kept by documents, shared and detached
+    List<DocumentCodec<?>> kept = new ArrayList<DocumentCodec<?>>();
+    for (int i = 0; i < 2 * BufferPool.DEFAULT_MAX_IDLE; i++) {
+      DocumentCodec<?> codec = factory.getCodec();
+      if ((i % 2) == 0)
+        codec.detachFactory();
+      codec.loadString(document(i, 1000));
+      assertNotNull(codec.getImage());
+      codec.loadImage(codec.getImage());
+      assertNotNull(codec.getUnicode());
+      kept.add(codec);
+    }
+
+    // None of them holds on to a buffer, so the pool isn't drained
+    assertTrue(shared.getIdleCount() > 0);
+    assertEquals(2 * BufferPool.DEFAULT_MAX_IDLE, kept.size());
+  }
+}
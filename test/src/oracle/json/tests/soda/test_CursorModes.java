@@ -0,0 +1,381 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+   Tests for the internal cursor modes (flyweight documents, etc.)
+ */
+
+package oracle.json.tests.soda;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import oracle.json.common.DistinctValue;
+import oracle.json.testharness.SodaTestCase;
+import oracle.soda.OracleCollection;
+import oracle.soda.OracleCursor;
+import oracle.soda.OracleDocument;
+import oracle.soda.OracleException;
+import oracle.soda.rdbms.impl.CollectionAggregationImpl;
+import oracle.soda.rdbms.impl.GroupedAggregation;
+import oracle.soda.rdbms.impl.OracleCollectionImpl;
+import oracle.soda.rdbms.impl.OracleCursorImpl;
+import oracle.soda.rdbms.impl.OracleDatabaseImpl;
+import oracle.soda.rdbms.impl.OracleOperationBuilderImpl;
+import oracle.soda.rdbms.impl.QueryBatch;
+import oracle.soda.rdbms.impl.QueryStatistics;
+
+public class test_CursorModes extends SodaTestCase {
+
+  public void testFlyweight() throws Exception {
+    OracleCollection col = db.admin().createCollection("testFlyweight");
+    Set<String> keys = new HashSet<String>();
+    for (int i = 0; i < 50; i++) {
+      keys.add(col.insertAndGet(db.createDocumentFromString("{\"num\" : " + i + "}")).getKey());
+    }
+
+    OracleCursor c = ((OracleOperationBuilderImpl) col.find()).flyweight().getCursor();
+    Set<String> foundKeys = new HashSet<String>();
+    Set<String> foundContents = new HashSet<String>();
+    Set<OracleDocument> objects =
+      Collections.newSetFromMap(new IdentityHashMap<OracleDocument, Boolean>());
+    while (c.hasNext()) {
+      OracleDocument doc = c.next();
+      String key = doc.getKey();
+      String content = doc.getContentAsString();
+      // Reading ahead doesn't overwrite the document handed out
+      if (c.hasNext()) {
+        assertEquals(key, doc.getKey());
+        assertEquals(content, doc.getContentAsString());
+      }
+      // The row read ahead goes into a spare, so there are two
+      // document objects at most, whatever the number of rows
+      objects.add(doc);
+      assertTrue(objects.size() <= 2);
+      assertNotNull(doc.getVersion());
+      assertNotNull(doc.getLastModified());
+      assertEquals("application/json", doc.getMediaType());
+      foundKeys.add(doc.getKey());
+      foundContents.add(doc.getContentAsString());
+    }
+    c.close();
+
+    assertEquals(keys, foundKeys);
+    assertEquals(50, foundContents.size());
+  }
+
+  public void testGetKeys() throws Exception {
+    OracleCollection col = db.admin().createCollection("testGetKeys");
+    Set<String> keys = new HashSet<String>();
+    for (int i = 0; i < 25; i++)
+      keys.add(col.insertAndGet(db.createDocumentFromString("{\"num\" : " + i + "}")).getKey());
+
+    CollectionAggregationImpl.CloseableIterator<String[]> it =
+      ((OracleOperationBuilderImpl) col.find()).getKeys(10);
+    Set<String> found = new HashSet<String>();
+    int batches = 0;
+    while (it.hasNext()) {
+      String[] batch = it.next();
+      // Batches of 10, 10 and 5 keys
+      assertEquals((batches < 2) ? 10 : 5, batch.length);
+      for (String key : batch)
+        found.add(key);
+      batches++;
+    }
+    it.close();
+    assertEquals(3, batches);
+    assertEquals(keys, found);
+
+    // With a filter
+    it = ((OracleOperationBuilderImpl) col.find().filter("{\"num\" : {\"$lt\" : 3}}")).getKeys(100);
+    assertTrue(it.hasNext());
+    assertEquals(3, it.next().length);
+    assertFalse(it.hasNext());
+    it.close();
+
+    // Default collections have VARCHAR2 keys
+    try {
+      ((OracleOperationBuilderImpl) col.find()).getRawKeys(10);
+      fail("No exception for getRawKeys() on VARCHAR2 keys");
+    } catch (OracleException e) {
+      assertEquals("Collection testGetKeys does not have a RAW key column.", e.getMessage());
+    }
+
+    try {
+      ((OracleOperationBuilderImpl) col.find()).getKeys(0);
+      fail("No exception for zero batch size");
+    } catch (OracleException e) {
+      assertEquals("batchSize argument must be positive.", e.getMessage());
+    }
+  }
+
+  public void testGetFields() throws Exception {
+    OracleCollection col = db.admin().createCollection("testGetFields");
+    for (int i = 0; i < 10; i++)
+      col.insert(db.createDocumentFromString("{\"num\" : " + i + ", \"name\" : \"n" + i +
+                                             "\", \"flag\" : " + (i % 2 == 0) +
+                                             ", \"address\" : {\"city\" : \"c" + i + "\"}" +
+                                             ", \"tags\" : [" + i + "]}"));
+
+    OracleOperationBuilderImpl builder = (OracleOperationBuilderImpl)
+      col.find().filter("{\"$query\" : {\"num\" : {\"$gte\" : 5}}, \"$orderby\" : {\"num\" : 1}}");
+    CollectionAggregationImpl.CloseableIterator<Object[]> it =
+      builder.getFields("num", "name", "flag", "address.city", "address", "missing");
+    int expected = 5;
+    while (it.hasNext()) {
+      Object[] row = it.next();
+      assertEquals(6, row.length);
+      assertEquals(new BigDecimal(expected), row[0]);
+      assertEquals("n" + expected, row[1]);
+      assertEquals(Boolean.valueOf(expected % 2 == 0), row[2]);
+      assertEquals("c" + expected, row[3]);
+      // Not a scalar, and missing
+      assertNull(row[4]);
+      assertNull(row[5]);
+      expected++;
+    }
+    it.close();
+    assertEquals(10, expected);
+
+    // With a limit
+    it = ((OracleOperationBuilderImpl) col.find().filter("{\"$query\" : {}, \"$orderby\" : {\"num\" : -1}}")
+          .limit(2)).getFields("num");
+    assertEquals(new BigDecimal(9), it.next()[0]);
+    assertEquals(new BigDecimal(8), it.next()[0]);
+    assertFalse(it.hasNext());
+    it.close();
+
+    try {
+      ((OracleOperationBuilderImpl) col.find()).getFields("tags[0]");
+      fail("No exception for an array step");
+    } catch (OracleException e) {
+      assertEquals("Field path tags[0] should not contain array steps.", e.getMessage());
+    }
+
+    try {
+      ((OracleOperationBuilderImpl) col.find()).getFields();
+      fail("No exception for no paths");
+    } catch (OracleException e) {
+      assertEquals("paths argument cannot be null.", e.getMessage());
+    }
+  }
+
+  public void testGroupedAggregation() throws Exception {
+    OracleCollection col = db.admin().createCollection("testGroupedAggregation");
+    String[] regions = { "east", "west", "north" };
+    for (int i = 0; i < 30; i++) {
+      // north has no amounts
+      String amount = (i % 3 == 2) ? "" : ", \"amount\" : " + i;
+      col.insert(db.createDocumentFromString("{\"region\" : \"" + regions[i % 3] + "\"" + amount + "}"));
+    }
+    col.insert(db.createDocumentFromString("{\"amount\" : 100}"));
+
+    CollectionAggregationImpl agg = new CollectionAggregationImpl((OracleCollectionImpl) col);
+    GroupedAggregation group = agg.aggregate().groupBy("region").count()
+      .count("amount").sum("amount").min("amount").max("amount");
+    String[] names = group.getColumnNames();
+    assertEquals(6, names.length);
+    assertEquals("region", names[0]);
+    assertEquals("count(*)", names[1]);
+    assertEquals("sum(amount)", names[3]);
+
+    // Ordered by region, with the document without one last
+    CollectionAggregationImpl.CloseableIterator<Object[]> it = group.execute();
+    Object[] row = it.next();
+    assertEquals("east", row[0]);
+    assertEquals(Long.valueOf(10), row[1]);
+    assertEquals(Long.valueOf(10), row[2]);
+    assertEquals(135, ((BigDecimal) row[3]).intValue());   // 0 + 3 + ... + 27
+    assertEquals(0, ((BigDecimal) row[4]).intValue());
+    assertEquals(27, ((BigDecimal) row[5]).intValue());
+    row = it.next();
+    assertEquals("north", row[0]);
+    assertEquals(Long.valueOf(10), row[1]);
+    assertEquals(Long.valueOf(0), row[2]);
+    assertNull(row[3]);
+    row = it.next();
+    assertEquals("west", row[0]);
+    assertEquals(145, ((BigDecimal) row[3]).intValue());   // 1 + 4 + ... + 28
+    row = it.next();
+    assertNull(row[0]);
+    assertEquals(Long.valueOf(1), row[1]);
+    assertFalse(it.hasNext());
+    it.close();
+
+    // No grouping, with a filter
+    it = agg.aggregate().avg("amount").count()
+      .filter(db.createDocumentFromString("{\"region\" : {\"$in\" : [\"east\", \"west\"]}}"))
+      .execute();
+    row = it.next();
+    assertEquals(14, ((BigDecimal) row[0]).intValue());      // 280 / 20
+    assertEquals(Long.valueOf(20), row[1]);
+    assertFalse(it.hasNext());
+    it.close();
+
+    try {
+      agg.aggregate().execute();
+      fail("No exception for an empty aggregation");
+    } catch (OracleException e) {
+      assertEquals("Invalid aggregation: no group-by paths or aggregates.", e.getMessage());
+    }
+
+    try {
+      agg.aggregate().groupBy("a[0].b");
+      fail("No exception for a path with array steps");
+    } catch (OracleException e) {
+      assertEquals("Invalid aggregation: path a[0].b contains array steps.", e.getMessage());
+    }
+  }
+
+  public void testDistinct() throws Exception {
+    OracleCollection col = db.admin().createCollection("testDistinct");
+    // Tag i appears in i documents; 1 and 1.0 are the same number
+    for (int i = 1; i <= 6; i++)
+      for (int j = 0; j < i; j++)
+        col.insert(db.createDocumentFromString("{\"tag\" : \"t" + i + "\", \"n\" : [" +
+                                               ((j % 2 == 0) ? "1" : "1.0") + ", true]}"));
+
+    CollectionAggregationImpl agg = new CollectionAggregationImpl((OracleCollectionImpl) col);
+
+    // The streaming variant returns the same values as distinct()
+    List<DistinctValue> all = agg.distinct("tag", null);
+    assertEquals(6, all.size());
+    CollectionAggregationImpl.CloseableIterator<DistinctValue> it = agg.distinctIterator("tag", null);
+    for (DistinctValue value : all) {
+      assertTrue(it.hasNext());
+      DistinctValue streamed = it.next();
+      assertEquals(value.getNativeValue(), streamed.getNativeValue());
+      assertEquals(value.count, streamed.count);
+    }
+    assertFalse(it.hasNext());
+    it.close();
+
+    List<DistinctValue> top = agg.topDistinct("tag", 3, null);
+    assertEquals(3, top.size());
+    assertEquals("t6", top.get(0).getNativeValue());
+    assertEquals(6, top.get(0).count);
+    assertEquals("t5", top.get(1).getNativeValue());
+    assertEquals("t4", top.get(2).getNativeValue());
+
+    top = agg.topDistinct("tag", 2,
+                          db.createDocumentFromString("{\"tag\" : {\"$in\" : [\"t1\", \"t2\", \"t3\"]}}"));
+    assertEquals(2, top.size());
+    assertEquals("t3", top.get(0).getNativeValue());
+    assertEquals("t2", top.get(1).getNativeValue());
+
+    // Array elements are expanded, and the number forms are merged
+    top = agg.topDistinct("n", 5, null);
+    assertEquals(2, top.size());
+    assertEquals(21, top.get(0).count);
+    assertEquals(21, top.get(1).count);
+
+    try {
+      agg.topDistinct("tag", 0, null);
+      fail("No exception for k of zero");
+    } catch (OracleException e) {
+      assertEquals("k argument must be positive.", e.getMessage());
+    }
+  }
+
+  private static int count(OracleCursor c) throws Exception {
+    int n = 0;
+    while (c.hasNext()) {
+      c.next();
+      n++;
+    }
+    return n;
+  }
+
+  public void testQueryBatch() throws Exception {
+    OracleCollection col1 = db.admin().createCollection("testQueryBatch1");
+    OracleCollection col2 = db.admin().createCollection("testQueryBatch2");
+    for (int i = 0; i < 20; i++) {
+      col1.insert(db.createDocumentFromString("{\"num\" : " + i + "}"));
+      if (i < 5)
+        col2.insert(db.createDocumentFromString("{\"name\" : \"n" + i + "\"}"));
+    }
+    String key = col2.find().getOne().getKey();
+
+    QueryBatch batch = ((OracleDatabaseImpl) db).createQueryBatch();
+    batch.add(col1.find().filter("{\"num\" : {\"$lt\" : 7}}"))
+         .add(col2.find())
+         .add(col1.find().filter("{\"$query\" : {\"num\" : {\"$in\" : [3, 4, 5]}}, " +
+                                 "\"$orderby\" : {\"num\" : -1}}"))
+         .add(col2.find().key(key))
+         .add(col1.find().skip(15).limit(10));
+    assertEquals(5, batch.size());
+
+    List<OracleCursor> cursors = batch.execute();
+    assertEquals(5, cursors.size());
+
+    // Cursors can be read and closed in any order
+    OracleCursor sorted = cursors.get(2);
+    assertEquals("{\"num\":5}", sorted.next().getContentAsString());
+    assertEquals("{\"num\":4}", sorted.next().getContentAsString());
+    assertEquals(key, cursors.get(3).next().getKey());
+    cursors.get(3).close();
+    assertEquals(7, count(cursors.get(0)));
+    assertEquals(5, count(cursors.get(1)));
+    assertEquals(5, count(cursors.get(4)));
+    assertEquals("{\"num\":3}", sorted.next().getContentAsString());
+    assertFalse(sorted.hasNext());
+    for (OracleCursor c : cursors)
+      c.close();
+
+    try {
+      batch.execute();
+      fail("No exception for a second execute()");
+    } catch (OracleException e) {
+      assertEquals("Operation cannot be run as part of a query batch: " +
+                   "the batch was already executed.", e.getMessage());
+    }
+
+    assertTrue(((OracleDatabaseImpl) db).createQueryBatch().execute().isEmpty());
+  }
+
+  public void testQueryBatchAsCursor() throws Exception {
+    OracleCollection col = db.admin().createCollection("testQueryBatchAsCursor");
+    for (int i = 0; i < 30; i++)
+      col.insert(db.createDocumentFromString("{\"num\" : " + i + "}"));
+
+    OracleDatabaseImpl dbImpl = (OracleDatabaseImpl) db;
+    QueryStatistics stats = new QueryStatistics();
+    dbImpl.setQueryStatistics(stats);
+    dbImpl.setFetchMemoryBudget(1024L * 1024L);
+    try {
+      String filter = "{\"num\" : {\"$gte\" : 10}}";
+      QueryBatch batch = dbImpl.createQueryBatch();
+      batch.add(col.find().filter(filter).skip(5).limit(3))
+           .add(col.find().filter(filter));
+      List<OracleCursor> cursors = batch.execute();
+
+      // A limited read fetches the rows it returns, as with getCursor(),
+      // and the budget only applies to the read without a limit
+      OracleCursorImpl limited = (OracleCursorImpl) cursors.get(0);
+      OracleCursor direct = col.find().filter(filter).skip(5).limit(3).getCursor();
+      assertEquals(4, limited.getFetchSize());
+      assertEquals(((OracleCursorImpl) direct).getFetchSize(), limited.getFetchSize());
+      assertEquals(3, count(direct));
+      direct.close();
+      assertEquals(3, count(limited));
+      assertEquals(20, count(cursors.get(1)));
+      for (OracleCursor c : cursors)
+        c.close();
+
+      // Batched reads are recorded like the others: the filter's shape
+      // was read three times, twice in the batch
+      List<QueryStatistics.Entry> entries = stats.getEntries("testQueryBatchAsCursor");
+      assertEquals(1, entries.size());
+      assertEquals(3, entries.get(0).getExecutionCount());
+      assertEquals(26, entries.get(0).getRowCount());
+    } finally {
+      dbImpl.setQueryStatistics(null);
+      dbImpl.setFetchMemoryBudget(0L);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+   Tests for the backpressure-aware document publisher
+ */
+
+package oracle.json.tests.soda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import oracle.jdbc.OracleConnection;
+
+import oracle.json.testharness.ConnectionFactory;
+import oracle.json.testharness.SodaTestCase;
+import oracle.soda.OracleCollection;
+import oracle.soda.OracleDatabase;
+import oracle.soda.OracleDocument;
+import oracle.soda.rdbms.impl.DocumentPublisher;
+import oracle.soda.rdbms.impl.OracleOperationBuilderImpl;
+
+public class test_DocumentPublisher extends SodaTestCase {
+
+  // Collects documents, requesting them a few at a time
+  private static class TestSubscriber implements DocumentPublisher.Subscriber<OracleDocument> {
+    final List<String> keys = new ArrayList<String>();
+    final CountDownLatch done = new CountDownLatch(1);
+    final int batch;
+    final int cancelAfter;
+    DocumentPublisher.Subscription subscription;
+    volatile boolean completed = false;
+    volatile Throwable error = null;
+    int outstanding = 0;
+
+    TestSubscriber(int batch, int cancelAfter) {
+      this.batch = batch;
+      this.cancelAfter = cancelAfter;
+    }
+
+    public void onSubscribe(DocumentPublisher.Subscription s) {
+      subscription = s;
+      outstanding = batch;
+      s.request(batch);
+    }
+
+    public void onNext(OracleDocument doc) {
+      keys.add(doc.getKey());
+      if (keys.size() == cancelAfter) {
+        subscription.cancel();
+        done.countDown();
+        return;
+      }
+      if (--outstanding == 0) {
+        outstanding = batch;
+        subscription.request(batch);
+      }
+    }
+
+    public void onError(Throwable t) {
+      error = t;
+      done.countDown();
+    }
+
+    public void onComplete() {
+      completed = true;
+      done.countDown();
+    }
+  }
+
+  public void testPublisher() throws Exception {
+    OracleCollection col = db.admin().createCollection("testPublisher");
+    for (int i = 0; i < 30; i++)
+      col.insert(db.createDocumentFromString("{\"num\" : " + i + "}"));
+
+    TestSubscriber sub = new TestSubscriber(7, -1);
+    ((OracleOperationBuilderImpl) col.find()).publisher().subscribe(sub);
+    assertTrue(sub.done.await(60, TimeUnit.SECONDS));
+    assertNull(sub.error);
+    assertTrue(sub.completed);
+    assertEquals(30, sub.keys.size());
+
+    // Cancel part way; nothing more is delivered
+    sub = new TestSubscriber(4, 10);
+    ((OracleOperationBuilderImpl) col.find()).publisher().subscribe(sub);
+    assertTrue(sub.done.await(60, TimeUnit.SECONDS));
+    Thread.sleep(500);
+    assertFalse(sub.completed);
+    assertEquals(10, sub.keys.size());
+
+    // Invalid demand is signalled as an error
+    final CountDownLatch latch = new CountDownLatch(1);
+    final Throwable[] error = new Throwable[1];
+    ((OracleOperationBuilderImpl) col.find()).publisher().subscribe(
+      new DocumentPublisher.Subscriber<OracleDocument>() {
+        public void onSubscribe(DocumentPublisher.Subscription s) { s.request(0); }
+        public void onNext(OracleDocument doc) { }
+        public void onError(Throwable t) { error[0] = t; latch.countDown(); }
+        public void onComplete() { latch.countDown(); }
+      });
+    assertTrue(latch.await(60, TimeUnit.SECONDS));
+    assertTrue(error[0] instanceof IllegalArgumentException);
+  }
+
+  public void testCursorFailure() throws Exception {
+    OracleCollection col = db.admin().createCollection("testCursorFailure");
+    for (int i = 0; i < 10; i++)
+      col.insert(db.createDocumentFromString("{\"num\" : " + i + "}"));
+
+    // Read on a separate connection, closed after the first
+    // document so that the next fetch fails
+    final OracleConnection connB = ConnectionFactory.createConnection();
+    OracleDatabase dbB = client.getDatabase(connB);
+    OracleCollection colB = dbB.openCollection("testCursorFailure");
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final List<String> keys = new ArrayList<String>();
+    final Throwable[] error = new Throwable[1];
+    final DocumentPublisher.Subscription[] subscription =
+      new DocumentPublisher.Subscription[1];
+
+    ((OracleOperationBuilderImpl) colB.find()).publisher().subscribe(
+      new DocumentPublisher.Subscriber<OracleDocument>() {
+        public void onSubscribe(DocumentPublisher.Subscription s) {
+          subscription[0] = s;
+          s.request(1);
+        }
+        public void onNext(OracleDocument doc) {
+          keys.add(doc.getKey());
+          try {
+            connB.close();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+          subscription[0].request(1);
+        }
+        public void onError(Throwable t) { error[0] = t; latch.countDown(); }
+        public void onComplete() { latch.countDown(); }
+      });
+
+    // The failure is signalled, rather than lost on the executor thread
+    assertTrue(latch.await(60, TimeUnit.SECONDS));
+    assertNotNull(error[0]);
+    assertEquals(1, keys.size());
+
+    // The subscription is terminated: further demand is ignored
+    subscription[0].request(5);
+    Thread.sleep(500);
+    assertEquals(1, keys.size());
+  }
+}
@@ -0,0 +1,56 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests the parsing of the fetch memory budget, and the fetch
+ *      sizes cursors adapt to within it. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.util.Properties;
+
+import oracle.json.testharness.JsonTestCase;
+import oracle.soda.rdbms.OracleRDBMSClient;
+import oracle.soda.rdbms.impl.OracleCursorImpl;
+
+public class test_FetchMemoryBudget extends JsonTestCase {
+
+  private static long budget(String value) {
+    Properties props = new Properties();
+    if (value != null)
+      props.setProperty("oracle.soda.fetchMemoryBudget", value);
+    return new OracleRDBMSClient(props).getFetchMemoryBudget();
+  }
+
+  public void testBudgetParsing() {
+    assertEquals(0L, budget(null));
+    assertEquals(0L, new OracleRDBMSClient().getFetchMemoryBudget());
+    assertEquals(1048576L, budget("1048576"));
+    assertEquals(2048L, budget(" 2048 "));
+    assertEquals(0L, budget("0"));
+
+    // Invalid values leave adaptive fetching off
+    assertEquals(0L, budget("abc"));
+    assertEquals(0L, budget("1.5"));
+    assertEquals(0L, budget(""));
+    assertEquals(0L, budget("-10"));
+  }
+
+  public void testFetchSizeClamping() {
+    // Rows that fit within the budget
+    assertEquals(1000, OracleCursorImpl.adaptiveFetchSize(1000000L, 1000L));
+    assertEquals(3, OracleCursorImpl.adaptiveFetchSize(1000L, 300L));
+
+    // At least one row, even if it's larger than the budget
+    assertEquals(1, OracleCursorImpl.adaptiveFetchSize(100L, 1000L));
+
+    // At most 10000 rows, however small they are
+    assertEquals(10000, OracleCursorImpl.adaptiveFetchSize(1000000000L, 10L));
+    assertEquals(10000, OracleCursorImpl.adaptiveFetchSize(Long.MAX_VALUE, 1L));
+
+    // An empty batch counts as one byte per row
+    assertEquals(500, OracleCursorImpl.adaptiveFetchSize(500L, 0L));
+  }
+}
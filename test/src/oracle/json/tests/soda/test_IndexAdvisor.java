@@ -0,0 +1,108 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests query shapes, and the index specifications the index advisor
+ *      creates for them. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.StringReader;
+
+import jakarta.json.JsonObject;
+
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.parser.AndORTree;
+import oracle.json.parser.QueryShape;
+import oracle.json.testharness.JsonTestCase;
+import oracle.soda.rdbms.impl.IndexAdvisor;
+
+public class test_IndexAdvisor extends JsonTestCase {
+
+  private final JsonFactoryProvider provider = new JsonFactoryProvider();
+
+  private QueryShape shape(String filter) throws Exception {
+    JsonObject obj = provider.getReaderFactory()
+      .createReader(new StringReader(filter)).readObject();
+    AndORTree tree = AndORTree.createTree(obj, false, false);
+    tree.generateJsonExists();
+    return QueryShape.create(tree);
+  }
+
+  private String spec(String filter) throws Exception {
+    return IndexAdvisor.createSpecification("orders", shape(filter));
+  }
+
+  public void testShapes() throws Exception {
+    QueryShape a = shape("{\"age\" : {\"$gt\" : 30}, \"name\" : \"Bob\"}");
+    QueryShape b = shape("{\"name\" : \"Carol\", \"age\" : {\"$gt\" : 45}}");
+    assertEquals(a.getSignature(), b.getSignature());
+    assertEquals(2, a.getTerms().size());
+
+    // Different operators, or structure, are different shapes
+    assertFalse(a.getSignature().equals(
+      shape("{\"age\" : {\"$lt\" : 30}, \"name\" : \"Bob\"}").getSignature()));
+    assertFalse(a.getSignature().equals(
+      shape("{\"$or\" : [{\"age\" : {\"$gt\" : 30}}, {\"name\" : \"Bob\"}]}").getSignature()));
+
+    // The length of an $in list doesn't matter
+    assertEquals(shape("{\"age\" : {\"$in\" : [1, 2]}}").getSignature(),
+                 shape("{\"age\" : {\"$in\" : [1, 2, 3, 4, 5]}}").getSignature());
+
+    // Terms under $or aren't common to all the matches
+    QueryShape c = shape("{\"status\" : \"open\", " +
+                         "\"$or\" : [{\"age\" : 1}, {\"name\" : \"x\"}]}");
+    assertEquals(1, c.getTerms().size());
+    assertEquals("status", c.getTerms().get(0).getPath());
+    assertEquals("string", c.getTerms().get(0).getDatatype());
+
+    QueryShape d = shape("{\"$query\" : {\"age\" : 1}, \"$orderby\" : {\"name\" : 1}}");
+    assertEquals(1, d.getOrderByPaths().size());
+    assertEquals("name", d.getOrderByPaths().get(0));
+    assertEquals("number", d.getTerms().get(0).getDatatype());
+  }
+
+  public void testSpecifications() throws Exception {
+    // Equalities in path order, then a range
+    String text = spec("{\"total\" : {\"$gt\" : 100}, \"status\" : \"open\", " +
+                       "\"customer\" : 12}");
+    assertTrue(text, text.startsWith("{\"name\":\"ORDERS_ADV_"));
+    assertTrue(text, text.endsWith(
+      "\"fields\":[{\"path\":\"customer\",\"datatype\":\"number\"}," +
+      "{\"path\":\"status\",\"datatype\":\"string\"}," +
+      "{\"path\":\"total\",\"datatype\":\"number\"}]}"));
+
+    // Same fields, same name
+    assertEquals(text, spec("{\"customer\" : 7, \"status\" : \"closed\", " +
+                            "\"total\" : {\"$gt\" : 5}}"));
+
+    // Type conversion methods set the datatype, others aren't indexable
+    assertTrue(spec("{\"when\" : {\"$timestamp\" : {\"$gt\" : \"2024-01-01T00:00:00\"}}}")
+               .contains("{\"path\":\"when\",\"datatype\":\"timestamp\"}"));
+    assertNull(spec("{\"name\" : {\"$upper\" : \"BOB\"}}"));
+
+    // Array paths get a multivalue index, without the array steps
+    text = spec("{\"items[*].sku\" : \"x1\", \"status\" : \"open\"}");
+    assertTrue(text, text.contains("\"name\":\"ORDERS_MVI_"));
+    assertTrue(text, text.endsWith(
+      "\"multivalue\":true,\"fields\":[{\"path\":\"items.sku\"}]}"));
+
+    // Nothing indexable
+    assertNull(spec("{\"name\" : {\"$regex\" : \"B.*\"}}"));
+    assertNull(spec("{\"$or\" : [{\"age\" : 1}, {\"name\" : \"x\"}]}"));
+  }
+
+  public void testFullScan() throws Exception {
+    assertTrue(IndexAdvisor.isFullScan(
+      "| 0 | SELECT STATEMENT  |        |\n" +
+      "| 1 |  TABLE ACCESS FULL| ORDERS |\n"));
+    assertTrue(IndexAdvisor.isFullScan(
+      "| 1 |  TABLE ACCESS STORAGE FULL| ORDERS |\n"));
+    assertFalse(IndexAdvisor.isFullScan(
+      "| 1 |  TABLE ACCESS BY INDEX ROWID BATCHED| ORDERS |\n" +
+      "| 2 |   INDEX RANGE SCAN                   | ORDERS_IDX |\n"));
+    assertFalse(IndexAdvisor.isFullScan(null));
+  }
+}
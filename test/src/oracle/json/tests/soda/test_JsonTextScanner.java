@@ -0,0 +1,97 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests the extraction of a top-level key from UTF-8 text without
+ *      validation, which scans the text rather than parsing it. The
+ *      results, and the errors for malformed text, must be the same as
+ *      the parser's. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.nio.charset.StandardCharsets;
+
+import jakarta.json.JsonException;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.common.DocumentCodecFactory;
+import oracle.json.testharness.JsonTestCase;
+
+public class test_JsonTextScanner extends JsonTestCase {
+
+  private static final String[] ID_PATH = new String[] { "_id" };
+
+  private final DocumentCodecFactory factory = new DocumentCodecFactory();
+
+  // The key (or the exception) read from the text
+  private String key(String json, boolean validate) {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.setValidation(validate);
+    codec.setKeyPath(ID_PATH);
+    codec.loadUnicode(json.getBytes(StandardCharsets.UTF_8));
+    try {
+      return codec.getKey(false);
+    } catch (JsonException e) {
+      return "exception";
+    }
+  }
+
+  private static String nest(int depth, String inner) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++)
+      sb.append((i % 2 == 0) ? "{\"n\" : " : "[");
+    sb.append(inner);
+    for (int i = depth - 1; i >= 0; i--)
+      sb.append((i % 2 == 0) ? "}" : "]");
+    return sb.toString();
+  }
+
+  public void testMalformedNestedContainers() {
+    String[] docs = new String[] {
+      "{\"a\" : [1,,2]}",
+      "{\"a\" : {\"b\" 1}}",
+      "{\"a\" : [1,2}}",
+      "{\"a\" : [tru]}",
+      "{\"a\" : [1,,2], \"_id\" : \"k1\"}",
+      "{\"a\" : {\"b\" : 1,}, \"_id\" : \"k1\"}",
+      "{\"a\" : [1 2], \"_id\" : \"k1\"}",
+      "{\"a\" : {1 : 2}, \"_id\" : \"k1\"}",
+      "{\"a\" : [01], \"_id\" : \"k1\"}",
+      "{\"a\" : [\"bad \\q escape\"], \"_id\" : \"k1\"}",
+      "{\"a\" : [\"\\u12\"], \"_id\" : \"k1\"}",
+      "{\"a\" : [truex], \"_id\" : \"k1\"}",
+      "{\"a\" : [[[]]]] , \"_id\" : \"k1\"}",
+      "{\"a\" : [{\"b\" : [}]], \"_id\" : \"k1\"}"
+    };
+
+    for (String doc : docs)
+      assertEquals(doc, "exception", key(doc, false));
+  }
+
+  public void testSameKeysAsParser() {
+    String[] docs = new String[] {
+      "{\"_id\" : \"k1\"}",
+      "{\"a\" : [1, -2.5e3, true, false, null, \"s\"], \"_id\" : \"k1\"}",
+      "{\"a\" : {\"b\" : {\"_id\" : \"no\"}, \"c\" : []}, \"_id\" : 42}",
+      "{\"a\" : [{}, [], [{}], {\"x\" : [{\"y\" : \"}]\"}]}], \"_id\" : \"k1\"}",
+      "{\"a\" : [\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e9\"], \"_id\" : \"k1\"}",
+      "{\"a\" : \"caf\u00e9\", \"_id\" : \"k1\"}",
+      "{\"a\" : " + nest(40, "1") + ", \"_id\" : \"k1\"}",
+      "{\"a\" : " + nest(200, "1") + ", \"_id\" : \"k1\"}",
+      "{\"a\" : {\"b\" : 1}}",
+      "{}",
+      " {\"_id\" : \"k1\"} \n"
+    };
+
+    for (String doc : docs) {
+      String message = (doc.length() > 80) ? doc.substring(0, 80) : doc;
+      assertEquals(message, key(doc, true), key(doc, false));
+    }
+
+    assertEquals("k1", key(docs[3], false));
+    assertEquals("k1", key(docs[7], false));
+    assertNull(key(docs[8], false));
+  }
+}
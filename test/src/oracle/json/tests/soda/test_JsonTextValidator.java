@@ -0,0 +1,156 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests the client-side validation of JSON text, and the key it
+ *      extracts along the way, which is compared with the codec's
+ *      validating extraction. A repeated key step is an error in both
+ *      validation modes, wherever it appears in an object on the key
+ *      path. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.nio.charset.StandardCharsets;
+
+import jakarta.json.JsonException;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.common.DocumentCodecFactory;
+import oracle.json.common.JsonTextValidator;
+import oracle.json.testharness.JsonTestCase;
+
+public class test_JsonTextValidator extends JsonTestCase {
+
+  private static final String[] ID_PATH = new String[] { "_id" };
+
+  private final DocumentCodecFactory factory = new DocumentCodecFactory();
+
+  // The key (or the exception) found by the validator
+  private static String validatorKey(String json, String[] path, boolean strict) {
+    JsonTextValidator validator = new JsonTextValidator(strict);
+    validator.setKeyPath(path);
+    try {
+      validator.validate(json.getBytes(StandardCharsets.UTF_8));
+      return validator.getKey(false);
+    } catch (JsonException e) {
+      return "exception";
+    }
+  }
+
+  // The key (or the exception) found by the codec, parsing all the text
+  private String codecKey(String json, String[] path) {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.setValidation(true);
+    codec.setKeyPath(path);
+    codec.loadUnicode(json.getBytes(StandardCharsets.UTF_8));
+    try {
+      return codec.getKey(false);
+    } catch (JsonException e) {
+      return "exception";
+    }
+  }
+
+  private static boolean isValid(String json, boolean strict) {
+    JsonTextValidator validator = new JsonTextValidator(strict);
+    try {
+      validator.validate(json.getBytes(StandardCharsets.UTF_8));
+      return true;
+    } catch (JsonException e) {
+      return false;
+    }
+  }
+
+  public void testRepeatedKeyStep() {
+    String[] docs = new String[] {
+      "{\"_id\" : \"a\", \"_id\" : \"b\"}",
+      "{\"_id\" : \"k1\", \"_id\" : \"k1\"}",
+      "{\"_id\" : \"k1\", \"name\" : \"pear\", \"_id\" : 2}",
+      "{\"_id\" : {\"a\" : 1}, \"_id\" : \"k1\"}",
+      "{\"_id\" : [1], \"_id\" : \"k1\"}"
+    };
+
+    // The codec also finds a step repeated straight after the key
+    assertEquals("exception", codecKey(docs[0], ID_PATH));
+    assertEquals("exception", codecKey(docs[1], ID_PATH));
+
+    for (String doc : docs) {
+      assertEquals(doc, "exception", validatorKey(doc, ID_PATH, false));
+      assertEquals(doc, "exception", validatorKey(doc, ID_PATH, true));
+
+      // The text itself is valid, unless names must be unique
+      assertTrue(doc, isValid(doc, false));
+      assertFalse(doc, isValid(doc, true));
+    }
+  }
+
+  public void testRepeatedNestedStep() {
+    String[] path = new String[] { "a", "b" };
+    String[] docs = new String[] {
+      "{\"a\" : {\"b\" : 1, \"b\" : 2}}",
+      "{\"a\" : {\"b\" : 1}, \"a\" : {\"b\" : 2}}",
+      "{\"a\" : {\"c\" : 1}, \"a\" : {\"b\" : 2}}",
+      "{\"a\" : 1, \"a\" : {\"b\" : 2}}",
+      "{\"a\" : {\"b\" : 1}, \"a\" : 3}"
+    };
+
+    for (String doc : docs)
+      assertEquals(doc, "exception", validatorKey(doc, path, false));
+    assertEquals("exception", codecKey(docs[0], path));
+  }
+
+  public void testSameKeysAsCodec() {
+    String[] docs = new String[] {
+      "{\"_id\" : \"k1\"}",
+      "{\"name\" : \"pear\", \"_id\" : \"k1\", \"count\" : 47}",
+      "{\"_id\" : 12.50}",
+      "{\"_id\" : true}",
+      "{\"_id\" : null}",
+      "{\"name\" : \"pear\"}",
+      "{}",
+      // Repeated names off the key path are allowed in standard mode
+      "{\"x\" : 1, \"x\" : 2, \"_id\" : \"k1\"}",
+      "{\"inner\" : {\"_id\" : 1, \"_id\" : 2}, \"_id\" : \"k1\"}",
+      "{\"list\" : [{\"_id\" : 1}, {\"_id\" : 2}], \"_id\" : \"k1\"}",
+      "{\"inner\" : {\"_id\" : \"no\"}, \"_id\" : \"k1\", \"more\" : {\"_id\" : \"no\"}}"
+    };
+
+    for (String doc : docs)
+      assertEquals(doc, codecKey(doc, ID_PATH), validatorKey(doc, ID_PATH, false));
+
+    assertEquals("k1", validatorKey(docs[7], ID_PATH, false));
+    assertEquals("k1", validatorKey(docs[8], ID_PATH, false));
+    assertEquals("exception", validatorKey(docs[7], ID_PATH, true));
+
+    String[] path = new String[] { "a", "b" };
+    String[] nested = new String[] {
+      "{\"a\" : {\"b\" : \"k1\"}}",
+      "{\"x\" : {\"a\" : 1}, \"a\" : {\"y\" : [1, 2], \"b\" : 7}}",
+      "{\"a\" : [{\"b\" : 1}, {\"b\" : 2}]}"
+    };
+
+    for (String doc : nested)
+      assertEquals(doc, codecKey(doc, path), validatorKey(doc, path, false));
+
+    // Names in objects below the path aren't steps
+    assertEquals("3", validatorKey("{\"a\" : {\"c\" : {\"b\" : 1}, \"d\" : {\"b\" : 2}, \"b\" : 3}}",
+                                   path, false));
+  }
+
+  public void testInvalidText() {
+    String[] docs = new String[] {
+      "{\"_id\" : \"k1\"",
+      "{\"_id\" : \"k1\",}",
+      "{\"_id\" : 01}",
+      "{\"_id\" : \"k1\"} x",
+      "[1, 2,]",
+      "{'_id' : 1}"
+    };
+
+    for (String doc : docs) {
+      assertFalse(doc, isValid(doc, false));
+      assertEquals(doc, "exception", validatorKey(doc, ID_PATH, false));
+    }
+  }
+}
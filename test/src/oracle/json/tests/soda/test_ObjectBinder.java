@@ -0,0 +1,180 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests the binding of application objects to and from JSON:
+ *      numbers read into integral fields of each width must be
+ *      integers in range, and periods are limited to what a JSON
+ *      interval can hold. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Period;
+import java.util.List;
+
+import jakarta.json.JsonException;
+
+import oracle.json.rdbms.ObjectBinder;
+import oracle.json.testharness.JsonTestCase;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+import oracle.sql.json.OracleJsonParser;
+
+public class test_ObjectBinder extends JsonTestCase {
+
+  public static class Widths {
+    byte by;
+    short sh;
+    int i;
+    long l;
+    Byte byw;
+    Short shw;
+    Integer iw;
+    Long lw;
+    List<Byte> bytes;
+  }
+
+  public static class Interval {
+    Period period;
+  }
+
+  private final OracleJsonFactory osonFactory = new OracleJsonFactory();
+
+  private byte[] image(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    gen.write(osonFactory.createJsonTextValue(new StringReader(json)));
+    gen.close();
+    return out.toByteArray();
+  }
+
+  // Reads the text both as text and as OSON, which must agree
+  private Widths read(String json) {
+    Widths fromText = null;
+    Widths fromImage = null;
+    JsonException textError = null;
+
+    OracleJsonParser parser = osonFactory.createJsonTextParser(new StringReader(json));
+    try {
+      fromText = ObjectBinder.read(parser, Widths.class);
+    } catch (JsonException e) {
+      textError = e;
+    }
+
+    parser = osonFactory.createJsonBinaryParser(ByteBuffer.wrap(image(json)));
+    try {
+      fromImage = ObjectBinder.read(parser, Widths.class);
+    } catch (JsonException e) {
+      assertNotNull(json, textError);
+      throw e;
+    }
+
+    assertNull(json, textError);
+    assertEquals(json, fromText.l, fromImage.l);
+    return fromText;
+  }
+
+  private void assertRejected(String json) {
+    try {
+      read(json);
+      fail("No exception for " + json);
+    } catch (JsonException e) {
+      assertTrue(json, e.getMessage().contains("Cannot bind"));
+    }
+  }
+
+  public void testIntegralRanges() {
+    Widths w = read("{\"by\" : 127, \"sh\" : 32767, \"i\" : 2147483647, " +
+                    "\"l\" : 9223372036854775807}");
+    assertEquals(Byte.MAX_VALUE, w.by);
+    assertEquals(Short.MAX_VALUE, w.sh);
+    assertEquals(Integer.MAX_VALUE, w.i);
+    assertEquals(Long.MAX_VALUE, w.l);
+
+    w = read("{\"by\" : -128, \"sh\" : -32768, \"i\" : -2147483648, " +
+             "\"l\" : -9223372036854775808}");
+    assertEquals(Byte.MIN_VALUE, w.by);
+    assertEquals(Short.MIN_VALUE, w.sh);
+    assertEquals(Integer.MIN_VALUE, w.i);
+    assertEquals(Long.MIN_VALUE, w.l);
+
+    w = read("{\"byw\" : -1, \"shw\" : 300, \"iw\" : 3000000, \"lw\" : 3000000000, " +
+             "\"bytes\" : [1, -2, 3]}");
+    assertEquals(Byte.valueOf((byte) -1), w.byw);
+    assertEquals(Short.valueOf((short) 300), w.shw);
+    assertEquals(Integer.valueOf(3000000), w.iw);
+    assertEquals(Long.valueOf(3000000000L), w.lw);
+    assertEquals(3, w.bytes.size());
+
+    // Integral values with a zero fraction or an exponent are integers
+    w = read("{\"by\" : 3.0, \"i\" : 1e3, \"l\" : 2.50e1}");
+    assertEquals(3, w.by);
+    assertEquals(1000, w.i);
+    assertEquals(25L, w.l);
+  }
+
+  public void testOutOfRange() {
+    String[] fields = new String[] { "by", "byw", "sh", "shw", "i", "iw", "l", "lw" };
+    String[] values = new String[] {
+      "128", "-129", "300",
+      "32768", "-32769",
+      "2147483648", "-2147483649", "3000000000",
+      "9223372036854775808", "-9223372036854775809", "1e30"
+    };
+    long[] limits = new long[] {
+      Byte.MAX_VALUE, Byte.MAX_VALUE, Short.MAX_VALUE, Short.MAX_VALUE,
+      Integer.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE
+    };
+
+    for (int f = 0; f < fields.length; f++)
+      for (String value : values) {
+        BigDecimal number = new BigDecimal(value);
+        boolean fits = number.abs().compareTo(BigDecimal.valueOf(limits[f])) <= 0;
+        String json = "{\"" + fields[f] + "\" : " + value + "}";
+        if (fits)
+          read(json);
+        else
+          assertRejected(json);
+      }
+
+    assertRejected("{\"bytes\" : [1, 300]}");
+  }
+
+  public void testFractions() {
+    for (String field : new String[] { "by", "byw", "sh", "shw", "i", "iw", "l", "lw" }) {
+      assertRejected("{\"" + field + "\" : 1.5}");
+      assertRejected("{\"" + field + "\" : -0.25}");
+      assertRejected("{\"" + field + "\" : 1e-3}");
+    }
+    assertRejected("{\"bytes\" : [1, 2.5]}");
+  }
+
+  public void testPeriods() {
+    Interval in = new Interval();
+    in.period = Period.of(1, 2, 0);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    ObjectBinder.write(in, gen);
+    gen.close();
+
+    OracleJsonParser parser = osonFactory.createJsonBinaryParser(ByteBuffer.wrap(out.toByteArray()));
+    assertEquals(Period.of(1, 2, 0), ObjectBinder.read(parser, Interval.class).period);
+
+    // A JSON interval has no days, so a period with days is rejected
+    in.period = Period.of(1, 2, 3);
+    gen = osonFactory.createJsonBinaryGenerator(new ByteArrayOutputStream());
+    try {
+      ObjectBinder.write(in, gen);
+      fail("No exception for a period with days");
+    } catch (JsonException e) {
+      assertTrue(e.getMessage().contains("P1Y2M3D"));
+    }
+  }
+}
@@ -8,6 +8,8 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
@@ -353,4 +355,49 @@ public class test_ObjectMappings extends SodaTestCase {
     assertEquals("hello", jarr.getString(0));
   }
 
+  static class Fruit {
+    String name;
+    int count;
+    List<String> colors;
+    transient String note = "unset";
+  }
+
+  public void testObjectBinding() throws Exception {
+    if (!OracleDatabaseImpl.isOracleJsonAvailable())
+      return;
+
+    Fruit fruit = new Fruit();
+    fruit.name = "pear";
+    fruit.count = 47;
+    fruit.colors = Arrays.asList("green", "yellow");
+    fruit.note = "not stored";
+
+    OracleDocument doc = db.createDocumentFrom(fruit);
+    JsonObject obj = doc.getContentAs(JsonObject.class);
+    assertEquals("pear", obj.getString("name"));
+    assertEquals(47, obj.getInt("count"));
+    assertEquals("yellow", obj.getJsonArray("colors").getString(1));
+    assertFalse(obj.containsKey("note"));
+
+    col.save(doc);
+    Fruit fruit2 = col.find().getOne().getContentAs(Fruit.class);
+    assertEquals("pear", fruit2.name);
+    assertEquals(47, fruit2.count);
+    assertEquals(fruit.colors, fruit2.colors);
+    assertEquals("unset", fruit2.note);
+
+    // Text content binds too
+    fruit2 = db.createDocumentFromString("{\"name\":\"fig\",\"count\":3}").getContentAs(Fruit.class);
+    assertEquals("fig", fruit2.name);
+    assertEquals(3, fruit2.count);
+    assertNull(fruit2.colors);
+
+    try {
+      db.createDocumentFromString("{\"count\":\"many\"}").getContentAs(Fruit.class);
+      fail("No exception when binding a string to an int");
+    } catch (OracleException e) {
+      assertTrue(e.getCause().getMessage().contains("Cannot bind a JSON string"));
+    }
+  }
+
 }
@@ -1035,9 +1035,8 @@ public class test_OracleDatabaseAdmin extends SodaTestCase {
       fail("No exception when the document violated strict JSON validation");
     } catch (OracleException e) {
       // Expect an OracleException
-      // ORA-02290: check constraint (SYS_C0049214) violated
-      Throwable t = e.getCause();
-      assertTrue(t.getMessage().contains("ORA-02290"));
+      // Rejected on the client, without a round trip
+      assertTrue(e.getMessage().contains("not valid JSON"));
     } 
 
     String laxJSONStr =
@@ -1054,9 +1053,8 @@ public class test_OracleDatabaseAdmin extends SodaTestCase {
       fail("No exception when the document violated strict JSON validation");
     } catch (OracleException e) {
       // Expect an OracleException
-      // ORA-02290: check constraint (SYS_C0049214) violated
-      Throwable t = e.getCause();
-      assertTrue(t.getMessage().contains("ORA-02290"));
+      // Rejected on the client, without a round trip
+      assertTrue(e.getMessage().contains("not valid JSON"));
     }
     
     String nonJSONStr = "Hello World";
@@ -1066,11 +1064,22 @@ public class test_OracleDatabaseAdmin extends SodaTestCase {
       fail("No exception when the document violated strict JSON validation");
     } catch (OracleException e) {
       // Expect an OracleException
-      // ORA-02290: check constraint (SYS_C0049214) violated
-      Throwable t = e.getCause();
-      assertTrue(t.getMessage().contains("ORA-02290"));
+      // Rejected on the client, without a round trip
+      assertTrue(e.getMessage().contains("not valid JSON"));
     }
-    
+
+    // An overlong UTF-8 encoding of "/" in a string
+    byte[] badUTF8 = new byte[] { '{', '"', 'a', '"', ':', '"', (byte) 0xC0, (byte) 0xAF, '"', '}' };
+    try {
+      doc = col.insertAndGet(db.createDocumentFromByteArray(badUTF8));
+      fail("No exception when the document wasn't valid UTF-8");
+    } catch (OracleException e) {
+      assertTrue(e.getMessage().contains("not valid JSON"));
+    }
+
+    // Nothing that failed was inserted
+    assertEquals(1, col.find().count());
+
     // Test with content column validation = LAX
     //props2.setProperty(OracleRDBMSProperties.VALIDATION, "LAX");
     OracleDocument mDoc2 = client.createMetadataBuilder().mediaTypeColumnName("CONTENT_TYPE")
@@ -1126,8 +1135,8 @@ public class test_OracleDatabaseAdmin extends SodaTestCase {
       fail("No exception when the document violated standard JSON validation");
     } catch (OracleException e) {
       // Expect an OracleException
-      Throwable t = e.getCause();
-      assertTrue(t.getMessage().contains("ORA-02290"));
+      // Rejected on the client, without a round trip
+      assertTrue(e.getMessage().contains("not valid JSON"));
     }
     
     try {
@@ -1136,8 +1145,8 @@ public class test_OracleDatabaseAdmin extends SodaTestCase {
       fail("No exception when the document violated standard JSON validation");
     } catch (OracleException e) {
       // Expect an OracleException
-      Throwable t = e.getCause();
-      assertTrue(t.getMessage().contains("ORA-02290"));
+      // Rejected on the client, without a round trip
+      assertTrue(e.getMessage().contains("not valid JSON"));
     }
  
   }
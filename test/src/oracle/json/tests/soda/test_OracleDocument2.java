@@ -12,6 +12,7 @@
 
 package oracle.json.tests.soda;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
@@ -964,4 +965,26 @@ public class test_OracleDocument2 extends SodaTestCase {
     assertEquals(2, col.find().count());
   }
 
+  public void testWriteContentTo() throws Exception
+  {
+    OracleCollection col = dbAdmin.createCollection("testWriteContentTo", null);
+    col.insert(db.createDocumentFromString("{\"name\":\"hello\", \"nums\":[1, 2.5, -3], \"nested\":{\"ok\":true}}"));
+
+    OracleDocument doc = col.find().getOne();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((OracleDocumentImpl) doc).writeContentTo(out);
+    assertEquals(doc.getContentAsString(), out.toString("UTF-8"));
+
+    // The text rendering of binary content is memoized
+    doc = col.find().getOne();
+    byte[] content = doc.getContentAsByteArray();
+    if (((OracleDocumentImpl) doc).isBinary())
+      assertSame(content, doc.getContentAsByteArray());
+
+    // And a memoized rendering is what gets written
+    out.reset();
+    ((OracleDocumentImpl) doc).writeContentTo(out);
+    assertEquals(new String(content, "UTF-8"), out.toString("UTF-8"));
+  }
+
 }
@@ -13,6 +13,7 @@ package oracle.json.tests.soda;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import oracle.soda.OracleCursor;
@@ -22,6 +23,12 @@ import oracle.soda.OracleDocument;
 import oracle.soda.OracleOperationBuilder;
 
 import oracle.soda.rdbms.OracleRDBMSMetadataBuilder;
+import oracle.soda.rdbms.impl.ApproximateCount;
+import oracle.soda.rdbms.impl.IndexAdvisor;
+import oracle.soda.rdbms.impl.OracleCursorImpl;
+import oracle.soda.rdbms.impl.OracleDatabaseImpl;
+import oracle.soda.rdbms.impl.QueryStatistics;
+import oracle.soda.rdbms.impl.SqlShapeCounter;
 import oracle.soda.rdbms.impl.OracleOperationBuilderImpl;
 import oracle.soda.rdbms.impl.OracleDocumentImpl;
 
@@ -1387,6 +1394,265 @@ public class test_OracleOperationBuilder extends SodaTestCase {
     }
   }
   
+  public void testCountUpToAndApprox() throws Exception {
+    OracleCollection col = dbAdmin.createCollection("testCountUpToAndApprox");
+    for (int i = 0; i < 300; i++)
+      col.insert(db.createDocumentFromString("{ \"num\" : " + i + " }"));
+
+    OracleOperationBuilderImpl builder = (OracleOperationBuilderImpl) col.find();
+    assertEquals(100, builder.countUpTo(100));
+    assertEquals(300, builder.countUpTo(1000));
+    builder = (OracleOperationBuilderImpl) col.find().filter("{ \"num\" : { \"$lt\" : 50 } }");
+    assertEquals(10, builder.countUpTo(10));
+    assertEquals(50, builder.countUpTo(50));
+    assertEquals(50, builder.countUpTo(51));
+
+    // Block samples of a small table vary, so only the bounds are checked
+    ApproximateCount approx = ((OracleOperationBuilderImpl) col.find()).countApprox();
+    assertTrue(approx.getLowerBound() <= approx.getCount());
+    assertTrue(approx.getCount() <= approx.getUpperBound());
+    if (approx.isExact())
+      assertEquals(300, approx.getCount());
+
+    approx = ((OracleOperationBuilderImpl) col.find()).countApprox(100.0);
+    assertTrue(approx.isExact());
+    assertEquals(300, approx.getCount());
+
+    approx = ((OracleOperationBuilderImpl) col.find()
+      .filter("{ \"num\" : { \"$gte\" : 100 } }")).countApprox(50.0);
+    assertTrue(approx.getLowerBound() <= approx.getCount());
+    assertTrue(approx.getCount() <= approx.getUpperBound());
+    if (!approx.isExact())
+      assertEquals(50.0, approx.getSamplePercent());
+
+    try {
+      ((OracleOperationBuilderImpl) col.find()).countUpTo(0);
+      fail("No exception for a zero bound");
+    } catch (OracleException e) {
+      assertEquals("maxCount argument must be positive.", e.getMessage());
+    }
+
+    try {
+      ((OracleOperationBuilderImpl) col.find()).countApprox(0.0);
+      fail("No exception for a zero sample");
+    } catch (OracleException e) {
+      assertEquals("Invalid argument value \"0.0\".", e.getMessage());
+    }
+
+    try {
+      ((OracleOperationBuilderImpl) col.find().limit(5)).countUpTo(10);
+      fail("No exception for limit() with countUpTo()");
+    } catch (OracleException e) {
+      // Expected
+    }
+  }
+
+  public void testFetchMemoryBudget() throws Exception {
+    OracleCollection col = dbAdmin.createCollection("testFetchMemoryBudget");
+    for (int i = 0; i < 250; i++)
+      col.insert(db.createDocumentFromString("{ \"num\" : " + i + ", \"pad\" : \"" + i + "xxxxxxxxxxxxxxxxxxxx\" }"));
+
+    OracleDatabaseImpl dbImpl = (OracleDatabaseImpl) db;
+    // A budget of a few rows, so the fetch size is adapted down
+    dbImpl.setFetchMemoryBudget(2000L);
+    try {
+      Set<String> nums = new HashSet<String>();
+      OracleCursor c = col.find().getCursor();
+      while (c.hasNext())
+        nums.add(c.next().getContentAsString());
+      c.close();
+      assertEquals(250, nums.size());
+
+      // An explicit prefetch still wins
+      c = ((OracleOperationBuilderImpl) col.find()).prefetch(7).getCursor();
+      int count = 0;
+      while (c.hasNext()) {
+        c.next();
+        count++;
+      }
+      c.close();
+      assertEquals(250, count);
+    } finally {
+      dbImpl.setFetchMemoryBudget(0L);
+    }
+
+    // rowDataLimit() checks its own argument
+    OracleOperationBuilderImpl builder = (OracleOperationBuilderImpl) col.find();
+    try {
+      builder.rowDataLimit(-1L);
+      fail("No exception for a negative row data limit");
+    } catch (OracleException e) {
+      assertEquals("rowDataLimit argument must be nonnegative.", e.getMessage());
+    }
+    builder.rowDataLimit(0L);
+    builder.rowDataLimit(1000000L);
+  }
+
+  public void testQueryStatistics() throws Exception {
+    OracleCollection col = dbAdmin.createCollection("testQueryStatistics");
+    for (int i = 0; i < 100; i++)
+      col.insert(db.createDocumentFromString("{ \"num\" : " + i + ", \"tag\" : \"t" + (i % 10) + "\" }"));
+
+    OracleDatabaseImpl dbImpl = (OracleDatabaseImpl) db;
+    QueryStatistics stats = new QueryStatistics();
+    dbImpl.setQueryStatistics(stats);
+    try {
+      for (int i = 0; i < 5; i++) {
+        OracleCursor c = col.find().filter("{ \"tag\" : \"t" + i + "\", \"num\" : { \"$gt\" : 50 } }").getCursor();
+        while (c.hasNext())
+          c.next();
+        c.close();
+      }
+      col.find().filter("{ \"num\" : { \"$lt\" : 10 } }").count();
+      col.find().filter("{ \"num\" : 3 }").getOne();
+
+      List<QueryStatistics.Entry> entries = stats.getEntries("testQueryStatistics");
+      assertEquals(3, entries.size());
+      QueryStatistics.Entry top = entries.get(0);
+      assertEquals(5, top.getExecutionCount());
+      assertEquals(25, top.getRowCount());  // 5 per tag above 50
+      long executions = 0;
+      for (long n : top.getLatencyHistogram())
+        executions += n;
+      assertEquals(5, executions);
+      assertEquals("{ \"tag\" : \"t0\", \"num\" : { \"$gt\" : 50 } }", top.getSampleFilter());
+
+      // Without an index, the frequent shape is a full scan
+      List<IndexAdvisor.Recommendation> recs =
+        dbImpl.createIndexAdvisor().recommend("testQueryStatistics", 5);
+      assertEquals(1, recs.size());
+      String spec = recs.get(0).getIndexSpecification();
+      assertTrue(spec, spec.endsWith("\"fields\":[{\"path\":\"tag\",\"datatype\":\"string\"}," +
+                                     "{\"path\":\"num\",\"datatype\":\"number\"}]}"));
+
+      // The recommendation can be created as is
+      col.admin().createIndex(db.createDocumentFromString(spec));
+    } finally {
+      dbImpl.setQueryStatistics(null);
+    }
+  }
+
+  // The SQL text of a getCursor() read
+  private static String cursorSql(OracleOperationBuilder builder) throws Exception {
+    OracleOperationBuilderImpl impl = (OracleOperationBuilderImpl) builder;
+    impl.returnQuery(true);
+    OracleCursor c = impl.getCursor();
+    String sql = new String(((OracleCursorImpl) c).getQuery(), "UTF-8");
+    c.close();
+    return sql;
+  }
+
+  public void testAutoFirstRows() throws Exception {
+    OracleCollection col = dbAdmin.createCollection("testAutoFirstRows");
+    for (int i = 0; i < 30; i++)
+      col.insert(db.createDocumentFromString("{ \"num\" : " + i + " }"));
+
+    OracleDatabaseImpl dbImpl = (OracleDatabaseImpl) db;
+    int before = dbImpl.getMetrics().getAutoFirstRows();
+
+    // A limited read, and getOne(), get the hint
+    OracleCursor c = col.find().filter("{ \"num\" : { \"$gte\" : 10 } }").limit(5).getCursor();
+    int count = 0;
+    while (c.hasNext()) {
+      c.next();
+      count++;
+    }
+    c.close();
+    assertEquals(5, count);
+    assertNotNull(col.find().filter("{ \"num\" : 3 }").getOne());
+    assertEquals(before + 2, dbImpl.getMetrics().getAutoFirstRows());
+
+    // Not without a limit, nor for a count, nor with an explicit hint
+    c = col.find().getCursor();
+    c.close();
+    assertEquals(20, col.find().filter("{ \"num\" : { \"$gte\" : 10 } }").count());
+    c = ((OracleOperationBuilderImpl) col.find().limit(5)).firstRowsHint(100).getCursor();
+    c.close();
+    assertEquals(before + 2, dbImpl.getMetrics().getAutoFirstRows());
+
+    // The hint covers the rows skipped
+    String sql = cursorSql(col.find().skip(3).limit(5));
+    assertTrue(sql, sql.contains("FIRST_ROWS(8)"));
+    sql = cursorSql(col.find());
+    assertFalse(sql, sql.contains("FIRST_ROWS"));
+
+    // But the fetch size is for the rows returned, as the rows
+    // skipped are discarded by the server
+    c = col.find().skip(20).limit(5).getCursor();
+    assertEquals(6, ((OracleCursorImpl) c).getFetchSize());
+    count = 0;
+    while (c.hasNext()) {
+      c.next();
+      count++;
+    }
+    c.close();
+    assertEquals(5, count);
+
+    // A collection that opted out gets no automatic hint, and
+    // limit() then hints the limit, as it always did
+    dbImpl.setAutoFirstRows("testAutoFirstRows", false);
+    try {
+      sql = cursorSql(col.find().skip(3).limit(5));
+      assertTrue(sql, sql.contains("FIRST_ROWS(5)"));
+      sql = cursorSql(col.find());
+      assertFalse(sql, sql.contains("FIRST_ROWS"));
+
+      c = col.find().limit(5).getCursor();
+      count = 0;
+      while (c.hasNext()) {
+        c.next();
+        count++;
+      }
+      c.close();
+      assertEquals(5, count);
+      assertEquals(before + 4, dbImpl.getMetrics().getAutoFirstRows());
+    } finally {
+      dbImpl.setAutoFirstRows("testAutoFirstRows", true);
+    }
+
+    // Likewise when it's off for the whole database
+    dbImpl.setAutoFirstRows(false);
+    try {
+      sql = cursorSql(col.find().skip(3).limit(5));
+      assertTrue(sql, sql.contains("FIRST_ROWS(5)"));
+    } finally {
+      dbImpl.setAutoFirstRows(true);
+    }
+  }
+
+  // Distinct SQL texts of two $in filters, of 3 and 4 values
+  private static int countInShapes(OracleDatabaseImpl dbImpl, OracleCollection col,
+                                   boolean canonical) throws Exception {
+    SqlShapeCounter counter = new SqlShapeCounter();
+    dbImpl.setSqlShapeCounter(counter);
+    dbImpl.setCanonicalBinds(canonical);
+    assertEquals(3, col.find().filter("{ \"num\" : { \"$in\" : [1, 2, 3] } }").count());
+    assertEquals(4, col.find().filter("{ \"num\" : { \"$in\" : [1, 2, 3, 4] } }").count());
+    assertEquals(2L, counter.getStatementCount());
+    return counter.getShapeCount();
+  }
+
+  public void testSqlShapeCounter() throws Exception {
+    OracleCollection col = dbAdmin.createCollection("testSqlShapeCounter");
+    for (int i = 0; i < 10; i++)
+      col.insert(db.createDocumentFromString("{ \"num\" : " + i + " }"));
+
+    OracleDatabaseImpl dbImpl = (OracleDatabaseImpl) db;
+    SqlShapeCounter previous = dbImpl.getSqlShapeCounter();
+    try {
+      // Counted with canonical binds off too, for comparison
+      assertEquals(2, countInShapes(dbImpl, col, false));
+      assertEquals(1, countInShapes(dbImpl, col, true));
+
+      // Not counted without a counter
+      dbImpl.setSqlShapeCounter(null);
+      assertEquals(3, col.find().filter("{ \"num\" : { \"$lt\" : 3 } }").count());
+    } finally {
+      dbImpl.setCanonicalBinds(false);
+      dbImpl.setSqlShapeCounter(previous);
+    }
+  }
+
   public void testGetOne() throws Exception {
     OracleDocument mDoc; 
     if (isCompatibleOrGreater(COMPATIBLE_20)) {
@@ -0,0 +1,179 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Differential tests of the OSON codec's navigational key
+ *      extraction. The key read straight from an image is compared
+ *      with the key read from the DOM of the same image, for a
+ *      variety of document shapes and OSON encodings (small and
+ *      large field ids, offsets and field names). Doesn't need a
+ *      database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import jakarta.json.JsonException;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.JsonTestCase;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+
+public class test_OsonNavigation extends JsonTestCase {
+
+  private static final String[] ID_PATH = new String[] { "_id" };
+
+  private final OracleJsonFactory osonFactory = new OracleJsonFactory();
+  private final OsonCodecFactory factory = new OsonCodecFactory();
+
+  private byte[] image(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    gen.write(osonFactory.createJsonTextValue(new StringReader(json)));
+    gen.close();
+    return out.toByteArray();
+  }
+
+  // An image with an identifier (rather than a string) key
+  private byte[] imageWithId(byte[] id, int fieldsBefore, int fieldsAfter) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    gen.writeStartObject();
+    for (int i = 0; i < fieldsBefore; i++)
+      gen.write("before" + i, i);
+    gen.writeKey("_id");
+    gen.writeId(id);
+    for (int i = 0; i < fieldsAfter; i++)
+      gen.write("after" + i, "value" + i);
+    gen.writeEnd();
+    gen.close();
+    return out.toByteArray();
+  }
+
+  // The key (or the exception) read navigationally from the image
+  private String navigatedKey(byte[] image, String[] path) {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.loadImage(image);
+    codec.setKeyPath(path);
+    try {
+      return codec.getKey(false);
+    } catch (JsonException e) {
+      return "exception";
+    }
+  }
+
+  // The key (or the exception) read from the DOM of the image
+  private String domKey(byte[] image, String[] path) {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.loadImage(image);
+    assertNotNull(codec.getDocument());
+    codec.setKeyPath(path);
+    try {
+      return codec.getKey(false);
+    } catch (JsonException e) {
+      return "exception";
+    }
+  }
+
+  private void assertSameKey(String message, byte[] image, String[] path) {
+    assertEquals(message, domKey(image, path), navigatedKey(image, path));
+  }
+
+  private static String manyFields(int count, String key, int keyAt) {
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < count; i++) {
+      if (i > 0)
+        sb.append(", ");
+      if (i == keyAt)
+        sb.append("\"_id\" : ").append(key).append(", ");
+      sb.append("\"field").append(i).append("\" : ").append(i);
+    }
+    if (keyAt >= count)
+      sb.append(", \"_id\" : ").append(key);
+    return sb.append('}').toString();
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder sb = new StringBuilder(count);
+    for (int i = 0; i < count; i++)
+      sb.append(c);
+    return sb.toString();
+  }
+
+  public void testKeyExtraction() {
+    String[] docs = new String[] {
+      "{\"_id\" : \"abc\", \"name\" : \"pear\", \"count\" : 47}",
+      "{\"name\" : \"pear\", \"_id\" : \"abc\", \"count\" : 47}",
+      "{\"name\" : \"pear\", \"count\" : 47, \"_id\" : \"abc\"}",
+      "{\"name\" : \"pear\", \"count\" : 47}",
+      "{}",
+      "{\"_id\" : \"\"}",
+      "{\"_id\" : \"café € 😀\"}",
+      "{\"_id\" : \"" + repeat('k', 300) + "\"}",
+      "{\"_id\" : 123}",
+      "{\"_id\" : -1.50}",
+      "{\"_id\" : 1e40}",
+      "{\"_id\" : true}",
+      "{\"_id\" : null}",
+      "{\"_id\" : {\"a\" : 1}}",
+      "{\"_id\" : [1, 2]}",
+      "{\"nested\" : {\"_id\" : \"no\"}, \"list\" : [{\"_id\" : \"no\"}]}",
+      "{\"nested\" : {\"_id\" : \"no\"}, \"_id\" : \"yes\"}",
+      "{\"été\" : 1, \"_id\" : \"abc\"}",
+      "{\"" + repeat('n', 300) + "\" : 1, \"_id\" : \"abc\"}",
+      "{\"big\" : \"" + repeat('x', 70000) + "\", \"_id\" : \"abc\"}",
+      manyFields(300, "\"first\"", 0),
+      manyFields(300, "\"middle\"", 150),
+      manyFields(300, "\"last\"", 300),
+      manyFields(300, "42", 299),
+      manyFields(70000, "\"huge\"", 35000)
+    };
+
+    for (String doc : docs) {
+      String message = (doc.length() > 80) ? doc.substring(0, 80) : doc;
+      assertSameKey(message, image(doc), ID_PATH);
+    }
+
+    // Spot checks, so that the two routes can't agree on a wrong key
+    assertEquals("abc", navigatedKey(image(docs[2]), ID_PATH));
+    assertNull(navigatedKey(image(docs[3]), ID_PATH));
+    assertEquals("yes", navigatedKey(image(docs[16]), ID_PATH));
+    assertEquals("middle", navigatedKey(image(docs[21]), ID_PATH));
+    assertEquals("huge", navigatedKey(image(docs[24]), ID_PATH));
+
+    // Scalar and array roots aren't navigable
+    for (String doc : new String[] { "[1, 2]", "\"abc\"", "12" })
+      assertSameKey(doc, image(doc), ID_PATH);
+  }
+
+  public void testNestedKeyExtraction() {
+    String[] path = new String[] { "a", "b", "c" };
+    String[] docs = new String[] {
+      "{\"a\" : {\"b\" : {\"c\" : \"abc\"}}}",
+      "{\"x\" : 1, \"a\" : {\"y\" : [1, 2], \"b\" : {\"z\" : {}, \"c\" : 7}}}",
+      "{\"a\" : {\"b\" : {\"d\" : \"abc\"}}}",
+      "{\"a\" : {\"b\" : [{\"c\" : \"abc\"}]}}",
+      "{\"a\" : {\"b\" : \"c\"}}",
+      "{\"a\" : [{\"b\" : {\"c\" : \"abc\"}}]}",
+      "{\"a\" : 1}",
+      "{\"c\" : \"abc\", \"b\" : {\"c\" : \"abc\"}}",
+      "{\"a\" : {\"b\" : {\"c\" : {\"d\" : 1}}}}"
+    };
+
+    for (String doc : docs)
+      assertSameKey(doc, image(doc), path);
+  }
+
+  public void testIdentifierKeyExtraction() {
+    byte[] id = new byte[] { 0x01, 0x2a, (byte) 0xff, 0x00, 0x7e };
+    assertSameKey("id first", imageWithId(id, 0, 3), ID_PATH);
+    assertSameKey("id middle", imageWithId(id, 3, 3), ID_PATH);
+    assertSameKey("id last", imageWithId(id, 300, 0), ID_PATH);
+    assertEquals("012aff007e", navigatedKey(imageWithId(id, 2, 2), ID_PATH));
+  }
+}
@@ -0,0 +1,264 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests the rekeying of JSON text while it's converted to OSON
+ *      (in a single pass, without an intermediate image). The result
+ *      is compared with the document rekeyed through JSON-P. Also
+ *      compares the in-place rekeying of OSON images with rekeying
+ *      through the OSON parser. Doesn't need a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import jakarta.json.JsonException;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.JsonValue;
+
+import oracle.json.common.DocumentCodec;
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.rdbms.OsonCodecFactory;
+import oracle.json.testharness.JsonTestCase;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+
+public class test_OsonRekey extends JsonTestCase {
+
+  private static final String[] ID_PATH = new String[] { "_id" };
+
+  private final OracleJsonFactory osonFactory = new OracleJsonFactory();
+  private final JsonFactoryProvider provider = new JsonFactoryProvider();
+  private final OsonCodecFactory factory = new OsonCodecFactory();
+
+  private JsonValue parse(String json) {
+    return provider.getReaderFactory().createReader(new StringReader(json)).readValue();
+  }
+
+  private JsonValue decode(byte[] image) {
+    return parse(osonFactory.createJsonBinaryValue(ByteBuffer.wrap(image)).toString());
+  }
+
+  // The document with its top-level key replaced, through JSON-P
+  private JsonValue expected(String json, String newKey) {
+    JsonObjectBuilder builder = provider.createObjectBuilder();
+    builder.add("_id", newKey);
+    for (Map.Entry<String, JsonValue> field : parse(json).asJsonObject().entrySet())
+      if (!field.getKey().equals("_id"))
+        builder.add(field.getKey(), field.getValue());
+    return builder.build();
+  }
+
+  private byte[] rekey(String json, String newKey, boolean unicode) {
+    DocumentCodec<?> codec = factory.getCodec();
+    if (unicode)
+      codec.loadUnicode(json.getBytes(StandardCharsets.UTF_8));
+    else
+      codec.loadString(json);
+    codec.setKeyPath(ID_PATH);
+    codec.setNewKey(newKey);
+    codec.setRemoveKey(true);
+    return codec.getImage();
+  }
+
+  private void assertRekeyed(String json) {
+    for (boolean unicode : new boolean[] { false, true }) {
+      byte[] image = rekey(json, "xyz", unicode);
+      assertEquals(json, expected(json, "xyz"), decode(image));
+
+      // The key is read back from the new image
+      DocumentCodec<?> codec = factory.getCodec();
+      codec.loadImage(image);
+      codec.setKeyPath(ID_PATH);
+      assertEquals(json, "xyz", codec.getKey(false));
+    }
+  }
+
+  public void testKeyAtStart() {
+    assertRekeyed("{\"_id\" : \"abc\", \"name\" : \"pear\", \"count\" : 47}");
+    assertRekeyed("{\"_id\" : 123, \"list\" : [1, {\"a\" : 2}]}");
+  }
+
+  public void testKeyInMiddle() {
+    assertRekeyed("{\"name\" : \"pear\", \"_id\" : \"abc\", \"count\" : 47}");
+    assertRekeyed("{\"a\" : {\"b\" : [1, 2]}, \"_id\" : true, \"c\" : null}");
+  }
+
+  public void testKeyAtEnd() {
+    assertRekeyed("{\"name\" : \"pear\", \"count\" : 47, \"_id\" : \"abc\"}");
+    assertRekeyed("{\"name\" : \"pear\", \"_id\" : {\"nested\" : \"object\"}}");
+  }
+
+  public void testMissingKey() {
+    assertRekeyed("{\"name\" : \"pear\", \"count\" : 47}");
+    assertRekeyed("{}");
+  }
+
+  public void testNestedKey() {
+    // Only the top-level key is replaced
+    String json = "{\"name\" : \"pear\", \"inner\" : {\"_id\" : \"keep\"}, " +
+                  "\"list\" : [{\"_id\" : \"keep\"}], \"_id\" : \"abc\"}";
+    assertRekeyed(json);
+
+    JsonObject obj = decode(rekey(json, "xyz", false)).asJsonObject();
+    assertEquals("keep", obj.getJsonObject("inner").getString("_id"));
+    assertEquals("keep", obj.getJsonArray("list").getJsonObject(0).getString("_id"));
+
+    // Key only present in nested objects, so it's added at the top
+    assertRekeyed("{\"inner\" : {\"_id\" : \"keep\", \"deeper\" : {\"_id\" : 1}}}");
+  }
+
+  private byte[] image(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    gen.write(osonFactory.createJsonTextValue(new StringReader(json)));
+    gen.close();
+    return out.toByteArray();
+  }
+
+  // An image whose key is an identifier, between other fields
+  private byte[] imageWithId(byte[] id) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    gen.writeStartObject();
+    gen.write("before", 1);
+    gen.writeKey("_id");
+    gen.writeId(id);
+    gen.write("after", "value");
+    gen.writeEnd();
+    gen.close();
+    return out.toByteArray();
+  }
+
+  // Rekeys an image, or returns null if the rekeying fails. Loading the
+  // DOM first makes the codec rekey through the OSON parser rather than
+  // patch the image in place.
+  private byte[] rekeyImage(byte[] image, String newKey, boolean isId,
+                            boolean mustMatch, boolean throughParser) {
+    DocumentCodec<?> codec = factory.getCodec();
+    codec.loadImage(image);
+    if (throughParser)
+      assertNotNull(codec.getDocument());
+    codec.setKeyPath(ID_PATH);
+    codec.setNewKey(newKey, isId, mustMatch);
+    codec.setRemoveKey(true);
+    try {
+      return codec.getImage();
+    } catch (JsonException e) {
+      return null;
+    }
+  }
+
+  // Both routes give the same document (and fail alike). Returns the
+  // image rekeyed in place.
+  private byte[] assertSameRekey(byte[] image, String newKey, boolean isId,
+                                 boolean mustMatch) {
+    byte[] parsed = rekeyImage(image, newKey, isId, mustMatch, true);
+    byte[] patched = rekeyImage(image, newKey, isId, mustMatch, false);
+    String message = newKey + (isId ? " (id)" : "") + (mustMatch ? " (must match)" : "");
+
+    if (parsed == null) {
+      assertNull(message, patched);
+      return null;
+    }
+    assertNotNull(message, patched);
+    assertEquals(message, decode(parsed), decode(patched));
+    return patched;
+  }
+
+  // Only the key value's bytes changed, so the key kept its position
+  private void assertPatchedInPlace(byte[] original, byte[] patched, int keyLength) {
+    assertEquals(original.length, patched.length);
+
+    int first = 0;
+    while ((first < original.length) && (original[first] == patched[first]))
+      first++;
+    int last = original.length - 1;
+    while ((last > first) && (original[last] == patched[last]))
+      last--;
+    assertTrue(last - first < keyLength);
+  }
+
+  private static String fieldNames(JsonValue value) {
+    return value.asJsonObject().keySet().toString();
+  }
+
+  public void testImageKeySameLength() {
+    String[] docs = new String[] {
+      "{\"_id\" : \"abc\", \"name\" : \"pear\", \"count\" : 47}",
+      "{\"name\" : \"pear\", \"_id\" : \"abc\", \"count\" : 47}",
+      "{\"name\" : \"pear\", \"count\" : 47, \"_id\" : \"abc\"}",
+      "{\"inner\" : {\"_id\" : \"abc\"}, \"_id\" : \"abc\"}"
+    };
+
+    for (String doc : docs) {
+      byte[] original = image(doc);
+      byte[] patched = assertSameRekey(original, "xyz", false, false);
+      assertPatchedInPlace(original, patched, 3);
+
+      // The key kept its position among the fields
+      assertEquals(fieldNames(decode(original)), fieldNames(decode(patched)));
+      assertEquals("xyz", decode(patched).asJsonObject().getString("_id"));
+
+      // The nested key is left alone
+      if (doc.startsWith("{\"inner\""))
+        assertEquals("abc", decode(patched).asJsonObject()
+                              .getJsonObject("inner").getString("_id"));
+
+      // Rekeying with the same key gives back the same bytes
+      byte[] same = assertSameRekey(original, "abc", false, false);
+      assertTrue(Arrays.equals(original, same));
+    }
+  }
+
+  public void testImageKeyOtherLengths() {
+    // Longer, shorter and multibyte keys, and a key of another type
+    String[] docs = new String[] {
+      "{\"name\" : \"pear\", \"_id\" : \"abc\", \"count\" : 47}",
+      "{\"name\" : \"pear\", \"_id\" : 123, \"count\" : 47}",
+      "{\"name\" : \"pear\", \"_id\" : {\"a\" : 1}}",
+      "{\"name\" : \"pear\", \"count\" : 47}"
+    };
+    String[] keys = new String[] { "abcd", "ab", "\u00e9bc", "\u20ac", "" };
+
+    for (String doc : docs)
+      for (String key : keys)
+        assertSameRekey(image(doc), key, false, false);
+  }
+
+  public void testImageIdentifierKey() {
+    byte[] original = imageWithId(new byte[] { 0x01, 0x2a, (byte) 0xff, 0x00 });
+
+    byte[] patched = assertSameRekey(original, "0a0b0c0d", true, false);
+    assertPatchedInPlace(original, patched, 4);
+    assertEquals(fieldNames(decode(original)), fieldNames(decode(patched)));
+
+    // Identifiers of other sizes, and string keys
+    assertSameRekey(original, "0a0b0c", true, false);
+    assertSameRekey(original, "0a0b0c0d0e", true, false);
+    assertSameRekey(original, "abcd", false, false);
+    assertSameRekey(image("{\"_id\" : \"abcd\", \"a\" : 1}"), "0a0b", true, false);
+  }
+
+  public void testImageKeyMustMatch() {
+    byte[] original = image("{\"name\" : \"pear\", \"_id\" : \"abc\"}");
+
+    // A matching key is kept, a different one is an error either way
+    byte[] patched = assertSameRekey(original, "abc", false, true);
+    assertTrue(Arrays.equals(original, patched));
+    assertNull(assertSameRekey(original, "xyz", false, true));
+    assertNull(assertSameRekey(original, "abcd", false, true));
+
+    assertSameRekey(image("{\"name\" : \"pear\"}"), "abc", false, true);
+    assertSameRekey(imageWithId(new byte[] { 0x0a, 0x0b }), "0a0b", true, true);
+    assertSameRekey(imageWithId(new byte[] { 0x0a, 0x0b }), "0a0c", true, true);
+  }
+}
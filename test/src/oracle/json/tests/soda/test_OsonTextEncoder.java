@@ -0,0 +1,157 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Compares the OSON images written by the direct text encoder with
+ *      those written through JSON-P, for escapes, numbers, temporal and
+ *      binary-looking values, and deeply nested text. Both routes must
+ *      write identical images, and reject the same texts. Doesn't need
+ *      a database.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import jakarta.json.stream.JsonParser;
+
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.rdbms.JsonpGeneratorWrapper;
+import oracle.json.rdbms.OsonTextEncoder;
+import oracle.json.testharness.JsonTestCase;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+
+public class test_OsonTextEncoder extends JsonTestCase {
+
+  private final OracleJsonFactory osonFactory = new OracleJsonFactory();
+  private final JsonFactoryProvider provider = new JsonFactoryProvider();
+  private final OsonTextEncoder encoder = new OsonTextEncoder();
+
+  // The image written by the encoder, or null if it rejects the text
+  private byte[] encode(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    try {
+      encoder.encode(json.getBytes(StandardCharsets.UTF_8), gen);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    return out.toByteArray();
+  }
+
+  // The image written through JSON-P, or null if it rejects the text
+  private byte[] encodeJsonp(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = osonFactory.createJsonBinaryGenerator(out);
+    try {
+      JsonParser parser = provider.getParserFactory().createParser(
+        new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+      JsonpGeneratorWrapper wrapper = new JsonpGeneratorWrapper(gen);
+      wrapper.writeJsonParser(parser);
+      wrapper.close();
+    } catch (RuntimeException e) {
+      return null;
+    }
+    return out.toByteArray();
+  }
+
+  private void assertSameImage(String json) {
+    byte[] expected = encodeJsonp(json);
+    byte[] actual = encode(json);
+    String message = (json.length() > 80) ? json.substring(0, 80) : json;
+
+    if (expected == null)
+      assertNull(message, actual);
+    else
+      assertTrue(message, Arrays.equals(expected, actual));
+  }
+
+  private static String nest(int depth) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < depth; i++)
+      sb.append((i % 2 == 0) ? "[" : "{\"a\" : ");
+    sb.append("1");
+    for (int i = depth - 1; i >= 0; i--)
+      sb.append((i % 2 == 0) ? "]" : "}");
+    return sb.toString();
+  }
+
+  public void testEscapes() {
+    String[] docs = new String[] {
+      "{\"s\" : \"\\\" \\\\ \\/ \\b \\f \\n \\r \\t\"}",
+      "{\"s\" : \"\\u0000 \\u001f \\u00e9 \\u20ac \\uD83D\\uDE00\"}",
+      "{\"s\" : \"caf\u00e9 \u20ac \ud83d\ude00\"}",
+      "{\"na\\u006de\" : 1, \"n\\\"q\" : 2, \"\u00e9t\u00e9\" : 3}",
+      "{\"s\" : \"\\x\"}",
+      "{\"s\" : \"\\u12\"}",
+      "{\"s\" : \"tab\there\"}"
+    };
+    for (String doc : docs)
+      assertSameImage(doc);
+  }
+
+  public void testNumbers() {
+    String[] numbers = new String[] {
+      "0", "-0", "1", "-1", "1023", "1024", "-1024",
+      "999999999999999999", "1000000000000000000", "-999999999999999999",
+      "9223372036854775807", "-9223372036854775808", "18446744073709551616",
+      "1.5", "-0.0", "0.000001", "1e10", "1E-10", "2.5e+3", "-3e10",
+      "123456789012345678901234567890", "0.1234567890123456789012345678901234567890",
+      "1e125", "1e-130", "1e400", "01", "1.", ".5", "-", "1e"
+    };
+    for (String number : numbers)
+      assertSameImage("{\"n\" : " + number + ", \"a\" : [" + number + "]}");
+  }
+
+  public void testTemporalValues() {
+    // Temporal values have no text form of their own, they stay strings
+    String[] docs = new String[] {
+      "{\"d\" : \"2024-01-31\"}",
+      "{\"ts\" : \"2024-01-31T10:15:30\", \"tz\" : \"2024-01-31T10:15:30.123456+05:30\"}",
+      "{\"z\" : \"2024-01-31T10:15:30Z\", \"i\" : \"P1Y2M3DT4H5M6S\"}",
+      "{\"e\" : {\"$date\" : \"2024-01-31T10:15:30Z\"}}",
+      "{\"e\" : {\"$date\" : 1706696130000}}"
+    };
+    for (String doc : docs)
+      assertSameImage(doc);
+  }
+
+  public void testBinaryValues() {
+    // Nor do binary values, including extended JSON ones
+    String[] docs = new String[] {
+      "{\"b64\" : \"SGVsbG8sIHdvcmxkIQ==\"}",
+      "{\"hex\" : \"0123456789ABCDEF\", \"id\" : \"5f4bd8a1c2e3\"}",
+      "{\"e\" : {\"$binary\" : \"SGVsbG8=\", \"$type\" : \"00\"}}",
+      "{\"_id\" : {\"$oid\" : \"5f4bd8a1c2e3a4b5c6d7e8f9\"}}",
+      "{\"raw\" : \"\\u0001\\u0002\\u00ff\"}"
+    };
+    for (String doc : docs)
+      assertSameImage(doc);
+  }
+
+  public void testNestingDepth() throws Exception {
+    assertSameImage(nest(100));
+    assertSameImage(nest(999));
+    assertSameImage(nest(1000));
+    assertSameImage(nest(5000));
+
+    assertNotNull(encode(nest(999)));
+    assertNull(encode(nest(1000)));
+    assertNull(encode(nest(5000)));
+
+    // Also for text read from a Reader
+    try {
+      encoder.encode(new StringReader(nest(5000)),
+                     osonFactory.createJsonBinaryGenerator(new ByteArrayOutputStream()));
+      fail("No exception for deeply nested text");
+    } catch (RuntimeException e) {
+      // Expected
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/*
+   DESCRIPTION
+   Tests for the chunked parallel collection scan
+ */
+
+package oracle.json.tests.soda;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import oracle.json.testharness.ConnectionFactory;
+import oracle.json.testharness.SodaTestCase;
+import oracle.json.util.Pair;
+import oracle.soda.OracleCollection;
+import oracle.soda.OracleDatabase;
+import oracle.soda.OracleDocument;
+import oracle.soda.OracleException;
+import oracle.soda.rdbms.impl.OracleCollectionImpl;
+import oracle.soda.rdbms.impl.OracleOperationBuilderImpl;
+import oracle.soda.rdbms.impl.ParallelScanImpl;
+
+public class test_ParallelScan extends SodaTestCase {
+
+  private static final int NUM_DOCS = 2000;
+
+  private Set<String> insertDocs(OracleCollection col) throws Exception {
+    // Pad the documents out so that the table spans several extents
+    StringBuilder pad = new StringBuilder();
+    for (int i = 0; i < 20; i++)
+      pad.append("abcdefghijklmnopqrstuvwxyz");
+
+    Set<String> keys = new HashSet<String>();
+    for (int i = 0; i < NUM_DOCS; i++) {
+      OracleDocument doc = col.insertAndGet(
+        db.createDocumentFromString("{\"num\" : " + i + ", \"pad\" : \"" +
+                                    pad + i + "\"}"));
+      keys.add(doc.getKey());
+    }
+    return keys;
+  }
+
+  public void testChunksCoverCollection() throws Exception {
+    OracleCollection col = db.admin().createCollection("testChunks");
+    Set<String> keys = insertDocs(col);
+
+    ParallelScanImpl scan = new ParallelScanImpl((OracleCollectionImpl) col);
+    List<Pair<String, String>> chunks = scan.computeChunks(4);
+    assertTrue(chunks.size() > 1);
+    assertTrue(chunks.size() <= 4);
+    for (Pair<String, String> chunk : chunks)
+      assertNotNull(chunk.getFirst());
+
+    // The union of all chunks must be the whole collection
+    Set<String> found = new HashSet<String>();
+    long count = 0;
+    for (Pair<String, String> chunk : chunks) {
+      OracleOperationBuilderImpl builder = (OracleOperationBuilderImpl) col.find();
+      if (chunk.getFirst() != null)
+        builder.rowidRange(chunk.getFirst(), chunk.getSecond());
+      count += builder.count();
+      for (String key : keysOf(builder))
+        found.add(key);
+    }
+    assertEquals(NUM_DOCS, count);
+    assertEquals(keys, found);
+
+    try {
+      scan.computeChunks(0);
+      fail("No exception for zero chunks");
+    } catch (OracleException e) {
+      assertEquals("numChunks argument must be positive.", e.getMessage());
+    }
+  }
+
+  private List<String> keysOf(OracleOperationBuilderImpl builder) throws Exception {
+    List<String> keys = new ArrayList<String>();
+    oracle.soda.OracleCursor c = builder.getCursor();
+    while (c.hasNext())
+      keys.add(c.next().getKey());
+    c.close();
+    return keys;
+  }
+
+  public void testParallelScan() throws Exception {
+    OracleCollection col = db.admin().createCollection("testParallelScan");
+    Set<String> keys = insertDocs(col);
+    conn.commit();
+
+    List<Connection> conns = new ArrayList<Connection>();
+    List<OracleDatabase> dbs = new ArrayList<OracleDatabase>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        Connection c = ConnectionFactory.createConnection();
+        conns.add(c);
+        dbs.add(client.getDatabase(c));
+      }
+
+      final Set<String> found = Collections.synchronizedSet(new HashSet<String>());
+      ParallelScanImpl scan = new ParallelScanImpl((OracleCollectionImpl) col);
+      assertTrue(scan.computeChunks(8).size() > 1);
+
+      long count = scan.scan(dbs, 8, null, new ParallelScanImpl.DocumentConsumer() {
+        public void accept(OracleDocument doc) throws OracleException {
+          found.add(doc.getKey());
+        }
+      });
+      assertEquals(NUM_DOCS, count);
+      assertEquals(keys, found);
+
+      // With a filter
+      found.clear();
+      count = scan.scan(dbs, 8,
+                        db.createDocumentFromString("{\"num\" : {\"$lt\" : 100}}"),
+                        new ParallelScanImpl.DocumentConsumer() {
+        public void accept(OracleDocument doc) throws OracleException {
+          found.add(doc.getKey());
+        }
+      });
+      assertEquals(100, count);
+      assertEquals(100, found.size());
+
+      // An error from the consumer is propagated, and only after
+      // the other threads have stopped calling the consumer
+      final AtomicInteger calls = new AtomicInteger(0);
+      try {
+        scan.scan(dbs, 8, null, new ParallelScanImpl.DocumentConsumer() {
+          public void accept(OracleDocument doc) throws OracleException {
+            if (calls.incrementAndGet() == 10)
+              throw new OracleException("consumer failure");
+          }
+        });
+        fail("No exception from failing consumer");
+      } catch (OracleException e) {
+        assertEquals("consumer failure", e.getMessage());
+      }
+      int callsAtFailure = calls.get();
+      assertTrue(callsAtFailure < NUM_DOCS);
+      Thread.sleep(500);
+      assertEquals(callsAtFailure, calls.get());
+
+      // So is a runtime exception, which also stops the other threads
+      calls.set(0);
+      try {
+        scan.scan(dbs, 8, null, new ParallelScanImpl.DocumentConsumer() {
+          public void accept(OracleDocument doc) throws OracleException {
+            if (calls.incrementAndGet() == 10)
+              throw new IllegalStateException("consumer bug");
+          }
+        });
+        fail("No exception from failing consumer");
+      } catch (IllegalStateException e) {
+        assertEquals("consumer bug", e.getMessage());
+      }
+      callsAtFailure = calls.get();
+      assertTrue(callsAtFailure < NUM_DOCS);
+      Thread.sleep(500);
+      assertEquals(callsAtFailure, calls.get());
+    } finally {
+      for (Connection c : conns)
+        c.close();
+    }
+  }
+}
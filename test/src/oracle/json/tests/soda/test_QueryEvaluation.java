@@ -0,0 +1,284 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Tests in-memory evaluation of QBE filters against a fixed set of
+ *      documents, as text and as OSON values. Doesn't need a database;
+ *      test_QueryEvaluationVsSql checks the same semantics against SQL.
+ */
+
+package oracle.json.tests.soda;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.parser.AndORTree;
+import oracle.json.parser.QueryEvaluator;
+import oracle.json.parser.QueryException;
+import oracle.json.testharness.JsonTestCase;
+import oracle.sql.json.OracleJsonFactory;
+import oracle.sql.json.OracleJsonGenerator;
+import oracle.sql.json.OracleJsonValue;
+
+public class test_QueryEvaluation extends JsonTestCase {
+
+  static final String[] DOCUMENTS = new String[] {
+    "{\"k\" : 1, \"name\" : \"Alice\", \"age\" : 30, \"tags\" : [\"a\", \"b\"], " +
+      "\"address\" : {\"city\" : \"Boston\", \"zip\" : \"02110\"}, \"active\" : true}",
+    "{\"k\" : 2, \"name\" : \"bob\", \"age\" : 25.5, \"tags\" : [\"b\", \"c\"], " +
+      "\"address\" : [{\"city\" : \"Paris\", \"zip\" : 75001}, {\"city\" : \"Boston\"}], " +
+      "\"active\" : false}",
+    "{\"k\" : 3, \"name\" : \"Carol\", \"age\" : \"40\", \"tags\" : [], \"active\" : null}",
+    "{\"k\" : 4, \"name\" : \"dave\", \"age\" : [10, 50], \"tags\" : \"a\", " +
+      "\"address\" : {\"city\" : \"boston\"}, \"score\" : -7}",
+    "{\"k\" : 5, \"age\" : null, \"tags\" : [[\"a\"]], \"items\" : " +
+      "[{\"sku\" : \"x1\", \"qty\" : 2}, {\"sku\" : \"x2\", \"qty\" : 9}], \"note\" : \"\"}",
+    "{\"k\" : 6, \"name\" : \"Eve\", \"age\" : 30, \"items\" : " +
+      "[{\"sku\" : \"x1\", \"qty\" : 9}, {\"sku\" : \"x3\", \"qty\" : 1}], " +
+      "\"note\" : \"true\", \"score\" : 7.25, \"when\" : \"2024-02-29T10:00:00\"}"
+  };
+
+  private static final OracleJsonFactory FACTORY = new OracleJsonFactory();
+
+  private final JsonFactoryProvider provider = new JsonFactoryProvider();
+
+  static QueryEvaluator evaluator(JsonFactoryProvider provider, String filter)
+    throws QueryException {
+    AndORTree tree = AndORTree.createTree(provider,
+      new ByteArrayInputStream(filter.getBytes(StandardCharsets.UTF_8)), false);
+    return QueryEvaluator.create(tree);
+  }
+
+  private static OracleJsonValue text(String json) {
+    return FACTORY.createJsonTextValue(new StringReader(json));
+  }
+
+  private static OracleJsonValue oson(String json) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OracleJsonGenerator gen = FACTORY.createJsonBinaryGenerator(out);
+    gen.write(text(json));
+    gen.close();
+    return FACTORY.createJsonBinaryValue(ByteBuffer.wrap(out.toByteArray()));
+  }
+
+  private String matching(String filter, boolean binary) throws Exception {
+    QueryEvaluator eval = evaluator(provider, filter);
+    StringBuilder sb = new StringBuilder();
+    for (String json : DOCUMENTS) {
+      OracleJsonValue doc = binary ? oson(json) : text(json);
+      if (eval.matches(doc)) {
+        if (sb.length() > 0) sb.append(',');
+        sb.append(doc.asJsonObject().get("k"));
+      }
+    }
+    return sb.toString();
+  }
+
+  private void check(String expected, String filter) throws Exception {
+    assertEquals(filter, expected, matching(filter, false));
+    assertEquals(filter, expected, matching(filter, true));
+  }
+
+  public void testEquality() throws Exception {
+    check("1,2,3,4,5,6", "{}");
+    check("1,6", "{\"age\" : 30}");
+    check("2", "{\"age\" : 25.5}");
+    check("3", "{\"age\" : \"40\"}");
+    check("1,4", "{\"tags\" : \"a\"}");
+    check("1,2", "{\"tags\" : \"b\"}");
+    check("2", "{\"active\" : false}");
+    check("3,5", "{\"$or\" : [{\"active\" : null}, {\"age\" : null}]}");
+    check("5", "{\"note\" : \"\"}");
+    check("6", "{\"note\" : \"true\"}");
+    check("", "{\"note\" : true}");
+  }
+
+  public void testComparisons() throws Exception {
+    check("1,4,6", "{\"age\" : {\"$gte\" : 30}}");
+    check("2,4", "{\"age\" : {\"$lt\" : 30}}");
+    check("4", "{\"age\" : {\"$gt\" : 40}}");
+    check("1,2,6", "{\"age\" : {\"$between\" : [20, 30]}}");
+    check("1,6", "{\"age\" : {\"$gt\" : 26, \"$lt\" : 35}}");
+    check("3", "{\"age\" : {\"$gt\" : \"3\"}}");
+    check("4", "{\"score\" : {\"$lt\" : 0}}");
+  }
+
+  public void testNegation() throws Exception {
+    // $ne also matches a missing field, or one of another type
+    check("2,3,4,5", "{\"age\" : {\"$ne\" : 30}}");
+    check("2,3,4,5", "{\"age\" : {\"$not\" : {\"$eq\" : 30}}}");
+    check("3,4,5,6", "{\"tags\" : {\"$nin\" : [\"b\"]}}");
+    check("3,5", "{\"$nor\" : [{\"age\" : {\"$gte\" : 30}}, {\"age\" : 25.5}]}");
+  }
+
+  public void testInAndAll() throws Exception {
+    check("1,2,4", "{\"tags\" : {\"$in\" : [\"a\", \"c\"]}}");
+    check("1", "{\"tags\" : {\"$all\" : [\"a\", \"b\"]}}");
+    check("1", "{\"tags\" : [\"a\", \"b\"]}");
+    check("1,3,6", "{\"age\" : {\"$in\" : [30, \"40\"]}}");
+    check("", "{\"tags\" : {\"$in\" : []}}");
+  }
+
+  public void testExists() throws Exception {
+    check("1,2,4", "{\"address\" : {\"$exists\" : true}}");
+    check("3,5,6", "{\"address\" : {\"$exists\" : false}}");
+    check("1,2,3,5", "{\"score\" : {\"$exists\" : 0}}");
+    check("1,2,3,4,5,6", "{\"k\" : {\"$exists\" : true}}");
+    check("5,6", "{\"items.sku\" : {\"$exists\" : true}}");
+    check("3", "{\"active\" : {\"$exists\" : true}, \"name\" : {\"$startsWith\" : \"C\"}}");
+  }
+
+  public void testPaths() throws Exception {
+    check("1,2", "{\"address.city\" : \"Boston\"}");
+    check("2", "{\"address[0].city\" : \"Paris\"}");
+    check("1,4", "{\"address[0].city\" : {\"$ne\" : \"Paris\"}, \"address\" : {\"$exists\" : true}}");
+    check("2", "{\"address[last].city\" : \"Boston\", \"address[1]\" : {\"$exists\" : true}}");
+    check("4", "{\"age[1]\" : 50}");
+    check("1,6", "{\"age[0]\" : 30}");
+    check("5,6", "{\"items[*].sku\" : \"x1\"}");
+    check("1,2", "{\"address.zip\" : {\"$exists\" : true}}");
+    check("1,2,4", "{\"..city\" : {\"$exists\" : true}}");
+    // Arrays are only unwrapped one level
+    check("4", "{\"tags\" : {\"$eq\" : \"a\"}, \"k\" : {\"$gt\" : 3}}");
+  }
+
+  public void testDownscope() throws Exception {
+    // Both conditions must hold for the same item
+    check("6", "{\"items\" : {\"sku\" : \"x1\", \"qty\" : 9}}");
+    check("5,6", "{\"items\" : {\"qty\" : {\"$gt\" : 5}}}");
+    check("2", "{\"address\" : {\"city\" : \"Paris\", \"zip\" : 75001}}");
+    check("", "{\"address\" : {\"city\" : \"Boston\", \"zip\" : 75001}}");
+    check("4", "{\"age\" : {\"$gt\" : 40, \"$lt\" : 60}}");
+    check("", "{\"age\" : {\"$gt\" : 20, \"$lt\" : 25}}");
+  }
+
+  public void testStrings() throws Exception {
+    check("1,2", "{\"address.city\" : {\"$startsWith\" : \"B\"}}");
+    check("4", "{\"address.city\" : {\"$startsWith\" : \"bo\"}}");
+    check("1,2,4", "{\"address.city\" : {\"$upper\" : \"BOSTON\"}}");
+    check("1,2,4", "{\"address.city\" : {\"$lower\" : {\"$startsWith\" : \"bos\"}}}");
+    check("1,6", "{\"name\" : {\"$regex\" : \"[A-Z].*e\"}}");
+    check("1,2,3,4,6", "{\"name\" : {\"$likeRegex\" : \"[a-z]\"}}");
+    check("2,3", "{\"name\" : {\"$ciRegex\" : \"(bob|carol)\"}}");
+    check("1,4,6", "{\"name\" : {\"$like\" : \"%e\"}}");
+    check("2", "{\"name\" : {\"$like\" : \"_o_\"}}");
+    check("3", "{\"name\" : {\"$hasSubstring\" : \"aro\"}}");
+  }
+
+  public void testModifiers() throws Exception {
+    check("3", "{\"age\" : {\"$number\" : 40}}");
+    check("3,4", "{\"age\" : {\"$number\" : {\"$gte\" : 40}}}");
+    check("1,3,6", "{\"age\" : {\"$string\" : {\"$in\" : [\"30\", \"40\"]}}}");
+    check("1,4,6", "{\"age\" : {\"$numberOnly\" : {\"$gte\" : 30}}}");
+    check("1,2,4,5", "{\"tags\" : {\"$size\" : {\"$gte\" : 1}}}");
+    check("1,2,5", "{\"tags\" : {\"$type\" : \"array\"}, \"tags[0]\" : {\"$exists\" : true}}");
+    check("4", "{\"tags\" : {\"$type\" : \"string\"}}");
+    check("4,6", "{\"score\" : {\"$abs\" : {\"$gte\" : 7}}}");
+    check("6", "{\"score\" : {\"$floor\" : 7}}");
+    check("4,6", "{\"score\" : {\"$ceiling\" : {\"$in\" : [-7, 8]}}}");
+    check("1,4,6", "{\"age\" : {\"$mod\" : [4, 2]}}");
+    check("1,6", "{\"name\" : {\"$length\" : {\"$gte\" : 3}}, \"age\" : 30}");
+    check("1,2", "{\"active\" : {\"$boolean\" : {\"$in\" : [true, false]}}}");
+    check("6", "{\"when\" : {\"$timestamp\" : {\"$gt\" : \"2024-02-29T09:00:00\"}}}");
+    check("6", "{\"when\" : {\"$date\" : \"2024-02-29\"}}");
+    check("", "{\"when\" : {\"$date\" : {\"$gt\" : \"2024-02-29\"}}}");
+  }
+
+  public void testKeys() throws Exception {
+    QueryEvaluator eval = evaluator(provider, "{\"$id\" : [\"a\", \"b\"], \"age\" : 30}");
+    assertTrue(eval.matches("a", text(DOCUMENTS[0])));
+    assertFalse(eval.matches("c", text(DOCUMENTS[0])));
+    assertFalse(eval.matches("b", text(DOCUMENTS[1])));
+    try {
+      eval.matches(text(DOCUMENTS[0]));
+      fail("No exception for a missing key");
+    } catch (QueryException e) {
+      // Expected
+    }
+  }
+
+  public void testNotEvaluable() throws Exception {
+    String[] filters = new String[] {
+      "{\"$query\" : {\"name\" : {\"$contains\" : \"alice\"}}}",
+      "{\"location\" : {\"$near\" : {\"$geometry\" : {\"type\" : \"Point\", " +
+        "\"coordinates\" : [1, 2]}, \"$distance\" : 5, \"$unit\" : \"KM\"}}}"
+    };
+    for (String filter : filters) {
+      try {
+        evaluator(provider, filter);
+        fail("No exception for " + filter);
+      } catch (QueryException e) {
+        // Expected
+      }
+    }
+  }
+
+  public void testAfterGeneration() throws Exception {
+    // Generating the SQL in-lines some of the values
+    String filter = "{\"active\" : false, \"note\" : {\"$exists\" : false}, " +
+                    "\"age\" : {\"$gt\" : 20}}";
+    AndORTree tree = AndORTree.createTree(provider,
+      new ByteArrayInputStream(filter.getBytes(StandardCharsets.UTF_8)), false);
+    tree.generateJsonExists();
+    assertEquals(1, tree.getValueArray().size());
+
+    QueryEvaluator eval = QueryEvaluator.create(tree);
+    assertFalse(eval.matches(text(DOCUMENTS[0])));
+    assertTrue(eval.matches(text(DOCUMENTS[1])));
+  }
+
+  private String sorted(String filter) throws Exception {
+    QueryEvaluator eval = evaluator(provider, filter);
+    List<OracleJsonValue> docs = new ArrayList<OracleJsonValue>();
+    for (String json : DOCUMENTS)
+      docs.add(oson(json));
+    eval.sort(docs, Function.<OracleJsonValue>identity());
+
+    StringBuilder sb = new StringBuilder();
+    for (OracleJsonValue doc : docs) {
+      if (sb.length() > 0) sb.append(',');
+      sb.append(doc.asJsonObject().get("k"));
+    }
+    return sb.toString();
+  }
+
+  public void testOrderBy() throws Exception {
+    assertFalse(evaluator(provider, "{\"age\" : 30}").hasOrderBy());
+
+    // Default is a string sort, with nulls last ascending, first descending
+    assertEquals("1,3,6,2,4,5", sorted("{\"$orderby\" : {\"name\" : 1}}"));
+    assertEquals("5,4,2,6,3,1", sorted("{\"$orderby\" : {\"name\" : -1}}"));
+    assertEquals("4,6,1,2,3,5",
+                 sorted("{\"$orderby\" : [{\"path\" : \"score\", \"datatype\" : \"number\"}, " +
+                        "{\"path\" : \"k\", \"datatype\" : \"number\"}]}"));
+    assertEquals("5,3,2,1,6,4",
+                 sorted("{\"$orderby\" : [{\"path\" : \"score\", \"datatype\" : \"number\", " +
+                        "\"order\" : \"desc\"}, {\"path\" : \"k\", \"datatype\" : \"number\", " +
+                        "\"order\" : \"desc\"}]}"));
+    // With $lax, values that aren't scalars sort as nulls
+    assertEquals("2,1,6,3,4,5",
+                 sorted("{\"$orderby\" : {\"$lax\" : true, \"$fields\" : " +
+                        "[{\"path\" : \"age\", \"datatype\" : \"number\"}]}}"));
+
+    String[] errors = new String[] {
+      "{\"$orderby\" : [{\"path\" : \"age\", \"datatype\" : \"number\"}]}",
+      "{\"$orderby\" : {\"$scalarRequired\" : true, \"$fields\" : [{\"path\" : \"name\"}]}}"
+    };
+    for (String filter : errors) {
+      try {
+        sorted(filter);
+        fail("No exception for " + filter);
+      } catch (QueryException e) {
+        // Expected
+      }
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/* Copyright (c) 2014, 2024, Oracle and/or its affiliates. */
+/* All rights reserved.*/
+
+/**
+ *    DESCRIPTION
+ *      Differential test for the in-memory QBE evaluator: runs each filter
+ *      as SQL against a collection holding the documents of
+ *      test_QueryEvaluation, and checks that the evaluator selects the same
+ *      documents (and, for $orderby, in the same order) from the fetched
+ *      OSON content.
+ */
+
+package oracle.json.tests.soda;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import oracle.json.common.JsonFactoryProvider;
+import oracle.json.parser.QueryEvaluator;
+import oracle.json.testharness.SodaTestCase;
+import oracle.soda.OracleCollection;
+import oracle.soda.OracleCursor;
+import oracle.soda.OracleDocument;
+import oracle.sql.json.OracleJsonValue;
+
+public class test_QueryEvaluationVsSql extends SodaTestCase {
+
+  private static final String[] FILTERS = new String[] {
+    "{}",
+    "{\"age\" : 30}",
+    "{\"age\" : 25.5}",
+    "{\"age\" : \"40\"}",
+    "{\"tags\" : \"a\"}",
+    "{\"active\" : false}",
+    "{\"$or\" : [{\"active\" : null}, {\"age\" : null}]}",
+    "{\"note\" : \"\"}",
+    "{\"note\" : \"true\"}",
+    "{\"age\" : {\"$gte\" : 30}}",
+    "{\"age\" : {\"$lt\" : 30}}",
+    "{\"age\" : {\"$between\" : [20, 30]}}",
+    "{\"age\" : {\"$gt\" : 26, \"$lt\" : 35}}",
+    "{\"age\" : {\"$gt\" : \"3\"}}",
+    "{\"age\" : {\"$ne\" : 30}}",
+    "{\"age\" : {\"$not\" : {\"$eq\" : 30}}}",
+    "{\"tags\" : {\"$nin\" : [\"b\"]}}",
+    "{\"$nor\" : [{\"age\" : {\"$gte\" : 30}}, {\"age\" : 25.5}]}",
+    "{\"tags\" : {\"$in\" : [\"a\", \"c\"]}}",
+    "{\"tags\" : {\"$all\" : [\"a\", \"b\"]}}",
+    "{\"age\" : {\"$in\" : [30, \"40\"]}}",
+    "{\"address\" : {\"$exists\" : true}}",
+    "{\"score\" : {\"$exists\" : false}}",
+    "{\"items.sku\" : {\"$exists\" : true}}",
+    "{\"address.city\" : \"Boston\"}",
+    "{\"address[0].city\" : \"Paris\"}",
+    "{\"address[last].city\" : \"Boston\"}",
+    "{\"age[1]\" : 50}",
+    "{\"items[*].sku\" : \"x1\"}",
+    "{\"..city\" : {\"$exists\" : true}}",
+    "{\"items\" : {\"sku\" : \"x1\", \"qty\" : 9}}",
+    "{\"address\" : {\"city\" : \"Paris\", \"zip\" : 75001}}",
+    "{\"age\" : {\"$gt\" : 40, \"$lt\" : 60}}",
+    "{\"address.city\" : {\"$startsWith\" : \"B\"}}",
+    "{\"address.city\" : {\"$upper\" : \"BOSTON\"}}",
+    "{\"name\" : {\"$regex\" : \"[A-Z].*e\"}}",
+    "{\"name\" : {\"$ciRegex\" : \"(bob|carol)\"}}",
+    "{\"name\" : {\"$like\" : \"%e\"}}",
+    "{\"name\" : {\"$hasSubstring\" : \"aro\"}}",
+    "{\"age\" : {\"$number\" : {\"$gte\" : 40}}}",
+    "{\"age\" : {\"$string\" : {\"$in\" : [\"30\", \"40\"]}}}",
+    "{\"tags\" : {\"$size\" : {\"$gte\" : 1}}}",
+    "{\"tags\" : {\"$type\" : \"string\"}}",
+    "{\"score\" : {\"$abs\" : {\"$gte\" : 7}}}",
+    "{\"score\" : {\"$ceiling\" : {\"$in\" : [-7, 8]}}}",
+    "{\"age\" : {\"$mod\" : [4, 2]}}",
+    "{\"when\" : {\"$timestamp\" : {\"$gt\" : \"2024-02-29T09:00:00\"}}}",
+    "{\"when\" : {\"$date\" : \"2024-02-29\"}}"
+  };
+
+  // Sort keys are unique, or tie only on documents with a unique k
+  private static final String[] ORDERINGS = new String[] {
+    "{\"$orderby\" : {\"name\" : 1}}",
+    "{\"$orderby\" : {\"name\" : -1}}",
+    "{\"$orderby\" : [{\"path\" : \"score\", \"datatype\" : \"number\"}, " +
+      "{\"path\" : \"k\", \"datatype\" : \"number\"}]}",
+    "{\"$orderby\" : [{\"path\" : \"score\", \"datatype\" : \"number\", \"order\" : \"desc\"}, " +
+      "{\"path\" : \"k\", \"datatype\" : \"number\", \"order\" : \"desc\"}]}"
+  };
+
+  private final JsonFactoryProvider provider = new JsonFactoryProvider();
+
+  private static String keys(List<OracleJsonValue> docs) {
+    StringBuilder sb = new StringBuilder();
+    for (OracleJsonValue doc : docs) {
+      if (sb.length() > 0) sb.append(',');
+      sb.append(doc.asJsonObject().get("k"));
+    }
+    return sb.toString();
+  }
+
+  private List<OracleJsonValue> fetch(OracleCollection col, String filter)
+    throws Exception {
+    List<OracleJsonValue> docs = new ArrayList<OracleJsonValue>();
+    OracleCursor cursor = col.find().filter(db.createDocumentFromString(filter)).getCursor();
+    while (cursor.hasNext())
+      docs.add(cursor.next().getContentAs(OracleJsonValue.class));
+    cursor.close();
+    return docs;
+  }
+
+  public void testSameAsSql() throws Exception {
+    if (isDBVersionBelow(23, 0) || !compatible().equals("20"))
+      return;
+
+    OracleDocument meta = client.createMetadataBuilder().contentColumnType("JSON").build();
+    OracleCollection col = db.admin().createCollection("testQueryEvaluationVsSql", meta);
+    for (String json : test_QueryEvaluation.DOCUMENTS)
+      col.insert(db.createDocumentFromString(json));
+
+    // All documents, as fetched (ordered by k, so the expected keys compare)
+    List<OracleJsonValue> all = fetch(col,
+      "{\"$orderby\" : [{\"path\" : \"k\", \"datatype\" : \"number\"}]}");
+    assertEquals(test_QueryEvaluation.DOCUMENTS.length, all.size());
+
+    for (String filter : FILTERS) {
+      String sqlFilter = "{\"$query\" : " + filter +
+        ", \"$orderby\" : [{\"path\" : \"k\", \"datatype\" : \"number\"}]}";
+      QueryEvaluator eval = test_QueryEvaluation.evaluator(provider, filter);
+
+      List<OracleJsonValue> matched = new ArrayList<OracleJsonValue>();
+      for (OracleJsonValue doc : all) {
+        if (eval.matches(doc))
+          matched.add(doc);
+      }
+      assertEquals(filter, keys(fetch(col, sqlFilter)), keys(matched));
+    }
+
+    for (String filter : ORDERINGS) {
+      QueryEvaluator eval = test_QueryEvaluation.evaluator(provider, filter);
+      List<OracleJsonValue> sorted = new ArrayList<OracleJsonValue>(all);
+      eval.sort(sorted, Function.<OracleJsonValue>identity());
+      assertEquals(filter, keys(fetch(col, filter)), keys(sorted));
+    }
+
+    col.admin().drop();
+  }
+}